@@ -0,0 +1,60 @@
+package com.ibsrapp.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 示例基准测试的公共工具
+ *
+ * 各个示例类的benchmark方法都用同样的方式计时：先跑预热轮让JIT完成编译，最后一轮才打印结果，
+ * 并用HotSpot的线程分配计数统计分配量。这里集中提供这些辅助方法。
+ *
+ * 这些数字只用于示例之间的粗略对比，严格的测量应使用JMH。
+ */
+public final class BenchmarkSupport {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 一轮基准测试；report为true时是最后一轮，需要打印结果
+     */
+    @FunctionalInterface
+    public interface Round {
+        void run(boolean report);
+    }
+
+    /**
+     * 先执行warmupRounds轮预热，再执行一轮并报告结果
+     */
+    public static void warmupThenReport(int warmupRounds, Round round) {
+        if (warmupRounds < 0) {
+            throw new IllegalArgumentException("预热轮数不能为负数：" + warmupRounds);
+        }
+        for (int i = 0; i <= warmupRounds; i++) {
+            round.run(i == warmupRounds);
+        }
+    }
+
+    /**
+     * 当前线程累计分配的字节数；JVM不支持时返回-1
+     */
+    public static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported()) {
+            return bean.getThreadAllocatedBytes(Thread.currentThread().threadId());
+        }
+        return -1;
+    }
+
+    /**
+     * 连续几次GC之后的堆使用量，用于粗略估算数据结构的内存占用
+     */
+    public static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
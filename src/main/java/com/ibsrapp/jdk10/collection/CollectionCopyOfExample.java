@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * JDK10 集合copyOf()方法示例
@@ -162,18 +163,30 @@ public class CollectionCopyOfExample {
     /**
      * 示例5：实际应用场景 - 保护内部数据
      * 使用copyOf()保护内部集合不被外部修改
+     *
+     * 内部保存的是不可变的PersistentMap快照：getConfig()直接返回当前快照，无需复制；
+     * set/remove只复制一条树路径并原子地替换快照，读取方永远不会阻塞，
+     * 之前拿到的快照也不会被后续修改影响。
      */
     static class Configuration {
-        private final Map<String, String> config;
+        private final AtomicReference<PersistentMap<String, String>> config;
         
         public Configuration(Map<String, String> config) {
             // 创建不可变副本，保护内部数据
-            this.config = Map.copyOf(config);
+            this.config = new AtomicReference<>(PersistentMap.copyOf(config));
         }
         
         public Map<String, String> getConfig() {
-            // 返回不可变副本，防止外部修改
-            return Map.copyOf(config);
+            // 快照本身不可变，直接返回
+            return config.get();
+        }
+        
+        public void set(String key, String value) {
+            config.updateAndGet(current -> current.with(key, value));
+        }
+        
+        public void remove(String key) {
+            config.updateAndGet(current -> current.without(key));
         }
     }
     
@@ -198,6 +211,11 @@ public class CollectionCopyOfExample {
         } catch (UnsupportedOperationException e) {
             System.out.println("无法修改返回的配置：" + e.getClass().getSimpleName());
         }
+        
+        // 更新配置生成新快照，之前返回的快照保持不变
+        config.set("port", "9090");
+        System.out.println("更新后的配置：" + config.getConfig());
+        System.out.println("之前的快照：" + returnedConfig);
     }
 
     /**
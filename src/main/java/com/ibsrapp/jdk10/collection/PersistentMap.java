@@ -0,0 +1,565 @@
+package com.ibsrapp.jdk10.collection;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 持久化不可变映射（HAMT）
+ *
+ * Map.copyOf得到的映射只能整体复制：修改一个键需要先复制成HashMap、修改、再copyOf一次，代价是O(n)。
+ * 持久化映射把条目组织成32叉的哈希前缀树（Hash Array Mapped Trie），
+ * with/without只复制从根到目标节点的一条路径（最多7层），其余节点在新旧版本之间共享。
+ *
+ * 节点布局（CHAMP）：
+ * - dataMap：哪些哈希片段直接存放键值对，按位图下标存放在content前部
+ * - nodeMap：哪些哈希片段指向子节点，存放在键值对之后
+ * - 32位哈希全部用完仍然冲突的键放在CollisionNode中线性查找
+ * 删除后只剩一个键值对的子节点会被父节点内联，保证树的形状只取决于内容。
+ *
+ * 与Map.copyOf一样不允许null键和null值；Map接口上的修改方法抛出UnsupportedOperationException。
+ * 每个版本都是不可变的，可以在线程间自由共享，读取无需加锁。
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int HASH_BITS = 32;
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * 复制任意映射；参数本身是PersistentMap时直接返回
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentMap) {
+            return (PersistentMap<K, V>) map;
+        }
+        PersistentMap<K, V> result = empty();
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            result = result.with(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * 返回加入（或替换）一个键值对后的新版本；值没有变化时返回this
+     */
+    public PersistentMap<K, V> with(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        Change change = new Change();
+        Node newRoot = root.put(key, value, key.hashCode(), 0, change);
+        return newRoot == root ? this : new PersistentMap<>(newRoot, size + change.sizeDelta);
+    }
+
+    /**
+     * 返回删除一个键后的新版本；键不存在时返回this
+     */
+    public PersistentMap<K, V> without(Object key) {
+        if (key == null) {
+            return this;
+        }
+        Change change = new Change();
+        Node newRoot = root.remove(key, key.hashCode(), 0, change);
+        return newRoot == root ? this : new PersistentMap<>(newRoot, size + change.sizeDelta);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return key == null ? null : (V) root.get(key, key.hashCode(), 0);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // 一次修改引起的条目数变化
+    private static final class Change {
+        int sizeDelta;
+    }
+
+    private abstract static class Node {
+        abstract Object get(Object key, int hash, int shift);
+
+        abstract Node put(Object key, Object value, int hash, int shift, Change change);
+
+        abstract Node remove(Object key, int hash, int shift, Change change);
+
+        abstract int payloadArity();
+
+        abstract Object keyAt(int index);
+
+        abstract Object valueAt(int index);
+
+        abstract int nodeArity();
+
+        abstract Node nodeAt(int index);
+    }
+
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0]);
+
+        final int dataMap;
+        final int nodeMap;
+        // [k0, v0, k1, v1, ..., node0, node1, ...]
+        final Object[] content;
+
+        BitmapNode(int dataMap, int nodeMap, Object[] content) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        private static int fragment(int hash, int shift) {
+            return (hash >>> shift) & MASK;
+        }
+
+        private static int index(int bitmap, int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private int nodeOffset(int bit) {
+            return 2 * Integer.bitCount(dataMap) + index(nodeMap, bit);
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int bit = 1 << fragment(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = 2 * index(dataMap, bit);
+                return key.equals(content[i]) ? content[i + 1] : null;
+            }
+            if ((nodeMap & bit) != 0) {
+                return ((Node) content[nodeOffset(bit)]).get(key, hash, shift + BITS);
+            }
+            return null;
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift, Change change) {
+            int bit = 1 << fragment(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = 2 * index(dataMap, bit);
+                Object existing = content[i];
+                if (key.equals(existing)) {
+                    if (value.equals(content[i + 1])) {
+                        return this;
+                    }
+                    Object[] copy = content.clone();
+                    copy[i + 1] = value;
+                    return new BitmapNode(dataMap, nodeMap, copy);
+                }
+                // 同一片段上已有其他键：下沉为子节点
+                Node sub = merge(existing, content[i + 1], existing.hashCode(), key, value, hash, shift + BITS);
+                change.sizeDelta = 1;
+                return dataToNode(bit, i, sub);
+            }
+            if ((nodeMap & bit) != 0) {
+                int offset = nodeOffset(bit);
+                Node sub = (Node) content[offset];
+                Node newSub = sub.put(key, value, hash, shift + BITS, change);
+                return newSub == sub ? this : replaceNode(offset, newSub);
+            }
+            change.sizeDelta = 1;
+            int i = 2 * index(dataMap, bit);
+            Object[] copy = new Object[content.length + 2];
+            System.arraycopy(content, 0, copy, 0, i);
+            copy[i] = key;
+            copy[i + 1] = value;
+            System.arraycopy(content, i, copy, i + 2, content.length - i);
+            return new BitmapNode(dataMap | bit, nodeMap, copy);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift, Change change) {
+            int bit = 1 << fragment(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = 2 * index(dataMap, bit);
+                if (!key.equals(content[i])) {
+                    return this;
+                }
+                change.sizeDelta = -1;
+                Object[] copy = new Object[content.length - 2];
+                System.arraycopy(content, 0, copy, 0, i);
+                System.arraycopy(content, i + 2, copy, i, content.length - i - 2);
+                return new BitmapNode(dataMap ^ bit, nodeMap, copy);
+            }
+            if ((nodeMap & bit) != 0) {
+                int offset = nodeOffset(bit);
+                Node sub = (Node) content[offset];
+                Node newSub = sub.remove(key, hash, shift + BITS, change);
+                if (newSub == sub) {
+                    return this;
+                }
+                if (newSub.nodeArity() == 0 && newSub.payloadArity() == 1) {
+                    return nodeToData(bit, offset, newSub.keyAt(0), newSub.valueAt(0));
+                }
+                return replaceNode(offset, newSub);
+            }
+            return this;
+        }
+
+        private BitmapNode replaceNode(int offset, Node node) {
+            Object[] copy = content.clone();
+            copy[offset] = node;
+            return new BitmapNode(dataMap, nodeMap, copy);
+        }
+
+        // 删除下标i处的键值对，在nodeMap中插入子节点
+        private BitmapNode dataToNode(int bit, int i, Node node) {
+            int newNodeMap = nodeMap | bit;
+            int offset = 2 * (Integer.bitCount(dataMap) - 1) + index(newNodeMap, bit);
+            Object[] copy = new Object[content.length - 1];
+            System.arraycopy(content, 0, copy, 0, i);
+            System.arraycopy(content, i + 2, copy, i, offset - i);
+            copy[offset] = node;
+            System.arraycopy(content, offset + 2, copy, offset + 1, content.length - offset - 2);
+            return new BitmapNode(dataMap ^ bit, newNodeMap, copy);
+        }
+
+        // 子节点只剩一个键值对：内联回当前节点
+        private BitmapNode nodeToData(int bit, int offset, Object key, Object value) {
+            int newDataMap = dataMap | bit;
+            int i = 2 * index(newDataMap, bit);
+            Object[] copy = new Object[content.length + 1];
+            System.arraycopy(content, 0, copy, 0, i);
+            copy[i] = key;
+            copy[i + 1] = value;
+            System.arraycopy(content, i, copy, i + 2, offset - i);
+            System.arraycopy(content, offset + 1, copy, offset + 2, content.length - offset - 1);
+            return new BitmapNode(newDataMap, nodeMap ^ bit, copy);
+        }
+
+        private static Node merge(Object key1, Object value1, int hash1,
+                                  Object key2, Object value2, int hash2, int shift) {
+            if (shift >= HASH_BITS) {
+                return new CollisionNode(new Object[] {key1, key2}, new Object[] {value1, value2});
+            }
+            int fragment1 = fragment(hash1, shift);
+            int fragment2 = fragment(hash2, shift);
+            if (fragment1 != fragment2) {
+                int dataMap = (1 << fragment1) | (1 << fragment2);
+                return fragment1 < fragment2
+                    ? new BitmapNode(dataMap, 0, new Object[] {key1, value1, key2, value2})
+                    : new BitmapNode(dataMap, 0, new Object[] {key2, value2, key1, value1});
+            }
+            Node sub = merge(key1, value1, hash1, key2, value2, hash2, shift + BITS);
+            return new BitmapNode(0, 1 << fragment1, new Object[] {sub});
+        }
+
+        @Override
+        int payloadArity() {
+            return Integer.bitCount(dataMap);
+        }
+
+        @Override
+        Object keyAt(int index) {
+            return content[2 * index];
+        }
+
+        @Override
+        Object valueAt(int index) {
+            return content[2 * index + 1];
+        }
+
+        @Override
+        int nodeArity() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        Node nodeAt(int index) {
+            return (Node) content[2 * payloadArity() + index];
+        }
+    }
+
+    // 完整32位哈希相同的键
+    private static final class CollisionNode extends Node {
+        final Object[] keys;
+        final Object[] values;
+
+        CollisionNode(Object[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (key.equals(keys[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int i = indexOf(key);
+            return i < 0 ? null : values[i];
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift, Change change) {
+            int i = indexOf(key);
+            if (i >= 0) {
+                if (value.equals(values[i])) {
+                    return this;
+                }
+                Object[] newValues = values.clone();
+                newValues[i] = value;
+                return new CollisionNode(keys, newValues);
+            }
+            change.sizeDelta = 1;
+            Object[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+            Object[] newValues = Arrays.copyOf(values, values.length + 1);
+            newKeys[keys.length] = key;
+            newValues[values.length] = value;
+            return new CollisionNode(newKeys, newValues);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift, Change change) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return this;
+            }
+            change.sizeDelta = -1;
+            Object[] newKeys = new Object[keys.length - 1];
+            Object[] newValues = new Object[values.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+            System.arraycopy(values, 0, newValues, 0, i);
+            System.arraycopy(values, i + 1, newValues, i, values.length - i - 1);
+            return new CollisionNode(newKeys, newValues);
+        }
+
+        @Override
+        int payloadArity() {
+            return keys.length;
+        }
+
+        @Override
+        Object keyAt(int index) {
+            return keys[index];
+        }
+
+        @Override
+        Object valueAt(int index) {
+            return values[index];
+        }
+
+        @Override
+        int nodeArity() {
+            return 0;
+        }
+
+        @Override
+        Node nodeAt(int index) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+    // 深度优先遍历：先输出节点自身的键值对，再依次进入子节点
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Node[] nodes = new Node[HASH_BITS / BITS + 2];
+        private final int[] nextChild = new int[nodes.length];
+        private int depth;
+        private Node current;
+        private int payloadIndex;
+
+        EntryIterator(Node root) {
+            nodes[0] = root;
+            current = root;
+            advance();
+        }
+
+        // 移动到下一个还有未输出键值对的节点
+        private void advance() {
+            while (current != null && payloadIndex >= current.payloadArity()) {
+                Node node = nodes[depth];
+                if (nextChild[depth] < node.nodeArity()) {
+                    Node child = node.nodeAt(nextChild[depth]++);
+                    depth++;
+                    nodes[depth] = child;
+                    nextChild[depth] = 0;
+                    current = child;
+                    payloadIndex = 0;
+                } else if (depth > 0) {
+                    depth--;
+                } else {
+                    current = null;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return current != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (current == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> entry = new SimpleImmutableEntry<>(
+                (K) current.keyAt(payloadIndex), (V) current.valueAt(payloadIndex));
+            payloadIndex++;
+            advance();
+            return entry;
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 配置读取与更新：原来的双重copyOf vs 持久化映射
+     */
+    public static void benchmark(int entries, int operations) {
+        System.out.println("=== 配置快照性能对比（" + entries + "个配置项） ===");
+
+        Map<String, String> initial = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            initial.put("key-" + i, "value-" + i);
+        }
+        CopyingConfiguration copying = new CopyingConfiguration(initial);
+        CollectionCopyOfExample.Configuration persistent = new CollectionCopyOfExample.Configuration(initial);
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            long sink = 0;
+
+            long bytes = BenchmarkSupport.allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                sink += copying.getConfig().size();
+            }
+            print(report, "读取：Map.copyOf", start, bytes, operations);
+
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                sink += persistent.getConfig().size();
+            }
+            print(report, "读取：PersistentMap", start, bytes, operations);
+
+            // 整体复制的代价与条目数成正比，按条目数缩减次数
+            int updates = Math.max(1, operations / entries);
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < updates; i++) {
+                copying.set("key-" + (i % entries), "updated-" + i);
+            }
+            print(report, "更新：复制整个映射", start, bytes, updates);
+
+            updates = operations / 10;
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < updates; i++) {
+                persistent.set("key-" + (i % entries), "updated-" + i);
+            }
+            print(report, "更新：PersistentMap", start, bytes, updates);
+
+            if (report) {
+                System.out.println("校验值：" + sink);
+            }
+        });
+    }
+
+    // 原来的写法：构造和读取都copyOf，更新时复制整个映射
+    private static final class CopyingConfiguration {
+        private volatile Map<String, String> config;
+
+        CopyingConfiguration(Map<String, String> config) {
+            this.config = Map.copyOf(config);
+        }
+
+        Map<String, String> getConfig() {
+            return Map.copyOf(config);
+        }
+
+        synchronized void set(String key, String value) {
+            Map<String, String> copy = new HashMap<>(config);
+            copy.put(key, value);
+            config = Map.copyOf(copy);
+        }
+    }
+
+    private static void print(boolean report, String label, long start, long startBytes, int operations) {
+        long nanos = System.nanoTime() - start;
+        long bytes = BenchmarkSupport.allocatedBytes() - startBytes;
+        if (report) {
+            System.out.printf("%s：%.1f ns/次，%.1f B/次%n", label, (double) nanos / operations,
+                startBytes < 0 ? -1 : (double) bytes / operations);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 持久化不可变映射示例 ==========\n");
+
+        PersistentMap<String, String> v1 = PersistentMap.<String, String>empty()
+            .with("host", "localhost")
+            .with("port", "8080");
+        PersistentMap<String, String> v2 = v1.with("port", "9090").with("timeout", "30s");
+        PersistentMap<String, String> v3 = v2.without("host");
+        System.out.println("版本1：" + v1);
+        System.out.println("版本2：" + v2);
+        System.out.println("版本3：" + v3);
+        System.out.println("写入相同的值返回同一实例：" + (v2.with("timeout", "30s") == v2));
+        System.out.println();
+
+        benchmark(1_000, 2_000_000);
+        System.out.println();
+        benchmark(100_000, 2_000_000);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -0,0 +1,385 @@
+package com.ibsrapp.jdk11.string;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 去除空白行的行切分器
+ *
+ * 示例5的写法是text.lines().map(String::strip).filter(line -&gt; !line.isBlank())：
+ * lines()为每一行创建一个String，strip()再创建一个，空白行也不例外。
+ * 对于GB级的文本，这些短命字符串的分配量与输入大小同一个数量级。
+ *
+ * LineTokenizer是一个游标：next()移动到下一个非空白行，
+ * start()/end()给出去掉首尾空白后在原始缓冲区中的偏移。游标本身实现CharSequence，
+ * 是当前行的视图，可以直接交给StringBuilder.append、正则表达式等，只有调用toString()时才创建String。
+ *
+ * 与String的对应关系：
+ * - 行结束符与lines()一致：\n、\r、\r\n；最后一个结束符之后没有内容时不产生空行
+ * - 空白的判断与strip()/isBlank()一致，使用Character.isWhitespace
+ *
+ * 两种输入：
+ * 1. of(CharSequence)：任意字符序列（String、StringBuilder、CharBuffer……）
+ * 2. latin1(byte[], from, to)：按ISO-8859-1解释的字节，例如直接读入的ASCII日志文件。
+ *    每个字节就是一个字符，空白判断查256项的表，无需先解码成char[]。
+ *    UTF-8输入中的多字节空白字符（如U+3000）不会被识别为空白
+ */
+public abstract class LineTokenizer implements CharSequence {
+
+    // Latin-1范围内的空白字符表
+    private static final boolean[] LATIN1_WHITESPACE = new boolean[256];
+
+    static {
+        for (int c = 0; c < 256; c++) {
+            LATIN1_WHITESPACE[c] = Character.isWhitespace(c);
+        }
+    }
+
+    int position;
+    final int limit;
+    int start;
+    int end;
+
+    private LineTokenizer(int position, int limit) {
+        this.position = position;
+        this.limit = limit;
+    }
+
+    public static LineTokenizer of(CharSequence text) {
+        return text instanceof String string ? new StringLines(string) : new CharSequenceLines(Objects.requireNonNull(text));
+    }
+
+    public static LineTokenizer latin1(byte[] bytes) {
+        return latin1(bytes, 0, bytes.length);
+    }
+
+    public static LineTokenizer latin1(byte[] bytes, int from, int to) {
+        Objects.checkFromToIndex(from, to, bytes.length);
+        return new Latin1Lines(bytes, from, to);
+    }
+
+    /**
+     * 移动到下一个去掉首尾空白后非空的行；没有更多行时返回false
+     */
+    public abstract boolean next();
+
+    /**
+     * 当前行（已去掉首尾空白）在输入中的起始偏移
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * 当前行（已去掉首尾空白）在输入中的结束偏移（不含）
+     */
+    public int end() {
+        return end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        Objects.checkFromToIndex(from, to, length());
+        return toString().substring(from, to);
+    }
+
+    /**
+     * 把当前行追加到builder，不创建中间字符串
+     */
+    public abstract void appendTo(StringBuilder builder);
+
+    /**
+     * 剩余的非空白行数；会消耗游标
+     */
+    public int count() {
+        int count = 0;
+        while (next()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 等价于text.lines().map(String::strip).filter(line -&gt; !line.isBlank()).collect(joining(delimiter))
+     */
+    public static String joinNonBlank(CharSequence text, String delimiter) {
+        LineTokenizer lines = of(text);
+        StringBuilder builder = new StringBuilder(text.length());
+        boolean first = true;
+        while (lines.next()) {
+            if (!first) {
+                builder.append(delimiter);
+            }
+            lines.appendTo(builder);
+            first = false;
+        }
+        return builder.toString();
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c < 256 ? LATIN1_WHITESPACE[c] : Character.isWhitespace(c);
+    }
+
+    // 先找行结束符，再从两端向内跳过空白：行内容本身只在首尾被访问
+    private static class CharSequenceLines extends LineTokenizer {
+        final CharSequence text;
+
+        CharSequenceLines(CharSequence text) {
+            super(0, text.length());
+            this.text = text;
+        }
+
+        // from之后第一个行结束符的位置，没有时返回limit
+        int lineEnd(int from) {
+            CharSequence source = text;
+            for (int i = from; i < limit; i++) {
+                char c = source.charAt(i);
+                if (c == '\n' || c == '\r') {
+                    return i;
+                }
+            }
+            return limit;
+        }
+
+        @Override
+        public final boolean next() {
+            CharSequence source = text;
+            int i = position;
+            while (i < limit) {
+                int lineEnd = lineEnd(i);
+                int first = i;
+                while (first < lineEnd && isWhitespace(source.charAt(first))) {
+                    first++;
+                }
+                int last = lineEnd;
+                while (last > first && isWhitespace(source.charAt(last - 1))) {
+                    last--;
+                }
+                i = lineEnd;
+                if (i < limit) {
+                    i += source.charAt(i) == '\r' && i + 1 < limit && source.charAt(i + 1) == '\n' ? 2 : 1;
+                }
+                if (first < last) {
+                    position = i;
+                    start = first;
+                    end = last;
+                    return true;
+                }
+            }
+            position = i;
+            return false;
+        }
+
+        @Override
+        public char charAt(int index) {
+            Objects.checkIndex(index, length());
+            return text.charAt(start + index);
+        }
+
+        @Override
+        public void appendTo(StringBuilder builder) {
+            builder.append(text, start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text.subSequence(start, end).toString();
+        }
+    }
+
+    // String输入：用String.indexOf（JVM内建的批量扫描）找结束符，并缓存下一个\n和\r的位置
+    private static final class StringLines extends CharSequenceLines {
+        private final String string;
+        private int nextNewline = -1;
+        private int nextReturn = -1;
+
+        StringLines(String string) {
+            super(string);
+            this.string = string;
+        }
+
+        @Override
+        int lineEnd(int from) {
+            if (nextNewline < from) {
+                nextNewline = indexOf('\n', from);
+            }
+            if (nextReturn < from) {
+                nextReturn = indexOf('\r', from);
+            }
+            return Math.min(nextNewline, nextReturn);
+        }
+
+        private int indexOf(char c, int from) {
+            int index = string.indexOf(c, from);
+            return index < 0 ? limit : index;
+        }
+
+        @Override
+        public String toString() {
+            return string.substring(start, end);
+        }
+    }
+
+    private static final class Latin1Lines extends LineTokenizer {
+        private final byte[] bytes;
+
+        Latin1Lines(byte[] bytes, int from, int to) {
+            super(from, to);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public boolean next() {
+            byte[] source = bytes;
+            int i = position;
+            while (i < limit) {
+                int lineEnd = i;
+                while (lineEnd < limit && source[lineEnd] != '\n' && source[lineEnd] != '\r') {
+                    lineEnd++;
+                }
+                int first = i;
+                while (first < lineEnd && LATIN1_WHITESPACE[source[first] & 0xFF]) {
+                    first++;
+                }
+                int last = lineEnd;
+                while (last > first && LATIN1_WHITESPACE[source[last - 1] & 0xFF]) {
+                    last--;
+                }
+                i = lineEnd;
+                if (i < limit) {
+                    i += source[i] == '\r' && i + 1 < limit && source[i + 1] == '\n' ? 2 : 1;
+                }
+                if (first < last) {
+                    position = i;
+                    start = first;
+                    end = last;
+                    return true;
+                }
+            }
+            position = i;
+            return false;
+        }
+
+        @Override
+        public char charAt(int index) {
+            Objects.checkIndex(index, length());
+            return (char) (bytes[start + index] & 0xFF);
+        }
+
+        @Override
+        public void appendTo(StringBuilder builder) {
+            for (int i = start; i < end; i++) {
+                builder.append((char) (bytes[i] & 0xFF));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 统计非空白行的字符总数：lines().map(strip).filter vs LineTokenizer（String输入与Latin-1字节输入）
+     */
+    public static void benchmark(int megabytes) {
+        System.out.println("=== 行切分性能对比（约" + megabytes + " MB文本） ===");
+
+        byte[] bytes = sampleText((long) megabytes << 20);
+        String text = new String(bytes, StandardCharsets.ISO_8859_1);
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            long allocated = BenchmarkSupport.allocatedBytes();
+            long startTime = System.nanoTime();
+            long chars = text.lines()
+                .map(String::strip)
+                .filter(line -> !line.isBlank())
+                .mapToLong(String::length)
+                .sum();
+            print(report, "lines().map(strip).filter", startTime, allocated, bytes.length, chars);
+
+            allocated = BenchmarkSupport.allocatedBytes();
+            startTime = System.nanoTime();
+            chars = 0;
+            LineTokenizer lines = of(text);
+            while (lines.next()) {
+                chars += lines.length();
+            }
+            print(report, "LineTokenizer.of(String)", startTime, allocated, bytes.length, chars);
+
+            allocated = BenchmarkSupport.allocatedBytes();
+            startTime = System.nanoTime();
+            chars = 0;
+            lines = latin1(bytes);
+            while (lines.next()) {
+                chars += lines.length();
+            }
+            print(report, "LineTokenizer.latin1(byte[])", startTime, allocated, bytes.length, chars);
+        });
+    }
+
+    // 生成样例文本：普通行、首尾带空白的行、空白行，混合\n和\r\n
+    static byte[] sampleText(long size) {
+        if (size > Integer.MAX_VALUE - 64) {
+            throw new IllegalArgumentException("样例文本过大：" + size);
+        }
+        String[] patterns = {
+            "2024-01-01 12:00:00 INFO user login succeeded user=alice\n",
+            "   \t  indented line with trailing spaces     \n",
+            "\n",
+            "    \r\n",
+            "plain ascii line number 42\r\n",
+            " \u00A0non-breaking space is not whitespace\u00A0 \n"
+        };
+        byte[] bytes = new byte[(int) size];
+        int length = 0;
+        for (int i = 0; length < bytes.length; i++) {
+            byte[] line = patterns[i % patterns.length].getBytes(StandardCharsets.ISO_8859_1);
+            int count = Math.min(line.length, bytes.length - length);
+            System.arraycopy(line, 0, bytes, length, count);
+            length += count;
+        }
+        return bytes;
+    }
+
+    private static void print(boolean report, String label, long startTime, long startBytes, long size, long chars) {
+        long nanos = System.nanoTime() - startTime;
+        long allocated = BenchmarkSupport.allocatedBytes() - startBytes;
+        if (report) {
+            System.out.printf("%s：%.1f ms，%.0f MB/秒，分配%.1f MB（%d个字符）%n", label, nanos / 1e6,
+                size / 1024.0 / 1024.0 / (nanos / 1e9), startBytes < 0 ? -1 : allocated / 1024.0 / 1024.0, chars);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     *
+     * 默认处理256 MB文本；传入1024并加大堆（例如-Xmx4g）即可测1 GB输入
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 行切分器示例 ==========\n");
+
+        String multiLineText = "  第一行  \n  第二行  \n \t \r\n  第三行  ";
+        LineTokenizer lines = of(multiLineText);
+        while (lines.next()) {
+            System.out.println("[" + lines.start() + ", " + lines.end() + ") " + lines);
+        }
+        System.out.println("拼接结果与lines()一致：" + joinNonBlank(multiLineText, "\n").equals(
+            multiLineText.lines().map(String::strip).filter(line -> !line.isBlank()).collect(Collectors.joining("\n"))));
+        System.out.println();
+
+        benchmark(args.length > 0 ? Integer.parseInt(args[0]) : 256);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
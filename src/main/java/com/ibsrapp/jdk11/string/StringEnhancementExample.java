@@ -142,6 +142,10 @@ public class StringEnhancementExample {
                                         .collect(Collectors.joining("\n"));
         System.out.println("处理后的多行文本：\n" + processed);
         
+        // 大文本时改用LineTokenizer：按偏移切分，不为每行创建字符串
+        String joined = LineTokenizer.joinNonBlank(multiLineText, "\n");
+        System.out.println("LineTokenizer结果相同：" + joined.equals(processed));
+        
         // 场景3：格式化输出
         String title = "标题";
         String formattedTitle = "=".repeat(20) + " " + title + " " + "=".repeat(20);
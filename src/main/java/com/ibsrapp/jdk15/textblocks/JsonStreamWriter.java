@@ -0,0 +1,650 @@
+package com.ibsrapp.jdk15.textblocks;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式JSON生成器
+ *
+ * 用文本块手写JSON（或formatted()/StringBuilder拼接）需要先构建完整的String，
+ * 再编码成UTF-8字节，转义也要靠调用方自己处理。
+ *
+ * JsonStreamWriter直接把JSON以UTF-8写入一个可复用的字节数组：
+ * 1. 字段名在每个Record类型上只编码一次（"name": 的字节被缓存）
+ * 2. 字符串按JSON规范转义，并直接编码为UTF-8，不生成中间String
+ * 3. 整数直接写出十进制数字；Record的基本类型组件通过类型匹配的访问器写出，不装箱
+ * 4. reset()后缓冲区可以复用，toByteBuffer()返回视图而不是拷贝
+ *
+ * 支持的值类型：null、String/CharSequence、Character（写为单字符字符串）、Number、Boolean、
+ * 枚举（写为name()）、Record（含嵌套）、Collection、对象数组、int[]/long[]/float[]/double[]/boolean[]
+ * 和以String为键的Map。float按Float.toString写出，不会放宽为double（0.1f写作0.1）。
+ */
+public final class JsonStreamWriter {
+
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_DEPTH = 64;
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+
+    // 每个Record类型对应一份预编码的字段名和访问器
+    private static final ClassValue<RecordCodec> CODECS = new ClassValue<>() {
+        @Override
+        protected RecordCodec computeValue(Class<?> type) {
+            return new RecordCodec(type);
+        }
+    };
+
+    private byte[] buffer;
+    private int size;
+    // 每层容器是否已经写过元素（决定是否需要逗号）
+    private final boolean[] hasElement = new boolean[MAX_DEPTH];
+    // 每层容器是对象（true）还是数组（false）
+    private final boolean[] isObject = new boolean[MAX_DEPTH];
+    private int depth;
+    // 刚写完字段名，下一个值不需要逗号
+    private boolean afterName;
+
+    public JsonStreamWriter() {
+        this(256);
+    }
+
+    public JsonStreamWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * 预编码字段名：得到 "name": 的UTF-8字节
+     */
+    public static byte[] encodeName(String name) {
+        JsonStreamWriter writer = new JsonStreamWriter(name.length() + 8);
+        writer.writeString(name);
+        writer.writeByte(':');
+        return writer.toByteArray();
+    }
+
+    /**
+     * 清空内容，保留已分配的缓冲区
+     */
+    public JsonStreamWriter reset() {
+        size = 0;
+        depth = 0;
+        afterName = false;
+        return this;
+    }
+
+    /**
+     * 已写入的字节数
+     */
+    public int size() {
+        return size;
+    }
+
+    public JsonStreamWriter beginObject() {
+        beforeValue();
+        push(true);
+        writeByte('{');
+        return this;
+    }
+
+    public JsonStreamWriter endObject() {
+        pop(true);
+        writeByte('}');
+        return this;
+    }
+
+    public JsonStreamWriter beginArray() {
+        beforeValue();
+        push(false);
+        writeByte('[');
+        return this;
+    }
+
+    public JsonStreamWriter endArray() {
+        pop(false);
+        writeByte(']');
+        return this;
+    }
+
+    /**
+     * 写入字段名
+     */
+    public JsonStreamWriter name(String name) {
+        beforeName();
+        writeString(name);
+        writeByte(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * 写入预编码的字段名（由encodeName得到）
+     */
+    public JsonStreamWriter name(byte[] encodedName) {
+        beforeName();
+        writeBytes(encodedName);
+        afterName = true;
+        return this;
+    }
+
+    public JsonStreamWriter value(CharSequence value) {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    public JsonStreamWriter value(long value) {
+        beforeValue();
+        writeLong(value);
+        return this;
+    }
+
+    public JsonStreamWriter value(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON不支持的数值：" + value);
+        }
+        if (value == (long) value && Math.abs(value) < 1e7 && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO) {
+            // Double.toString对[1e-3, 1e7)内的整数值写作1.0这种形式，这里直接写出数字，避免创建String；
+            // 其他值（含-0.0和1.0E7这样的科学计数法）交给Double.toString
+            beforeValue();
+            writeLong((long) value);
+            writeByte('.');
+            writeByte('0');
+            return this;
+        }
+        beforeValue();
+        writeAscii(Double.toString(value));
+        return this;
+    }
+
+    public JsonStreamWriter value(float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON不支持的数值：" + value);
+        }
+        beforeValue();
+        writeAscii(Float.toString(value));
+        return this;
+    }
+
+    public JsonStreamWriter value(boolean value) {
+        beforeValue();
+        writeBytes(value ? TRUE : FALSE);
+        return this;
+    }
+
+    public JsonStreamWriter nullValue() {
+        beforeValue();
+        writeBytes(NULL);
+        return this;
+    }
+
+    // char写为单字符字符串；不提供public的value(char)重载，以免改变value('a')按整数写出的现有解析
+    private JsonStreamWriter charValue(char value) {
+        beforeValue();
+        writeString(String.valueOf(value));
+        return this;
+    }
+
+    /**
+     * 写入任意支持的值，Record按组件顺序写为对象
+     */
+    public JsonStreamWriter value(Object value) {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof CharSequence cs) {
+            return value(cs);
+        }
+        if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            return value(((Number) value).longValue());
+        }
+        if (value instanceof BigDecimal || value instanceof BigInteger) {
+            beforeValue();
+            writeAscii(value.toString());
+            return this;
+        }
+        if (value instanceof Float f) {
+            return value(f.floatValue());
+        }
+        if (value instanceof Number n) {
+            return value(n.doubleValue());
+        }
+        if (value instanceof Boolean b) {
+            return value(b.booleanValue());
+        }
+        if (value instanceof Character c) {
+            return charValue(c);
+        }
+        if (value instanceof Enum<?> e) {
+            return value(e.name());
+        }
+        if (value instanceof Record r) {
+            return writeRecord(r);
+        }
+        if (value instanceof Iterable<?> iterable) {
+            beginArray();
+            for (Object element : iterable) {
+                value(element);
+            }
+            return endArray();
+        }
+        if (value instanceof Object[] array) {
+            return value(Arrays.asList(array));
+        }
+        if (value instanceof int[] array) {
+            beginArray();
+            for (int element : array) {
+                value(element);
+            }
+            return endArray();
+        }
+        if (value instanceof long[] array) {
+            beginArray();
+            for (long element : array) {
+                value(element);
+            }
+            return endArray();
+        }
+        if (value instanceof float[] array) {
+            beginArray();
+            for (float element : array) {
+                value(element);
+            }
+            return endArray();
+        }
+        if (value instanceof double[] array) {
+            beginArray();
+            for (double element : array) {
+                value(element);
+            }
+            return endArray();
+        }
+        if (value instanceof boolean[] array) {
+            beginArray();
+            for (boolean element : array) {
+                value(element);
+            }
+            return endArray();
+        }
+        if (value instanceof Map<?, ?> map) {
+            beginObject();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                name(String.valueOf(entry.getKey()));
+                value(entry.getValue());
+            }
+            return endObject();
+        }
+        throw new IllegalArgumentException("不支持的JSON值类型：" + value.getClass().getName());
+    }
+
+    /**
+     * 把Record写为JSON对象，字段名使用该类型预编码的字节
+     */
+    public JsonStreamWriter writeRecord(Record record) {
+        if (record == null) {
+            return nullValue();
+        }
+        CODECS.get(record.getClass()).write(this, record);
+        return this;
+    }
+
+    /**
+     * 复制出已写入的字节
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * 返回已写入内容的只读视图（不拷贝），在下一次reset之前有效
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buffer, 0, size).asReadOnlyBuffer();
+    }
+
+    /**
+     * 把已写入的字节写到输出流
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    // ---------- 结构管理 ----------
+
+    private void push(boolean object) {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("嵌套层级超过" + MAX_DEPTH);
+        }
+        isObject[depth] = object;
+        hasElement[depth++] = false;
+    }
+
+    private void pop(boolean object) {
+        if (depth == 0 || afterName || isObject[depth - 1] != object) {
+            throw new IllegalStateException("JSON结构不匹配");
+        }
+        depth--;
+    }
+
+    private void beforeName() {
+        if (depth == 0 || afterName || !isObject[depth - 1]) {
+            throw new IllegalStateException("字段名只能出现在对象内部");
+        }
+        if (hasElement[depth - 1]) {
+            writeByte(',');
+        }
+        hasElement[depth - 1] = true;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (isObject[depth - 1]) {
+                throw new IllegalStateException("对象内的值之前必须写字段名");
+            }
+            if (hasElement[depth - 1]) {
+                writeByte(',');
+            }
+            hasElement[depth - 1] = true;
+        }
+    }
+
+    // ---------- 字节写入 ----------
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeAscii(String ascii) {
+        int length = ascii.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            buffer[size++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii("-9223372036854775808");
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = size + digits;
+        for (int i = end - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size = end;
+    }
+
+    // 转义并以UTF-8写入字符串（含两侧引号）
+    private void writeString(CharSequence cs) {
+        int length = cs.length();
+        // 最坏情况：每个字符转义为6字节（反斜杠u加4位十六进制）
+        ensureCapacity(length * 6 + 2);
+        byte[] buf = buffer;
+        int pos = size;
+        buf[pos++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = cs.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    buf[pos++] = (byte) c;
+                    continue;
+                }
+                buf[pos++] = '\\';
+                switch (c) {
+                    case '"' -> buf[pos++] = '"';
+                    case '\\' -> buf[pos++] = '\\';
+                    case '\n' -> buf[pos++] = 'n';
+                    case '\r' -> buf[pos++] = 'r';
+                    case '\t' -> buf[pos++] = 't';
+                    case '\b' -> buf[pos++] = 'b';
+                    case '\f' -> buf[pos++] = 'f';
+                    default -> {
+                        buf[pos++] = 'u';
+                        buf[pos++] = '0';
+                        buf[pos++] = '0';
+                        buf[pos++] = HEX[c >> 4];
+                        buf[pos++] = HEX[c & 0xF];
+                    }
+                }
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, cs.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[pos++] = '?';
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        buf[pos++] = '"';
+        size = pos;
+    }
+
+    /**
+     * 单个Record类型的编码器：预编码字段名 + 组件访问器
+     *
+     * 访问器按组件类型适配：整数类型适配为返回long，float、double、boolean、char保持原类型，
+     * 分别调用对应的value重载；只有引用类型组件走value(Object)
+     */
+    private static final class RecordCodec {
+        private static final int OBJECT = 0;
+        private static final int LONG = 1;
+        private static final int DOUBLE = 2;
+        private static final int BOOLEAN = 3;
+        private static final int FLOAT = 4;
+        private static final int CHAR = 5;
+
+        private final byte[][] names;
+        private final MethodHandle[] accessors;
+        private final int[] kinds;
+
+        RecordCodec(Class<?> type) {
+            RecordComponent[] components = type.getRecordComponents();
+            if (components == null) {
+                throw new IllegalArgumentException("不是Record类型：" + type.getName());
+            }
+            names = new byte[components.length][];
+            accessors = new MethodHandle[components.length];
+            kinds = new int[components.length];
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            for (int i = 0; i < components.length; i++) {
+                names[i] = encodeName(components[i].getName());
+                Class<?> componentType = components[i].getType();
+                kinds[i] = kindOf(componentType);
+                Class<?> returnType = switch (kinds[i]) {
+                    case LONG -> long.class;
+                    case DOUBLE -> double.class;
+                    case BOOLEAN -> boolean.class;
+                    case FLOAT -> float.class;
+                    case CHAR -> char.class;
+                    default -> Object.class;
+                };
+                try {
+                    var accessor = components[i].getAccessor();
+                    // Record可能是非public的嵌套类型
+                    accessor.setAccessible(true);
+                    accessors[i] = lookup.unreflect(accessor).asType(
+                        MethodType.methodType(returnType, Object.class));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException("无法访问Record组件：" + components[i], e);
+                }
+            }
+        }
+
+        private static int kindOf(Class<?> type) {
+            if (type == int.class || type == long.class || type == short.class || type == byte.class) {
+                return LONG;
+            }
+            if (type == double.class) {
+                return DOUBLE;
+            }
+            if (type == float.class) {
+                return FLOAT;
+            }
+            if (type == char.class) {
+                return CHAR;
+            }
+            return type == boolean.class ? BOOLEAN : OBJECT;
+        }
+
+        void write(JsonStreamWriter writer, Record record) {
+            writer.beginObject();
+            for (int i = 0; i < names.length; i++) {
+                writer.name(names[i]);
+                MethodHandle accessor = accessors[i];
+                try {
+                    switch (kinds[i]) {
+                        case LONG -> writer.value((long) accessor.invokeExact((Object) record));
+                        case DOUBLE -> writer.value((double) accessor.invokeExact((Object) record));
+                        case BOOLEAN -> writer.value((boolean) accessor.invokeExact((Object) record));
+                        case FLOAT -> writer.value((float) accessor.invokeExact((Object) record));
+                        case CHAR -> writer.charValue((char) accessor.invokeExact((Object) record));
+                        default -> writer.value((Object) accessor.invokeExact((Object) record));
+                    }
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException("读取Record组件失败", t);
+                }
+            }
+            writer.endObject();
+        }
+    }
+
+    // 基准测试使用的商品记录
+    record Product(String name, double price, String category) {}
+
+    /**
+     * 性能对比：formatted() vs StringBuilder vs JsonStreamWriter
+     */
+    public static void benchmark() {
+        System.out.println("=== JSON生成性能对比 ===");
+
+        List<Product> products = List.of(
+            new Product("Laptop", 999.99, "Electronics"),
+            new Product("Book \"Java\"", 29.99, "Books"),
+            new Product("手机", 599.5, "Electronics"));
+        int iterations = 200_000;
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            long sink = 0;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Product p = products.get(i % products.size());
+                String json = """
+                    {"name":"%s","price":%s,"category":"%s"}""".formatted(
+                    p.name().replace("\\", "\\\\").replace("\"", "\\\""), p.price(), p.category());
+                sink += json.getBytes(StandardCharsets.UTF_8).length;
+            }
+            long formattedNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            StringBuilder sb = new StringBuilder(128);
+            for (int i = 0; i < iterations; i++) {
+                Product p = products.get(i % products.size());
+                sb.setLength(0);
+                sb.append("{\"name\":\"").append(p.name().replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append("\",\"price\":").append(p.price())
+                    .append(",\"category\":\"").append(p.category()).append("\"}");
+                sink += sb.toString().getBytes(StandardCharsets.UTF_8).length;
+            }
+            long builderNanos = System.nanoTime() - start;
+
+            JsonStreamWriter writer = new JsonStreamWriter();
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                writer.reset().writeRecord(products.get(i % products.size()));
+                sink += writer.size();
+            }
+            long streamNanos = System.nanoTime() - start;
+
+            if (report) {
+                System.out.printf("formatted：%.1f ns/op%n", (double) formattedNanos / iterations);
+                System.out.printf("StringBuilder：%.1f ns/op%n", (double) builderNanos / iterations);
+                System.out.printf("JsonStreamWriter：%.1f ns/op%n", (double) streamNanos / iterations);
+                System.out.println("（校验值：" + sink + "）");
+            }
+        });
+    }
+
+    /**
+     * 主方法：演示流式JSON生成
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 流式JSON生成示例 ==========\n");
+
+        JsonStreamWriter writer = new JsonStreamWriter();
+        writer.writeRecord(new Product("Laptop", 999.99, "Electronics"));
+        System.out.println("Record：" + writer);
+
+        writer.reset()
+            .beginObject()
+            .name("name").value("Alice")
+            .name("hobbies").beginArray().value("reading").value("coding").endArray()
+            .endObject();
+        System.out.println("手工构建：" + writer);
+
+        benchmark();
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
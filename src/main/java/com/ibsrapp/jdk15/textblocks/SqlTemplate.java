@@ -0,0 +1,428 @@
+package com.ibsrapp.jdk15.textblocks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预编译的SQL文本块模板
+ *
+ * 用formatted()把表名拼进SQL，每次调用都会生成新的语句文本，
+ * 驱动端也就无法按语句文本缓存PreparedStatement。
+ *
+ * SqlTemplate把文本块只解析一次，并区分两类占位符：
+ * 1. {table} 标识符占位符：表名、列名等不能绑定的部分，只允许合法标识符，防止注入
+ * 2. :status 绑定参数：编译为JDBC风格的?，值在执行时绑定
+ *
+ * 同一模板 + 同一组标识符只会生成一次语句文本（CompiledStatement），
+ * 之后的bind()只产生绑定值，语句文本始终是同一个String实例。
+ *
+ * 字符串字面量'...'、带引号的标识符"..."、--行注释和块注释中的内容原样保留，不识别占位符。
+ *
+ * 两级缓存都有上限：模板缓存最多MAX_CACHED_TEMPLATES个，每个模板最多缓存MAX_STATEMENTS组标识符。
+ * 满了之后照常编译，只是不再缓存，语句文本也不再是同一个实例；热点路径应保存compile()/statement()的结果。
+ */
+public final class SqlTemplate {
+
+    static final int MAX_CACHED_TEMPLATES = 1024;
+    static final int MAX_STATEMENTS = 256;
+
+    private static final Map<String, SqlTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private final String source;
+    // 语句片段：偶数位为字面量，奇数位为标识符名称
+    private final String[] parts;
+    private final List<String> identifierNames;
+    private final List<String> parameterNames;
+    private final Map<List<String>, CompiledStatement> statements = new ConcurrentHashMap<>();
+    // 无标识符的模板只有一个编译结果，直接持有
+    private final CompiledStatement onlyStatement;
+
+    private SqlTemplate(String source, String[] parts, List<String> identifierNames,
+                        List<String> parameterNames) {
+        this.source = source;
+        this.parts = parts;
+        this.identifierNames = Collections.unmodifiableList(identifierNames);
+        this.parameterNames = Collections.unmodifiableList(parameterNames);
+        this.onlyStatement = identifierNames.isEmpty()
+            ? new CompiledStatement(this, String.join("", parts))
+            : null;
+    }
+
+    /**
+     * 编译SQL模板（带缓存，键为模板文本）
+     */
+    public static SqlTemplate compile(String template) {
+        if (template == null) {
+            throw new IllegalArgumentException("模板不能为null");
+        }
+        SqlTemplate cached = CACHE.get(template);
+        if (cached != null) {
+            return cached;
+        }
+        SqlTemplate compiled = parse(template);
+        // size()与putIfAbsent之间的竞争最多让缓存超出上限几个条目
+        if (CACHE.size() < MAX_CACHED_TEMPLATES) {
+            SqlTemplate previous = CACHE.putIfAbsent(template, compiled);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return compiled;
+    }
+
+    // 以下两个方法供测试使用
+    static int cachedTemplates() {
+        return CACHE.size();
+    }
+
+    static void clearCache() {
+        CACHE.clear();
+    }
+
+    // 解析：原样保留字符串字面量、带引号的标识符和注释，识别{identifier}和:param
+    private static SqlTemplate parse(String template) {
+        List<String> parts = new ArrayList<>();
+        List<String> identifiers = new ArrayList<>();
+        List<String> parameters = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int length = template.length();
+        int i = 0;
+        while (i < length) {
+            char c = template.charAt(i);
+            if (c == '\'' || c == '"') {
+                int end = quotedEnd(template, i, c == '\'' ? "字符串字面量" : "带引号的标识符");
+                literal.append(template, i, end);
+                i = end;
+            } else if (c == '-' && i + 1 < length && template.charAt(i + 1) == '-') {
+                int end = template.indexOf('\n', i + 2);
+                end = end < 0 ? length : end;
+                literal.append(template, i, end);
+                i = end;
+            } else if (c == '/' && i + 1 < length && template.charAt(i + 1) == '*') {
+                int end = template.indexOf("*/", i + 2);
+                if (end < 0) {
+                    throw new IllegalArgumentException("块注释未闭合，位置：" + i);
+                }
+                literal.append(template, i, end + 2);
+                i = end + 2;
+            } else if (c == '{') {
+                int end = template.indexOf('}', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("标识符占位符未闭合，位置：" + i);
+                }
+                String name = template.substring(i + 1, end).strip();
+                if (!isIdentifier(name)) {
+                    throw new IllegalArgumentException("非法的标识符占位符：" + name);
+                }
+                parts.add(literal.toString());
+                literal.setLength(0);
+                parts.add(name);
+                if (!identifiers.contains(name)) {
+                    identifiers.add(name);
+                }
+                i = end + 1;
+            } else if (c == ':' && i + 1 < length && template.charAt(i + 1) == ':') {
+                // PostgreSQL风格的类型转换 ::type，原样保留
+                literal.append("::");
+                i += 2;
+            } else if (c == ':' && i + 1 < length && Character.isJavaIdentifierStart(template.charAt(i + 1))) {
+                int end = i + 1;
+                while (end < length && Character.isJavaIdentifierPart(template.charAt(end))) {
+                    end++;
+                }
+                parameters.add(template.substring(i + 1, end));
+                literal.append('?');
+                i = end;
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        parts.add(literal.toString());
+        return new SqlTemplate(template, parts.toArray(new String[0]), identifiers, parameters);
+    }
+
+    // 从start处的引号开始，返回配对引号之后的位置；连续两个引号表示引号本身
+    private static int quotedEnd(String template, int start, String kind) {
+        char quote = template.charAt(start);
+        int end = start + 1;
+        while (true) {
+            end = template.indexOf(quote, end);
+            if (end < 0) {
+                throw new IllegalArgumentException(kind + "未闭合，位置：" + start);
+            }
+            if (end + 1 < template.length() && template.charAt(end + 1) == quote) {
+                end += 2;
+                continue;
+            }
+            return end + 1;
+        }
+    }
+
+    // 标识符：字母或下划线开头，可带一级schema前缀，例如 app.users
+    private static boolean isIdentifier(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        boolean segmentStart = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (segmentStart) {
+                if (!(Character.isLetter(c) || c == '_')) {
+                    return false;
+                }
+                segmentStart = false;
+            } else if (c == '.') {
+                segmentStart = true;
+            } else if (!(Character.isLetterOrDigit(c) || c == '_')) {
+                return false;
+            }
+        }
+        return !segmentStart;
+    }
+
+    /**
+     * 获取模板原文
+     */
+    public String source() {
+        return source;
+    }
+
+    /**
+     * 获取标识符占位符名称（按首次出现顺序）
+     */
+    public List<String> identifierNames() {
+        return identifierNames;
+    }
+
+    /**
+     * 获取绑定参数名称（按出现顺序，与?的位置一一对应）
+     */
+    public List<String> parameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * 代入标识符，得到编译后的语句
+     * identifiers的顺序与identifierNames()一致；同一组标识符返回同一个实例（超出MAX_STATEMENTS组后不再缓存）
+     */
+    public CompiledStatement statement(String... identifiers) {
+        if (identifiers.length != identifierNames.size()) {
+            throw new IllegalArgumentException(
+                "标识符个数不匹配：需要" + identifierNames.size() + "个，实际" + identifiers.length + "个");
+        }
+        if (onlyStatement != null) {
+            return onlyStatement;
+        }
+        List<String> key = List.of(identifiers);
+        CompiledStatement cached = statements.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompiledStatement built = buildStatement(key);
+        if (statements.size() < MAX_STATEMENTS) {
+            CompiledStatement previous = statements.putIfAbsent(key, built);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return built;
+    }
+
+    // 已缓存的语句数，供测试使用
+    int cachedStatements() {
+        return statements.size();
+    }
+
+    private CompiledStatement buildStatement(List<String> identifiers) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i % 2 == 0) {
+                sql.append(parts[i]);
+            } else {
+                String value = identifiers.get(identifierNames.indexOf(parts[i]));
+                if (!isIdentifier(value)) {
+                    throw new IllegalArgumentException("非法的标识符：" + value);
+                }
+                sql.append(value);
+            }
+        }
+        return new CompiledStatement(this, sql.toString());
+    }
+
+    /**
+     * 编译后的语句：固定的语句文本 + 绑定参数列表
+     */
+    public static final class CompiledStatement {
+        private final SqlTemplate template;
+        private final String sql;
+
+        private CompiledStatement(SqlTemplate template, String sql) {
+            this.template = template;
+            this.sql = sql;
+        }
+
+        /**
+         * 获取JDBC风格的语句文本（绑定参数为?）
+         */
+        public String sql() {
+            return sql;
+        }
+
+        /**
+         * 按位置绑定参数，values的顺序与parameterNames()一致
+         */
+        public BoundStatement bind(Object... values) {
+            if (values.length != template.parameterNames.size()) {
+                throw new IllegalArgumentException(
+                    "参数个数不匹配：需要" + template.parameterNames.size() + "个，实际" + values.length + "个");
+            }
+            return new BoundStatement(sql, values);
+        }
+
+        /**
+         * 按名称绑定参数
+         */
+        public BoundStatement bind(Map<String, ?> values) {
+            List<String> names = template.parameterNames;
+            Object[] positional = new Object[names.size()];
+            for (int i = 0; i < positional.length; i++) {
+                String name = names.get(i);
+                if (!values.containsKey(name)) {
+                    throw new IllegalArgumentException("缺少绑定参数：" + name);
+                }
+                positional[i] = values.get(name);
+            }
+            return new BoundStatement(sql, positional);
+        }
+    }
+
+    /**
+     * 绑定后的语句：语句文本与参数值
+     * 参数数组在构造时和parameters()中都会复制，调用方修改数组不影响绑定结果
+     */
+    public record BoundStatement(String sql, Object[] parameters) {
+
+        public BoundStatement {
+            parameters = parameters.clone();
+        }
+
+        @Override
+        public Object[] parameters() {
+            return parameters.clone();
+        }
+
+        /**
+         * 获取第index个参数（从1开始，与JDBC一致）
+         */
+        public Object parameter(int index) {
+            return parameters[index - 1];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BoundStatement other
+                && sql.equals(other.sql) && Arrays.equals(parameters, other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sql.hashCode() + Arrays.hashCode(parameters);
+        }
+
+        @Override
+        public String toString() {
+            return "BoundStatement[sql=" + sql + ", parameters=" + Arrays.toString(parameters) + "]";
+        }
+    }
+
+    /**
+     * 进程内桩驱动：模拟驱动端按语句文本缓存PreparedStatement
+     * 同时记录见到的语句文本实例数，用来验证重复调用不会产生新的语句文本
+     */
+    public static final class StubConnection {
+        private final Map<String, Integer> preparedStatements = new HashMap<>();
+        private final Map<String, Boolean> textInstances = new IdentityHashMap<>();
+        private int prepareCount;
+        private int executeCount;
+
+        /**
+         * 执行绑定语句；语句文本首次出现时才“预编译”
+         */
+        public synchronized void execute(BoundStatement statement) {
+            textInstances.put(statement.sql(), Boolean.TRUE);
+            preparedStatements.computeIfAbsent(statement.sql(), sql -> ++prepareCount);
+            executeCount++;
+        }
+
+        /**
+         * 预编译次数（缓存未命中次数）
+         */
+        public synchronized int prepareCount() {
+            return prepareCount;
+        }
+
+        /**
+         * 执行次数
+         */
+        public synchronized int executeCount() {
+            return executeCount;
+        }
+
+        /**
+         * 见到的不同语句文本实例数
+         */
+        public synchronized int textInstanceCount() {
+            return textInstances.size();
+        }
+    }
+
+    /**
+     * 主方法：对比formatted()与SqlTemplate在桩驱动上的表现
+     */
+    public static void main(String[] args) {
+        System.out.println("========== SQL模板参数绑定示例 ==========\n");
+
+        String text = """
+            SELECT id, name, email
+            FROM {table}
+            WHERE status = :status
+            ORDER BY name
+            LIMIT :limit
+            """;
+        int calls = 10_000;
+
+        StubConnection formattedConnection = new StubConnection();
+        for (int i = 0; i < calls; i++) {
+            String sql = """
+                SELECT id, name, email
+                FROM %s
+                WHERE status = 'ACTIVE'
+                ORDER BY name
+                LIMIT 10
+                """.formatted("users");
+            formattedConnection.execute(new BoundStatement(sql, new Object[0]));
+        }
+
+        StubConnection templateConnection = new StubConnection();
+        for (int i = 0; i < calls; i++) {
+            BoundStatement bound = compile(text).statement("users").bind("ACTIVE", 10);
+            templateConnection.execute(bound);
+        }
+
+        System.out.println("语句文本：\n" + compile(text).statement("users").sql());
+        System.out.println("formatted()：执行" + formattedConnection.executeCount()
+            + "次，语句文本实例" + formattedConnection.textInstanceCount() + "个");
+        System.out.println("SqlTemplate：执行" + templateConnection.executeCount()
+            + "次，语句文本实例" + templateConnection.textInstanceCount()
+            + "个，预编译" + templateConnection.prepareCount() + "次");
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -0,0 +1,419 @@
+package com.ibsrapp.jdk15.textblocks;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预编译的Text Blocks模板
+ *
+ * String.formatted()每次调用都要重新解析格式串，并在内存中构建完整的String。
+ * 对于大型HTML/JSON报表，这意味着大量的中间对象。
+ *
+ * TextBlockTemplate把带占位符的文本块只解析一次，得到一个片段列表（字面量 + 占位符），
+ * 之后渲染时直接把片段流式写入Writer或ByteBuffer，不再生成中间String。
+ *
+ * 模板语法：
+ * 1. {name} 表示一个命名占位符，同名占位符可以出现多次
+ * 2. {{ 和 }} 分别表示字面量 { 和 }
+ * 3. 参数可以按名称（Map）或按占位符首次出现的顺序（可变参数）传入
+ *
+ * 编译结果按模板文本缓存，相同的文本块只会被解析一次。
+ * 缓存最多保存MAX_CACHED_TEMPLATES个模板，满了之后compile()仍然可用，只是不再缓存新模板：
+ * 动态拼出的模板文本不会让缓存无限增长。热点路径应把compile()的结果保存在字段中复用。
+ */
+public final class TextBlockTemplate {
+
+    static final int MAX_CACHED_TEMPLATES = 1024;
+
+    private static final Map<String, TextBlockTemplate> CACHE = new ConcurrentHashMap<>();
+
+    /** 片段：字面量片段的parameterIndex为-1 */
+    private static final class Segment {
+        final String literal;
+        final byte[] literalUtf8;
+        final int parameterIndex;
+
+        Segment(String literal) {
+            this.literal = literal;
+            this.literalUtf8 = literal.getBytes(StandardCharsets.UTF_8);
+            this.parameterIndex = -1;
+        }
+
+        Segment(int parameterIndex) {
+            this.literal = null;
+            this.literalUtf8 = null;
+            this.parameterIndex = parameterIndex;
+        }
+
+        boolean isLiteral() {
+            return parameterIndex < 0;
+        }
+    }
+
+    private final String source;
+    private final Segment[] segments;
+    private final List<String> parameterNames;
+    private final int literalLength;
+
+    private TextBlockTemplate(String source, Segment[] segments, List<String> parameterNames) {
+        this.source = source;
+        this.segments = segments;
+        this.parameterNames = Collections.unmodifiableList(parameterNames);
+        int length = 0;
+        for (Segment segment : segments) {
+            if (segment.isLiteral()) {
+                length += segment.literal.length();
+            }
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * 编译模板（带缓存）
+     * 相同的模板文本返回同一个编译结果；缓存已满时返回未缓存的新编译结果
+     */
+    public static TextBlockTemplate compile(String template) {
+        if (template == null) {
+            throw new IllegalArgumentException("模板不能为null");
+        }
+        TextBlockTemplate cached = CACHE.get(template);
+        if (cached != null) {
+            return cached;
+        }
+        TextBlockTemplate compiled = parse(template);
+        // size()与putIfAbsent之间的竞争最多让缓存超出上限几个条目
+        if (CACHE.size() < MAX_CACHED_TEMPLATES) {
+            TextBlockTemplate previous = CACHE.putIfAbsent(template, compiled);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return compiled;
+    }
+
+    // 以下两个方法供测试使用
+    static int cachedTemplates() {
+        return CACHE.size();
+    }
+
+    static void clearCache() {
+        CACHE.clear();
+    }
+
+    // 解析模板文本为片段列表
+    private static TextBlockTemplate parse(String template) {
+        List<Segment> segments = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        int length = template.length();
+        while (i < length) {
+            char c = template.charAt(i);
+            if (c == '{') {
+                if (i + 1 < length && template.charAt(i + 1) == '{') {
+                    literal.append('{');
+                    i += 2;
+                    continue;
+                }
+                int end = template.indexOf('}', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("占位符未闭合，位置：" + i);
+                }
+                String name = template.substring(i + 1, end).strip();
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("占位符名称不能为空，位置：" + i);
+                }
+                if (literal.length() > 0) {
+                    segments.add(new Segment(literal.toString()));
+                    literal.setLength(0);
+                }
+                int index = names.indexOf(name);
+                if (index < 0) {
+                    index = names.size();
+                    names.add(name);
+                }
+                segments.add(new Segment(index));
+                i = end + 1;
+            } else if (c == '}') {
+                if (i + 1 < length && template.charAt(i + 1) == '}') {
+                    literal.append('}');
+                    i += 2;
+                    continue;
+                }
+                throw new IllegalArgumentException("多余的'}'，位置：" + i);
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        if (literal.length() > 0) {
+            segments.add(new Segment(literal.toString()));
+        }
+        return new TextBlockTemplate(template, segments.toArray(new Segment[0]), names);
+    }
+
+    /**
+     * 获取占位符名称（按首次出现顺序）
+     */
+    public List<String> parameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * 获取原始模板文本
+     */
+    public String source() {
+        return source;
+    }
+
+    /**
+     * 按位置参数渲染到Writer
+     * values的顺序与parameterNames()一致
+     */
+    public void renderTo(Writer out, Object... values) throws IOException {
+        checkArity(values);
+        for (Segment segment : segments) {
+            if (segment.isLiteral()) {
+                out.write(segment.literal);
+            } else {
+                writeValue(out, values[segment.parameterIndex]);
+            }
+        }
+    }
+
+    /**
+     * 按名称参数渲染到Writer
+     */
+    public void renderTo(Writer out, Map<String, ?> values) throws IOException {
+        renderTo(out, toPositional(values));
+    }
+
+    /**
+     * 按位置参数以UTF-8编码渲染到ByteBuffer
+     * 空间不足时抛出BufferOverflowException，与ByteBuffer.put的约定一致
+     */
+    public void renderTo(ByteBuffer out, Object... values) {
+        checkArity(values);
+        for (Segment segment : segments) {
+            if (segment.isLiteral()) {
+                out.put(segment.literalUtf8);
+            } else {
+                writeValue(out, values[segment.parameterIndex]);
+            }
+        }
+    }
+
+    /**
+     * 按名称参数以UTF-8编码渲染到ByteBuffer
+     */
+    public void renderTo(ByteBuffer out, Map<String, ?> values) {
+        renderTo(out, toPositional(values));
+    }
+
+    /**
+     * 渲染为String（便捷方法，小输出时使用）
+     */
+    public String render(Object... values) {
+        StringWriter writer = new StringWriter(literalLength + 16 * parameterNames.size());
+        try {
+            renderTo(writer, values);
+        } catch (IOException e) {
+            // StringWriter不会抛出IOException
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * 按名称参数渲染为String
+     */
+    public String render(Map<String, ?> values) {
+        return render(toPositional(values));
+    }
+
+    private void checkArity(Object[] values) {
+        if (values.length != parameterNames.size()) {
+            throw new IllegalArgumentException(
+                "参数个数不匹配：需要" + parameterNames.size() + "个，实际" + values.length + "个");
+        }
+    }
+
+    private Object[] toPositional(Map<String, ?> values) {
+        Object[] positional = new Object[parameterNames.size()];
+        for (int i = 0; i < positional.length; i++) {
+            String name = parameterNames.get(i);
+            if (!values.containsKey(name)) {
+                throw new IllegalArgumentException("缺少参数：" + name);
+            }
+            positional[i] = values.get(name);
+        }
+        return positional;
+    }
+
+    // 写入Writer：CharSequence直接append，避免toString()
+    private static void writeValue(Writer out, Object value) throws IOException {
+        if (value instanceof CharSequence cs) {
+            out.append(cs);
+        } else {
+            out.write(String.valueOf(value));
+        }
+    }
+
+    // 写入ByteBuffer：字符序列和整数直接编码，不生成中间String
+    private static void writeValue(ByteBuffer out, Object value) {
+        if (value instanceof CharSequence cs) {
+            putUtf8(out, cs);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            putDecimal(out, ((Number) value).longValue());
+        } else {
+            putUtf8(out, String.valueOf(value));
+        }
+    }
+
+    // 手工UTF-8编码，正确处理代理对；孤立代理写为'?'，与String.getBytes一致
+    static void putUtf8(ByteBuffer out, CharSequence cs) {
+        int length = cs.length();
+        for (int i = 0; i < length; i++) {
+            char c = cs.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, cs.charAt(++i));
+                out.put((byte) (0xF0 | (cp >> 18)));
+                out.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    // 直接写出十进制数字
+    static void putDecimal(ByteBuffer out, long value) {
+        if (value == Long.MIN_VALUE) {
+            putUtf8(out, "-9223372036854775808");
+            return;
+        }
+        if (value < 0) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            out.put((byte) ('0' + (value / divisor) % 10));
+            divisor /= 10;
+        }
+    }
+
+    /**
+     * 性能对比：String.formatted vs 预编译模板
+     * 分别测试小输出（单条HTML片段）和约1MB的大输出（报表行拼接）
+     */
+    public static void benchmark() {
+        System.out.println("=== 预编译模板 vs String.formatted ===");
+
+        String formatText = """
+            <tr><td>%s</td><td>%d</td><td>%s</td></tr>
+            """;
+        TextBlockTemplate template = compile("""
+            <tr><td>{name}</td><td>{age}</td><td>{city}</td></tr>
+            """);
+
+        int smallIterations = 200_000;
+        int rows = 20_000;
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        ByteBuffer large = ByteBuffer.allocate(2 * 1024 * 1024);
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            long sink = 0;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < smallIterations; i++) {
+                sink += formatText.formatted("Alice", i, "Beijing").length();
+            }
+            long formattedNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < smallIterations; i++) {
+                buffer.clear();
+                template.renderTo(buffer, "Alice", i, "Beijing");
+                sink += buffer.position();
+            }
+            long templateNanos = System.nanoTime() - start;
+
+            if (report) {
+                System.out.printf("小输出：formatted %.1f ns/op，模板 %.1f ns/op%n",
+                    (double) formattedNanos / smallIterations, (double) templateNanos / smallIterations);
+            }
+
+            // 大输出：约1MB的报表
+            start = System.nanoTime();
+            StringBuilder table = new StringBuilder();
+            for (int i = 0; i < rows; i++) {
+                table.append(formatText.formatted("Alice", i, "Beijing"));
+            }
+            byte[] formattedBytes = table.toString().getBytes(StandardCharsets.UTF_8);
+            formattedNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            large.clear();
+            for (int i = 0; i < rows; i++) {
+                template.renderTo(large, "Alice", i, "Beijing");
+            }
+            templateNanos = System.nanoTime() - start;
+
+            if (report) {
+                System.out.printf("大输出（%d字节）：formatted %.2f ms，模板 %.2f ms%n",
+                    formattedBytes.length, formattedNanos / 1e6, templateNanos / 1e6);
+                System.out.println("（校验值：" + (sink + large.position()) + "）");
+            }
+        });
+    }
+
+    /**
+     * 主方法：演示模板编译和渲染
+     */
+    public static void main(String[] args) throws IOException {
+        System.out.println("========== Text Blocks预编译模板示例 ==========\n");
+
+        TextBlockTemplate html = compile("""
+            <html>
+                <head><title>{title}</title></head>
+                <body><h1>{title}</h1><p>{content}</p></body>
+            </html>
+            """);
+        System.out.println("占位符：" + html.parameterNames());
+
+        StringWriter writer = new StringWriter();
+        html.renderTo(writer, Map.of("title", "欢迎", "content", "这是内容"));
+        System.out.println(writer);
+
+        benchmark();
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
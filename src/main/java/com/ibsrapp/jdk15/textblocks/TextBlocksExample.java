@@ -1,5 +1,11 @@
 package com.ibsrapp.jdk15.textblocks;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * JDK15 Text Blocks（文本块）示例
  * 
@@ -74,6 +80,19 @@ public class TextBlocksExample {
             """.formatted(tableName);
         
         System.out.println("SQL查询：\n" + sql);
+        
+        // 预编译方式：表名作为标识符代入，状态和条数作为绑定参数
+        // 同一模板和表名只生成一次语句文本，便于驱动端缓存PreparedStatement
+        SqlTemplate.BoundStatement bound = SqlTemplate.compile("""
+            SELECT id, name, email
+            FROM {table}
+            WHERE status = :status
+            ORDER BY name
+            LIMIT :limit
+            """).statement(tableName).bind("ACTIVE", 10);
+        
+        System.out.println("预编译SQL：\n" + bound.sql());
+        System.out.println("绑定参数：" + Arrays.toString(bound.parameters()));
     }
 
     /**
@@ -93,7 +112,14 @@ public class TextBlocksExample {
             """;
         
         System.out.println("JSON：\n" + json);
+        
+        // 流式方式：直接把Record写成UTF-8字节，字段名预编码，字符串自动转义
+        JsonStreamWriter writer = new JsonStreamWriter();
+        writer.writeRecord(new Person("Alice", 25, "Beijing", List.of("reading", "coding")));
+        System.out.println("流式JSON（" + writer.size() + "字节）：\n" + writer);
     }
+    
+    record Person(String name, int age, String city, List<String> hobbies) {}
 
     /**
      * 示例5：HTML模板
@@ -167,6 +193,31 @@ public class TextBlocksExample {
         System.out.println("显式换行：\n" + explicitNewline);
     }
 
+    /**
+     * 示例8：预编译模板
+     * 文本块只解析一次，之后直接流式写入Writer，不再重复解析格式串
+     */
+    public static void example8_CompiledTemplate() {
+        System.out.println("\n=== 示例8：预编译模板 ===");
+        
+        TextBlockTemplate template = TextBlockTemplate.compile("""
+            <html>
+                <body>
+                    <h1>{title}</h1>
+                    <p>{content}</p>
+                </body>
+            </html>
+            """);
+        
+        StringWriter writer = new StringWriter();
+        try {
+            template.renderTo(writer, "欢迎", "这是内容");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.out.println("HTML：\n" + writer);
+    }
+
     /**
      * 主方法：运行所有示例
      */
@@ -180,6 +231,7 @@ public class TextBlocksExample {
         example5_HTML();
         example6_Indentation();
         example7_EscapeSequences();
+        example8_CompiledTemplate();
         
         System.out.println("\n========== 示例运行完成 ==========");
     }
@@ -0,0 +1,341 @@
+package com.ibsrapp.jdk22.stringtemplates;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.StringConcatException;
+import java.lang.invoke.StringConcatFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预编译的字符串插值模板
+ *
+ * STR模板处理器在JDK23中被撤回，示例里只能退回到+拼接或String.format。
+ * String.format每次调用都要用正则解析格式串，开销较大。
+ *
+ * InterpolationTemplate提供库级别的替代方案：
+ * 1. "Hello, {name}" 这样的模板只解析一次，结果按模板文本缓存；
+ *    缓存最多保存MAX_CACHED_TEMPLATES个模板（每个都持有生成的拼接句柄），满了之后compile()照常编译但不再缓存
+ * 2. 解析结果交给StringConcatFactory生成拼接MethodHandle，
+ *    与编译器为 + 拼接生成的invokedynamic使用同一套机制
+ * 3. 同名占位符可以出现多次，通过permuteArguments映射到同一个参数
+ *
+ * 模板语法：{name}为占位符，{{和}}表示字面量花括号。
+ *
+ * render(Object...)的局限：拼接句柄保存在实例字段中，HotSpot不把实例final字段当作常量，
+ * invokeExact不能内联进调用方；参数统一为Object，int等基本类型还要装箱。
+ * 热点路径应调用handle(...)按实际参数类型生成句柄，保存在static final字段中再用invokeExact调用，
+ * 这样句柄是常量，基本类型直接参与拼接，效果与编译器生成的 + 拼接相同。
+ */
+public final class InterpolationTemplate {
+
+    // StringConcatFactory的配方标记：\1表示参数，\2表示常量
+    private static final char TAG_ARG = '\u0001';
+    private static final char TAG_CONST = '\u0002';
+    // StringConcatFactory最多支持200个参数槽（long/double占两个槽，常量不占槽）
+    private static final int MAX_SLOTS = 200;
+
+    static final int MAX_CACHED_TEMPLATES = 1024;
+
+    private static final Map<String, InterpolationTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private final String source;
+    private final List<String> parameterNames;
+    private final String recipe;
+    private final Object[] constants;
+    // 每次出现对应的参数下标
+    private final int[] reorder;
+    // 签名：(Object[])String
+    private final MethodHandle renderer;
+
+    private InterpolationTemplate(String source, List<String> parameterNames,
+                                  String recipe, Object[] constants, int[] reorder) {
+        this.source = source;
+        this.parameterNames = Collections.unmodifiableList(parameterNames);
+        this.recipe = recipe;
+        this.constants = constants;
+        this.reorder = reorder;
+        Class<?>[] objects = new Class<?>[parameterNames.size()];
+        Arrays.fill(objects, Object.class);
+        this.renderer = link(objects).asSpreader(Object[].class, objects.length)
+            .asType(MethodType.methodType(String.class, Object[].class));
+    }
+
+    /**
+     * 编译模板（带缓存）
+     * 相同的模板文本返回同一个编译结果；缓存已满时返回未缓存的新编译结果
+     */
+    public static InterpolationTemplate compile(String template) {
+        if (template == null) {
+            throw new IllegalArgumentException("模板不能为null");
+        }
+        InterpolationTemplate cached = CACHE.get(template);
+        if (cached != null) {
+            return cached;
+        }
+        InterpolationTemplate compiled = parse(template);
+        // size()与putIfAbsent之间的竞争最多让缓存超出上限几个条目
+        if (CACHE.size() < MAX_CACHED_TEMPLATES) {
+            InterpolationTemplate previous = CACHE.putIfAbsent(template, compiled);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return compiled;
+    }
+
+    // 以下两个方法供测试使用
+    static int cachedTemplates() {
+        return CACHE.size();
+    }
+
+    static void clearCache() {
+        CACHE.clear();
+    }
+
+    private static InterpolationTemplate parse(String template) {
+        StringBuilder recipe = new StringBuilder();
+        List<Object> constants = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        // 每个占位符出现位置对应的参数下标
+        List<Integer> occurrences = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int length = template.length();
+        int i = 0;
+        while (i < length) {
+            char c = template.charAt(i);
+            if (c == '{' && i + 1 < length && template.charAt(i + 1) == '{') {
+                literal.append('{');
+                i += 2;
+            } else if (c == '}' && i + 1 < length && template.charAt(i + 1) == '}') {
+                literal.append('}');
+                i += 2;
+            } else if (c == '{') {
+                int end = template.indexOf('}', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("占位符未闭合，位置：" + i);
+                }
+                String name = template.substring(i + 1, end).strip();
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("占位符名称不能为空，位置：" + i);
+                }
+                appendLiteral(recipe, constants, literal);
+                int index = names.indexOf(name);
+                if (index < 0) {
+                    index = names.size();
+                    names.add(name);
+                }
+                occurrences.add(index);
+                recipe.append(TAG_ARG);
+                i = end + 1;
+            } else if (c == '}') {
+                throw new IllegalArgumentException("多余的'}'，位置：" + i);
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        appendLiteral(recipe, constants, literal);
+
+        if (occurrences.size() > MAX_SLOTS) {
+            throw new IllegalArgumentException("模板过大：占位符出现次数超过" + MAX_SLOTS);
+        }
+        return new InterpolationTemplate(template, names, recipe.toString(), constants.toArray(),
+            occurrences.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    // 字面量中含有配方标记字符时，以常量形式传入，避免被误认为标记
+    private static void appendLiteral(StringBuilder recipe, List<Object> constants, StringBuilder literal) {
+        if (literal.length() == 0) {
+            return;
+        }
+        String text = literal.toString();
+        if (text.indexOf(TAG_ARG) >= 0 || text.indexOf(TAG_CONST) >= 0) {
+            recipe.append(TAG_CONST);
+            constants.add(text);
+        } else {
+            recipe.append(text);
+        }
+        literal.setLength(0);
+    }
+
+    // 生成(types...)String的拼接句柄，types按parameterNames()的顺序
+    private MethodHandle link(Class<?>[] types) {
+        Class<?>[] occurrenceTypes = new Class<?>[reorder.length];
+        int slots = 0;
+        for (int i = 0; i < reorder.length; i++) {
+            occurrenceTypes[i] = types[reorder[i]];
+            slots += occurrenceTypes[i] == long.class || occurrenceTypes[i] == double.class ? 2 : 1;
+        }
+        if (slots > MAX_SLOTS) {
+            throw new IllegalArgumentException("模板过大：参数槽数" + slots + "超过" + MAX_SLOTS);
+        }
+        try {
+            MethodHandle concat = StringConcatFactory.makeConcatWithConstants(
+                MethodHandles.lookup(), "interpolate", MethodType.methodType(String.class, occurrenceTypes),
+                recipe, constants
+            ).dynamicInvoker();
+            // 把去重后的参数列表映射到每一次出现
+            return MethodHandles.permuteArguments(concat, MethodType.methodType(String.class, types), reorder);
+        } catch (StringConcatException e) {
+            throw new IllegalArgumentException("无法编译模板：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按参数类型生成拼接句柄，类型为(parameterTypes...)String，参数顺序与parameterNames()一致。
+     * 每次调用都会重新生成，应保存在static final字段中，用invokeExact调用
+     */
+    public MethodHandle handle(Class<?>... parameterTypes) {
+        if (parameterTypes.length != parameterNames.size()) {
+            throw new IllegalArgumentException(
+                "参数类型个数不匹配：需要" + parameterNames.size() + "个，实际" + parameterTypes.length + "个");
+        }
+        for (Class<?> type : parameterTypes) {
+            if (type == void.class) {
+                throw new IllegalArgumentException("参数类型不能为void");
+            }
+        }
+        return link(parameterTypes.clone());
+    }
+
+    /**
+     * 获取模板原文
+     */
+    public String source() {
+        return source;
+    }
+
+    /**
+     * 获取占位符名称（按首次出现顺序）
+     */
+    public List<String> parameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * 按位置参数渲染，values的顺序与parameterNames()一致
+     */
+    public String render(Object... values) {
+        if (values.length != parameterNames.size()) {
+            throw new IllegalArgumentException(
+                "参数个数不匹配：需要" + parameterNames.size() + "个，实际" + values.length + "个");
+        }
+        try {
+            return (String) renderer.invokeExact(values);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("模板渲染失败", t);
+        }
+    }
+
+    /**
+     * 按名称参数渲染
+     */
+    public String render(Map<String, ?> values) {
+        Object[] positional = new Object[parameterNames.size()];
+        for (int i = 0; i < positional.length; i++) {
+            String name = parameterNames.get(i);
+            if (!values.containsKey(name)) {
+                throw new IllegalArgumentException("缺少参数：" + name);
+            }
+            positional[i] = values.get(name);
+        }
+        return render(positional);
+    }
+
+    // 基准测试中static final持有的类型化句柄
+    private static final MethodHandle USER_ACTION = compile("User {user} performed action: {action} ({count})")
+        .handle(String.class, String.class, int.class);
+
+    /**
+     * 性能对比：String.format vs + 拼接 vs 预编译模板（render和static final句柄）
+     * 同时统计每次调用的分配字节数（基于HotSpot的线程分配计数）
+     */
+    public static void benchmark() {
+        System.out.println("=== 字符串插值性能对比 ===");
+
+        InterpolationTemplate template = compile("User {user} performed action: {action} ({count})");
+        int iterations = 500_000;
+        String user = "admin";
+        String action = "login";
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            long sink = 0;
+            long bytes = BenchmarkSupport.allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += String.format("User %s performed action: %s (%d)", user, action, i).length();
+            }
+            print(report, "String.format", start, bytes, iterations);
+
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += ("User " + user + " performed action: " + action + " (" + i + ")").length();
+            }
+            print(report, "+ 拼接", start, bytes, iterations);
+
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += template.render(user, action, i).length();
+            }
+            print(report, "预编译模板render", start, bytes, iterations);
+
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            sink += renderWithHandle(user, action, iterations);
+            print(report, "static final句柄", start, bytes, iterations);
+            if (report) {
+                System.out.println("（校验值：" + sink + "）");
+            }
+        });
+    }
+
+    // 单独的方法：JIT整体编译它，而不是依赖benchmark大循环中的栈上替换
+    private static long renderWithHandle(String user, String action, int iterations) {
+        long sink = 0;
+        try {
+            for (int i = 0; i < iterations; i++) {
+                sink += ((String) USER_ACTION.invokeExact(user, action, i)).length();
+            }
+        } catch (Throwable t) {
+            throw new IllegalStateException("模板渲染失败", t);
+        }
+        return sink;
+    }
+
+    private static void print(boolean report, String label, long start, long startBytes, int iterations) {
+        long nanos = System.nanoTime() - start;
+        long bytes = BenchmarkSupport.allocatedBytes() - startBytes;
+        if (report) {
+            System.out.printf("%s：%.1f ns/op，%d B/op%n",
+                label, (double) nanos / iterations, startBytes < 0 ? -1 : bytes / iterations);
+        }
+    }
+
+    /**
+     * 主方法：演示预编译插值
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 预编译字符串插值示例 ==========\n");
+
+        InterpolationTemplate hello = compile("Hello, {name}! You are {age} years old.");
+        System.out.println(hello.render("Alice", 25));
+        System.out.println(hello.render(Map.of("name", "Bob", "age", 30)));
+
+        benchmark();
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -105,6 +105,24 @@ public class StringTemplatesExample {
         System.out.println("可以防止SQL注入、XSS等安全问题");
     }
 
+    /**
+     * 示例5：预编译插值模板
+     * STR撤回后的库级替代：模板只解析一次，渲染走StringConcatFactory
+     */
+    public static void example5_CompiledInterpolation() {
+        System.out.println("\n=== 示例5：预编译插值模板 ===");
+        
+        String user = "admin";
+        String action = "login";
+        
+        // 模板按文本缓存，循环中反复调用compile也只解析一次
+        InterpolationTemplate log = InterpolationTemplate.compile("User {user} performed action: {action}");
+        System.out.println(log.render(user, action));
+        
+        InterpolationTemplate greeting = InterpolationTemplate.compile("{x} + {y} = {sum}");
+        System.out.println(greeting.render(10, 20, 10 + 20));
+    }
+
     /**
      * 主方法：运行所有示例
      */
@@ -117,6 +135,7 @@ public class StringTemplatesExample {
         example2_MultilineStringTemplates();
         example3_Expressions();
         example4_RealWorldUsage();
+        example5_CompiledInterpolation();
         
         System.out.println("\n========== 示例运行完成 ==========");
     }
@@ -0,0 +1,250 @@
+package com.ibsrapp.jdk23.features;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * 分组聚合收集器
+ *
+ * JDK23/JDK24示例用Collectors.groupingBy把数字分成"偶数"/"奇数"，每组得到一个List。
+ * 如果只需要每组的个数、总和、最小值和最大值，这样做有两个浪费：
+ * 1. 每个元素都要放进List，内存与元素数成正比
+ * 2. 并行流中每个线程各建一个HashMap，最后逐个合并（List还要拼接）
+ *
+ * 本类提供两种只计算基本类型聚合值的收集器：
+ * 1. indexed：分组数少且已知时，由分类函数直接给出组下标，每个线程的累加容器是一个long[]，
+ *    合并只是逐元素相加，与元素数无关
+ * 2. concurrent：分组数多或事先未知时，所有线程共享一个ConcurrentHashMap，
+ *    每组的计数和总和用LongAdder、最值用LongAccumulator，它们内部按线程分段，热点组也不会争用同一个变量；
+ *    收集器声明为CONCURRENT + UNORDERED，并行流不再需要合并
+ *
+ * 分段累加的优势来自多核同时更新少数热点组；分组很多且分布均匀时几乎没有争用，
+ * 此时耗时主要在哈希查找上，与groupingByConcurrent相近。
+ */
+public final class GroupAggregation {
+
+    // long[]中每组占4个位置
+    private static final int COUNT = 0;
+    private static final int SUM = 1;
+    private static final int MIN = 2;
+    private static final int MAX = 3;
+    private static final int WIDTH = 4;
+
+    private GroupAggregation() {
+    }
+
+    /**
+     * 一组的聚合结果
+     */
+    public record Stats(long count, long sum, long min, long max) {
+        public double average() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+    }
+
+    /**
+     * 低基数分组：index返回[0, labels.size())内的组下标；结果按labels的顺序排列，不含空组
+     */
+    public static <T, K> Collector<T, long[], Map<K, Stats>> indexed(List<K> labels,
+                                                                     ToIntFunction<? super T> index,
+                                                                     ToLongFunction<? super T> value) {
+        List<K> groups = List.copyOf(labels);
+        int size = groups.size();
+        if (size == 0) {
+            throw new IllegalArgumentException("至少需要一个分组");
+        }
+        return Collector.of(
+            () -> {
+                long[] state = new long[size * WIDTH];
+                for (int g = 0; g < size; g++) {
+                    state[g * WIDTH + MIN] = Long.MAX_VALUE;
+                    state[g * WIDTH + MAX] = Long.MIN_VALUE;
+                }
+                return state;
+            },
+            (state, element) -> {
+                int g = index.applyAsInt(element);
+                if (g < 0 || g >= size) {
+                    throw new IllegalArgumentException("组下标越界：" + g);
+                }
+                long v = value.applyAsLong(element);
+                int base = g * WIDTH;
+                state[base + COUNT]++;
+                state[base + SUM] += v;
+                state[base + MIN] = Math.min(state[base + MIN], v);
+                state[base + MAX] = Math.max(state[base + MAX], v);
+            },
+            (left, right) -> {
+                for (int base = 0; base < left.length; base += WIDTH) {
+                    left[base + COUNT] += right[base + COUNT];
+                    left[base + SUM] += right[base + SUM];
+                    left[base + MIN] = Math.min(left[base + MIN], right[base + MIN]);
+                    left[base + MAX] = Math.max(left[base + MAX], right[base + MAX]);
+                }
+                return left;
+            },
+            state -> {
+                Map<K, Stats> result = new LinkedHashMap<>();
+                for (int g = 0; g < size; g++) {
+                    int base = g * WIDTH;
+                    if (state[base + COUNT] > 0) {
+                        result.put(groups.get(g), new Stats(state[base + COUNT], state[base + SUM],
+                            state[base + MIN], state[base + MAX]));
+                    }
+                }
+                return Collections.unmodifiableMap(result);
+            });
+    }
+
+    /**
+     * 高基数分组：所有线程共享一张并发表，按组分段累加
+     */
+    public static <T, K> Collector<T, ?, Map<K, Stats>> concurrent(Function<? super T, ? extends K> classifier,
+                                                                   ToLongFunction<? super T> value) {
+        return Collector.<T, ConcurrentHashMap<K, Accumulator>, Map<K, Stats>>of(
+            ConcurrentHashMap::new,
+            (map, element) -> {
+                K key = classifier.apply(element);
+                // 已有的组走无锁的get
+                Accumulator accumulator = map.get(key);
+                if (accumulator == null) {
+                    accumulator = map.computeIfAbsent(key, k -> new Accumulator());
+                }
+                accumulator.add(value.applyAsLong(element));
+            },
+            (left, right) -> {
+                right.forEach((key, accumulator) -> left.merge(key, accumulator, Accumulator::merge));
+                return left;
+            },
+            map -> {
+                Map<K, Stats> result = new HashMap<>(map.size() * 2);
+                map.forEach((key, accumulator) -> result.put(key, accumulator.toStats()));
+                return Collections.unmodifiableMap(result);
+            },
+            Collector.Characteristics.CONCURRENT,
+            Collector.Characteristics.UNORDERED);
+    }
+
+    // 一组的并发累加器
+    private static final class Accumulator {
+        final LongAdder count = new LongAdder();
+        final LongAdder sum = new LongAdder();
+        final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        void add(long value) {
+            count.increment();
+            sum.add(value);
+            min.accumulate(value);
+            max.accumulate(value);
+        }
+
+        Accumulator merge(Accumulator other) {
+            count.add(other.count.sum());
+            sum.add(other.sum.sum());
+            min.accumulate(other.min.get());
+            max.accumulate(other.max.get());
+            return this;
+        }
+
+        Stats toStats() {
+            return new Stats(count.sum(), sum.sum(), min.get(), max.get());
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 奇偶分组与高基数分组：groupingBy / groupingByConcurrent vs 本类的收集器
+     */
+    public static void benchmark(int size, int keys) {
+        System.out.println("=== 分组聚合性能对比（" + size + "个元素，并行流） ===");
+
+        Random random = new Random(42);
+        List<Integer> numbers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            numbers.add(random.nextInt(1_000_000));
+        }
+        Function<Integer, String> parity = n -> n % 2 == 0 ? "偶数" : "奇数";
+        Function<Integer, Integer> bucket = n -> n % keys;
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            if (report) {
+                System.out.println("-- 2个分组 --");
+            }
+
+            long start = System.nanoTime();
+            Map<String, List<Integer>> lists = numbers.parallelStream().collect(Collectors.groupingBy(parity));
+            print(report, "groupingBy(toList)", start, lists.get("偶数").size());
+
+            start = System.nanoTime();
+            Map<String, LongSummaryStatistics> summaries = numbers.parallelStream()
+                .collect(Collectors.groupingBy(parity, Collectors.summarizingLong(Integer::longValue)));
+            print(report, "groupingBy(summarizingLong)", start, summaries.get("偶数").getCount());
+
+            start = System.nanoTime();
+            Map<String, Stats> indexed = numbers.parallelStream()
+                .collect(indexed(List.of("偶数", "奇数"), n -> n & 1, Integer::longValue));
+            print(report, "indexed", start, indexed.get("偶数").count());
+
+            if (report) {
+                System.out.println("-- " + keys + "个分组 --");
+            }
+
+            start = System.nanoTime();
+            Map<Integer, LongSummaryStatistics> grouped = numbers.parallelStream()
+                .collect(Collectors.groupingBy(bucket, Collectors.summarizingLong(Integer::longValue)));
+            print(report, "groupingBy(summarizingLong)", start, grouped.size());
+
+            start = System.nanoTime();
+            Map<Integer, LongSummaryStatistics> groupedConcurrent = numbers.parallelStream()
+                .collect(Collectors.groupingByConcurrent(bucket, Collectors.summarizingLong(Integer::longValue)));
+            print(report, "groupingByConcurrent(summarizingLong)", start, groupedConcurrent.size());
+
+            start = System.nanoTime();
+            Map<Integer, Stats> concurrent = numbers.parallelStream().collect(concurrent(bucket, Integer::longValue));
+            print(report, "concurrent", start, concurrent.size());
+        });
+    }
+
+    private static void print(boolean report, String label, long start, long check) {
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%s：%.1f ms（校验值%d）%n", label, nanos / 1e6, check);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 分组聚合示例 ==========\n");
+
+        List<Integer> numbers = List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        System.out.println("奇偶统计：" + numbers.parallelStream()
+            .collect(indexed(List.of("偶数", "奇数"), n -> n & 1, Integer::longValue)));
+        System.out.println("按除以3的余数分组：" + numbers.parallelStream()
+            .collect(concurrent(n -> n % 3, Integer::longValue)));
+        System.out.println();
+
+        benchmark(args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000, 100_000);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
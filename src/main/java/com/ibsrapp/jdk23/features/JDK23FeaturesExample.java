@@ -38,6 +38,14 @@ public class JDK23FeaturesExample {
                              ));
         
         System.out.println("分组结果：" + grouped);
+        
+        // 只需要统计值时，不必把元素收集成List
+        var stats = numbers.parallelStream()
+                           .collect(GroupAggregation.indexed(
+                               List.of("偶数", "奇数"), n -> n & 1, Integer::longValue
+                           ));
+        
+        System.out.println("分组统计：" + stats);
     }
 
     /**
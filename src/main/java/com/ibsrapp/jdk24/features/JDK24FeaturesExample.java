@@ -1,5 +1,7 @@
 package com.ibsrapp.jdk24.features;
 
+import com.ibsrapp.jdk23.features.GroupAggregation;
+
 import java.util.List;
 import java.util.Map;
 
@@ -79,6 +81,14 @@ public class JDK24FeaturesExample {
                                                    ));
         
         System.out.println("分组结果：" + grouped);
+        
+        // 并行聚合：每组只保留个数、总和和最值
+        var stats = numbers.parallelStream()
+                           .collect(GroupAggregation.indexed(
+                               List.of("偶数", "奇数"), n -> n & 1, Integer::longValue
+                           ));
+        
+        System.out.println("分组统计：" + stats);
     }
 
     /**
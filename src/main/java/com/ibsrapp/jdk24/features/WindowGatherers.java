@@ -0,0 +1,277 @@
+package com.ibsrapp.jdk24.features;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToLongFunction;
+import java.util.stream.Gatherer;
+import java.util.stream.IntStream;
+
+/**
+ * 相邻元素窗口操作（Stream Gatherers）
+ *
+ * JDK9示例6的温度场景想取"连续递增"的前缀，但takeWhile的谓词看不到前一个元素，
+ * 只能写成return true。JDK24正式引入的Gatherer允许中间操作携带状态，
+ * 可以直接比较相邻元素。
+ *
+ * 本类提供的窗口操作：
+ * 1. pairwise()：相邻元素两两配对
+ * 2. sliding(size, key)：大小为size的滑动窗口，窗口内容是long[]
+ * 3. runLength(key)：游程分段，相同值连成一段
+ * 4. increasingRuns(key)：严格递增分段
+ *
+ * 关于基本类型：Gatherer只能用在Stream&lt;T&gt;上，元素本身无法避免装箱。
+ * 这里的做法是通过ToLongFunction取出比较键，状态全部保存在long字段中，
+ * 每段只输出一个Run对象，而不是像collect(groupingBy)那样按元素分配。
+ * 对于上亿元素的时间序列，另外提供直接作用于int[]的runStarts/increasingRunStarts，完全不装箱。
+ *
+ * 关于并行：Gatherer都以ofSequential构建，在并行流中也按遇到顺序求值，结果与串行一致；
+ * int[]版本支持真正的并行：先按块统计分段数，求前缀和后再并行填充，块边界处的分段由相邻元素决定。
+ */
+public final class WindowGatherers {
+
+    private WindowGatherers() {
+    }
+
+    /**
+     * 相邻元素对
+     */
+    public record Pair<T>(T previous, T current) {
+    }
+
+    /**
+     * 一个分段：起始下标、长度、首个键和最后一个键
+     */
+    public record Run(long start, long length, long first, long last) {
+    }
+
+    /**
+     * 判断next能否接在last后面（属于同一段）
+     */
+    @FunctionalInterface
+    private interface Continuation {
+        boolean test(long last, long next);
+    }
+
+    private static final Continuation SAME = (last, next) -> next == last;
+    private static final Continuation INCREASING = (last, next) -> next > last;
+
+    // ---------- Gatherer ----------
+
+    /**
+     * 相邻元素两两配对：n个元素输出n - 1个Pair
+     */
+    public static <T> Gatherer<T, ?, Pair<T>> pairwise() {
+        class State {
+            T previous;
+            boolean started;
+        }
+        return Gatherer.ofSequential(State::new, Gatherer.Integrator.ofGreedy((state, element, downstream) -> {
+            if (!state.started) {
+                state.previous = element;
+                state.started = true;
+                return true;
+            }
+            Pair<T> pair = new Pair<>(state.previous, element);
+            state.previous = element;
+            return downstream.push(pair);
+        }));
+    }
+
+    /**
+     * 滑动窗口：每个完整窗口输出一次键数组（从旧到新）；元素不足size个时不输出
+     */
+    public static <T> Gatherer<T, ?, long[]> sliding(int size, ToLongFunction<? super T> key) {
+        if (size < 1) {
+            throw new IllegalArgumentException("窗口大小必须为正数：" + size);
+        }
+        class State {
+            final long[] ring = new long[size];
+            long count;
+        }
+        return Gatherer.ofSequential(State::new, Gatherer.Integrator.ofGreedy((state, element, downstream) -> {
+            state.ring[(int) (state.count % size)] = key.applyAsLong(element);
+            state.count++;
+            if (state.count < size) {
+                return true;
+            }
+            // 环形缓冲区中最旧的元素在下一个写入位置
+            int head = (int) (state.count % size);
+            long[] window = new long[size];
+            System.arraycopy(state.ring, head, window, 0, size - head);
+            System.arraycopy(state.ring, 0, window, size - head, head);
+            return downstream.push(window);
+        }));
+    }
+
+    /**
+     * 游程分段：键相同的连续元素为一段
+     */
+    public static <T> Gatherer<T, ?, Run> runLength(ToLongFunction<? super T> key) {
+        return segments(key, SAME);
+    }
+
+    /**
+     * 严格递增分段：每段内后一个键都大于前一个键
+     */
+    public static <T> Gatherer<T, ?, Run> increasingRuns(ToLongFunction<? super T> key) {
+        return segments(key, INCREASING);
+    }
+
+    private static <T> Gatherer<T, ?, Run> segments(ToLongFunction<? super T> key, Continuation continuation) {
+        class State {
+            long index;
+            long start;
+            long first;
+            long last;
+            boolean open;
+
+            Run close() {
+                return new Run(start, index - start, first, last);
+            }
+        }
+        return Gatherer.ofSequential(
+            State::new,
+            Gatherer.Integrator.ofGreedy((state, element, downstream) -> {
+                long value = key.applyAsLong(element);
+                boolean more = true;
+                if (!state.open || !continuation.test(state.last, value)) {
+                    if (state.open) {
+                        more = downstream.push(state.close());
+                    }
+                    state.start = state.index;
+                    state.first = value;
+                    state.open = true;
+                }
+                state.last = value;
+                state.index++;
+                return more;
+            }),
+            (state, downstream) -> {
+                if (state.open && !downstream.isRejecting()) {
+                    downstream.push(state.close());
+                }
+            });
+    }
+
+    // ---------- int[]版本 ----------
+
+    /**
+     * 游程分段的起始下标
+     */
+    public static int[] runStarts(int[] data, boolean parallel) {
+        return segmentStarts(data, SAME, parallel);
+    }
+
+    /**
+     * 严格递增分段的起始下标
+     */
+    public static int[] increasingRunStarts(int[] data, boolean parallel) {
+        return segmentStarts(data, INCREASING, parallel);
+    }
+
+    private static int[] segmentStarts(int[] data, Continuation continuation, boolean parallel) {
+        int n = data.length;
+        int chunks = parallel ? Math.max(1, Math.min(n / 4096, ForkJoinPool.getCommonPoolParallelism() * 4)) : 1;
+        // 第一遍：每块的分段起点个数
+        int[] counts = new int[chunks + 1];
+        IntStream pass = IntStream.range(0, chunks);
+        (parallel ? pass.parallel() : pass).forEach(c -> {
+            int count = 0;
+            for (int i = chunkStart(n, chunks, c), end = chunkStart(n, chunks, c + 1); i < end; i++) {
+                if (i == 0 || !continuation.test(data[i - 1], data[i])) {
+                    count++;
+                }
+            }
+            counts[c + 1] = count;
+        });
+        for (int c = 0; c < chunks; c++) {
+            counts[c + 1] += counts[c];
+        }
+        // 第二遍：按前缀和确定的位置写入
+        int[] starts = new int[counts[chunks]];
+        IntStream fill = IntStream.range(0, chunks);
+        (parallel ? fill.parallel() : fill).forEach(c -> {
+            int position = counts[c];
+            for (int i = chunkStart(n, chunks, c), end = chunkStart(n, chunks, c + 1); i < end; i++) {
+                if (i == 0 || !continuation.test(data[i - 1], data[i])) {
+                    starts[position++] = i;
+                }
+            }
+        });
+        return starts;
+    }
+
+    private static int chunkStart(int n, int chunks, int chunk) {
+        return (int) ((long) n * chunk / chunks);
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 时间序列递增分段：装箱流 + Gatherer vs int[]串行 vs int[]并行
+     */
+    public static void benchmark(int size) {
+        System.out.println("=== 递增分段性能对比（" + size + "个元素的温度序列） ===");
+
+        // 随机游走的温度序列
+        Random random = new Random(42);
+        int[] data = new int[size];
+        for (int i = 1; i < size; i++) {
+            data[i] = data[i - 1] + random.nextInt(5) - 2;
+        }
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            long start = System.nanoTime();
+            long runs = IntStream.of(data).boxed().gather(increasingRuns(Integer::longValue)).count();
+            print(report, "Stream<Integer>.gather", start, size, runs);
+
+            start = System.nanoTime();
+            print(report, "int[]串行", start, size, increasingRunStarts(data, false).length);
+
+            start = System.nanoTime();
+            print(report, "int[]并行", start, size, increasingRunStarts(data, true).length);
+        });
+    }
+
+    private static void print(boolean report, String label, long start, int size, long runs) {
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%s：%.1f ms，%.0f M元素/秒（%d段）%n", label, nanos / 1e6,
+                size / (nanos / 1e3), runs);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 相邻元素窗口操作示例 ==========\n");
+
+        List<Integer> temperatures = List.of(20, 22, 24, 26, 28, 25, 23, 21);
+        System.out.println("温度列表：" + temperatures);
+
+        // 替代JDK9示例中的takeWhile(temp -> true)：第一段递增区间就是连续递增的前缀
+        temperatures.stream()
+            .gather(increasingRuns(Integer::longValue))
+            .findFirst()
+            .ifPresent(run -> System.out.println("连续递增前缀：" + temperatures.subList(0, (int) run.length())));
+
+        System.out.println("相邻变化：" + temperatures.stream()
+            .gather(pairwise())
+            .map(pair -> pair.current() - pair.previous())
+            .toList());
+        System.out.println("3点滑动平均：" + temperatures.stream()
+            .gather(sliding(3, Integer::longValue))
+            .map(window -> (window[0] + window[1] + window[2]) / 3.0)
+            .toList());
+        System.out.println("游程：" + List.of(1, 1, 2, 2, 2, 1).stream().gather(runLength(Integer::longValue)).toList());
+        System.out.println();
+
+        benchmark(args.length > 0 ? Integer.parseInt(args[0]) : 100_000_000);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
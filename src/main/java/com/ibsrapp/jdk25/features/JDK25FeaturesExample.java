@@ -33,14 +33,16 @@ public class JDK25FeaturesExample {
             new Person("Charlie", 28)
         );
         
-        // 使用Stream API（JDK8）+ Switch表达式（JDK14）
+        // 年龄段用区间描述，不必逐个列出case标签
+        RangeClassifier<String> ageGroups = RangeClassifier.builder("成年")
+                                                           .range(0, 25, "年轻")
+                                                           .range(25, 30, "青年")
+                                                           .build();
+        
+        // 使用Stream API（JDK8）
         people.stream()
               .forEach(person -> {
-                  String category = switch (person.age()) {
-                      case 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24 -> "年轻";
-                      case 25, 26, 27, 28, 29 -> "青年";
-                      default -> "成年";
-                  };
+                  String category = ageGroups.label(person.age());
                   System.out.println(person.name() + ": " + category);
               });
     }
@@ -140,6 +142,10 @@ public class JDK25FeaturesExample {
         
         System.out.println("电子产品总价：" + totalElectronics);
         
+        // 大数据量时改用列式表：类别字典编码，只扫描编码列和价格列
+        ProductTable table = ProductTable.from(products, Product::name, Product::price, Product::category);
+        System.out.println("列式表统计电子产品总价：" + table.sumPrice("Electronics"));
+        
         // 使用Pattern Matching处理
         products.forEach(product -> {
             String description = switch (product.category()) {
@@ -0,0 +1,313 @@
+package com.ibsrapp.jdk25.features;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * 列式商品表
+ *
+ * 示例5用filter("Electronics".equals(category)).mapToDouble(Product::price).sum()统计电子产品总价。
+ * 在List&lt;Product&gt;上，每一行都要跳到一个Product对象、再跳到它的category字符串做equals，
+ * 数据量到千万级时瓶颈是内存访问而不是计算。
+ *
+ * ProductTable按列存储：
+ * - price：double[]，连续存放
+ * - category：字典编码，表中只保存short[]编码，字符串只在字典里保存一次
+ * - name：String[]，查询时不访问
+ *
+ * 查询时先把类别字符串翻译成编码，之后只顺序扫描short[]和double[]两列：
+ * - 比较结果用条件表达式（column[i] == code ? price : 0）累加；是否编译为条件传送或SIMD指令由JIT决定，
+ *   不做保证，主要收益来自两列的顺序访问
+ * - 循环展开为4路独立的累加器，打断浮点加法的依赖链
+ * - sumPriceParallel把行按块分给多个线程
+ *
+ * 注意：浮点求和的顺序与DoubleStream.sum（带补偿求和）不同，结果可能在最后几位有差异。
+ */
+public final class ProductTable {
+
+    private static final int MAX_CATEGORIES = 1 << 16;
+    private static final int PARALLEL_CHUNK = 1 << 16;
+
+    private final String[] names;
+    private final double[] prices;
+    private final short[] categoryCodes;
+    private final List<String> dictionary;
+    private final Map<String, Integer> codes;
+
+    private ProductTable(String[] names, double[] prices, short[] categoryCodes,
+                         List<String> dictionary, Map<String, Integer> codes) {
+        this.names = names;
+        this.prices = prices;
+        this.categoryCodes = categoryCodes;
+        this.dictionary = dictionary;
+        this.codes = codes;
+    }
+
+    public static Builder builder(int expectedRows) {
+        return new Builder(expectedRows);
+    }
+
+    /**
+     * 从任意对象集合按列抽取
+     */
+    public static <T> ProductTable from(Collection<? extends T> rows,
+                                        Function<? super T, String> name,
+                                        ToDoubleFunction<? super T> price,
+                                        Function<? super T, String> category) {
+        Builder builder = builder(rows.size());
+        for (T row : rows) {
+            builder.add(name.apply(row), price.applyAsDouble(row), category.apply(row));
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return prices.length;
+    }
+
+    public String name(int row) {
+        return names[row];
+    }
+
+    public double price(int row) {
+        return prices[row];
+    }
+
+    public String category(int row) {
+        return dictionary.get(categoryCodes[row] & 0xFFFF);
+    }
+
+    /**
+     * 字典中的所有类别，按首次出现的顺序
+     */
+    public List<String> categories() {
+        return dictionary;
+    }
+
+    /**
+     * 某个类别的行数
+     */
+    public int count(String category) {
+        int code = codeOf(category);
+        if (code < 0) {
+            return 0;
+        }
+        short target = (short) code;
+        int count = 0;
+        for (short value : categoryCodes) {
+            count += value == target ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * 某个类别的价格总和
+     */
+    public double sumPrice(String category) {
+        int code = codeOf(category);
+        return code < 0 ? 0 : sumRange((short) code, 0, prices.length);
+    }
+
+    /**
+     * 并行版本：按块求和后再相加
+     */
+    public double sumPriceParallel(String category) {
+        int code = codeOf(category);
+        if (code < 0) {
+            return 0;
+        }
+        short target = (short) code;
+        int chunks = (prices.length + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        return IntStream.range(0, chunks)
+            .parallel()
+            .mapToDouble(c -> sumRange(target, c * PARALLEL_CHUNK, Math.min(prices.length, (c + 1) * PARALLEL_CHUNK)))
+            .sum();
+    }
+
+    // 类别的字典编码；null或不存在的类别返回-1（codes是Map.copyOf，不接受null键）
+    private int codeOf(String category) {
+        if (category == null) {
+            return -1;
+        }
+        Integer code = codes.get(category);
+        return code == null ? -1 : code;
+    }
+
+    private double sumRange(short target, int from, int to) {
+        short[] column = categoryCodes;
+        double[] values = prices;
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        int i = from;
+        for (int end = to - 3; i < end; i += 4) {
+            s0 += column[i] == target ? values[i] : 0.0;
+            s1 += column[i + 1] == target ? values[i + 1] : 0.0;
+            s2 += column[i + 2] == target ? values[i + 2] : 0.0;
+            s3 += column[i + 3] == target ? values[i + 3] : 0.0;
+        }
+        for (; i < to; i++) {
+            s0 += column[i] == target ? values[i] : 0.0;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * 一次扫描得到所有类别的价格总和，按字典顺序；返回的Map不可修改
+     */
+    public Map<String, Double> sumPriceByCategory() {
+        double[] totals = new double[dictionary.size()];
+        short[] column = categoryCodes;
+        double[] values = prices;
+        for (int i = 0; i < values.length; i++) {
+            totals[column[i] & 0xFFFF] += values[i];
+        }
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int code = 0; code < totals.length; code++) {
+            result.put(dictionary.get(code), totals[code]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * 按行追加的构建器
+     */
+    public static final class Builder {
+        private String[] names;
+        private double[] prices;
+        private short[] categoryCodes;
+        private int size;
+        private final List<String> dictionary = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private Builder(int expectedRows) {
+            if (expectedRows < 0) {
+                throw new IllegalArgumentException("预期行数不能为负数：" + expectedRows);
+            }
+            int capacity = Math.max(16, expectedRows);
+            names = new String[capacity];
+            prices = new double[capacity];
+            categoryCodes = new short[capacity];
+        }
+
+        public Builder add(String name, double price, String category) {
+            if (category == null) {
+                throw new IllegalArgumentException("类别不能为null");
+            }
+            Integer code = codes.get(category);
+            if (code == null) {
+                if (dictionary.size() == MAX_CATEGORIES) {
+                    throw new IllegalStateException("类别数超过上限：" + MAX_CATEGORIES);
+                }
+                code = dictionary.size();
+                dictionary.add(category);
+                codes.put(category, code);
+            }
+            if (size == prices.length) {
+                int capacity = size * 2;
+                names = Arrays.copyOf(names, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+            }
+            names[size] = name;
+            prices[size] = price;
+            categoryCodes[size] = (short) code.intValue();
+            size++;
+            return this;
+        }
+
+        public ProductTable build() {
+            return new ProductTable(Arrays.copyOf(names, size), Arrays.copyOf(prices, size),
+                Arrays.copyOf(categoryCodes, size), List.copyOf(dictionary), Map.copyOf(codes));
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    private record Product(String name, double price, String category) {
+    }
+
+    /**
+     * 按类别过滤求和：List&lt;Product&gt;上的Stream vs 列式表
+     */
+    public static void benchmark(int rows) {
+        System.out.println("=== 过滤求和性能对比（" + rows + "行） ===");
+
+        String[] categories = {"Electronics", "Books", "Clothing", "Food", "Toys", "Garden", "Sports", "Music"};
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            // 用new String模拟从外部读入的数据：类别字符串不是同一个实例
+            String category = new String(categories[random.nextInt(categories.length)]);
+            products.add(new Product("product", random.nextInt(100_000) / 100.0, category));
+        }
+        ProductTable table = from(products, Product::name, Product::price, Product::category);
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            long start = System.nanoTime();
+            double sum = products.stream()
+                .filter(p -> "Electronics".equals(p.category()))
+                .mapToDouble(Product::price)
+                .sum();
+            print(report, "Stream", start, rows, sum);
+
+            start = System.nanoTime();
+            sum = products.parallelStream()
+                .filter(p -> "Electronics".equals(p.category()))
+                .mapToDouble(Product::price)
+                .sum();
+            print(report, "并行Stream", start, rows, sum);
+
+            start = System.nanoTime();
+            print(report, "列式表", start, rows, table.sumPrice("Electronics"));
+
+            start = System.nanoTime();
+            print(report, "列式表并行", start, rows, table.sumPriceParallel("Electronics"));
+
+            start = System.nanoTime();
+            print(report, "列式表全部类别", start, rows, table.sumPriceByCategory().get("Electronics"));
+        });
+    }
+
+    private static void print(boolean report, String label, long start, int rows, double sum) {
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%s：%.1f ms，%.0f M行/秒（总价%.2f）%n", label, nanos / 1e6, rows / (nanos / 1e3), sum);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 列式商品表示例 ==========\n");
+
+        ProductTable table = builder(3)
+            .add("Laptop", 999.99, "Electronics")
+            .add("Book", 19.99, "Books")
+            .add("Phone", 699.99, "Electronics")
+            .build();
+        System.out.println("类别字典：" + table.categories());
+        System.out.println("电子产品数量：" + table.count("Electronics"));
+        System.out.println("电子产品总价：" + table.sumPrice("Electronics"));
+        System.out.println("各类别总价：" + table.sumPriceByCategory());
+        System.out.println();
+
+        benchmark(args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
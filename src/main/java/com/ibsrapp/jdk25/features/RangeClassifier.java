@@ -0,0 +1,328 @@
+package com.ibsrapp.jdk25.features;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * 整数区间分类器
+ *
+ * 示例1用switch把年龄分类，0到24、25到29要逐个写成case标签。
+ * 区间一宽、一多，这种写法既难维护，编译出的tableswitch/lookupswitch也会随之膨胀。
+ *
+ * RangeClassifier用区间描述分类规则，每个区间是左闭右开的[from, to)，不在任何区间内的值归为默认类别：
+ * 1. 构建时把区间展开成有序的分段起点bounds（第一个起点是Integer.MIN_VALUE），每段对应一个类别编码
+ * 2. 区间覆盖的值域不大时（默认不超过65536个值）直接建查找表，分类只需一次数组访问
+ * 3. 否则用无分支二分查找：每轮只根据比较结果选择下一个基址，循环次数固定为log2(段数)，
+ *    不会因为数据随机而频繁预测失败
+ *
+ * 类别编码：0是默认类别，其余按区间首次出现的顺序编号；classify(int[], int[])批量分类，histogram统计各类别个数。
+ */
+public final class RangeClassifier<L> {
+
+    /**
+     * 默认的查找表大小上限（值的个数）
+     */
+    public static final int DEFAULT_LOOKUP_TABLE_LIMIT = 1 << 16;
+
+    private final List<L> labels;
+    // 分段起点，bounds[0] == Integer.MIN_VALUE
+    private final int[] bounds;
+    private final int[] segmentCodes;
+    // 查找表：覆盖[lookupBase, lookupBase + lookup.length)，为null时使用二分查找
+    private final int[] lookup;
+    private final int lookupBase;
+
+    private RangeClassifier(List<L> labels, int[] bounds, int[] segmentCodes, int lookupTableLimit) {
+        this.labels = labels;
+        this.bounds = bounds;
+        this.segmentCodes = segmentCodes;
+        long span = bounds.length > 1 ? (long) bounds[bounds.length - 1] - bounds[1] : 0;
+        if (bounds.length > 1 && span <= lookupTableLimit) {
+            lookupBase = bounds[1];
+            lookup = new int[(int) span];
+            for (int i = 0; i < lookup.length; i++) {
+                lookup[i] = segmentCodes[search(lookupBase + i)];
+            }
+        } else {
+            lookupBase = 0;
+            lookup = null;
+        }
+    }
+
+    public static <L> Builder<L> builder(L defaultLabel) {
+        return new Builder<>(defaultLabel);
+    }
+
+    /**
+     * 所有类别，下标即类别编码
+     */
+    public List<L> labels() {
+        return labels;
+    }
+
+    /**
+     * 是否使用查找表
+     */
+    public boolean usesLookupTable() {
+        return lookup != null;
+    }
+
+    /**
+     * 单个值的类别编码
+     */
+    public int classify(int value) {
+        int[] table = lookup;
+        if (table != null) {
+            // 无符号比较同时排除了小于lookupBase和超出表长的值
+            int offset = value - lookupBase;
+            if (Integer.compareUnsigned(offset, table.length) < 0) {
+                return table[offset];
+            }
+            return segmentCodes[value < lookupBase ? 0 : segmentCodes.length - 1];
+        }
+        return segmentCodes[search(value)];
+    }
+
+    /**
+     * 单个值的类别
+     */
+    public L label(int value) {
+        return labels.get(classify(value));
+    }
+
+    /**
+     * 批量分类：codes[i] = classify(values[i])
+     */
+    public void classify(int[] values, int[] codes) {
+        if (codes.length < values.length) {
+            throw new IllegalArgumentException("输出数组长度不足：" + codes.length + " < " + values.length);
+        }
+        int[] table = lookup;
+        if (table != null) {
+            int base = lookupBase;
+            int below = segmentCodes[0];
+            int above = segmentCodes[segmentCodes.length - 1];
+            for (int i = 0; i < values.length; i++) {
+                int offset = values[i] - base;
+                codes[i] = Integer.compareUnsigned(offset, table.length) < 0
+                    ? table[offset]
+                    : values[i] < base ? below : above;
+            }
+        } else {
+            for (int i = 0; i < values.length; i++) {
+                codes[i] = segmentCodes[search(values[i])];
+            }
+        }
+    }
+
+    /**
+     * 各类别的个数，下标为类别编码
+     */
+    public long[] histogram(int[] values) {
+        long[] counts = new long[labels.size()];
+        for (int value : values) {
+            counts[classify(value)]++;
+        }
+        return counts;
+    }
+
+    // 最后一个不大于value的分段起点的下标
+    private int search(int value) {
+        int[] keys = bounds;
+        int base = 0;
+        int n = keys.length;
+        while (n > 1) {
+            int half = n >>> 1;
+            base = keys[base + half] <= value ? base + half : base;
+            n -= half;
+        }
+        return base;
+    }
+
+    /**
+     * 区间规则构建器
+     */
+    public static final class Builder<L> {
+        private final L defaultLabel;
+        private final TreeMap<Integer, int[]> ranges = new TreeMap<>();
+        private final Map<L, Integer> codes = new LinkedHashMap<>();
+        private int lookupTableLimit = DEFAULT_LOOKUP_TABLE_LIMIT;
+
+        private Builder(L defaultLabel) {
+            if (defaultLabel == null) {
+                throw new IllegalArgumentException("默认类别不能为null");
+            }
+            this.defaultLabel = defaultLabel;
+            codes.put(defaultLabel, 0);
+        }
+
+        /**
+         * 添加区间[from, to)
+         */
+        public Builder<L> range(int from, int to, L label) {
+            if (label == null) {
+                throw new IllegalArgumentException("类别不能为null");
+            }
+            if (from >= to) {
+                throw new IllegalArgumentException("区间为空：[" + from + ", " + to + ")");
+            }
+            Map.Entry<Integer, int[]> before = ranges.floorEntry(from);
+            Map.Entry<Integer, int[]> after = ranges.ceilingEntry(from);
+            if ((before != null && before.getValue()[0] > from) || (after != null && after.getKey() < to)) {
+                throw new IllegalArgumentException("区间重叠：[" + from + ", " + to + ")");
+            }
+            int code = codes.computeIfAbsent(label, l -> codes.size());
+            ranges.put(from, new int[] {to, code});
+            return this;
+        }
+
+        /**
+         * 值域跨度不超过limit时使用查找表；0表示总是使用二分查找
+         */
+        public Builder<L> lookupTableLimit(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("查找表上限不能为负数：" + limit);
+            }
+            this.lookupTableLimit = limit;
+            return this;
+        }
+
+        public RangeClassifier<L> build() {
+            // 展开为连续的分段：区间之间的空隙和两端都是默认类别，相邻同类别的分段合并
+            List<int[]> segments = new ArrayList<>();
+            segments.add(new int[] {Integer.MIN_VALUE, 0});
+            int previousEnd = Integer.MIN_VALUE;
+            for (Map.Entry<Integer, int[]> entry : ranges.entrySet()) {
+                int from = entry.getKey();
+                if (from != previousEnd) {
+                    addSegment(segments, previousEnd, 0);
+                }
+                addSegment(segments, from, entry.getValue()[1]);
+                previousEnd = entry.getValue()[0];
+            }
+            addSegment(segments, previousEnd, 0);
+
+            int[] bounds = new int[segments.size()];
+            int[] segmentCodes = new int[segments.size()];
+            for (int i = 0; i < bounds.length; i++) {
+                bounds[i] = segments.get(i)[0];
+                segmentCodes[i] = segments.get(i)[1];
+            }
+            return new RangeClassifier<>(List.copyOf(codes.keySet()), bounds, segmentCodes, lookupTableLimit);
+        }
+
+        private static void addSegment(List<int[]> segments, int start, int code) {
+            int[] last = segments.get(segments.size() - 1);
+            if (last[1] == code) {
+                return;
+            }
+            if (last[0] == start) {
+                last[1] = code;
+            } else {
+                segments.add(new int[] {start, code});
+            }
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 批量分类：逐段比较 vs Arrays.binarySearch vs 无分支二分 vs 查找表
+     */
+    public static void benchmark(int rangeCount, int size) {
+        System.out.println("=== 区间分类性能对比（" + rangeCount + "个区间，" + size + "个值） ===");
+
+        int width = 10;
+        Builder<String> builder = builder("其他");
+        for (int r = 0; r < rangeCount; r++) {
+            builder.range(r * width, (r + 1) * width, "区间" + r);
+        }
+        RangeClassifier<String> lookupTable = builder.build();
+        RangeClassifier<String> branchFree = builder.lookupTableLimit(0).build();
+
+        Random random = new Random(42);
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt(rangeCount * width + 20) - 10;
+        }
+        int[] codes = new int[size];
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            long start = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                codes[i] = linear(branchFree, values[i]);
+            }
+            print(report, "逐段比较", start, size, codes);
+
+            start = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                int index = Arrays.binarySearch(branchFree.bounds, values[i]);
+                codes[i] = branchFree.segmentCodes[index >= 0 ? index : -index - 2];
+            }
+            print(report, "Arrays.binarySearch", start, size, codes);
+
+            start = System.nanoTime();
+            branchFree.classify(values, codes);
+            print(report, "无分支二分", start, size, codes);
+
+            start = System.nanoTime();
+            lookupTable.classify(values, codes);
+            print(report, "查找表", start, size, codes);
+        });
+    }
+
+    // 相当于一串if-else：从前往后找到第一个起点大于value的分段
+    private static int linear(RangeClassifier<?> classifier, int value) {
+        int[] bounds = classifier.bounds;
+        int segment = 0;
+        while (segment + 1 < bounds.length && bounds[segment + 1] <= value) {
+            segment++;
+        }
+        return classifier.segmentCodes[segment];
+    }
+
+    private static void print(boolean report, String label, long start, int size, int[] codes) {
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            long check = 0;
+            for (int code : codes) {
+                check += code;
+            }
+            System.out.printf("%s：%.2f ns/值（校验值%d）%n", label, (double) nanos / size, check);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 整数区间分类器示例 ==========\n");
+
+        RangeClassifier<String> ageGroups = builder("成年")
+            .range(0, 25, "年轻")
+            .range(25, 30, "青年")
+            .build();
+        for (int age : new int[] {-1, 0, 24, 25, 29, 30, 80}) {
+            System.out.println(age + "岁：" + ageGroups.label(age));
+        }
+        System.out.println("类别编码：" + ageGroups.labels());
+        System.out.println("批量统计：" + Arrays.toString(ageGroups.histogram(new int[] {3, 18, 26, 27, 45, 61})));
+        System.out.println();
+
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        benchmark(3, size);
+        System.out.println();
+        benchmark(30, size);
+        System.out.println();
+        benchmark(3000, size);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -1,5 +1,7 @@
 package com.ibsrapp.jdk8.interfacefeature;
 
+import java.util.List;
+
 /**
  * JDK8 接口默认方法和静态方法示例
  * 
@@ -170,6 +172,13 @@ public class InterfaceDefaultMethodExample {
             System.out.println("处理日志：" + getClass().getSimpleName());
         }
         
+        // 新增的默认方法：按数据块处理，使旧实现无需修改即可接入ListPipeline
+        // 默认实现执行一次process()并原样返回数据块
+        default <T> List<T> processChunk(List<T> chunk) {
+            process();
+            return chunk;
+        }
+        
         // 新增的静态工具方法
         static void printInfo() {
             System.out.println("这是一个列表处理器接口");
@@ -0,0 +1,346 @@
+package com.ibsrapp.jdk8.interfacefeature;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分块并行的ListProcessor流水线
+ *
+ * 示例4中的OldProcessor、NewProcessor只能一个接一个地调用process()。
+ * ListPipeline把多个处理阶段串成流水线：
+ * 1. 输入列表按chunkSize切成数据块，依次流过各个阶段
+ * 2. 相邻阶段之间是有界阻塞队列，下游处理不过来时上游会阻塞（背压）
+ * 3. 每个阶段可以配置多个工作线程，CPU密集的阶段可以扩展到多个核
+ * 4. 数据块带有序号，输出按输入顺序拼接
+ * 5. 运行结束后报告每个阶段的吞吐量和输入队列占用情况
+ *
+ * 阶段可以是lambda，也可以是已有的ListProcessor（通过processChunk默认方法接入）。
+ */
+public final class ListPipeline<T> {
+
+    /**
+     * 处理阶段：把一个数据块转换为新的数据块
+     */
+    @FunctionalInterface
+    public interface Stage<T> {
+        List<T> apply(List<T> chunk);
+    }
+
+    /**
+     * 阶段统计信息
+     */
+    public record StageStats(String name, int workers, long chunks, long itemsIn, long itemsOut,
+                             long busyNanos, double averageQueueOccupancy, int maxQueueOccupancy) {
+
+        /**
+         * 每秒处理的输入元素数（按所有工作线程的忙碌时间折算）
+         */
+        public double itemsPerSecond() {
+            return busyNanos == 0 ? 0 : itemsIn * 1e9 * workers / busyNanos;
+        }
+    }
+
+    /**
+     * 运行结果：输出列表和各阶段统计
+     */
+    public record Result<T>(List<T> output, List<StageStats> stages, long elapsedNanos) {
+    }
+
+    // 在队列中传递的数据块；items为null表示结束标记
+    private record Chunk<T>(int index, List<T> items) {
+    }
+
+    private static final class StageDefinition<T> {
+        final String name;
+        final int workers;
+        final Stage<T> stage;
+
+        StageDefinition(String name, int workers, Stage<T> stage) {
+            this.name = name;
+            this.workers = workers;
+            this.stage = stage;
+        }
+    }
+
+    // 单次运行中某个阶段的计数器
+    private static final class StageCounters {
+        final AtomicLong chunks = new AtomicLong();
+        final AtomicLong itemsIn = new AtomicLong();
+        final AtomicLong itemsOut = new AtomicLong();
+        final AtomicLong busyNanos = new AtomicLong();
+        final AtomicLong occupancySum = new AtomicLong();
+        final AtomicLong occupancySamples = new AtomicLong();
+        final AtomicInteger maxOccupancy = new AtomicInteger();
+        final AtomicInteger remainingWorkers;
+
+        StageCounters(int workers) {
+            this.remainingWorkers = new AtomicInteger(workers);
+        }
+
+        void sample(int occupancy) {
+            occupancySum.addAndGet(occupancy);
+            occupancySamples.incrementAndGet();
+            maxOccupancy.accumulateAndGet(occupancy, Math::max);
+        }
+    }
+
+    private final List<StageDefinition<T>> stages;
+    private final int chunkSize;
+    private final int queueCapacity;
+
+    private ListPipeline(Builder<T> builder) {
+        this.stages = List.copyOf(builder.stages);
+        this.chunkSize = builder.chunkSize;
+        this.queueCapacity = builder.queueCapacity;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 运行流水线；任一阶段抛出异常时，取消其余阶段并抛出IllegalStateException
+     */
+    public Result<T> run(List<T> input) {
+        int stageCount = stages.size();
+        List<BlockingQueue<Chunk<T>>> queues = new ArrayList<>();
+        for (int i = 0; i <= stageCount; i++) {
+            // 最后一个队列收集输出，容量足以放下全部数据块和结束标记，末端阶段不会阻塞
+            queues.add(i == stageCount
+                ? new ArrayBlockingQueue<>(Math.max(1, (input.size() + chunkSize - 1) / chunkSize) + 1)
+                : new ArrayBlockingQueue<>(queueCapacity));
+        }
+        List<StageCounters> counters = new ArrayList<>();
+        int totalWorkers = 0;
+        for (StageDefinition<T> definition : stages) {
+            counters.add(new StageCounters(definition.workers));
+            totalWorkers += definition.workers;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(totalWorkers);
+        // 按完成顺序获取结果，任一工作线程失败都能立即发现
+        CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+        long start = System.nanoTime();
+        try {
+            for (int s = 0; s < stageCount; s++) {
+                for (int w = 0; w < stages.get(s).workers; w++) {
+                    int stageIndex = s;
+                    completion.submit(() -> {
+                        work(stageIndex, queues, counters);
+                        return null;
+                    });
+                }
+            }
+
+            // 调用线程负责切块并喂给第一个阶段，队列满时在此阻塞
+            int chunkCount = 0;
+            int finished = 0;
+            for (int from = 0; from < input.size(); from += chunkSize) {
+                List<T> items = input.subList(from, Math.min(input.size(), from + chunkSize));
+                finished += putOrFail(queues.get(0), new Chunk<>(chunkCount++, items), completion);
+            }
+            for (int w = 0; w < stages.get(0).workers; w++) {
+                finished += putOrFail(queues.get(0), new Chunk<>(-1, null), completion);
+            }
+
+            for (; finished < totalWorkers; finished++) {
+                completion.take().get();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            List<List<T>> ordered = new ArrayList<>(Collections.nCopies(chunkCount, null));
+            for (Chunk<T> chunk : queues.get(stageCount)) {
+                if (chunk.items() != null) {
+                    ordered.set(chunk.index(), chunk.items());
+                }
+            }
+            List<T> output = new ArrayList<>(input.size());
+            for (List<T> items : ordered) {
+                output.addAll(items);
+            }
+            return new Result<>(Collections.unmodifiableList(output), stats(counters), elapsed);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("流水线阶段执行失败", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("流水线被中断", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void work(int stageIndex, List<BlockingQueue<Chunk<T>>> queues, List<StageCounters> counters)
+            throws InterruptedException {
+        StageDefinition<T> definition = stages.get(stageIndex);
+        StageCounters counter = counters.get(stageIndex);
+        BlockingQueue<Chunk<T>> in = queues.get(stageIndex);
+        BlockingQueue<Chunk<T>> out = queues.get(stageIndex + 1);
+        while (true) {
+            counter.sample(in.size());
+            Chunk<T> chunk = in.take();
+            if (chunk.items() == null) {
+                // 本阶段最后一个退出的工作线程负责通知下游所有工作线程
+                if (counter.remainingWorkers.decrementAndGet() == 0) {
+                    int downstream = stageIndex + 1 < stages.size() ? stages.get(stageIndex + 1).workers : 1;
+                    for (int i = 0; i < downstream; i++) {
+                        out.put(new Chunk<>(-1, null));
+                    }
+                }
+                return;
+            }
+            long begin = System.nanoTime();
+            List<T> result = definition.stage.apply(chunk.items());
+            counter.busyNanos.addAndGet(System.nanoTime() - begin);
+            counter.chunks.incrementAndGet();
+            counter.itemsIn.addAndGet(chunk.items().size());
+            counter.itemsOut.addAndGet(result.size());
+            out.put(new Chunk<>(chunk.index(), result));
+        }
+    }
+
+    // 向第一个队列投递；如果某个阶段已经失败，尽快抛出而不是永久阻塞
+    // 返回投递期间正常结束的工作线程数
+    private static <T> int putOrFail(BlockingQueue<Chunk<T>> queue, Chunk<T> chunk,
+                                     CompletionService<Void> completion)
+            throws InterruptedException, ExecutionException {
+        int finished = 0;
+        while (!queue.offer(chunk, 10, TimeUnit.MILLISECONDS)) {
+            Future<Void> done;
+            while ((done = completion.poll()) != null) {
+                done.get();
+                finished++;
+            }
+        }
+        return finished;
+    }
+
+    private List<StageStats> stats(List<StageCounters> counters) {
+        List<StageStats> result = new ArrayList<>();
+        for (int i = 0; i < stages.size(); i++) {
+            StageCounters c = counters.get(i);
+            long samples = c.occupancySamples.get();
+            result.add(new StageStats(stages.get(i).name, stages.get(i).workers, c.chunks.get(),
+                c.itemsIn.get(), c.itemsOut.get(), c.busyNanos.get(),
+                samples == 0 ? 0 : (double) c.occupancySum.get() / samples, c.maxOccupancy.get()));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 流水线构建器
+     */
+    public static final class Builder<T> {
+        private final List<StageDefinition<T>> stages = new ArrayList<>();
+        private int chunkSize = 1024;
+        private int queueCapacity = 4;
+
+        private Builder() {
+        }
+
+        public Builder<T> chunkSize(int chunkSize) {
+            if (chunkSize <= 0) {
+                throw new IllegalArgumentException("数据块大小必须为正数：" + chunkSize);
+            }
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * 阶段之间队列的容量（以数据块计）
+         */
+        public Builder<T> queueCapacity(int queueCapacity) {
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("队列容量必须为正数：" + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder<T> stage(String name, Stage<T> stage) {
+            return stage(name, 1, stage);
+        }
+
+        /**
+         * 添加一个由workers个线程并发执行的阶段
+         */
+        public Builder<T> stage(String name, int workers, Stage<T> stage) {
+            if (workers <= 0) {
+                throw new IllegalArgumentException("工作线程数必须为正数：" + workers);
+            }
+            stages.add(new StageDefinition<>(name, workers, stage));
+            return this;
+        }
+
+        /**
+         * 把已有的ListProcessor作为一个阶段接入
+         */
+        public Builder<T> stage(InterfaceDefaultMethodExample.ListProcessor processor) {
+            return stage(processor.getClass().getSimpleName(), 1, processor::processChunk);
+        }
+
+        public ListPipeline<T> build() {
+            if (stages.isEmpty()) {
+                throw new IllegalStateException("至少需要一个阶段");
+            }
+            return new ListPipeline<>(this);
+        }
+    }
+
+    // 模拟CPU密集的计算
+    private static List<Long> heavy(List<Long> chunk) {
+        List<Long> result = new ArrayList<>(chunk.size());
+        for (long value : chunk) {
+            long x = value;
+            for (int i = 0; i < 2_000; i++) {
+                x = x * 6364136223846793005L + 1442695040888963407L;
+            }
+            result.add(x & 0xFFFF);
+        }
+        return result;
+    }
+
+    /**
+     * 主方法：对比单线程阶段和多线程阶段
+     */
+    public static void main(String[] args) {
+        System.out.println("========== ListProcessor流水线示例 ==========\n");
+
+        List<Long> input = new ArrayList<>();
+        for (long i = 0; i < 200_000; i++) {
+            input.add(i);
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        for (int workers : new int[] {1, cores}) {
+            ListPipeline<Long> pipeline = ListPipeline.<Long>builder()
+                .chunkSize(2_000)
+                .queueCapacity(4)
+                .stage("计算", workers, ListPipeline::heavy)
+                .stage("过滤", chunk -> chunk.stream().filter(v -> v % 2 == 0).toList())
+                .build();
+            Result<Long> result = pipeline.run(input);
+
+            System.out.printf("计算阶段%d个线程：耗时 %.1f ms，输出%d个元素%n",
+                workers, result.elapsedNanos() / 1e6, result.output().size());
+            for (StageStats stats : result.stages()) {
+                System.out.printf("  %s：%d块，%.0f 元素/秒，队列平均占用 %.2f，最大 %d%n",
+                    stats.name(), stats.chunks(), stats.itemsPerSecond(),
+                    stats.averageQueueOccupancy(), stats.maxQueueOccupancy());
+            }
+        }
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -0,0 +1,714 @@
+package com.ibsrapp.jdk8.lambda;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 公式编译器：把算术公式编译成函数式对象
+ *
+ * 示例6中的Calculator每次只能用一个lambda计算加法、乘法或最大值。
+ * 规则引擎需要把用户定义的公式执行成百上千万次，逐节点解释执行的开销很大。
+ *
+ * FormulaCompiler提供三种执行方式，便于对比：
+ * 1. interpret：直接遍历语法树求值（解释执行）
+ * 2. compose：把语法树翻译成嵌套的lambda（lambda组合）
+ * 3. compile：为公式生成字节码，定义为隐藏类（Lookup.defineHiddenClass），
+ *    JIT可以像对待普通代码一样内联和优化
+ *
+ * 所有方式在执行前都会做常量折叠，例如 2 * 3 + x 会先变成 6 + x。
+ *
+ * 语法：数字、变量名、+ - * / %、一元负号、括号，以及函数min、max、abs、sqrt、pow。
+ * compileCalculator生成示例6中的Calculator，变量固定为a和b，按int语义计算。
+ */
+public final class FormulaCompiler {
+
+    /**
+     * double公式：variables的顺序与编译时声明的变量顺序一致
+     */
+    @FunctionalInterface
+    public interface Formula {
+        double evaluate(double[] variables);
+    }
+
+    // ---------- 语法树 ----------
+
+    sealed interface Node permits Num, Var, Neg, Binary, Call {
+    }
+
+    record Num(double value) implements Node {
+    }
+
+    record Var(String name, int index) implements Node {
+    }
+
+    record Neg(Node operand) implements Node {
+    }
+
+    record Binary(char op, Node left, Node right) implements Node {
+    }
+
+    record Call(String function, List<Node> args) implements Node {
+    }
+
+    private static final Map<String, Integer> FUNCTION_ARITY = Map.of(
+        "min", 2, "max", 2, "abs", 1, "sqrt", 1, "pow", 2);
+
+    private FormulaCompiler() {
+    }
+
+    // ---------- 三种执行方式 ----------
+
+    /**
+     * 生成字节码并定义为隐藏类
+     */
+    public static Formula compile(String expression, String... variables) {
+        Node tree = fold(parse(expression, variables), false);
+        byte[] bytes = new ClassWriter(false).generate(tree);
+        return (Formula) instantiate(bytes);
+    }
+
+    /**
+     * 生成示例6中的Calculator（int语义，变量为a和b）
+     */
+    public static LambdaExample.Calculator compileCalculator(String expression) {
+        Node tree = fold(parse(expression, "a", "b"), true);
+        byte[] bytes = new ClassWriter(true).generate(tree);
+        return (LambdaExample.Calculator) instantiate(bytes);
+    }
+
+    /**
+     * 解释执行：每次求值都遍历语法树
+     */
+    public static Formula interpret(String expression, String... variables) {
+        Node tree = fold(parse(expression, variables), false);
+        return vars -> evaluate(tree, vars);
+    }
+
+    /**
+     * lambda组合：语法树的每个节点翻译成一个lambda
+     */
+    public static Formula compose(String expression, String... variables) {
+        ToDoubleFunction<double[]> function = toLambda(fold(parse(expression, variables), false));
+        return function::applyAsDouble;
+    }
+
+    private static double evaluate(Node node, double[] vars) {
+        return switch (node) {
+            case Num n -> n.value();
+            case Var v -> vars[v.index()];
+            case Neg n -> -evaluate(n.operand(), vars);
+            case Binary b -> applyDouble(b.op(), evaluate(b.left(), vars), evaluate(b.right(), vars));
+            case Call c -> c.args().size() == 1
+                ? applyDouble(c.function(), evaluate(c.args().get(0), vars), 0)
+                : applyDouble(c.function(), evaluate(c.args().get(0), vars), evaluate(c.args().get(1), vars));
+        };
+    }
+
+    private static ToDoubleFunction<double[]> toLambda(Node node) {
+        return switch (node) {
+            case Num n -> {
+                double value = n.value();
+                yield vars -> value;
+            }
+            case Var v -> {
+                int index = v.index();
+                yield vars -> vars[index];
+            }
+            case Neg n -> {
+                ToDoubleFunction<double[]> operand = toLambda(n.operand());
+                yield vars -> -operand.applyAsDouble(vars);
+            }
+            case Binary b -> {
+                ToDoubleFunction<double[]> l = toLambda(b.left());
+                ToDoubleFunction<double[]> r = toLambda(b.right());
+                yield switch (b.op()) {
+                    case '+' -> vars -> l.applyAsDouble(vars) + r.applyAsDouble(vars);
+                    case '-' -> vars -> l.applyAsDouble(vars) - r.applyAsDouble(vars);
+                    case '*' -> vars -> l.applyAsDouble(vars) * r.applyAsDouble(vars);
+                    case '/' -> vars -> l.applyAsDouble(vars) / r.applyAsDouble(vars);
+                    default -> vars -> l.applyAsDouble(vars) % r.applyAsDouble(vars);
+                };
+            }
+            case Call c -> {
+                String function = c.function();
+                ToDoubleFunction<double[]> a = toLambda(c.args().get(0));
+                if (c.args().size() == 1) {
+                    yield vars -> applyDouble(function, a.applyAsDouble(vars), 0);
+                }
+                ToDoubleFunction<double[]> b = toLambda(c.args().get(1));
+                yield vars -> applyDouble(function, a.applyAsDouble(vars), b.applyAsDouble(vars));
+            }
+        };
+    }
+
+    private static double applyDouble(char op, double l, double r) {
+        return switch (op) {
+            case '+' -> l + r;
+            case '-' -> l - r;
+            case '*' -> l * r;
+            case '/' -> l / r;
+            default -> l % r;
+        };
+    }
+
+    private static double applyDouble(String function, double a, double b) {
+        return switch (function) {
+            case "min" -> Math.min(a, b);
+            case "max" -> Math.max(a, b);
+            case "abs" -> Math.abs(a);
+            case "sqrt" -> Math.sqrt(a);
+            default -> Math.pow(a, b);
+        };
+    }
+
+    // ---------- 常量折叠 ----------
+
+    // int公式：常量先检查再折叠，避免2.5 * 2被截断成4
+    static Node fold(Node node, boolean integer) {
+        return switch (node) {
+            case Num n -> {
+                if (integer) {
+                    checkIntConstant(n.value());
+                }
+                yield n;
+            }
+            case Var v -> v;
+            case Neg n -> {
+                Node operand = fold(n.operand(), integer);
+                yield operand instanceof Num num
+                    ? new Num(integer ? -(int) num.value() : -num.value())
+                    : new Neg(operand);
+            }
+            case Binary b -> {
+                Node l = fold(b.left(), integer);
+                Node r = fold(b.right(), integer);
+                if (l instanceof Num ln && r instanceof Num rn) {
+                    if (!integer) {
+                        yield new Num(applyDouble(b.op(), ln.value(), rn.value()));
+                    }
+                    // int除零留到运行时抛出ArithmeticException，与Java语义一致
+                    if ((b.op() != '/' && b.op() != '%') || rn.value() != 0) {
+                        yield new Num(applyInt(b.op(), (int) ln.value(), (int) rn.value()));
+                    }
+                }
+                yield new Binary(b.op(), l, r);
+            }
+            case Call c -> {
+                List<Node> args = new ArrayList<>();
+                boolean constant = true;
+                for (Node arg : c.args()) {
+                    Node folded = fold(arg, integer);
+                    args.add(folded);
+                    constant &= folded instanceof Num;
+                }
+                if (constant && !integer) {
+                    double a = ((Num) args.get(0)).value();
+                    double b = args.size() > 1 ? ((Num) args.get(1)).value() : 0;
+                    yield new Num(applyDouble(c.function(), a, b));
+                }
+                yield new Call(c.function(), List.copyOf(args));
+            }
+        };
+    }
+
+    private static int checkIntConstant(double value) {
+        if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("int公式中只能使用int范围内的整数常量：" + value);
+        }
+        return (int) value;
+    }
+
+    private static int applyInt(char op, int l, int r) {
+        return switch (op) {
+            case '+' -> l + r;
+            case '-' -> l - r;
+            case '*' -> l * r;
+            case '/' -> l / r;
+            default -> l % r;
+        };
+    }
+
+    // ---------- 解析 ----------
+
+    static Node parse(String expression, String... variables) {
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < variables.length; i++) {
+            if (indexes.put(variables[i], i) != null) {
+                throw new IllegalArgumentException("变量重复声明：" + variables[i]);
+            }
+        }
+        Parser parser = new Parser(expression, indexes);
+        Node node = parser.expression();
+        parser.skipSpaces();
+        if (parser.pos < expression.length()) {
+            throw parser.error("多余的字符");
+        }
+        return node;
+    }
+
+    private static final class Parser {
+        private final String text;
+        private final Map<String, Integer> variables;
+        private int pos;
+
+        Parser(String text, Map<String, Integer> variables) {
+            this.text = text;
+            this.variables = variables;
+        }
+
+        Node expression() {
+            Node node = term();
+            while (true) {
+                skipSpaces();
+                if (eat('+')) {
+                    node = new Binary('+', node, term());
+                } else if (eat('-')) {
+                    node = new Binary('-', node, term());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        Node term() {
+            Node node = unary();
+            while (true) {
+                skipSpaces();
+                if (eat('*')) {
+                    node = new Binary('*', node, unary());
+                } else if (eat('/')) {
+                    node = new Binary('/', node, unary());
+                } else if (eat('%')) {
+                    node = new Binary('%', node, unary());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        Node unary() {
+            skipSpaces();
+            if (eat('-')) {
+                return new Neg(unary());
+            }
+            if (eat('+')) {
+                return unary();
+            }
+            return primary();
+        }
+
+        Node primary() {
+            skipSpaces();
+            if (eat('(')) {
+                Node node = expression();
+                skipSpaces();
+                expect(')');
+                return node;
+            }
+            int start = pos;
+            if (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                    pos++;
+                }
+                try {
+                    return new Num(Double.parseDouble(text.substring(start, pos)));
+                } catch (NumberFormatException e) {
+                    throw error("非法的数字");
+                }
+            }
+            if (pos < text.length() && Character.isJavaIdentifierStart(text.charAt(pos))) {
+                while (pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos))) {
+                    pos++;
+                }
+                String name = text.substring(start, pos);
+                skipSpaces();
+                if (eat('(')) {
+                    return call(name);
+                }
+                Integer index = variables.get(name);
+                if (index == null) {
+                    throw error("未声明的变量：" + name);
+                }
+                return new Var(name, index);
+            }
+            throw error("缺少操作数");
+        }
+
+        Node call(String name) {
+            Integer arity = FUNCTION_ARITY.get(name);
+            if (arity == null) {
+                throw error("未知函数：" + name);
+            }
+            List<Node> args = new ArrayList<>();
+            skipSpaces();
+            if (!eat(')')) {
+                do {
+                    args.add(expression());
+                    skipSpaces();
+                } while (eat(','));
+                expect(')');
+            }
+            if (args.size() != arity) {
+                throw error("函数" + name + "需要" + arity + "个参数");
+            }
+            return new Call(name, List.copyOf(args));
+        }
+
+        void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean eat(char c) {
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!eat(c)) {
+                throw error("缺少'" + c + "'");
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + "，位置：" + pos + "，公式：" + text);
+        }
+    }
+
+    // ---------- 字节码生成 ----------
+
+    private static Object instantiate(byte[] bytes) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("无法定义公式类", t);
+        }
+    }
+
+    /**
+     * 最小化的class文件生成器
+     * 生成的方法没有分支，因此不需要StackMapTable
+     */
+    private static final class ClassWriter {
+        private static final String CLASS_NAME = "com/ibsrapp/jdk8/lambda/CompiledFormula";
+
+        private final boolean integer;
+        private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(poolBytes);
+        private final Map<String, Integer> poolIndex = new HashMap<>();
+        private int poolCount = 1;
+
+        ClassWriter(boolean integer) {
+            this.integer = integer;
+        }
+
+        byte[] generate(Node tree) {
+            try {
+                int thisClass = classRef(CLASS_NAME);
+                int superClass = classRef("java/lang/Object");
+                int iface = classRef(integer
+                    ? "com/ibsrapp/jdk8/lambda/LambdaExample$Calculator"
+                    : "com/ibsrapp/jdk8/lambda/FormulaCompiler$Formula");
+                int objectInit = methodRef("java/lang/Object", "<init>", "()V");
+                int initName = utf8("<init>");
+                int initDesc = utf8("()V");
+                int methodName = utf8(integer ? "calculate" : "evaluate");
+                int methodDesc = utf8(integer ? "(II)I" : "([D)D");
+                int codeName = utf8("Code");
+
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                emit(tree, body);
+                body.write(integer ? 0xac : 0xaf); // ireturn / dreturn
+                int maxStack = maxStack(tree);
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeInt(0xCAFEBABE);
+                data.writeShort(0);
+                data.writeShort(52);
+                data.writeShort(poolCount);
+                pool.flush();
+                data.write(poolBytes.toByteArray());
+                data.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+                data.writeShort(thisClass);
+                data.writeShort(superClass);
+                data.writeShort(1);
+                data.writeShort(iface);
+                data.writeShort(0); // fields
+                data.writeShort(2); // methods
+
+                // 构造方法：aload_0; invokespecial Object.<init>; return
+                writeMethod(data, initName, initDesc, codeName, 1, 1,
+                    new byte[] {0x2a, (byte) 0xb7, (byte) (objectInit >> 8), (byte) objectInit, (byte) 0xb1});
+                writeMethod(data, methodName, methodDesc, codeName, maxStack, integer ? 3 : 2, body.toByteArray());
+
+                data.writeShort(0); // class attributes
+                data.flush();
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static void writeMethod(DataOutputStream data, int name, int desc, int codeName,
+                                        int maxStack, int maxLocals, byte[] code) throws IOException {
+            data.writeShort(0x0001); // public
+            data.writeShort(name);
+            data.writeShort(desc);
+            data.writeShort(1);
+            data.writeShort(codeName);
+            data.writeInt(12 + code.length);
+            data.writeShort(maxStack);
+            data.writeShort(maxLocals);
+            data.writeInt(code.length);
+            data.write(code);
+            data.writeShort(0); // exception table
+            data.writeShort(0); // code attributes
+        }
+
+        // 计算操作数栈最大深度（以slot计，double占2个）
+        private int maxStack(Node node) {
+            int width = integer ? 1 : 2;
+            return switch (node) {
+                case Num n -> width;
+                case Var v -> integer ? 1 : 2;
+                case Neg n -> maxStack(n.operand());
+                case Binary b -> Math.max(maxStack(b.left()), width + maxStack(b.right()));
+                case Call c -> {
+                    int max = 0;
+                    for (int i = 0; i < c.args().size(); i++) {
+                        max = Math.max(max, i * width + maxStack(c.args().get(i)));
+                    }
+                    yield max;
+                }
+            };
+        }
+
+        private void emit(Node node, ByteArrayOutputStream code) throws IOException {
+            switch (node) {
+                case Num n -> emitConstant(n.value(), code);
+                case Var v -> {
+                    if (integer) {
+                        code.write(v.index() == 0 ? 0x1b : 0x1c); // iload_1 / iload_2
+                    } else {
+                        code.write(0x2b); // aload_1
+                        emitInt(v.index(), code);
+                        code.write(0x31); // daload
+                    }
+                }
+                case Neg n -> {
+                    emit(n.operand(), code);
+                    code.write(integer ? 0x74 : 0x77); // ineg / dneg
+                }
+                case Binary b -> {
+                    emit(b.left(), code);
+                    emit(b.right(), code);
+                    code.write(switch (b.op()) {
+                        case '+' -> integer ? 0x60 : 0x63;
+                        case '-' -> integer ? 0x64 : 0x67;
+                        case '*' -> integer ? 0x68 : 0x6b;
+                        case '/' -> integer ? 0x6c : 0x6f;
+                        default -> integer ? 0x70 : 0x73;
+                    });
+                }
+                case Call c -> {
+                    if (integer && (c.function().equals("sqrt") || c.function().equals("pow"))) {
+                        throw new IllegalArgumentException("int公式不支持函数：" + c.function());
+                    }
+                    for (Node arg : c.args()) {
+                        emit(arg, code);
+                    }
+                    String type = integer ? "I" : "D";
+                    String desc = "(" + type.repeat(c.args().size()) + ")" + type;
+                    int method = methodRef("java/lang/Math", c.function(), desc);
+                    code.write(0xb8); // invokestatic
+                    code.write(method >> 8);
+                    code.write(method);
+                }
+            }
+        }
+
+        private void emitConstant(double value, ByteArrayOutputStream code) throws IOException {
+            if (integer) {
+                emitInt(checkIntConstant(value), code);
+                return;
+            }
+            if (Double.doubleToRawLongBits(value) == 0L) {
+                code.write(0x0e); // dconst_0
+            } else if (value == 1.0) {
+                code.write(0x0f); // dconst_1
+            } else {
+                int index = doubleConstant(value);
+                code.write(0x14); // ldc2_w
+                code.write(index >> 8);
+                code.write(index);
+            }
+        }
+
+        private void emitInt(int value, ByteArrayOutputStream code) throws IOException {
+            if (value >= -1 && value <= 5) {
+                code.write(0x03 + value); // iconst_<n>
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                code.write(0x10); // bipush
+                code.write(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                code.write(0x11); // sipush
+                code.write(value >> 8);
+                code.write(value);
+            } else {
+                int index = intConstant(value);
+                code.write(0x13); // ldc_w
+                code.write(index >> 8);
+                code.write(index);
+            }
+        }
+
+        // ---------- 常量池 ----------
+
+        private int utf8(String value) throws IOException {
+            Integer index = poolIndex.get("U" + value);
+            if (index != null) {
+                return index;
+            }
+            pool.writeByte(1);
+            pool.writeUTF(value);
+            return register("U" + value, 1);
+        }
+
+        private int classRef(String internalName) throws IOException {
+            Integer index = poolIndex.get("C" + internalName);
+            if (index != null) {
+                return index;
+            }
+            int name = utf8(internalName);
+            pool.writeByte(7);
+            pool.writeShort(name);
+            return register("C" + internalName, 1);
+        }
+
+        private int methodRef(String owner, String name, String desc) throws IOException {
+            String key = "M" + owner + "." + name + desc;
+            Integer index = poolIndex.get(key);
+            if (index != null) {
+                return index;
+            }
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descIndex = utf8(desc);
+            pool.writeByte(12);
+            pool.writeShort(nameIndex);
+            pool.writeShort(descIndex);
+            int nameAndType = register("N" + name + desc, 1);
+            pool.writeByte(10);
+            pool.writeShort(ownerIndex);
+            pool.writeShort(nameAndType);
+            return register(key, 1);
+        }
+
+        private int intConstant(int value) throws IOException {
+            String key = "I" + value;
+            Integer index = poolIndex.get(key);
+            if (index != null) {
+                return index;
+            }
+            pool.writeByte(3);
+            pool.writeInt(value);
+            return register(key, 1);
+        }
+
+        private int doubleConstant(double value) throws IOException {
+            String key = "D" + Double.doubleToRawLongBits(value);
+            Integer index = poolIndex.get(key);
+            if (index != null) {
+                return index;
+            }
+            pool.writeByte(6);
+            pool.writeDouble(value);
+            // double常量占两个常量池槽位
+            return register(key, 2);
+        }
+
+        private int register(String key, int slots) {
+            int index = poolCount;
+            poolCount += slots;
+            poolIndex.put(key, index);
+            return index;
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 三种执行方式与手写lambda的对比
+     */
+    public static void benchmark(int iterations) {
+        System.out.println("=== 公式求值性能对比（" + iterations + "次） ===");
+
+        String expression = "(price * quantity - discount) * (1 + taxRate) + max(shipping, 5) * 2 / 4";
+        String[] variables = {"price", "quantity", "discount", "taxRate", "shipping"};
+        Formula compiled = compile(expression, variables);
+        Formula interpreted = interpret(expression, variables);
+        Formula composed = compose(expression, variables);
+        Formula handWritten = v -> (v[0] * v[1] - v[2]) * (1 + v[3]) + Math.max(v[4], 5) * 2 / 4;
+
+        double[] vars = {19.99, 3, 5, 0.13, 8};
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            run(report, "解释执行", interpreted, vars, iterations);
+            run(report, "lambda组合", composed, vars, iterations);
+            run(report, "字节码编译", compiled, vars, iterations);
+            run(report, "手写lambda", handWritten, vars, iterations);
+        });
+    }
+
+    private static void run(boolean report, String label, Formula formula, double[] vars, int iterations) {
+        double sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            vars[1] = i & 7;
+            sink += formula.evaluate(vars);
+        }
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%s：%.2f ns/次（校验值 %.1f）%n", label, (double) nanos / iterations, sink);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 公式编译器示例 ==========\n");
+
+        LambdaExample.Calculator add = compileCalculator("a + b");
+        LambdaExample.Calculator max = compileCalculator("max(a, b)");
+        LambdaExample.Calculator custom = compileCalculator("(a + b) * (2 + 3) - a % 4");
+        System.out.println("10 + 5 = " + add.calculate(10, 5));
+        System.out.println("max(10, 5) = " + max.calculate(10, 5));
+        System.out.println("(10 + 5) * 5 - 10 % 4 = " + custom.calculate(10, 5));
+
+        Formula area = compile("pi * r * r", "pi", "r");
+        System.out.println("面积：" + area.evaluate(new double[] {Math.PI, 2}));
+
+        benchmark(20_000_000);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -0,0 +1,461 @@
+package com.ibsrapp.jdk8.lambda;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * 基本类型专用的filter/map链
+ *
+ * 示例3、示例4使用Predicate&lt;Integer&gt;、Function&lt;String, Integer&gt;，
+ * 每个int都要装箱成Integer，过滤和映射链越长，分配越多。
+ *
+ * PrimitiveChain为int、long、double各提供一条不装箱的处理链：
+ * 1. 只使用IntPredicate、IntUnaryOperator等基本类型函数式接口
+ * 2. 构建时融合：相邻的map合并成一个函数（andThen），相邻的filter合并成一个谓词（and）
+ * 3. 执行时每个阶段是一个基本类型的接收器（sink），元素逐个推过整条链，
+ *    每次执行只分配结果数组，元素本身不产生任何对象
+ * 4. 链对象不可变，可以复用；同一条链可以作用于任意多个数组
+ */
+public final class PrimitiveChain {
+
+    private PrimitiveChain() {
+    }
+
+    public static OfInt ofInt() {
+        return new OfInt(List.of());
+    }
+
+    public static OfLong ofLong() {
+        return new OfLong(List.of());
+    }
+
+    public static OfDouble ofDouble() {
+        return new OfDouble(List.of());
+    }
+
+    // ---------- int ----------
+
+    @FunctionalInterface
+    interface IntSink {
+        void accept(int value);
+    }
+
+    /**
+     * int处理链
+     */
+    public static final class OfInt {
+        /**
+         * 一个阶段：把下游接收器包装成本阶段的接收器
+         */
+        private sealed interface Step permits MapStep, FilterStep {
+            IntSink wrap(IntSink downstream);
+        }
+
+        private record MapStep(IntUnaryOperator mapper) implements Step {
+            @Override
+            public IntSink wrap(IntSink downstream) {
+                return v -> downstream.accept(mapper.applyAsInt(v));
+            }
+        }
+
+        private record FilterStep(IntPredicate predicate) implements Step {
+            @Override
+            public IntSink wrap(IntSink downstream) {
+                return v -> {
+                    if (predicate.test(v)) {
+                        downstream.accept(v);
+                    }
+                };
+            }
+        }
+
+        // 相邻的同类阶段已融合，因此map与filter交替出现
+        private final List<Step> steps;
+
+        private OfInt(List<Step> steps) {
+            this.steps = steps;
+        }
+
+        public OfInt map(IntUnaryOperator mapper) {
+            List<Step> next = new ArrayList<>(steps);
+            if (!next.isEmpty() && next.get(next.size() - 1) instanceof MapStep(var previous)) {
+                next.set(next.size() - 1, new MapStep(previous.andThen(mapper)));
+            } else {
+                next.add(new MapStep(mapper));
+            }
+            return new OfInt(List.copyOf(next));
+        }
+
+        public OfInt filter(IntPredicate predicate) {
+            List<Step> next = new ArrayList<>(steps);
+            if (!next.isEmpty() && next.get(next.size() - 1) instanceof FilterStep(var previous)) {
+                next.set(next.size() - 1, new FilterStep(previous.and(predicate)));
+            } else {
+                next.add(new FilterStep(predicate));
+            }
+            return new OfInt(List.copyOf(next));
+        }
+
+        /**
+         * 融合后的阶段数
+         */
+        public int stageCount() {
+            return steps.size();
+        }
+
+        // 从末端开始，把各阶段包装成一个接收器
+        private IntSink wrap(IntSink terminal) {
+            IntSink sink = terminal;
+            for (int i = steps.size() - 1; i >= 0; i--) {
+                sink = steps.get(i).wrap(sink);
+            }
+            return sink;
+        }
+
+        /**
+         * 把结果写入out，返回写入的元素个数；out至少要和input一样长
+         */
+        public int applyInto(int[] input, int[] out) {
+            if (out.length < input.length) {
+                throw new IllegalArgumentException("输出数组长度不足：" + out.length + " < " + input.length);
+            }
+            int[] count = {0};
+            IntSink sink = wrap(v -> out[count[0]++] = v);
+            for (int value : input) {
+                sink.accept(value);
+            }
+            return count[0];
+        }
+
+        public int[] apply(int[] input) {
+            int[] out = new int[input.length];
+            return Arrays.copyOf(out, applyInto(input, out));
+        }
+
+        public long sum(int[] input) {
+            long[] sum = {0};
+            IntSink sink = wrap(v -> sum[0] += v);
+            for (int value : input) {
+                sink.accept(value);
+            }
+            return sum[0];
+        }
+
+        public int count(int[] input) {
+            int[] count = {0};
+            IntSink sink = wrap(v -> count[0]++);
+            for (int value : input) {
+                sink.accept(value);
+            }
+            return count[0];
+        }
+    }
+
+    // ---------- long ----------
+
+    @FunctionalInterface
+    interface LongSink {
+        void accept(long value);
+    }
+
+    /**
+     * long处理链
+     */
+    public static final class OfLong {
+        private sealed interface Step permits MapStep, FilterStep {
+            LongSink wrap(LongSink downstream);
+        }
+
+        private record MapStep(LongUnaryOperator mapper) implements Step {
+            @Override
+            public LongSink wrap(LongSink downstream) {
+                return v -> downstream.accept(mapper.applyAsLong(v));
+            }
+        }
+
+        private record FilterStep(LongPredicate predicate) implements Step {
+            @Override
+            public LongSink wrap(LongSink downstream) {
+                return v -> {
+                    if (predicate.test(v)) {
+                        downstream.accept(v);
+                    }
+                };
+            }
+        }
+
+        private final List<Step> steps;
+
+        private OfLong(List<Step> steps) {
+            this.steps = steps;
+        }
+
+        public OfLong map(LongUnaryOperator mapper) {
+            List<Step> next = new ArrayList<>(steps);
+            if (!next.isEmpty() && next.get(next.size() - 1) instanceof MapStep(var previous)) {
+                next.set(next.size() - 1, new MapStep(previous.andThen(mapper)));
+            } else {
+                next.add(new MapStep(mapper));
+            }
+            return new OfLong(List.copyOf(next));
+        }
+
+        public OfLong filter(LongPredicate predicate) {
+            List<Step> next = new ArrayList<>(steps);
+            if (!next.isEmpty() && next.get(next.size() - 1) instanceof FilterStep(var previous)) {
+                next.set(next.size() - 1, new FilterStep(previous.and(predicate)));
+            } else {
+                next.add(new FilterStep(predicate));
+            }
+            return new OfLong(List.copyOf(next));
+        }
+
+        public int stageCount() {
+            return steps.size();
+        }
+
+        private LongSink wrap(LongSink terminal) {
+            LongSink sink = terminal;
+            for (int i = steps.size() - 1; i >= 0; i--) {
+                sink = steps.get(i).wrap(sink);
+            }
+            return sink;
+        }
+
+        /**
+         * 把结果写入out，返回写入的元素个数；out至少要和input一样长
+         */
+        public int applyInto(long[] input, long[] out) {
+            if (out.length < input.length) {
+                throw new IllegalArgumentException("输出数组长度不足：" + out.length + " < " + input.length);
+            }
+            int[] count = {0};
+            LongSink sink = wrap(v -> out[count[0]++] = v);
+            for (long value : input) {
+                sink.accept(value);
+            }
+            return count[0];
+        }
+
+        public long[] apply(long[] input) {
+            long[] out = new long[input.length];
+            return Arrays.copyOf(out, applyInto(input, out));
+        }
+
+        public long sum(long[] input) {
+            long[] sum = {0};
+            LongSink sink = wrap(v -> sum[0] += v);
+            for (long value : input) {
+                sink.accept(value);
+            }
+            return sum[0];
+        }
+
+        public int count(long[] input) {
+            int[] count = {0};
+            LongSink sink = wrap(v -> count[0]++);
+            for (long value : input) {
+                sink.accept(value);
+            }
+            return count[0];
+        }
+    }
+
+    // ---------- double ----------
+
+    @FunctionalInterface
+    interface DoubleSink {
+        void accept(double value);
+    }
+
+    /**
+     * double处理链
+     */
+    public static final class OfDouble {
+        private sealed interface Step permits MapStep, FilterStep {
+            DoubleSink wrap(DoubleSink downstream);
+        }
+
+        private record MapStep(DoubleUnaryOperator mapper) implements Step {
+            @Override
+            public DoubleSink wrap(DoubleSink downstream) {
+                return v -> downstream.accept(mapper.applyAsDouble(v));
+            }
+        }
+
+        private record FilterStep(DoublePredicate predicate) implements Step {
+            @Override
+            public DoubleSink wrap(DoubleSink downstream) {
+                return v -> {
+                    if (predicate.test(v)) {
+                        downstream.accept(v);
+                    }
+                };
+            }
+        }
+
+        private final List<Step> steps;
+
+        private OfDouble(List<Step> steps) {
+            this.steps = steps;
+        }
+
+        public OfDouble map(DoubleUnaryOperator mapper) {
+            List<Step> next = new ArrayList<>(steps);
+            if (!next.isEmpty() && next.get(next.size() - 1) instanceof MapStep(var previous)) {
+                next.set(next.size() - 1, new MapStep(previous.andThen(mapper)));
+            } else {
+                next.add(new MapStep(mapper));
+            }
+            return new OfDouble(List.copyOf(next));
+        }
+
+        public OfDouble filter(DoublePredicate predicate) {
+            List<Step> next = new ArrayList<>(steps);
+            if (!next.isEmpty() && next.get(next.size() - 1) instanceof FilterStep(var previous)) {
+                next.set(next.size() - 1, new FilterStep(previous.and(predicate)));
+            } else {
+                next.add(new FilterStep(predicate));
+            }
+            return new OfDouble(List.copyOf(next));
+        }
+
+        public int stageCount() {
+            return steps.size();
+        }
+
+        private DoubleSink wrap(DoubleSink terminal) {
+            DoubleSink sink = terminal;
+            for (int i = steps.size() - 1; i >= 0; i--) {
+                sink = steps.get(i).wrap(sink);
+            }
+            return sink;
+        }
+
+        /**
+         * 把结果写入out，返回写入的元素个数；out至少要和input一样长
+         */
+        public int applyInto(double[] input, double[] out) {
+            if (out.length < input.length) {
+                throw new IllegalArgumentException("输出数组长度不足：" + out.length + " < " + input.length);
+            }
+            int[] count = {0};
+            DoubleSink sink = wrap(v -> out[count[0]++] = v);
+            for (double value : input) {
+                sink.accept(value);
+            }
+            return count[0];
+        }
+
+        public double[] apply(double[] input) {
+            double[] out = new double[input.length];
+            return Arrays.copyOf(out, applyInto(input, out));
+        }
+
+        public double sum(double[] input) {
+            double[] sum = {0};
+            DoubleSink sink = wrap(v -> sum[0] += v);
+            for (double value : input) {
+                sink.accept(value);
+            }
+            return sum[0];
+        }
+
+        public int count(double[] input) {
+            int[] count = {0};
+            DoubleSink sink = wrap(v -> count[0]++);
+            for (double value : input) {
+                sink.accept(value);
+            }
+            return count[0];
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 装箱Stream vs IntStream vs PrimitiveChain：耗时与每次执行的分配字节数
+     */
+    public static void benchmark(int size, int rounds) {
+        System.out.println("=== filter/map链性能对比（" + size + "个int） ===");
+
+        int[] data = IntStream.range(0, size).toArray();
+        List<Integer> boxed = IntStream.range(0, size).boxed().toList();
+        Predicate<Integer> isEven = n -> n % 2 == 0;
+        Function<Integer, Integer> square = n -> n * n;
+        OfInt chain = ofInt()
+            .filter(n -> n % 2 == 0)
+            .map(n -> n * n)
+            .map(n -> n + 1)
+            .filter(n -> n % 3 != 0);
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            long sink = 0;
+
+            long bytes = BenchmarkSupport.allocatedBytes();
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                sink += boxed.stream().filter(isEven).map(square).map(n -> n + 1)
+                    .filter(n -> n % 3 != 0).mapToLong(Integer::longValue).sum();
+            }
+            print(report, "Stream<Integer>", start, bytes, rounds);
+
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                sink += IntStream.of(data).filter(n -> n % 2 == 0).map(n -> n * n).map(n -> n + 1)
+                    .filter(n -> n % 3 != 0).asLongStream().sum();
+            }
+            print(report, "IntStream", start, bytes, rounds);
+
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                sink += chain.sum(data);
+            }
+            print(report, "PrimitiveChain", start, bytes, rounds);
+
+            if (report) {
+                System.out.println("融合后阶段数：" + chain.stageCount() + "（原始4个），校验值：" + sink);
+            }
+        });
+    }
+
+    private static void print(boolean report, String label, long start, long startBytes, int rounds) {
+        long nanos = System.nanoTime() - start;
+        long bytes = BenchmarkSupport.allocatedBytes() - startBytes;
+        if (report) {
+            System.out.printf("%s：%.2f ms/次，%d B/次%n", label, nanos / 1e6 / rounds,
+                startBytes < 0 ? -1 : bytes / rounds);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 基本类型处理链示例 ==========\n");
+
+        OfInt evenSquares = ofInt().filter(n -> n % 2 == 0).map(n -> n * n);
+        System.out.println("偶数的平方：" + Arrays.toString(evenSquares.apply(new int[] {1, 2, 3, 4, 5, 6})));
+
+        OfDouble withTax = ofDouble().filter(p -> p > 10).map(p -> p * 1.13);
+        System.out.println("含税总价：" + withTax.sum(new double[] {5.0, 20.0, 100.0}));
+
+        benchmark(1_000_000, 50);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
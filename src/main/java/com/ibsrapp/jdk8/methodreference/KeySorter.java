@@ -0,0 +1,419 @@
+package com.ibsrapp.jdk8.methodreference;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 基于预提取排序键的多键排序
+ *
+ * 示例6用Comparator.comparing(Person::getAge)排序，每次比较都要重新调用getter，
+ * 并把int装箱成Integer。百万行导出时，比较次数是n·log n，这些开销会被放大很多倍。
+ *
+ * KeySorter的做法：
+ * 1. 每个排序键只提取一次，存入与元素下标对齐的基本类型数组（平行数组）
+ * 2. int/long/double键被规范化为可按无符号整数比较的形式，降序直接按位取反
+ * 3. 全部是数值键时，使用稳定的LSD基数排序，从最次要的键开始逐键排序
+ * 4. 含有字符串等对象键时，使用并行归并排序（稳定），比较只访问键数组
+ * 5. 结果是一个排列（permutation）：result[i]是排第i位的元素在原列表中的下标
+ *
+ * 所有排序都是稳定的：键完全相同的元素保持原有顺序。
+ */
+public final class KeySorter<T> {
+
+    /**
+     * 排序方向
+     */
+    public enum Order {
+        ASC, DESC
+    }
+
+    // 归并排序切换到插入排序、以及停止并行拆分的阈值
+    private static final int INSERTION_THRESHOLD = 32;
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    private sealed interface Key<T> permits IntKey, LongKey, ObjectKey {
+    }
+
+    private record IntKey<T>(ToIntFunction<? super T> extractor, Order order) implements Key<T> {
+    }
+
+    // long和double键都规范化为long
+    private record LongKey<T>(ToLongFunction<? super T> extractor, Order order) implements Key<T> {
+    }
+
+    private record ObjectKey<T>(Function<? super T, ?> extractor, Comparator<Object> comparator)
+            implements Key<T> {
+    }
+
+    private final List<Key<T>> keys;
+
+    private KeySorter(List<Key<T>> keys) {
+        this.keys = List.copyOf(keys);
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 排序，返回排列
+     */
+    public int[] sort(List<? extends T> items) {
+        int n = items.size();
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        if (n < 2) {
+            return perm;
+        }
+        Object[] columns = extract(items);
+        if (keys.stream().noneMatch(key -> key instanceof ObjectKey)) {
+            radixSort(perm, columns);
+        } else {
+            mergeSort(perm, columns);
+        }
+        return perm;
+    }
+
+    /**
+     * 排序并返回新列表
+     */
+    public List<T> sortedCopy(List<? extends T> items) {
+        int[] perm = sort(items);
+        List<T> result = new ArrayList<>(perm.length);
+        for (int index : perm) {
+            result.add(items.get(index));
+        }
+        return result;
+    }
+
+    // 提取排序键：每个元素每个键只调用一次getter
+    private Object[] extract(List<? extends T> items) {
+        int n = items.size();
+        Object[] columns = new Object[keys.size()];
+        for (int k = 0; k < keys.size(); k++) {
+            switch (keys.get(k)) {
+                case IntKey<T> key -> {
+                    int[] column = new int[n];
+                    // 翻转符号位后可按无符号比较；降序再按位取反
+                    int mask = key.order() == Order.DESC ? ~Integer.MIN_VALUE : Integer.MIN_VALUE;
+                    for (int i = 0; i < n; i++) {
+                        column[i] = key.extractor().applyAsInt(items.get(i)) ^ mask;
+                    }
+                    columns[k] = column;
+                }
+                case LongKey<T> key -> {
+                    long[] column = new long[n];
+                    long mask = key.order() == Order.DESC ? ~Long.MIN_VALUE : Long.MIN_VALUE;
+                    for (int i = 0; i < n; i++) {
+                        column[i] = key.extractor().applyAsLong(items.get(i)) ^ mask;
+                    }
+                    columns[k] = column;
+                }
+                case ObjectKey<T> key -> {
+                    Object[] column = new Object[n];
+                    for (int i = 0; i < n; i++) {
+                        column[i] = key.extractor().apply(items.get(i));
+                    }
+                    columns[k] = column;
+                }
+            }
+        }
+        return columns;
+    }
+
+    // ---------- 基数排序 ----------
+
+    // LSD：从最次要的键、最低字节开始，每一趟都是稳定的计数排序
+    private void radixSort(int[] perm, Object[] columns) {
+        int n = perm.length;
+        int[] buffer = new int[n];
+        int[] counts = new int[256];
+        for (int k = keys.size() - 1; k >= 0; k--) {
+            int bytes = columns[k] instanceof int[] ? 4 : 8;
+            for (int b = 0; b < bytes; b++) {
+                int shift = b * 8;
+                Arrays.fill(counts, 0);
+                if (columns[k] instanceof int[] column) {
+                    for (int index : perm) {
+                        counts[(column[index] >>> shift) & 0xFF]++;
+                    }
+                } else {
+                    long[] column = (long[]) columns[k];
+                    for (int index : perm) {
+                        counts[(int) (column[index] >>> shift) & 0xFF]++;
+                    }
+                }
+                // 所有元素在这一字节上相同，这一趟可以跳过
+                if (skipPass(counts, n)) {
+                    continue;
+                }
+                int sum = 0;
+                for (int i = 0; i < 256; i++) {
+                    int count = counts[i];
+                    counts[i] = sum;
+                    sum += count;
+                }
+                if (columns[k] instanceof int[] column) {
+                    for (int index : perm) {
+                        buffer[counts[(column[index] >>> shift) & 0xFF]++] = index;
+                    }
+                } else {
+                    long[] column = (long[]) columns[k];
+                    for (int index : perm) {
+                        buffer[counts[(int) (column[index] >>> shift) & 0xFF]++] = index;
+                    }
+                }
+                System.arraycopy(buffer, 0, perm, 0, n);
+            }
+        }
+    }
+
+    private static boolean skipPass(int[] counts, int n) {
+        for (int count : counts) {
+            if (count != 0) {
+                return count == n;
+            }
+        }
+        return true;
+    }
+
+    // ---------- 归并排序 ----------
+
+    private int compare(Object[] columns, int a, int b) {
+        for (int k = 0; k < columns.length; k++) {
+            int result;
+            if (columns[k] instanceof int[] column) {
+                result = Integer.compareUnsigned(column[a], column[b]);
+            } else if (columns[k] instanceof long[] column) {
+                result = Long.compareUnsigned(column[a], column[b]);
+            } else {
+                Object[] column = (Object[]) columns[k];
+                result = ((ObjectKey<T>) keys.get(k)).comparator().compare(column[a], column[b]);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private void mergeSort(int[] perm, Object[] columns) {
+        int[] buffer = perm.clone();
+        if (perm.length >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new MergeTask(columns, buffer, perm, 0, perm.length));
+        } else {
+            mergeSort(columns, buffer, perm, 0, perm.length);
+        }
+    }
+
+    // 把src[from, to)排序后写入dst[from, to)；src和dst初始内容相同
+    private void mergeSort(Object[] columns, int[] src, int[] dst, int from, int to) {
+        if (to - from <= INSERTION_THRESHOLD) {
+            insertionSort(columns, dst, from, to);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(columns, dst, src, from, mid);
+        mergeSort(columns, dst, src, mid, to);
+        merge(columns, src, dst, from, mid, to);
+    }
+
+    private void insertionSort(Object[] columns, int[] a, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int value = a[i];
+            int j = i - 1;
+            while (j >= from && compare(columns, a[j], value) > 0) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    private void merge(Object[] columns, int[] src, int[] dst, int from, int mid, int to) {
+        // 两半已经有序且首尾衔接，直接拷贝
+        if (compare(columns, src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, from, dst, from, to - from);
+            return;
+        }
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            // 相等时取左半边，保证稳定
+            if (j >= to || (i < mid && compare(columns, src[i], src[j]) <= 0)) {
+                dst[k] = src[i++];
+            } else {
+                dst[k] = src[j++];
+            }
+        }
+    }
+
+    // 任务只在ForkJoinPool内执行，不会被序列化；数组字段标记为transient
+    private final class MergeTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient Object[] columns;
+        private final transient int[] src;
+        private final transient int[] dst;
+        private final int from;
+        private final int to;
+
+        MergeTask(Object[] columns, int[] src, int[] dst, int from, int to) {
+            this.columns = columns;
+            this.src = src;
+            this.dst = dst;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < PARALLEL_THRESHOLD) {
+                mergeSort(columns, src, dst, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MergeTask(columns, dst, src, from, mid), new MergeTask(columns, dst, src, mid, to));
+            merge(columns, src, dst, from, mid, to);
+        }
+    }
+
+    /**
+     * 排序键构建器，先添加的键优先级更高
+     */
+    public static final class Builder<T> {
+        private final List<Key<T>> keys = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder<T> intKey(ToIntFunction<? super T> extractor, Order order) {
+            keys.add(new IntKey<>(extractor, order));
+            return this;
+        }
+
+        public Builder<T> longKey(ToLongFunction<? super T> extractor, Order order) {
+            keys.add(new LongKey<>(extractor, order));
+            return this;
+        }
+
+        /**
+         * double键：按Double.compare的全序排序（-0.0 &lt; 0.0，NaN最大）
+         */
+        public Builder<T> doubleKey(ToDoubleFunction<? super T> extractor, Order order) {
+            ToLongFunction<? super T> sortable = item -> {
+                long bits = Double.doubleToLongBits(extractor.applyAsDouble(item));
+                // 负数翻转全部位，正数只翻转符号位；再整体异或符号位，得到有符号可比较的形式
+                return (bits ^ ((bits >> 63) | Long.MIN_VALUE)) ^ Long.MIN_VALUE;
+            };
+            keys.add(new LongKey<>(sortable, order));
+            return this;
+        }
+
+        /**
+         * 可比较对象键（例如String）：ASC时null排在最前；DESC整体反转，null排在最后
+         */
+        @SuppressWarnings("unchecked")
+        public <U extends Comparable<? super U>> Builder<T> key(Function<? super T, ? extends U> extractor,
+                                                               Order order) {
+            Comparator<Object> natural = (Comparator<Object>) (Comparator<?>)
+                Comparator.nullsFirst(Comparator.<U>naturalOrder());
+            keys.add(new ObjectKey<>(extractor, order == Order.ASC ? natural : natural.reversed()));
+            return this;
+        }
+
+        public KeySorter<T> build() {
+            if (keys.isEmpty()) {
+                throw new IllegalStateException("至少需要一个排序键");
+            }
+            return new KeySorter<>(keys);
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * Comparator链 vs 预提取键排序
+     */
+    public static void benchmark(int size) {
+        System.out.println("=== " + size + "个Person排序 ===");
+
+        Random random = new Random(42);
+        List<MethodReferenceExample.Person> persons = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            persons.add(new MethodReferenceExample.Person("name" + random.nextInt(size), random.nextInt(100)));
+        }
+
+        Comparator<MethodReferenceExample.Person> byAge = Comparator.comparing(MethodReferenceExample.Person::getAge);
+        Comparator<MethodReferenceExample.Person> byAgeThenName = byAge
+            .thenComparing(MethodReferenceExample.Person::getName, Comparator.reverseOrder());
+        KeySorter<MethodReferenceExample.Person> radix = KeySorter.<MethodReferenceExample.Person>builder()
+            .intKey(MethodReferenceExample.Person::getAge, Order.ASC)
+            .build();
+        KeySorter<MethodReferenceExample.Person> multi = KeySorter.<MethodReferenceExample.Person>builder()
+            .intKey(MethodReferenceExample.Person::getAge, Order.ASC)
+            .key(MethodReferenceExample.Person::getName, Order.DESC)
+            .build();
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            time(report, "Comparator.comparing(年龄)", () -> persons.stream().sorted(byAge).toList().size());
+            time(report, "KeySorter(年龄，基数排序)", () -> radix.sort(persons).length);
+            time(report, "Comparator(年龄升序，姓名降序)", () -> persons.stream().sorted(byAgeThenName).toList().size());
+            time(report, "KeySorter(年龄升序，姓名降序，并行归并)", () -> multi.sort(persons).length);
+        });
+    }
+
+    private static void time(boolean report, String label, IntSupplier task) {
+        long start = System.nanoTime();
+        int result = task.getAsInt();
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%s：%.1f ms（%d）%n", label, nanos / 1e6, result);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 多键排序示例 ==========\n");
+
+        List<MethodReferenceExample.Person> persons = List.of(
+            new MethodReferenceExample.Person("Alice", 25),
+            new MethodReferenceExample.Person("Bob", 30),
+            new MethodReferenceExample.Person("Charlie", 25),
+            new MethodReferenceExample.Person("David", 28));
+
+        KeySorter<MethodReferenceExample.Person> sorter = KeySorter.<MethodReferenceExample.Person>builder()
+            .intKey(MethodReferenceExample.Person::getAge, Order.DESC)
+            .key(MethodReferenceExample.Person::getName, Order.ASC)
+            .build();
+        int[] perm = sorter.sort(persons);
+        System.out.println("排列：" + Arrays.toString(perm));
+        System.out.print("年龄降序、姓名升序：");
+        for (int index : perm) {
+            System.out.print(persons.get(index).getName() + "(" + persons.get(index).getAge() + ") ");
+        }
+        System.out.println("\n");
+
+        benchmark(1_000_000);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -229,6 +229,13 @@ public class MethodReferenceExample {
         public int getAge() {
             return age;
         }
+
+        // 供对象池复用时重置状态
+        Person assign(String name, int age) {
+            this.name = name;
+            this.age = age;
+            return this;
+        }
         
         @Override
         public String toString() {
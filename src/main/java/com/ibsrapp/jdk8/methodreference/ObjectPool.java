@@ -0,0 +1,287 @@
+package com.ibsrapp.jdk8.methodreference;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 基于构造器引用的对象池
+ *
+ * 示例4通过Person::new创建对象。反序列化层每秒会创建大量短命的DTO，
+ * 频繁分配会推高Young GC的次数。ObjectPool把"创建"和"重置"都交给方法引用：
+ * 1. factory：构造器引用（如Person::new），池空时用它创建新对象
+ * 2. reset：归还时调用，清除上一次使用留下的状态
+ * 3. 线程本地快速路径：每个线程持有一个小数组栈，借还不需要任何同步
+ * 4. 共享溢出栈：本地栈满时放入共享栈，本地栈空时先从共享栈取，跨线程借还也能复用
+ * 5. 统计：借出、归还、新建、丢弃（共享栈已满）次数，以及未归还（疑似泄漏）数量
+ *
+ * 开启泄漏跟踪后，池会记录每个借出对象的身份：重复归还或归还非本池对象会抛出异常，
+ * leaked()返回当前仍未归还的对象个数。跟踪有同步开销，适合测试环境。
+ */
+public final class ObjectPool<T> {
+
+    private final Supplier<? extends T> factory;
+    private final Consumer<? super T> reset;
+    private final int localCapacity;
+    private final Object[] shared;
+    private int sharedSize;
+    private final ThreadLocal<LocalStack> local;
+    private final Set<T> outstanding;
+
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder returned = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private ObjectPool(Builder<T> builder) {
+        this.factory = builder.factory;
+        this.reset = builder.reset;
+        this.localCapacity = builder.localCapacity;
+        this.shared = new Object[builder.sharedCapacity];
+        this.local = ThreadLocal.withInitial(() -> new LocalStack(localCapacity));
+        this.outstanding = builder.trackLeaks
+            ? Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()))
+            : null;
+    }
+
+    public static <T> Builder<T> builder(Supplier<? extends T> factory, Consumer<? super T> reset) {
+        return new Builder<>(factory, reset);
+    }
+
+    /**
+     * 借出一个对象：本地栈 → 共享栈 → factory新建
+     */
+    @SuppressWarnings("unchecked")
+    public T borrow() {
+        LocalStack stack = local.get();
+        T item;
+        if (stack.size > 0) {
+            item = (T) stack.items[--stack.size];
+            stack.items[stack.size] = null;
+        } else {
+            item = pollShared();
+            if (item == null) {
+                item = factory.get();
+                created.increment();
+            }
+        }
+        borrowed.increment();
+        if (outstanding != null) {
+            outstanding.add(item);
+        }
+        return item;
+    }
+
+    /**
+     * 归还对象：先重置，再放回本地栈；本地栈满时放入共享栈，共享栈也满时丢弃交给GC
+     */
+    public void release(T item) {
+        if (item == null) {
+            throw new IllegalArgumentException("不能归还null");
+        }
+        if (outstanding != null && !outstanding.remove(item)) {
+            throw new IllegalStateException("对象未从本池借出或已重复归还：" + item);
+        }
+        reset.accept(item);
+        returned.increment();
+        LocalStack stack = local.get();
+        if (stack.size < localCapacity) {
+            stack.items[stack.size++] = item;
+        } else if (!offerShared(item)) {
+            dropped.increment();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized T pollShared() {
+        if (sharedSize == 0) {
+            return null;
+        }
+        T item = (T) shared[--sharedSize];
+        shared[sharedSize] = null;
+        return item;
+    }
+
+    private synchronized boolean offerShared(T item) {
+        if (sharedSize == shared.length) {
+            return false;
+        }
+        shared[sharedSize++] = item;
+        return true;
+    }
+
+    /**
+     * 借出后尚未归还的对象数
+     */
+    public long leaked() {
+        return outstanding != null ? outstanding.size() : borrowed.sum() - returned.sum();
+    }
+
+    public Stats stats() {
+        return new Stats(borrowed.sum(), returned.sum(), created.sum(), dropped.sum(), leaked());
+    }
+
+    /**
+     * 池统计
+     */
+    public record Stats(long borrowed, long returned, long created, long dropped, long leaked) {
+        /**
+         * 借出请求中由池内已有对象满足的比例
+         */
+        public double hitRate() {
+            return borrowed == 0 ? 0 : 1.0 - (double) created / borrowed;
+        }
+    }
+
+    private static final class LocalStack {
+        final Object[] items;
+        int size;
+
+        LocalStack(int capacity) {
+            this.items = new Object[capacity];
+        }
+    }
+
+    /**
+     * 对象池构建器
+     */
+    public static final class Builder<T> {
+        private final Supplier<? extends T> factory;
+        private final Consumer<? super T> reset;
+        private int localCapacity = 64;
+        private int sharedCapacity = 1024;
+        private boolean trackLeaks;
+
+        private Builder(Supplier<? extends T> factory, Consumer<? super T> reset) {
+            if (factory == null || reset == null) {
+                throw new IllegalArgumentException("factory和reset不能为null");
+            }
+            this.factory = factory;
+            this.reset = reset;
+        }
+
+        public Builder<T> localCapacity(int localCapacity) {
+            if (localCapacity < 0) {
+                throw new IllegalArgumentException("本地容量不能为负数：" + localCapacity);
+            }
+            this.localCapacity = localCapacity;
+            return this;
+        }
+
+        public Builder<T> sharedCapacity(int sharedCapacity) {
+            if (sharedCapacity < 0) {
+                throw new IllegalArgumentException("共享容量不能为负数：" + sharedCapacity);
+            }
+            this.sharedCapacity = sharedCapacity;
+            return this;
+        }
+
+        public Builder<T> trackLeaks(boolean trackLeaks) {
+            this.trackLeaks = trackLeaks;
+            return this;
+        }
+
+        public ObjectPool<T> build() {
+            return new ObjectPool<>(this);
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 新建 vs 池化：每批同时持有batch个Person，模拟一次反序列化请求
+     */
+    public static void benchmark(int batches, int batch) {
+        System.out.println("=== GC压力对比（" + batches + "批 × " + batch + "个Person） ===");
+
+        ObjectPool<MethodReferenceExample.Person> pool =
+            builder(MethodReferenceExample.Person::new, p -> p.assign("Default", 0)).build();
+        MethodReferenceExample.Person[] live = new MethodReferenceExample.Person[batch];
+        String[] names = {"Alice", "Bob", "Charlie", "David"};
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            long checksum = 0;
+
+            Snapshot before = Snapshot.take();
+            for (int b = 0; b < batches; b++) {
+                for (int i = 0; i < batch; i++) {
+                    live[i] = new MethodReferenceExample.Person(names[i & 3], i);
+                }
+                for (int i = 0; i < batch; i++) {
+                    checksum += live[i].getAge();
+                }
+            }
+            Snapshot.print(report, "new Person(...)", before);
+
+            before = Snapshot.take();
+            for (int b = 0; b < batches; b++) {
+                for (int i = 0; i < batch; i++) {
+                    live[i] = pool.borrow().assign(names[i & 3], i);
+                }
+                for (int i = 0; i < batch; i++) {
+                    checksum += live[i].getAge();
+                    pool.release(live[i]);
+                }
+            }
+            Snapshot.print(report, "ObjectPool", before);
+
+            if (report) {
+                System.out.println("池统计：" + pool.stats() + "，校验值：" + checksum);
+            }
+        });
+    }
+
+    private record Snapshot(long nanos, long bytes, long gcCount, long gcMillis) {
+        static Snapshot take() {
+            long count = 0;
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+                millis += Math.max(0, gc.getCollectionTime());
+            }
+            return new Snapshot(System.nanoTime(), BenchmarkSupport.allocatedBytes(), count, millis);
+        }
+
+        static void print(boolean report, String label, Snapshot before) {
+            Snapshot after = take();
+            if (report) {
+                System.out.printf("%s：%.1f ms，分配%.1f MB，GC %d次/%d ms%n", label,
+                    (after.nanos - before.nanos) / 1e6,
+                    before.bytes < 0 ? -1 : (after.bytes - before.bytes) / 1024.0 / 1024.0,
+                    after.gcCount - before.gcCount, after.gcMillis - before.gcMillis);
+            }
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 对象池示例 ==========\n");
+
+        ObjectPool<MethodReferenceExample.Person> pool =
+            builder(MethodReferenceExample.Person::new, p -> p.assign("Default", 0))
+                .trackLeaks(true)
+                .build();
+
+        MethodReferenceExample.Person alice = pool.borrow().assign("Alice", 25);
+        System.out.println("借出：" + alice);
+        pool.release(alice);
+        MethodReferenceExample.Person reused = pool.borrow();
+        System.out.println("再次借出（已重置）：" + reused + "，是同一对象：" + (reused == alice));
+        System.out.println("未归还：" + pool.leaked());
+        pool.release(reused);
+        System.out.println("统计：" + pool.stats() + "\n");
+
+        benchmark(200_000, 64);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
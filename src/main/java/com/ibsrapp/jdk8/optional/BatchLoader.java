@@ -0,0 +1,344 @@
+package com.ibsrapp.jdk8.optional;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * 批量加载与请求合并（DataLoader模式）
+ *
+ * 示例7的findUserById每次查询一个ID，调用方在循环中调用时就变成了N+1次数据库查询。
+ *
+ * BatchLoader收集一个短时间窗口内的所有load调用，合并成一次批量查询：
+ * 1. 窗口：第一个请求到达时开始计时，窗口结束或攒够maxBatchSize个键时发出批量查询
+ * 2. 去重：同一窗口内重复的键共享同一个future，批量查询中每个键只出现一次
+ * 3. 每个调用方拿到自己的CompletableFuture，批量结果中没有的键完成为Optional.empty()
+ * 4. 批量查询抛出异常（包括Error）或返回null时，这一批尚未完成的future都以异常完成
+ * 5. 计时线程只负责切分窗口，批量查询和future的完成在单独的执行器上运行，
+ *    一次慢查询不会推迟后面的窗口；默认每个批次一个虚拟线程
+ * 6. close()之后的load直接返回以IllegalStateException失败的future
+ *
+ * 代价是每次查询最多增加一个窗口的延迟，换来的是查询次数从N降到N / 批大小。
+ */
+public final class BatchLoader<K, V> implements AutoCloseable {
+
+    private final Function<? super Set<K>, ? extends Map<K, ? extends V>> bulkLoader;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService dispatcher;
+    private final Executor executor;
+    // 由BatchLoader自己创建的执行器，close时关闭
+    private final ExecutorService ownedExecutor;
+
+    // 当前窗口内等待的键；pending和closed由this保护
+    private Map<K, CompletableFuture<Optional<V>>> pending = new LinkedHashMap<>();
+    private boolean closed;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder keysLoaded = new LongAdder();
+
+    public BatchLoader(Function<? super Set<K>, ? extends Map<K, ? extends V>> bulkLoader,
+                       long window, TimeUnit unit, int maxBatchSize) {
+        this(bulkLoader, window, unit, maxBatchSize, null);
+    }
+
+    /**
+     * executor用于执行批量查询；为null时每个批次使用一个虚拟线程。传入的执行器不会被close关闭
+     */
+    public BatchLoader(Function<? super Set<K>, ? extends Map<K, ? extends V>> bulkLoader,
+                       long window, TimeUnit unit, int maxBatchSize, Executor executor) {
+        if (window < 0 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("窗口不能为负数，批大小必须为正数：" + window + ", " + maxBatchSize);
+        }
+        this.ownedExecutor = executor == null ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        this.executor = executor == null ? ownedExecutor : executor;
+        this.bulkLoader = bulkLoader;
+        this.windowNanos = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 加载单个键，返回值在批量查询完成后可用
+     */
+    public CompletableFuture<Optional<V>> load(K key) {
+        requests.increment();
+        CompletableFuture<Optional<V>> future;
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("BatchLoader已关闭"));
+            }
+            future = pending.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                pending.put(key, future);
+                if (pending.size() == 1) {
+                    Map<K, CompletableFuture<Optional<V>>> window = pending;
+                    dispatcher.schedule(() -> dispatch(window), windowNanos, TimeUnit.NANOSECONDS);
+                }
+                if (pending.size() >= maxBatchSize) {
+                    Map<K, CompletableFuture<Optional<V>>> full = pending;
+                    pending = new LinkedHashMap<>();
+                    submit(full);
+                }
+            }
+        }
+        return future;
+    }
+
+    /**
+     * 批量加载多个键，结果顺序与参数一致
+     */
+    public CompletableFuture<List<Optional<V>>> loadAll(List<K> keys) {
+        List<CompletableFuture<Optional<V>>> futures = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            futures.add(load(key));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignored -> {
+                List<Optional<V>> result = new ArrayList<>(futures.size());
+                for (CompletableFuture<Optional<V>> future : futures) {
+                    result.add(future.join());
+                }
+                return result;
+            });
+    }
+
+    // 定时任务到期：只有窗口还没被"攒满"提前发出时才需要发送
+    private void dispatch(Map<K, CompletableFuture<Optional<V>>> window) {
+        synchronized (this) {
+            if (pending != window) {
+                return;
+            }
+            pending = new LinkedHashMap<>();
+            submit(window);
+        }
+    }
+
+    // 把批次交给执行器，调用方持有this的锁，因此不会与close关闭执行器交错；
+    // 执行器拒绝时（例如外部执行器已关闭）以异常完成这一批
+    private void submit(Map<K, CompletableFuture<Optional<V>>> batch) {
+        try {
+            executor.execute(() -> run(batch));
+        } catch (RejectedExecutionException e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private void run(Map<K, CompletableFuture<Optional<V>>> batch) {
+        batches.increment();
+        keysLoaded.add(batch.size());
+        try {
+            Map<K, ? extends V> values = Objects.requireNonNull(
+                bulkLoader.apply(Collections.unmodifiableSet(batch.keySet())), "批量查询返回了null");
+            batch.forEach((key, future) -> future.complete(Optional.ofNullable(values.get(key))));
+        } catch (Throwable t) {
+            // 失败通过future交给调用方，已经完成的future不受影响
+            batch.values().forEach(future -> future.completeExceptionally(t));
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(requests.sum(), batches.sum(), keysLoaded.sum());
+    }
+
+    /**
+     * 加载统计：请求数、批量查询次数、实际查询的键数（去重后）
+     */
+    public record Stats(long requests, long batches, long keysLoaded) {
+    }
+
+    /**
+     * 关闭前把当前窗口内的请求全部发出；不等待批量查询完成
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            Map<K, CompletableFuture<Optional<V>>> last = pending;
+            pending = new LinkedHashMap<>();
+            if (!last.isEmpty()) {
+                submit(last);
+            }
+        }
+        dispatcher.shutdownNow();
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    // ---------- 本地桩存储 ----------
+
+    /**
+     * 模拟用户表：ID在1~size之间的用户存在，与findUserById的规则一致；每次查询有固定延迟
+     */
+    public static final class StubUserStore {
+        private final int size;
+        private final long latencyNanos;
+        private final LongAdder queries = new LongAdder();
+
+        public StubUserStore(int size, long latency, TimeUnit unit) {
+            this.size = size;
+            this.latencyNanos = unit.toNanos(latency);
+        }
+
+        public Optional<String> findUserById(int id) {
+            queries.increment();
+            pause();
+            return id > 0 && id <= size ? Optional.of("用户" + id) : Optional.empty();
+        }
+
+        /**
+         * 批量查询，相当于 SELECT ... WHERE id IN (...)
+         */
+        public Map<Integer, String> findUsersByIds(Set<Integer> ids) {
+            queries.increment();
+            pause();
+            Map<Integer, String> result = new HashMap<>();
+            for (int id : ids) {
+                if (id > 0 && id <= size) {
+                    result.put(id, "用户" + id);
+                }
+            }
+            return result;
+        }
+
+        private void pause() {
+            long deadline = System.nanoTime() + latencyNanos;
+            while (System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(deadline - System.nanoTime());
+            }
+        }
+
+        public long queries() {
+            return queries.sum();
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 逐个查询 vs 批量合并：callers个并发调用方，每个循环查询lookups个ID
+     */
+    public static void benchmark(int callers, int lookups) {
+        System.out.println("=== 用户查询对比（" + callers + "个调用方 × " + lookups + "次，每次查询延迟200µs） ===");
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            StubUserStore direct = new StubUserStore(1000, 200, TimeUnit.MICROSECONDS);
+            long[] latencies = new long[callers * lookups];
+            long start = System.nanoTime();
+            runCallers(callers, caller -> {
+                for (int i = 0; i < lookups; i++) {
+                    long begin = System.nanoTime();
+                    direct.findUserById((caller * 7 + i) % 1200);
+                    latencies[caller * lookups + i] = System.nanoTime() - begin;
+                }
+            });
+            print(report, "逐个查询", start, latencies, direct.queries());
+
+            StubUserStore store = new StubUserStore(1000, 200, TimeUnit.MICROSECONDS);
+            try (BatchLoader<Integer, String> loader =
+                     new BatchLoader<>(store::findUsersByIds, 1, TimeUnit.MILLISECONDS, 256)) {
+                start = System.nanoTime();
+                runCallers(callers, caller -> {
+                    // 调用方先发出全部请求再等待结果，让同一窗口内的请求可以合并
+                    List<CompletableFuture<Optional<String>>> futures = new ArrayList<>(lookups);
+                    long[] begins = new long[lookups];
+                    for (int i = 0; i < lookups; i++) {
+                        begins[i] = System.nanoTime();
+                        futures.add(loader.load((caller * 7 + i) % 1200));
+                    }
+                    for (int i = 0; i < lookups; i++) {
+                        futures.get(i).join();
+                        latencies[caller * lookups + i] = System.nanoTime() - begins[i];
+                    }
+                });
+                print(report, "BatchLoader", start, latencies, store.queries());
+                if (report) {
+                    System.out.println("批量统计：" + loader.stats());
+                }
+            }
+        });
+    }
+
+    private interface Caller {
+        void run(int caller);
+    }
+
+    // 基准测试的每一轮在lambda中执行，中断转换为非受检异常
+    private static void runCallers(int callers, Caller body) {
+        List<Thread> threads = new ArrayList<>(callers);
+        for (int c = 0; c < callers; c++) {
+            int caller = c;
+            Thread thread = new Thread(() -> body.run(caller));
+            thread.start();
+            threads.add(thread);
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("基准测试被中断", e);
+        }
+    }
+
+    private static void print(boolean report, String label, long start, long[] latencies, long queries) {
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            System.out.printf("%s：%.0f 次/秒，查询%d次，p50 %.2f ms，p99 %.2f ms%n", label,
+                latencies.length / (nanos / 1e9), queries,
+                sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 批量加载示例 ==========\n");
+
+        StubUserStore store = new StubUserStore(10, 1, TimeUnit.MILLISECONDS);
+        try (BatchLoader<Integer, String> loader =
+                 new BatchLoader<>(store::findUsersByIds, 5, TimeUnit.MILLISECONDS, 100)) {
+            List<Optional<String>> users = loader.loadAll(List.of(5, 99, 3, 5, 7)).join();
+            System.out.println("查询结果：" + users);
+            System.out.println("数据库查询次数：" + store.queries() + "，统计：" + loader.stats());
+        }
+        System.out.println();
+
+        benchmark(8, 200);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -0,0 +1,241 @@
+package com.ibsrapp.jdk8.optional;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * 编译后的空安全属性路径
+ *
+ * 示例8的getCityWithOptional写成Optional.ofNullable(user).map(User::getAddress).map(Address::getCity)，
+ * 每一步都可能创建一个新的Optional。在热点路径上，这些短命对象会带来可观的分配。
+ *
+ * PropertyPath把一串getter方法引用编译成一个MethodHandle：
+ *   path(x) = x == null ? 默认值 : rest(getter(x))
+ * 每一步用MethodHandles.guardWithTest做空值判断，用filterArguments把getter接到下一步前面。
+ * 整条路径是一个方法句柄树，执行时不创建任何中间对象，遇到null立即短路返回默认值。
+ *
+ * 路径构建一次后可以反复使用。注意apply()通过实例字段中的句柄调用：HotSpot不把实例final字段当作常量，
+ * invokeExact不会内联进调用方，每次都要经过句柄树的通用调用路径。热点路径上应该用toMethodHandle()
+ * 取出句柄保存在static final字段中，再用invokeExact调用，这时句柄是常量，整条路径可以内联
+ * （见getCityWithPath）。
+ */
+public final class PropertyPath<T, R> implements Function<T, R> {
+
+    private static final MethodHandle APPLY;
+    private static final MethodHandle IS_NULL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            APPLY = lookup.findVirtual(Function.class, "apply",
+                MethodType.methodType(Object.class, Object.class));
+            IS_NULL = lookup.findStatic(Objects.class, "isNull",
+                MethodType.methodType(boolean.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // 类型为(Object)Object
+    private final MethodHandle handle;
+    private final int depth;
+
+    private PropertyPath(MethodHandle handle, int depth) {
+        this.handle = handle;
+        this.depth = depth;
+    }
+
+    /**
+     * 从第一个getter开始构建路径
+     */
+    public static <T, R> Builder<T, R> from(Function<? super T, ? extends R> getter) {
+        List<Function<?, ?>> getters = new ArrayList<>();
+        getters.add(Objects.requireNonNull(getter));
+        return new Builder<>(getters);
+    }
+
+    /**
+     * 沿路径取值；任何一步为null时返回默认值
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public R apply(T source) {
+        try {
+            return (R) (Object) handle.invokeExact((Object) source);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("属性路径求值失败", e);
+        }
+    }
+
+    /**
+     * 路径对应的方法句柄，类型为(Object)Object；保存在static final字段中调用invokeExact才能被内联
+     */
+    public MethodHandle toMethodHandle() {
+        return handle;
+    }
+
+    /**
+     * 路径包含的getter个数
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * 属性路径构建器
+     */
+    public static final class Builder<T, R> {
+        private final List<Function<?, ?>> getters;
+
+        private Builder(List<Function<?, ?>> getters) {
+            this.getters = getters;
+        }
+
+        public <U> Builder<T, U> then(Function<? super R, ? extends U> getter) {
+            List<Function<?, ?>> next = new ArrayList<>(getters);
+            next.add(Objects.requireNonNull(getter));
+            return new Builder<>(next);
+        }
+
+        /**
+         * 任何一步为null时返回defaultValue
+         */
+        public PropertyPath<T, R> orElse(R defaultValue) {
+            MethodHandle fallback = MethodHandles.dropArguments(
+                MethodHandles.constant(Object.class, defaultValue), 0, Object.class);
+            // 从最后一步向前组装：先处理最终结果本身为null的情况
+            MethodHandle path = MethodHandles.guardWithTest(IS_NULL, fallback,
+                MethodHandles.identity(Object.class));
+            for (int i = getters.size() - 1; i >= 0; i--) {
+                MethodHandle getter = APPLY.bindTo(getters.get(i));
+                path = MethodHandles.guardWithTest(IS_NULL, fallback,
+                    MethodHandles.filterArguments(path, 0, getter));
+            }
+            return new PropertyPath<>(path, getters.size());
+        }
+
+        public PropertyPath<T, R> build() {
+            return orElse(null);
+        }
+    }
+
+    // ---------- 示例8的城市路径 ----------
+
+    private static final PropertyPath<OptionalExample.User, String> CITY =
+        PropertyPath.from(OptionalExample.User::getAddress)
+            .then(OptionalExample.Address::getCity)
+            .orElse("未知城市");
+
+    private static final MethodHandle CITY_HANDLE = CITY.toMethodHandle();
+
+    /**
+     * 使用编译后的属性路径获取城市，与getCityWithOptional结果一致
+     */
+    public static String getCityWithPath(OptionalExample.User user) {
+        try {
+            return (String) (Object) CITY_HANDLE.invokeExact((Object) user);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("属性路径求值失败", e);
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 传统null检查 vs Optional链 vs PropertyPath
+     */
+    public static void benchmark(int calls) {
+        System.out.println("=== 空安全取值性能对比（" + calls + "次调用） ===");
+
+        // 混合正常用户、没有地址的用户和null用户
+        OptionalExample.User[] users = {
+            new OptionalExample.User(new OptionalExample.Address("北京")),
+            new OptionalExample.User(null),
+            new OptionalExample.User(new OptionalExample.Address("上海")),
+            null,
+            new OptionalExample.User(new OptionalExample.Address("广州")),
+        };
+
+        BenchmarkSupport.warmupThenReport(2, report -> {
+            long sink = 0;
+
+            long bytes = BenchmarkSupport.allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                sink += OptionalExample.getCityTraditional(users[i % users.length]).length();
+            }
+            print(report, "getCityTraditional", start, bytes, calls);
+
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                sink += OptionalExample.getCityWithOptional(users[i % users.length]).length();
+            }
+            print(report, "getCityWithOptional", start, bytes, calls);
+
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                sink += CITY.apply(users[i % users.length]).length();
+            }
+            print(report, "PropertyPath.apply", start, bytes, calls);
+
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                sink += getCityWithPath(users[i % users.length]).length();
+            }
+            print(report, "static final句柄", start, bytes, calls);
+
+            if (report) {
+                System.out.println("校验值：" + sink);
+            }
+        });
+    }
+
+    private static void print(boolean report, String label, long start, long startBytes, int calls) {
+        long nanos = System.nanoTime() - start;
+        long bytes = BenchmarkSupport.allocatedBytes() - startBytes;
+        if (report) {
+            System.out.printf("%s：%.2f ns/次，%.2f B/次%n", label, (double) nanos / calls,
+                startBytes < 0 ? -1 : (double) bytes / calls);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 空安全属性路径示例 ==========\n");
+
+        OptionalExample.User user = new OptionalExample.User(new OptionalExample.Address("北京"));
+        System.out.println("正常用户：" + getCityWithPath(user));
+        System.out.println("没有地址的用户：" + getCityWithPath(new OptionalExample.User(null)));
+        System.out.println("null用户：" + getCityWithPath(null));
+
+        PropertyPath<OptionalExample.User, Integer> cityLength = PropertyPath.from(OptionalExample.User::getAddress)
+            .then(OptionalExample.Address::getCity)
+            .then(String::length)
+            .build();
+        System.out.println("城市名长度：" + cityLength.apply(user) + "，路径深度：" + cityLength.depth()
+            + "，与Optional链一致：" + Optional.ofNullable(user).map(OptionalExample.User::getAddress)
+            .map(OptionalExample.Address::getCity).map(String::length).equals(Optional.ofNullable(cityLength.apply(user))));
+        System.out.println();
+
+        benchmark(20_000_000);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -0,0 +1,608 @@
+package com.ibsrapp.jdk9.collection;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * 紧凑的不可变映射
+ *
+ * Map.of/Map.copyOf返回的不可变映射用开放寻址的Object[]保存键值，表长约为元素数的两倍，
+ * 整数键还要装箱。对于几百万条、几乎只读的参考数据，这些开销很可观。
+ *
+ * CompactMaps提供三种只读实现，都实现标准的Map接口，和Map.copyOf一样不允许null键和null值：
+ * 1. SortedArrayMap：键排序后存入数组，二分查找；每个条目只占两个引用，并实现SortedMap
+ * 2. PerfectHashMap：字符串键的最小完美哈希（hash-and-displace），n个键恰好占用n个槽位，
+ *    查找只需计算一次哈希、读一个位移值、比较一次键
+ * 3. IntKeyMap：int键保存在int[]中二分查找，键不装箱
+ */
+public final class CompactMaps {
+
+    private CompactMaps() {
+    }
+
+    // ---------- SortedArrayMap ----------
+
+    /**
+     * 排序数组映射：keys[from, to)有序，values与之一一对应；子映射共享同一组数组
+     */
+    public static final class SortedArrayMap<K, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
+        private final Object[] keys;
+        private final Object[] values;
+        private final int from;
+        private final int to;
+        private final Comparator<? super K> comparator;
+
+        private SortedArrayMap(Object[] keys, Object[] values, int from, int to, Comparator<? super K> comparator) {
+            this.keys = keys;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+        }
+
+        /**
+         * 按键的自然顺序复制
+         */
+        public static <K extends Comparable<? super K>, V> SortedArrayMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+            return copyOf(map, null);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public static <K, V> SortedArrayMap<K, V> copyOf(Map<? extends K, ? extends V> map,
+                                                        Comparator<? super K> comparator) {
+            Map.Entry<K, V>[] entries = map.entrySet().toArray(new Map.Entry[0]);
+            Comparator<Object> order = order(comparator);
+            Arrays.sort(entries, (a, b) -> order.compare(a.getKey(), b.getKey()));
+            Object[] keys = new Object[entries.length];
+            Object[] values = new Object[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                keys[i] = Objects.requireNonNull(entries[i].getKey());
+                values[i] = Objects.requireNonNull(entries[i].getValue());
+                if (i > 0 && order.compare(keys[i - 1], keys[i]) == 0) {
+                    throw new IllegalArgumentException("重复的键：" + keys[i]);
+                }
+            }
+            return new SortedArrayMap<>(keys, values, 0, keys.length, comparator);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Comparator<Object> order(Comparator<?> comparator) {
+            return comparator != null
+                ? (Comparator<Object>) comparator
+                : (a, b) -> ((Comparable<Object>) a).compareTo(b);
+        }
+
+        private int indexOf(Object key) {
+            if (key == null) {
+                return -1;
+            }
+            try {
+                int index = Arrays.binarySearch(keys, from, to, key, order(comparator));
+                return index >= 0 ? index : -1;
+            } catch (ClassCastException e) {
+                return -1;
+            }
+        }
+
+        // 第一个不小于key的下标
+        private int lowerBound(Object key) {
+            int index = Arrays.binarySearch(keys, from, to, Objects.requireNonNull(key), order(comparator));
+            return index >= 0 ? index : -index - 1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            int index = indexOf(key);
+            return index < 0 ? null : (V) values[index];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new IndexIterator<>(from, to, SortedArrayMap.this::entryAt);
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map.Entry<K, V> entryAt(int index) {
+            return new SimpleImmutableEntry<>((K) keys[index], (V) values[index]);
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return comparator;
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            int start = lowerBound(fromKey);
+            int end = lowerBound(toKey);
+            if (start > end) {
+                throw new IllegalArgumentException("fromKey大于toKey：" + fromKey + " > " + toKey);
+            }
+            return new SortedArrayMap<>(keys, values, start, end, comparator);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return new SortedArrayMap<>(keys, values, from, lowerBound(toKey), comparator);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return new SortedArrayMap<>(keys, values, lowerBound(fromKey), to, comparator);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K firstKey() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return (K) keys[from];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K lastKey() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return (K) keys[to - 1];
+        }
+    }
+
+    // ---------- PerfectHashMap ----------
+
+    /**
+     * 字符串键的最小完美哈希映射
+     *
+     * 构建（hash-and-displace）：每个键先算一个64位哈希，按哈希分到约n/4个桶中。
+     * 桶按大小从大到小处理，为每个桶寻找一个位移值d，使桶内所有键在mix(hash ^ d)下落到互不冲突的空槽。
+     * 只有一个键的桶直接占用任意空槽，位移值记为-(槽位+1)。
+     * 查找：桶号 → 位移值 → 槽位 → 比较键；不在映射中的键也会落到某个槽位，所以最后必须比较一次。
+     */
+    public static final class PerfectHashMap<V> extends AbstractMap<String, V> {
+        private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+        private static final int MAX_DISPLACEMENT = 1 << 20;
+
+        private final String[] keys;
+        private final Object[] values;
+        private final int[] displacements;
+
+        private PerfectHashMap(String[] keys, Object[] values, int[] displacements) {
+            this.keys = keys;
+            this.values = values;
+            this.displacements = displacements;
+        }
+
+        public static <V> PerfectHashMap<V> copyOf(Map<String, ? extends V> map) {
+            int n = map.size();
+            String[] inputKeys = new String[n];
+            Object[] inputValues = new Object[n];
+            long[] hashes = new long[n];
+            int i = 0;
+            for (Map.Entry<String, ? extends V> entry : map.entrySet()) {
+                inputKeys[i] = Objects.requireNonNull(entry.getKey());
+                inputValues[i] = Objects.requireNonNull(entry.getValue());
+                hashes[i] = hash(inputKeys[i]);
+                i++;
+            }
+            int buckets = Math.max(1, n / 4);
+            int[] displacements = new int[buckets];
+            if (n == 0) {
+                return new PerfectHashMap<>(new String[0], new Object[0], displacements);
+            }
+
+            // 按桶分组：bucketStart[b]..bucketStart[b+1]是桶b中键的下标
+            int[] bucketStart = new int[buckets + 1];
+            for (long hash : hashes) {
+                bucketStart[bucketOf(hash, buckets) + 1]++;
+            }
+            for (int b = 0; b < buckets; b++) {
+                bucketStart[b + 1] += bucketStart[b];
+            }
+            int[] members = new int[n];
+            int[] fill = Arrays.copyOf(bucketStart, buckets);
+            for (int k = 0; k < n; k++) {
+                members[fill[bucketOf(hashes[k], buckets)]++] = k;
+            }
+            Integer[] order = new Integer[buckets];
+            for (int b = 0; b < buckets; b++) {
+                order[b] = b;
+            }
+            Arrays.sort(order, Comparator.comparingInt((Integer b) -> bucketStart[b + 1] - bucketStart[b]).reversed());
+
+            String[] keys = new String[n];
+            Object[] values = new Object[n];
+            boolean[] used = new boolean[n];
+            int[] slots = new int[n];
+            int freeCursor = 0;
+            for (int b : order) {
+                int start = bucketStart[b];
+                int size = bucketStart[b + 1] - start;
+                if (size == 0) {
+                    continue;
+                }
+                if (size == 1) {
+                    while (used[freeCursor]) {
+                        freeCursor++;
+                    }
+                    place(members[start], freeCursor, inputKeys, inputValues, keys, values, used);
+                    displacements[b] = -(freeCursor + 1);
+                    continue;
+                }
+                int displacement = 0;
+                search:
+                while (true) {
+                    if (++displacement > MAX_DISPLACEMENT) {
+                        throw new IllegalStateException("无法构建完美哈希（存在64位哈希冲突的键）");
+                    }
+                    for (int m = 0; m < size; m++) {
+                        int slot = slot(hashes[members[start + m]], displacement, n);
+                        if (used[slot]) {
+                            undo(slots, m, used);
+                            continue search;
+                        }
+                        used[slot] = true;
+                        slots[m] = slot;
+                    }
+                    break;
+                }
+                for (int m = 0; m < size; m++) {
+                    used[slots[m]] = false;
+                    place(members[start + m], slots[m], inputKeys, inputValues, keys, values, used);
+                }
+                displacements[b] = displacement;
+            }
+            return new PerfectHashMap<>(keys, values, displacements);
+        }
+
+        private static void undo(int[] slots, int count, boolean[] used) {
+            for (int m = 0; m < count; m++) {
+                used[slots[m]] = false;
+            }
+        }
+
+        private static void place(int member, int slot, String[] inputKeys, Object[] inputValues,
+                                  String[] keys, Object[] values, boolean[] used) {
+            keys[slot] = inputKeys[member];
+            values[slot] = inputValues[member];
+            used[slot] = true;
+        }
+
+        // FNV-1a风格的逐字符哈希，再做一次murmur3的最终混合
+        static long hash(String key) {
+            long h = GOLDEN ^ key.length();
+            for (int i = 0; i < key.length(); i++) {
+                h = (h ^ key.charAt(i)) * 0x100000001B3L;
+            }
+            return mix(h);
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            return h ^ (h >>> 33);
+        }
+
+        // 低32位选桶，高32位选槽；用乘法代替取模
+        private static int bucketOf(long hash, int buckets) {
+            return (int) (((hash & 0xFFFFFFFFL) * buckets) >>> 32);
+        }
+
+        private static int slot(long hash, int displacement, int n) {
+            return (int) (((mix(hash ^ (displacement * GOLDEN)) >>> 32) * n) >>> 32);
+        }
+
+        private int indexOf(Object key) {
+            if (!(key instanceof String text) || keys.length == 0) {
+                return -1;
+            }
+            long hash = hash(text);
+            int displacement = displacements[bucketOf(hash, displacements.length)];
+            int slot = displacement < 0 ? -displacement - 1 : slot(hash, displacement, keys.length);
+            return keys[slot].equals(text) ? slot : -1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            int index = indexOf(key);
+            return index < 0 ? null : (V) values[index];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public Set<Map.Entry<String, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Iterator<Map.Entry<String, V>> iterator() {
+                    return new IndexIterator<>(0, keys.length,
+                        index -> new SimpleImmutableEntry<>(keys[index], (V) values[index]));
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+            };
+        }
+    }
+
+    // ---------- IntKeyMap ----------
+
+    /**
+     * int键映射：键保存在有序的int[]中，get(int)不装箱
+     */
+    public static final class IntKeyMap<V> extends AbstractMap<Integer, V> {
+        private final int[] keys;
+        private final Object[] values;
+
+        private IntKeyMap(int[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        public static <V> IntKeyMap<V> copyOf(Map<Integer, ? extends V> map) {
+            Builder<V> builder = builder(map.size());
+            map.forEach(builder::put);
+            return builder.build();
+        }
+
+        public static <V> Builder<V> builder(int expectedSize) {
+            return new Builder<>(expectedSize);
+        }
+
+        @SuppressWarnings("unchecked")
+        public V get(int key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index < 0 ? null : (V) values[index];
+        }
+
+        public boolean containsKey(int key) {
+            return Arrays.binarySearch(keys, key) >= 0;
+        }
+
+        @Override
+        public V get(Object key) {
+            return key instanceof Integer value ? get(value.intValue()) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer value && containsKey(value.intValue());
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public Set<Map.Entry<Integer, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Iterator<Map.Entry<Integer, V>> iterator() {
+                    return new IndexIterator<>(0, keys.length,
+                        index -> new SimpleImmutableEntry<>(keys[index], (V) values[index]));
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+            };
+        }
+
+        /**
+         * 不装箱的构建器
+         */
+        public static final class Builder<V> {
+            private int[] keys;
+            private Object[] values;
+            private int size;
+
+            private Builder(int expectedSize) {
+                keys = new int[Math.max(4, expectedSize)];
+                values = new Object[keys.length];
+            }
+
+            public Builder<V> put(int key, V value) {
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size * 2);
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                keys[size] = key;
+                values[size] = Objects.requireNonNull(value);
+                size++;
+                return this;
+            }
+
+            public IntKeyMap<V> build() {
+                // 按键排序下标，再按排好的顺序搬运
+                long[] packed = new long[size];
+                for (int i = 0; i < size; i++) {
+                    packed[i] = ((long) keys[i] << 32) | i;
+                }
+                Arrays.sort(packed);
+                int[] sortedKeys = new int[size];
+                Object[] sortedValues = new Object[size];
+                for (int i = 0; i < size; i++) {
+                    sortedKeys[i] = (int) (packed[i] >> 32);
+                    sortedValues[i] = values[(int) packed[i]];
+                    if (i > 0 && sortedKeys[i] == sortedKeys[i - 1]) {
+                        throw new IllegalArgumentException("重复的键：" + sortedKeys[i]);
+                    }
+                }
+                return new IntKeyMap<>(sortedKeys, sortedValues);
+            }
+        }
+    }
+
+    // 按下标遍历[from, to)，不支持remove
+    private static final class IndexIterator<E> implements Iterator<E> {
+        private int index;
+        private final int to;
+        private final IntFunction<E> element;
+
+        IndexIterator(int from, int to, IntFunction<E> element) {
+            this.index = from;
+            this.to = to;
+            this.element = element;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < to;
+        }
+
+        @Override
+        public E next() {
+            if (index >= to) {
+                throw new NoSuchElementException();
+            }
+            return element.apply(index++);
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 内存占用与查找速度：Map.copyOf vs 三种紧凑实现
+     */
+    public static void benchmark(int size) {
+        System.out.println("=== 不可变映射对比（" + size + "个条目） ===");
+
+        Map<String, Integer> source = new java.util.HashMap<>();
+        Map<Integer, Integer> intSource = new java.util.HashMap<>();
+        for (int i = 0; i < size; i++) {
+            source.put("product-" + i, i);
+            intSource.put(i * 7, i);
+        }
+        String[] probes = new String[size];
+        for (int i = 0; i < size; i++) {
+            probes[i] = "product-" + (int) ((i * 2654435761L) % size);
+        }
+
+        Map<String, Integer> copyOf = measure("Map.copyOf（字符串键）", () -> Map.copyOf(source));
+        Map<String, Integer> sorted = measure("SortedArrayMap", () -> SortedArrayMap.copyOf(source));
+        Map<String, Integer> perfect = measure("PerfectHashMap", () -> PerfectHashMap.copyOf(source));
+        Map<Integer, Integer> intCopyOf = measure("Map.copyOf（Integer键）", () -> Map.copyOf(intSource));
+        IntKeyMap<Integer> intKeys = measure("IntKeyMap", () -> IntKeyMap.copyOf(intSource));
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            lookup(report, "Map.copyOf（字符串键）", copyOf, probes);
+            lookup(report, "SortedArrayMap", sorted, probes);
+            lookup(report, "PerfectHashMap", perfect, probes);
+
+            long start = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += intCopyOf.get(((i * 31) % size) * 7);
+            }
+            printLookup(report, "Map.copyOf（Integer键）", start, size, sum);
+
+            start = System.nanoTime();
+            sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += intKeys.get(((i * 31) % size) * 7);
+            }
+            printLookup(report, "IntKeyMap.get(int)", start, size, sum);
+        });
+    }
+
+    private static <M> M measure(String label, Supplier<M> factory) {
+        long before = BenchmarkSupport.usedHeap();
+        M map = factory.get();
+        long after = BenchmarkSupport.usedHeap();
+        System.out.printf("%s：约%.1f MB%n", label, (after - before) / 1024.0 / 1024.0);
+        return map;
+    }
+
+    private static void lookup(boolean report, String label, Map<String, Integer> map, String[] probes) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for (String probe : probes) {
+            sum += map.get(probe);
+        }
+        printLookup(report, label, start, probes.length, sum);
+    }
+
+    private static void printLookup(boolean report, String label, long start, int count, long sum) {
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%s查找：%.1f ns/次（校验值%d）%n", label, (double) nanos / count, sum);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 紧凑不可变映射示例 ==========\n");
+
+        Map<String, Integer> fruits = Map.ofEntries(
+            Map.entry("apple", 1), Map.entry("banana", 2), Map.entry("cherry", 3),
+            Map.entry("date", 4), Map.entry("elderberry", 5), Map.entry("fig", 6));
+
+        SortedArrayMap<String, Integer> sorted = SortedArrayMap.copyOf(fruits);
+        System.out.println("排序数组映射：" + sorted);
+        System.out.println("b到e之间：" + sorted.subMap("b", "e"));
+
+        PerfectHashMap<Integer> perfect = PerfectHashMap.copyOf(fruits);
+        System.out.println("完美哈希映射apple：" + perfect.get("apple") + "，与原映射相等：" + perfect.equals(fruits));
+
+        IntKeyMap<String> codes = IntKeyMap.<String>builder(3).put(404, "未找到").put(200, "成功").put(500, "服务器错误").build();
+        System.out.println("int键映射：" + codes + "，get(404)：" + codes.get(404));
+        System.out.println();
+
+        benchmark(1_000_000);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -0,0 +1,817 @@
+package com.ibsrapp.jdk9.collection;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 开放寻址的基本类型映射
+ *
+ * HashMap&lt;String, Integer&gt;每个条目都有一个Node对象和一个装箱的Integer，
+ * 大量条目时内存占用是键本身的好几倍，遍历时还要在堆上到处跳转。
+ *
+ * 这里的三种映射都用线性探测的开放寻址表，键和值直接保存在并列的数组中，没有任何每条目对象：
+ * 1. Object2IntMap：对象键、int值（例如水果名 → 数量）
+ * 2. Int2ObjectMap：int键、对象值
+ * 3. Long2LongMap：long键、long值，可选把整张表放在堆外（ByteBuffer.allocateDirect）
+ *
+ * 共同点：
+ * - 容量总是2的幂，装载因子可配置，超过阈值时容量翻倍
+ * - 哈希值先经过混合再取低位，避免hashCode低位分布不均造成长探测链
+ * - 删除采用后移（backward shift），不留墓碑，查找链不会随删除变长
+ * - 基本类型键以0表示空槽，键0单独保存
+ * - 不允许null键/null值，非线程安全
+ *
+ * 堆外表只适用于键值都是基本类型的Long2LongMap；它不受GC扫描，
+ * 扩容后旧的直接缓冲区在对应的ByteBuffer对象被回收时释放。
+ */
+public final class PrimitiveMaps {
+
+    /**
+     * 默认装载因子
+     */
+    public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private PrimitiveMaps() {
+    }
+
+    /**
+     * (int, Object)消费者
+     */
+    @FunctionalInterface
+    public interface IntObjConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    /**
+     * (long, long)消费者
+     */
+    @FunctionalInterface
+    public interface LongLongConsumer {
+        void accept(long key, long value);
+    }
+
+    private static float checkLoadFactor(float loadFactor) {
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("装载因子必须在0到1之间：" + loadFactor);
+        }
+        return loadFactor;
+    }
+
+    // 能容纳expectedSize个条目而不超过装载因子的最小2的幂
+    private static int capacityFor(int expectedSize, float loadFactor, int maxCapacity) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("预期大小不能为负数：" + expectedSize);
+        }
+        long needed = Math.max(2, (long) Math.ceil(expectedSize / (double) loadFactor));
+        if (needed > maxCapacity) {
+            throw new IllegalArgumentException("预期大小过大：" + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    // 至少留一个空槽，保证探测一定能终止
+    private static int maxFill(int capacity, float loadFactor) {
+        return Math.min((int) Math.ceil(capacity * (double) loadFactor), capacity - 1);
+    }
+
+    private static int growTo(int capacity, int maxCapacity) {
+        if (capacity >= maxCapacity) {
+            throw new IllegalStateException("映射已达到最大容量：" + capacity);
+        }
+        return capacity * 2;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int mix(long hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    // last是刚空出的槽位，slot是pos处键的理想槽位：判断pos处的键能否后移到last
+    private static boolean canShift(int last, int slot, int pos) {
+        return last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos;
+    }
+
+    // ---------- Object2IntMap ----------
+
+    /**
+     * 对象键、int值的映射
+     */
+    public static final class Object2IntMap<K> {
+        private final float loadFactor;
+        private Object[] keys;
+        private int[] values;
+        private int mask;
+        private int maxFill;
+        private int size;
+
+        public Object2IntMap() {
+            this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR);
+        }
+
+        public Object2IntMap(int expectedSize, float loadFactor) {
+            this.loadFactor = checkLoadFactor(loadFactor);
+            allocate(capacityFor(expectedSize, loadFactor, MAX_CAPACITY));
+        }
+
+        private void allocate(int capacity) {
+            keys = new Object[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            maxFill = maxFill(capacity, loadFactor);
+        }
+
+        // 命中时返回槽位，否则返回-(空槽位 + 1)
+        private int find(Object key) {
+            int pos = mix(key.hashCode()) & mask;
+            Object current;
+            while ((current = keys[pos]) != null) {
+                if (current == key || current.equals(key)) {
+                    return pos;
+                }
+                pos = (pos + 1) & mask;
+            }
+            return -(pos + 1);
+        }
+
+        public int getInt(Object key, int defaultValue) {
+            if (key == null) {
+                return defaultValue;
+            }
+            int pos = find(key);
+            return pos >= 0 ? values[pos] : defaultValue;
+        }
+
+        public boolean containsKey(Object key) {
+            return key != null && find(key) >= 0;
+        }
+
+        public void put(K key, int value) {
+            int pos = find(Objects.requireNonNull(key));
+            if (pos >= 0) {
+                values[pos] = value;
+            } else {
+                insert(-pos - 1, key, value);
+            }
+        }
+
+        /**
+         * 累加：键不存在时视为0；返回累加后的值
+         */
+        public int addTo(K key, int increment) {
+            int pos = find(Objects.requireNonNull(key));
+            if (pos >= 0) {
+                return values[pos] += increment;
+            }
+            insert(-pos - 1, key, increment);
+            return increment;
+        }
+
+        // 先扩容再写入：达到最大容量时抛出异常，映射保持原状
+        private void insert(int pos, K key, int value) {
+            if (size == maxFill) {
+                rehash(growTo(keys.length, MAX_CAPACITY));
+                pos = -find(key) - 1;
+            }
+            keys[pos] = key;
+            values[pos] = value;
+            size++;
+        }
+
+        public boolean remove(Object key) {
+            int pos = key == null ? -1 : find(key);
+            if (pos < 0) {
+                return false;
+            }
+            size--;
+            shiftKeys(pos);
+            return true;
+        }
+
+        private void shiftKeys(int pos) {
+            while (true) {
+                int last = pos;
+                pos = (pos + 1) & mask;
+                while (true) {
+                    Object current = keys[pos];
+                    if (current == null) {
+                        keys[last] = null;
+                        return;
+                    }
+                    if (canShift(last, mix(current.hashCode()) & mask, pos)) {
+                        break;
+                    }
+                    pos = (pos + 1) & mask;
+                }
+                keys[last] = keys[pos];
+                values[last] = values[pos];
+            }
+        }
+
+        private void rehash(int capacity) {
+            Object[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(capacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int pos = mix(oldKeys[i].hashCode()) & mask;
+                    while (keys[pos] != null) {
+                        pos = (pos + 1) & mask;
+                    }
+                    keys[pos] = oldKeys[i];
+                    values[pos] = oldValues[i];
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEach(ObjIntConsumer<? super K> action) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    action.accept((K) keys[i], values[i]);
+                }
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("{");
+            forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=').append(value));
+            return builder.append('}').toString();
+        }
+    }
+
+    // ---------- Int2ObjectMap ----------
+
+    /**
+     * int键、对象值的映射
+     */
+    public static final class Int2ObjectMap<V> {
+        private final float loadFactor;
+        private int[] keys;
+        private Object[] values;
+        private int mask;
+        private int maxFill;
+        private int size;
+        // 键0不放进表中（0表示空槽）
+        private Object zeroValue;
+
+        public Int2ObjectMap() {
+            this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR);
+        }
+
+        public Int2ObjectMap(int expectedSize, float loadFactor) {
+            this.loadFactor = checkLoadFactor(loadFactor);
+            allocate(capacityFor(expectedSize, loadFactor, MAX_CAPACITY));
+        }
+
+        private void allocate(int capacity) {
+            keys = new int[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+            maxFill = maxFill(capacity, loadFactor);
+        }
+
+        private int find(int key) {
+            int pos = mix(key) & mask;
+            int current;
+            while ((current = keys[pos]) != 0) {
+                if (current == key) {
+                    return pos;
+                }
+                pos = (pos + 1) & mask;
+            }
+            return -(pos + 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        public V get(int key) {
+            if (key == 0) {
+                return (V) zeroValue;
+            }
+            int pos = find(key);
+            return pos >= 0 ? (V) values[pos] : null;
+        }
+
+        public boolean containsKey(int key) {
+            return key == 0 ? zeroValue != null : find(key) >= 0;
+        }
+
+        /**
+         * 放入键值对，返回旧值（不存在时为null）
+         */
+        @SuppressWarnings("unchecked")
+        public V put(int key, V value) {
+            Objects.requireNonNull(value);
+            if (key == 0) {
+                Object previous = zeroValue;
+                zeroValue = value;
+                if (previous == null) {
+                    size++;
+                }
+                return (V) previous;
+            }
+            int pos = find(key);
+            if (pos >= 0) {
+                Object previous = values[pos];
+                values[pos] = value;
+                return (V) previous;
+            }
+            if (size - (zeroValue != null ? 1 : 0) == maxFill) {
+                rehash(growTo(keys.length, MAX_CAPACITY));
+                pos = find(key);
+            }
+            pos = -pos - 1;
+            keys[pos] = key;
+            values[pos] = value;
+            size++;
+            return null;
+        }
+
+        /**
+         * 删除键，返回旧值（不存在时为null）
+         */
+        @SuppressWarnings("unchecked")
+        public V remove(int key) {
+            if (key == 0) {
+                Object previous = zeroValue;
+                if (previous != null) {
+                    zeroValue = null;
+                    size--;
+                }
+                return (V) previous;
+            }
+            int pos = find(key);
+            if (pos < 0) {
+                return null;
+            }
+            Object previous = values[pos];
+            size--;
+            shiftKeys(pos);
+            return (V) previous;
+        }
+
+        private void shiftKeys(int pos) {
+            while (true) {
+                int last = pos;
+                pos = (pos + 1) & mask;
+                while (true) {
+                    int current = keys[pos];
+                    if (current == 0) {
+                        keys[last] = 0;
+                        values[last] = null;
+                        return;
+                    }
+                    if (canShift(last, mix(current) & mask, pos)) {
+                        break;
+                    }
+                    pos = (pos + 1) & mask;
+                }
+                keys[last] = keys[pos];
+                values[last] = values[pos];
+            }
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            allocate(capacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int pos = mix(oldKeys[i]) & mask;
+                    while (keys[pos] != 0) {
+                        pos = (pos + 1) & mask;
+                    }
+                    keys[pos] = oldKeys[i];
+                    values[pos] = oldValues[i];
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEach(IntObjConsumer<? super V> action) {
+            if (zeroValue != null) {
+                action.accept(0, (V) zeroValue);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    action.accept(keys[i], (V) values[i]);
+                }
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    // ---------- Long2LongMap ----------
+
+    /**
+     * long键、long值的映射
+     *
+     * 键值交错保存在一个LongBuffer中：[k0, v0, k1, v1, ...]。
+     * 堆内版本包装long[]，堆外版本是本地字节序的直接缓冲区，两者共用同一套探测代码。
+     */
+    public static final class Long2LongMap {
+        // 每个槽位占两个long（16字节）：堆外表的字节数和堆内数组的长度都必须在int范围内
+        static final int MAX_OFF_HEAP_CAPACITY = 1 << 26;
+        static final int MAX_ON_HEAP_CAPACITY = 1 << 29;
+
+        private final float loadFactor;
+        private final boolean offHeap;
+        private final int maxCapacity;
+        private LongBuffer table;
+        private int mask;
+        private int maxFill;
+        private int size;
+        private boolean hasZeroKey;
+        private long zeroValue;
+
+        public Long2LongMap() {
+            this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR, false);
+        }
+
+        public Long2LongMap(int expectedSize, float loadFactor, boolean offHeap) {
+            this(expectedSize, loadFactor, offHeap, offHeap ? MAX_OFF_HEAP_CAPACITY : MAX_ON_HEAP_CAPACITY);
+        }
+
+        // maxCapacity可以调小，用于测试达到容量上限时的行为
+        Long2LongMap(int expectedSize, float loadFactor, boolean offHeap, int maxCapacity) {
+            this.loadFactor = checkLoadFactor(loadFactor);
+            this.offHeap = offHeap;
+            this.maxCapacity = maxCapacity;
+            allocate(capacityFor(expectedSize, loadFactor, maxCapacity));
+        }
+
+        private void allocate(int capacity) {
+            table = offHeap
+                ? ByteBuffer.allocateDirect(capacity * 16).order(ByteOrder.nativeOrder()).asLongBuffer()
+                : LongBuffer.wrap(new long[capacity * 2]);
+            mask = capacity - 1;
+            maxFill = maxFill(capacity, loadFactor);
+        }
+
+        private int capacity() {
+            return mask + 1;
+        }
+
+        private int find(long key) {
+            int pos = mix(key) & mask;
+            long current;
+            while ((current = table.get(pos << 1)) != 0) {
+                if (current == key) {
+                    return pos;
+                }
+                pos = (pos + 1) & mask;
+            }
+            return -(pos + 1);
+        }
+
+        public long get(long key, long defaultValue) {
+            if (key == 0) {
+                return hasZeroKey ? zeroValue : defaultValue;
+            }
+            int pos = find(key);
+            return pos >= 0 ? table.get((pos << 1) + 1) : defaultValue;
+        }
+
+        public boolean containsKey(long key) {
+            return key == 0 ? hasZeroKey : find(key) >= 0;
+        }
+
+        public void put(long key, long value) {
+            if (key == 0) {
+                if (!hasZeroKey) {
+                    hasZeroKey = true;
+                    size++;
+                }
+                zeroValue = value;
+                return;
+            }
+            int pos = find(key);
+            if (pos >= 0) {
+                table.put((pos << 1) + 1, value);
+            } else {
+                insert(-pos - 1, key, value);
+            }
+        }
+
+        /**
+         * 累加：键不存在时视为0；返回累加后的值
+         */
+        public long addTo(long key, long increment) {
+            if (key == 0) {
+                put(0, (hasZeroKey ? zeroValue : 0) + increment);
+                return zeroValue;
+            }
+            int pos = find(key);
+            if (pos >= 0) {
+                long value = table.get((pos << 1) + 1) + increment;
+                table.put((pos << 1) + 1, value);
+                return value;
+            }
+            insert(-pos - 1, key, increment);
+            return increment;
+        }
+
+        // 先扩容再写入：达到最大容量时抛出异常，映射保持原状
+        private void insert(int pos, long key, long value) {
+            if (size - (hasZeroKey ? 1 : 0) == maxFill) {
+                rehash(growTo(capacity(), maxCapacity));
+                pos = -find(key) - 1;
+            }
+            table.put(pos << 1, key);
+            table.put((pos << 1) + 1, value);
+            size++;
+        }
+
+        public boolean remove(long key) {
+            if (key == 0) {
+                if (!hasZeroKey) {
+                    return false;
+                }
+                hasZeroKey = false;
+                size--;
+                return true;
+            }
+            int pos = find(key);
+            if (pos < 0) {
+                return false;
+            }
+            size--;
+            shiftKeys(pos);
+            return true;
+        }
+
+        private void shiftKeys(int pos) {
+            while (true) {
+                int last = pos;
+                pos = (pos + 1) & mask;
+                while (true) {
+                    long current = table.get(pos << 1);
+                    if (current == 0) {
+                        table.put(last << 1, 0);
+                        return;
+                    }
+                    if (canShift(last, mix(current) & mask, pos)) {
+                        break;
+                    }
+                    pos = (pos + 1) & mask;
+                }
+                table.put(last << 1, table.get(pos << 1));
+                table.put((last << 1) + 1, table.get((pos << 1) + 1));
+            }
+        }
+
+        private void rehash(int capacity) {
+            LongBuffer old = table;
+            int oldCapacity = capacity();
+            allocate(capacity);
+            for (int i = 0; i < oldCapacity; i++) {
+                long key = old.get(i << 1);
+                if (key != 0) {
+                    int pos = mix(key) & mask;
+                    while (table.get(pos << 1) != 0) {
+                        pos = (pos + 1) & mask;
+                    }
+                    table.put(pos << 1, key);
+                    table.put((pos << 1) + 1, old.get((i << 1) + 1));
+                }
+            }
+        }
+
+        public void forEach(LongLongConsumer action) {
+            if (hasZeroKey) {
+                action.accept(0, zeroValue);
+            }
+            for (int i = 0, capacity = capacity(); i < capacity; i++) {
+                long key = table.get(i << 1);
+                if (key != 0) {
+                    action.accept(key, table.get((i << 1) + 1));
+                }
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public boolean isOffHeap() {
+            return offHeap;
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * put/get/遍历耗时与内存占用：HashMap vs 开放寻址映射
+     */
+    public static void benchmark(int size) {
+        System.out.println("=== 基本类型映射对比（" + size + "个条目） ===");
+
+        String[] names = new String[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = "fruit-" + i;
+        }
+        // 查找顺序打乱，避免HashMap按插入顺序顺带获得的缓存局部性
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) ((i * 2654435761L) % size);
+        }
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            if (report) {
+                System.out.println("-- String → int --");
+            }
+            Map<String, Integer> boxed = measure(report, "HashMap<String, Integer>", () -> {
+                Map<String, Integer> map = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(names[i], i);
+                }
+                return map;
+            });
+            Object2IntMap<String> object2Int = measure(report, "Object2IntMap", () -> {
+                Object2IntMap<String> map = new Object2IntMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(names[i], i);
+                }
+                return map;
+            });
+            long start = System.nanoTime();
+            long sum = 0;
+            for (int i : order) {
+                sum += boxed.get(names[i]);
+            }
+            print(report, "HashMap get", start, size, sum);
+            start = System.nanoTime();
+            sum = 0;
+            for (int i : order) {
+                sum += object2Int.getInt(names[i], 0);
+            }
+            print(report, "Object2IntMap getInt", start, size, sum);
+
+            if (report) {
+                System.out.println("-- int → Object --");
+            }
+            Map<Integer, String> intBoxed = measure(report, "HashMap<Integer, String>", () -> {
+                Map<Integer, String> map = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(i * 31, names[i]);
+                }
+                return map;
+            });
+            Int2ObjectMap<String> int2Object = measure(report, "Int2ObjectMap", () -> {
+                Int2ObjectMap<String> map = new Int2ObjectMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(i * 31, names[i]);
+                }
+                return map;
+            });
+            start = System.nanoTime();
+            sum = 0;
+            for (int i : order) {
+                sum += intBoxed.get(i * 31).length();
+            }
+            print(report, "HashMap get", start, size, sum);
+            start = System.nanoTime();
+            sum = 0;
+            for (int i : order) {
+                sum += int2Object.get(i * 31).length();
+            }
+            print(report, "Int2ObjectMap get", start, size, sum);
+
+            if (report) {
+                System.out.println("-- long → long --");
+            }
+            Map<Long, Long> longBoxed = measure(report, "HashMap<Long, Long>", () -> {
+                Map<Long, Long> map = new HashMap<>();
+                for (long i = 0; i < size; i++) {
+                    map.put(i * 0x1_0000_0001L, i);
+                }
+                return map;
+            });
+            Long2LongMap heap = measure(report, "Long2LongMap（堆内）", () -> fillLongs(size, false));
+            long directBefore = directMemoryUsed();
+            Long2LongMap direct = measure(report, "Long2LongMap（堆外）", () -> fillLongs(size, true));
+            if (report) {
+                System.out.printf("  堆外直接内存：约%.1f MB%n", (directMemoryUsed() - directBefore) / 1024.0 / 1024.0);
+            }
+
+            long[] total = new long[1];
+            start = System.nanoTime();
+            longBoxed.forEach((key, value) -> total[0] += value);
+            print(report, "HashMap遍历", start, size, total[0]);
+            total[0] = 0;
+            start = System.nanoTime();
+            heap.forEach((key, value) -> total[0] += value);
+            print(report, "Long2LongMap（堆内）遍历", start, size, total[0]);
+            total[0] = 0;
+            start = System.nanoTime();
+            direct.forEach((key, value) -> total[0] += value);
+            print(report, "Long2LongMap（堆外）遍历", start, size, total[0]);
+        });
+    }
+
+    private static Long2LongMap fillLongs(int size, boolean offHeap) {
+        Long2LongMap map = new Long2LongMap(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR, offHeap);
+        for (long i = 0; i < size; i++) {
+            map.put(i * 0x1_0000_0001L, i);
+        }
+        return map;
+    }
+
+    // 构建耗时（即put耗时）与构建后堆内存的增量
+    private static <M> M measure(boolean report, String label, Supplier<M> factory) {
+        long before = BenchmarkSupport.usedHeap();
+        long start = System.nanoTime();
+        M map = factory.get();
+        long nanos = System.nanoTime() - start;
+        long after = BenchmarkSupport.usedHeap();
+        if (report) {
+            System.out.printf("%s put：%.1f ms，堆内存约%.1f MB%n", label, nanos / 1e6,
+                (after - before) / 1024.0 / 1024.0);
+        }
+        return map;
+    }
+
+    private static long directMemoryUsed() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    private static void print(boolean report, String label, long start, int count, long sum) {
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%s：%.1f ns/次（校验值%d）%n", label, (double) nanos / count, sum);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 基本类型映射示例 ==========\n");
+
+        // 替代HashMap<String, Integer>：水果数量统计，值不装箱
+        Object2IntMap<String> fruits = new Object2IntMap<>();
+        for (String fruit : new String[] {"apple", "banana", "apple", "cherry", "apple", "banana"}) {
+            fruits.addTo(fruit, 1);
+        }
+        System.out.println("水果计数：" + fruits);
+        System.out.println("apple：" + fruits.getInt("apple", 0) + "，grape：" + fruits.getInt("grape", 0));
+
+        Int2ObjectMap<String> codes = new Int2ObjectMap<>();
+        codes.put(200, "成功");
+        codes.put(404, "未找到");
+        System.out.println("状态码404：" + codes.get(404));
+
+        Long2LongMap offHeap = new Long2LongMap(1_000, 0.5f, true);
+        offHeap.put(20240101L, 42L);
+        offHeap.addTo(20240101L, 8L);
+        System.out.println("堆外映射：" + offHeap.get(20240101L, -1) + "，堆外：" + offHeap.isOffHeap());
+        System.out.println();
+
+        benchmark(args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -0,0 +1,408 @@
+package com.ibsrapp.jdk9.interfacefeature;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * 单遍扫描的多规则校验器
+ *
+ * 示例4中的DataValidator.validateEmail依次调用isValidFormat、containsAtSymbol，
+ * validatePhone还要用正则做containsDigits，每条规则都重新扫描一遍字符串。
+ *
+ * CompiledValidator把声明的规则融合成一次扫描：
+ * 1. 每条规则引用一个字符类（IntPredicate），构建时为ASCII字符预先计算字符类位图
+ * 2. 扫描时每个字符只查一次表，把出现过的字符类并入状态位集合
+ *    （状态即“已出现的字符类集合”，相当于一个只前进的DFA）
+ * 3. 扫描结束后用位运算一次性判定所有规则
+ * 4. 结果是失败规则的位掩码，0表示全部通过，不抛异常
+ *
+ * 支持的规则：必须包含某类字符、不得包含某类字符、长度范围。
+ * 最多支持32条规则。
+ */
+public final class CompiledValidator {
+
+    private static final int MAX_RULES = 32;
+    private static final int MAX_CLASSES = 32;
+    // 与trim()一致：大于空格的字符视为非空白
+    private static final IntPredicate NOT_BLANK = c -> c > ' ';
+    // 与正则\d一致：只认ASCII数字
+    private static final IntPredicate ASCII_DIGIT = c -> c >= '0' && c <= '9';
+
+    private final String[] ruleNames;
+    // 每条规则：字符类下标（长度规则为-1）
+    private final int[] ruleClass;
+    private final boolean[] ruleForbid;
+    private final int[] minLength;
+    private final int[] maxLength;
+    // ASCII字符 -> 字符类位图
+    private final int[] asciiClasses = new int[128];
+    private final IntPredicate[] classes;
+    // 规则涉及的所有“必须包含”和“不得包含”的字符类位图
+    private final int requiredClasses;
+    private final int forbiddenClasses;
+    private final boolean hasLengthRule;
+
+    private CompiledValidator(Builder builder) {
+        int count = builder.names.size();
+        this.ruleNames = builder.names.toArray(new String[0]);
+        this.ruleClass = new int[count];
+        this.ruleForbid = new boolean[count];
+        this.minLength = new int[count];
+        this.maxLength = new int[count];
+        List<IntPredicate> distinct = new ArrayList<>();
+        int required = 0;
+        int forbidden = 0;
+        boolean lengthRule = false;
+        for (int i = 0; i < count; i++) {
+            IntPredicate charClass = builder.classes.get(i);
+            if (charClass == null) {
+                ruleClass[i] = -1;
+                minLength[i] = builder.minLengths.get(i);
+                maxLength[i] = builder.maxLengths.get(i);
+                lengthRule = true;
+                continue;
+            }
+            int index = distinct.indexOf(charClass);
+            if (index < 0) {
+                index = distinct.size();
+                distinct.add(charClass);
+            }
+            ruleClass[i] = index;
+            ruleForbid[i] = builder.forbid.get(i);
+            if (ruleForbid[i]) {
+                forbidden |= 1 << index;
+            } else {
+                required |= 1 << index;
+            }
+        }
+        if (distinct.size() > MAX_CLASSES) {
+            throw new IllegalArgumentException("字符类数量超过" + MAX_CLASSES);
+        }
+        this.classes = distinct.toArray(new IntPredicate[0]);
+        for (int c = 0; c < 128; c++) {
+            asciiClasses[c] = classify(c);
+        }
+        this.requiredClasses = required;
+        this.forbiddenClasses = forbidden;
+        this.hasLengthRule = lengthRule;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 与DataValidator.validateEmail语义一致的规则：非空白、包含@
+     */
+    public static CompiledValidator emailRules() {
+        return builder()
+            .notBlank("非空")
+            .requireAny("包含@", c -> c == '@')
+            .build();
+    }
+
+    /**
+     * 与DataValidator.validatePhone语义一致的规则：非空白、包含数字
+     */
+    public static CompiledValidator phoneRules() {
+        return builder()
+            .notBlank("非空")
+            .requireAny("包含数字", ASCII_DIGIT)
+            .build();
+    }
+
+    // 计算单个字符所属的字符类位图
+    private int classify(int c) {
+        int bits = 0;
+        for (int i = 0; i < classes.length; i++) {
+            if (classes[i].test(c)) {
+                bits |= 1 << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * 校验一个字符序列，返回失败规则的位掩码（第i位对应第i条规则）
+     * null视为空串
+     */
+    public int validate(CharSequence input) {
+        if (input == null) {
+            return evaluate(0, 0);
+        }
+        int seen = 0;
+        int length = input.length();
+        int[] table = asciiClasses;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            seen |= c < 128 ? table[c] : classify(c);
+        }
+        return evaluate(seen, length);
+    }
+
+    /**
+     * 校验字符缓冲区中的一段 [start, end)
+     */
+    public int validate(char[] buffer, int start, int end) {
+        int seen = 0;
+        int[] table = asciiClasses;
+        for (int i = start; i < end; i++) {
+            char c = buffer[i];
+            seen |= c < 128 ? table[c] : classify(c);
+        }
+        return evaluate(seen, end - start);
+    }
+
+    // 根据已出现的字符类和长度判定所有规则
+    private int evaluate(int seen, int length) {
+        // 快速路径：所有必需字符类都出现，且没有出现禁止的字符类
+        if (!hasLengthRule && (seen & requiredClasses) == requiredClasses && (seen & forbiddenClasses) == 0) {
+            return 0;
+        }
+        int failures = 0;
+        for (int i = 0; i < ruleNames.length; i++) {
+            boolean failed;
+            if (ruleClass[i] < 0) {
+                failed = length < minLength[i] || length > maxLength[i];
+            } else {
+                boolean present = (seen & (1 << ruleClass[i])) != 0;
+                failed = ruleForbid[i] == present;
+            }
+            if (failed) {
+                failures |= 1 << i;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * 批量校验列表
+     */
+    public int[] validateAll(List<? extends CharSequence> inputs) {
+        int[] results = new int[inputs.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = validate(inputs.get(i));
+        }
+        return results;
+    }
+
+    /**
+     * 批量校验按分隔符（例如换行）切分的字符缓冲区，不为每一行创建String
+     * 返回每一段的失败位掩码
+     */
+    public int[] validateAll(char[] buffer, int offset, int length, char separator) {
+        int[] results = new int[16];
+        int count = 0;
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i <= end; i++) {
+            if (i == end || buffer[i] == separator) {
+                if (i == end && start == end && count > 0) {
+                    break;
+                }
+                if (count == results.length) {
+                    results = Arrays.copyOf(results, count * 2);
+                }
+                results[count++] = validate(buffer, start, i);
+                start = i + 1;
+            }
+        }
+        return Arrays.copyOf(results, count);
+    }
+
+    /**
+     * 统计每条规则的失败次数
+     */
+    public int[] countFailures(int[] results) {
+        int[] counts = new int[ruleNames.length];
+        for (int mask : results) {
+            while (mask != 0) {
+                counts[Integer.numberOfTrailingZeros(mask)]++;
+                mask &= mask - 1;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 把失败位掩码翻译成规则名称
+     */
+    public List<String> describe(int failures) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < ruleNames.length; i++) {
+            if ((failures & (1 << i)) != 0) {
+                names.add(ruleNames[i]);
+            }
+        }
+        return names;
+    }
+
+    public int ruleCount() {
+        return ruleNames.length;
+    }
+
+    /**
+     * 用融合规则实现DataValidator，替代逐条扫描的默认方法
+     */
+    static InterfacePrivateMethodExample.DataValidator asDataValidator() {
+        CompiledValidator email = emailRules();
+        CompiledValidator phone = phoneRules();
+        return new InterfacePrivateMethodExample.DataValidator() {
+            @Override
+            public boolean validateEmail(String input) {
+                return email.validate(input) == 0;
+            }
+
+            @Override
+            public boolean validatePhone(String input) {
+                return phone.validate(input) == 0;
+            }
+        };
+    }
+
+    /**
+     * 规则构建器
+     */
+    public static final class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<IntPredicate> classes = new ArrayList<>();
+        private final List<Boolean> forbid = new ArrayList<>();
+        private final List<Integer> minLengths = new ArrayList<>();
+        private final List<Integer> maxLengths = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * 至少包含一个属于该字符类的字符
+         */
+        public Builder requireAny(String name, IntPredicate charClass) {
+            return add(name, charClass, false, 0, 0);
+        }
+
+        /**
+         * 不得包含属于该字符类的字符
+         */
+        public Builder forbidAny(String name, IntPredicate charClass) {
+            return add(name, charClass, true, 0, 0);
+        }
+
+        /**
+         * 只允许该字符类中的字符
+         */
+        public Builder onlyChars(String name, IntPredicate charClass) {
+            return forbidAny(name, charClass.negate());
+        }
+
+        /**
+         * 至少包含一个非空白字符（与trim().isEmpty()的判定一致）
+         */
+        public Builder notBlank(String name) {
+            return requireAny(name, NOT_BLANK);
+        }
+
+        /**
+         * 长度在[min, max]之间
+         */
+        public Builder length(String name, int min, int max) {
+            if (min < 0 || max < min) {
+                throw new IllegalArgumentException("非法的长度范围：" + min + ".." + max);
+            }
+            return add(name, null, false, min, max);
+        }
+
+        private Builder add(String name, IntPredicate charClass, boolean forbidden, int min, int max) {
+            if (names.size() == MAX_RULES) {
+                throw new IllegalArgumentException("规则数量超过" + MAX_RULES);
+            }
+            names.add(name);
+            classes.add(charClass);
+            forbid.add(forbidden);
+            minLengths.add(min);
+            maxLengths.add(max);
+            return this;
+        }
+
+        public CompiledValidator build() {
+            if (names.isEmpty()) {
+                throw new IllegalStateException("至少需要一条规则");
+            }
+            return new CompiledValidator(this);
+        }
+    }
+
+    /**
+     * 性能对比：逐条规则扫描（DataValidator） vs 融合单遍扫描
+     */
+    public static void benchmark(int rows) {
+        System.out.println("=== " + rows + "行导入数据校验 ===");
+
+        List<String> emails = new ArrayList<>(rows);
+        List<String> phones = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            emails.add(i % 10 == 0 ? "user" + i + ".example.com" : "user" + i + "@example.com");
+            phones.add(i % 10 == 0 ? "call-me" : "138-0000-" + (i % 10_000));
+        }
+
+        InterfacePrivateMethodExample.DataValidator classic = new InterfacePrivateMethodExample.FormValidator();
+        CompiledValidator email = emailRules();
+        CompiledValidator phone = phoneRules();
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            long start = System.nanoTime();
+            int classicValid = 0;
+            for (int i = 0; i < rows; i++) {
+                if (classic.validateEmail(emails.get(i)) && classic.validatePhone(phones.get(i))) {
+                    classicValid++;
+                }
+            }
+            long classicNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int[] emailResults = email.validateAll(emails);
+            int[] phoneResults = phone.validateAll(phones);
+            int fusedValid = 0;
+            for (int i = 0; i < rows; i++) {
+                if ((emailResults[i] | phoneResults[i]) == 0) {
+                    fusedValid++;
+                }
+            }
+            long fusedNanos = System.nanoTime() - start;
+
+            if (report) {
+                System.out.printf("逐条规则：%.0f 行/秒（有效%d行）%n", rows / (classicNanos / 1e9), classicValid);
+                System.out.printf("融合扫描：%.0f 行/秒（有效%d行）%n", rows / (fusedNanos / 1e9), fusedValid);
+                int[] failures = email.countFailures(emailResults);
+                System.out.println("邮箱规则失败次数：" + email.describe(1) + "=" + failures[0]
+                    + "，" + email.describe(2) + "=" + failures[1]);
+            }
+        });
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 单遍多规则校验示例 ==========\n");
+
+        CompiledValidator username = builder()
+            .notBlank("非空")
+            .length("长度3-16", 3, 16)
+            .onlyChars("只含字母数字下划线", c -> c < 128 && (Character.isLetterOrDigit(c) || c == '_'))
+            .requireAny("包含字母", Character::isLetter)
+            .build();
+
+        for (String input : List.of("alice_01", "ab", "bad name!", "12345")) {
+            int failures = username.validate(input);
+            System.out.println(input + " -> " + (failures == 0 ? "通过" : "失败：" + username.describe(failures)));
+        }
+
+        benchmark(1_000_000);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
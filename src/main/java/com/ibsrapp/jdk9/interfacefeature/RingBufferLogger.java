@@ -0,0 +1,537 @@
+package com.ibsrapp.jdk9.interfacefeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于无锁环形缓冲区的Logger实现
+ *
+ * 示例3中的Logger每条日志都要String.format一次、LocalDateTime.now().toString()一次，
+ * 并同步打印到System.out，放在热点路径上会成为明显的瓶颈。
+ *
+ * RingBufferLogger的做法：
+ * 1. 预分配固定数量的日志事件对象，组成环形缓冲区，生产者只填字段，不分配对象
+ * 2. 生产者通过AtomicLong领取序号（无锁），缓冲区满时自旋等待（背压）
+ * 3. 单个后台消费者线程按序号批量取出事件，在消费者侧格式化；
+ *    没有事件时消费者park，由下一个发布事件的生产者unpark，空闲时不轮询
+ * 4. 时间戳按秒缓存前缀（yyyy-MM-ddTHH:mm:ss.），每条日志只追加毫秒
+ * 5. 格式化结果直接编码进复用的直接缓冲区，批量写入FileChannel
+ * 6. 级别过滤在生产者入口完成，被过滤的日志不会格式化任何参数
+ *
+ * 消息中的{}占位符由消费者按顺序替换为参数。
+ */
+public final class RingBufferLogger implements InterfacePrivateMethodExample.Logger, AutoCloseable {
+
+    /**
+     * 日志级别，名称与Logger接口中使用的级别一致
+     */
+    public enum Level {
+        DEBUG, INFO, WARNING, ERROR;
+
+        // 预编码的 "] [LEVEL] " 字节：时间戳的右括号加级别标签
+        final byte[] tag = ("] [" + name() + "] ").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // 参数形态：避免为long参数装箱
+    private static final byte ARGS_NONE = 0;
+    private static final byte ARGS_ONE = 1;
+    private static final byte ARGS_TWO = 2;
+    private static final byte ARGS_LONG = 3;
+
+    // close()在claimed上加这一位：之后领取到的序号都不小于它，生产者据此放弃
+    private static final long CLOSED = 1L << 62;
+
+    /**
+     * 预分配的日志事件
+     */
+    private static final class Event {
+        // 已发布的序号，volatile写保证其余字段对消费者可见
+        volatile long published = -1;
+        Level level;
+        long timestamp;
+        String pattern;
+        Object arg0;
+        Object arg1;
+        long number;
+        byte argKind;
+    }
+
+    private final Event[] ring;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    // 消费者已处理的事件数
+    private volatile long consumed;
+    private final Level threshold;
+    private final WritableByteChannel channel;
+    private final boolean ownsChannel;
+    private final ByteBuffer out;
+    private final ZoneId zone;
+    private final Thread consumer;
+    // 消费者即将park或已park时为true，生产者发布后据此unpark
+    private volatile boolean consumerParked;
+    // close()时已领取的序号总数，消费者处理完这些事件后退出；-1表示尚未关闭
+    private volatile long finalSequence = -1;
+
+    // 以下字段只由消费者线程访问
+    private long cachedSecond = Long.MIN_VALUE;
+    private final byte[] secondPrefix = new byte[20];
+    private final byte[] digits = new byte[20];
+
+    /**
+     * 打开一个写入文件的Logger（追加模式）
+     */
+    public static RingBufferLogger open(Path file, Level threshold, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new RingBufferLogger(channel, true, threshold, capacity, ZoneId.systemDefault());
+    }
+
+    /**
+     * 使用调用方提供的通道，关闭Logger时不会关闭该通道
+     */
+    public RingBufferLogger(WritableByteChannel channel, Level threshold, int capacity) {
+        this(channel, false, threshold, capacity, ZoneId.systemDefault());
+    }
+
+    private RingBufferLogger(WritableByteChannel channel, boolean ownsChannel, Level threshold,
+                             int capacity, ZoneId zone) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("容量必须是大于1的2的幂：" + capacity);
+        }
+        this.ring = new Event[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Event();
+        }
+        this.mask = capacity - 1;
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.threshold = threshold;
+        this.zone = zone;
+        this.out = ByteBuffer.allocateDirect(64 * 1024);
+        this.consumer = new Thread(this::consume, "ring-buffer-logger");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    // ---------- Logger接口 ----------
+
+    @Override
+    public void logInfo(String message) {
+        publish(Level.INFO, message, null, null, 0, ARGS_NONE);
+    }
+
+    @Override
+    public void logWarning(String message) {
+        publish(Level.WARNING, message, null, null, 0, ARGS_NONE);
+    }
+
+    @Override
+    public void logError(String message) {
+        publish(Level.ERROR, message, null, null, 0, ARGS_NONE);
+    }
+
+    // ---------- 带参数的日志，参数在消费者线程格式化 ----------
+
+    /**
+     * 级别是否开启；调用方可以据此跳过昂贵的参数计算
+     */
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold.ordinal();
+    }
+
+    public void log(Level level, String pattern) {
+        publish(level, pattern, null, null, 0, ARGS_NONE);
+    }
+
+    public void log(Level level, String pattern, Object arg) {
+        publish(level, pattern, arg, null, 0, ARGS_ONE);
+    }
+
+    public void log(Level level, String pattern, Object arg0, Object arg1) {
+        publish(level, pattern, arg0, arg1, 0, ARGS_TWO);
+    }
+
+    /**
+     * long参数不装箱
+     */
+    public void log(Level level, String pattern, long value) {
+        publish(level, pattern, null, null, value, ARGS_LONG);
+    }
+
+    private void publish(Level level, String pattern, Object arg0, Object arg1, long number, byte argKind) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        long sequence = claimed.getAndIncrement();
+        if (sequence >= CLOSED) {
+            // 已关闭
+            return;
+        }
+        // 缓冲区满：等待消费者腾出位置
+        int spins = 0;
+        while (sequence - consumed >= ring.length) {
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else if (!consumer.isAlive()) {
+                // 已关闭或消费者异常退出，放弃这条日志
+                return;
+            } else {
+                Thread.yield();
+            }
+        }
+        Event event = ring[(int) sequence & mask];
+        event.level = level;
+        event.timestamp = System.currentTimeMillis();
+        event.pattern = pattern;
+        event.arg0 = arg0;
+        event.arg1 = arg1;
+        event.number = number;
+        event.argKind = argKind;
+        event.published = sequence;
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * 已接收（未被级别过滤）的日志条数
+     */
+    public long publishedCount() {
+        long count = claimed.get();
+        if (count < CLOSED) {
+            return count;
+        }
+        // 关闭后claimed的低位还会被放弃的生产者增加，以close()记录的序号为准
+        long end;
+        while ((end = finalSequence) < 0) {
+            Thread.onSpinWait();
+        }
+        return end;
+    }
+
+    /**
+     * 已写出的日志条数
+     */
+    public long writtenCount() {
+        return consumed;
+    }
+
+    /**
+     * 停止接收日志，等待已接收的日志全部写出
+     *
+     * 关闭与领取序号是同一个原子操作：close()之前领取到序号的生产者，其事件一定会被写出，
+     * 哪怕它在close()返回前才完成发布；之后领取的序号都带有CLOSED位，直接丢弃。
+     * 可以重复调用：只有第一次调用置位CLOSED并关闭通道，之后的调用只等待消费者退出
+     */
+    @Override
+    public void close() throws IOException {
+        long end;
+        do {
+            end = claimed.get();
+            if (end >= CLOSED) {
+                awaitConsumer();
+                return;
+            }
+        } while (!claimed.compareAndSet(end, end | CLOSED));
+        finalSequence = end;
+        LockSupport.unpark(consumer);
+        awaitConsumer();
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+
+    private void awaitConsumer() {
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------- 消费者 ----------
+
+    private void consume() {
+        long next = consumed;
+        try {
+            while (true) {
+                Event event = ring[(int) next & mask];
+                if (event.published == next) {
+                    format(event);
+                    event.pattern = null;
+                    event.arg0 = null;
+                    event.arg1 = null;
+                    consumed = ++next;
+                } else if (next == finalSequence) {
+                    flush();
+                    return;
+                } else {
+                    // 没有可处理的事件：先把已格式化的批次写出，再park等待生产者唤醒。
+                    // 先置位再复查：生产者先写published再读consumerParked，两边至少有一方看到对方的写入
+                    flush();
+                    consumerParked = true;
+                    if (event.published != next && next != finalSequence) {
+                        LockSupport.park(this);
+                    }
+                    consumerParked = false;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 格式：[2024-01-01T12:00:00.123] [INFO] message
+    private void format(Event event) throws IOException {
+        put((byte) '[');
+        putTimestamp(event.timestamp);
+        putBytes(event.level.tag);
+        putMessage(event);
+        put((byte) '\n');
+    }
+
+    private void putTimestamp(long millis) throws IOException {
+        long second = Math.floorDiv(millis, 1000);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), zone);
+            byte[] prefix = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.")
+                .format(time).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(prefix, 0, secondPrefix, 0, secondPrefix.length);
+        }
+        putBytes(secondPrefix);
+        int ms = Math.floorMod(millis, 1000);
+        put((byte) ('0' + ms / 100));
+        put((byte) ('0' + ms / 10 % 10));
+        put((byte) ('0' + ms % 10));
+    }
+
+    private void putMessage(Event event) throws IOException {
+        String pattern = event.pattern;
+        if (pattern == null) {
+            putChars("null");
+            return;
+        }
+        int argIndex = 0;
+        int length = pattern.length();
+        for (int i = 0; i < length; i++) {
+            char c = pattern.charAt(i);
+            if (c == '{' && i + 1 < length && pattern.charAt(i + 1) == '}' && argIndex < argCount(event)) {
+                putArgument(event, argIndex++);
+                i++;
+            } else {
+                putChar(pattern, c, i);
+                if (Character.isHighSurrogate(c) && i + 1 < length) {
+                    i++;
+                }
+            }
+        }
+    }
+
+    private static int argCount(Event event) {
+        return switch (event.argKind) {
+            case ARGS_ONE, ARGS_LONG -> 1;
+            case ARGS_TWO -> 2;
+            default -> 0;
+        };
+    }
+
+    private void putArgument(Event event, int index) throws IOException {
+        if (event.argKind == ARGS_LONG) {
+            putLong(event.number);
+            return;
+        }
+        Object arg = index == 0 ? event.arg0 : event.arg1;
+        if (arg instanceof CharSequence cs) {
+            putChars(cs);
+        } else if (arg instanceof Integer || arg instanceof Long) {
+            putLong(((Number) arg).longValue());
+        } else {
+            putChars(String.valueOf(arg));
+        }
+    }
+
+    private void putLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            putChars("-9223372036854775808");
+            return;
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            put(digits[--count]);
+        }
+    }
+
+    private void putChars(CharSequence cs) throws IOException {
+        int length = cs.length();
+        for (int i = 0; i < length; i++) {
+            char c = cs.charAt(i);
+            putChar(cs, c, i);
+            if (Character.isHighSurrogate(c) && i + 1 < length) {
+                i++;
+            }
+        }
+    }
+
+    // 以UTF-8写出一个字符；代理对在此处整体写出
+    private void putChar(CharSequence cs, char c, int index) throws IOException {
+        if (c < 0x80) {
+            put((byte) c);
+        } else if (c < 0x800) {
+            put((byte) (0xC0 | (c >> 6)));
+            put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && index + 1 < cs.length()
+                && Character.isLowSurrogate(cs.charAt(index + 1))) {
+            int cp = Character.toCodePoint(c, cs.charAt(index + 1));
+            put((byte) (0xF0 | (cp >> 18)));
+            put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+            put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+            put((byte) (0x80 | (cp & 0x3F)));
+        } else if (Character.isSurrogate(c)) {
+            put((byte) '?');
+        } else {
+            put((byte) (0xE0 | (c >> 12)));
+            put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        for (byte b : bytes) {
+            put(b);
+        }
+    }
+
+    private void put(byte b) throws IOException {
+        if (!out.hasRemaining()) {
+            flush();
+        }
+        out.put(b);
+    }
+
+    private void flush() throws IOException {
+        if (out.position() == 0) {
+            return;
+        }
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 16个生产者线程的吞吐量和单次调用延迟
+     * 对比：与示例3相同的String.format + 同步打印到文件
+     */
+    public static void benchmark(int producers, int perProducer) throws Exception {
+        System.out.println("=== " + producers + "个生产者线程的日志性能 ===");
+
+        Path ringFile = Files.createTempFile("ring-logger", ".log");
+        Path syncFile = Files.createTempFile("sync-logger", ".log");
+        try {
+            try (RingBufferLogger logger = open(ringFile, Level.INFO, 1 << 16)) {
+                run("环形缓冲区", producers, perProducer,
+                    i -> logger.log(Level.INFO, "order {} processed", i));
+            }
+            try (OutputStream file = Files.newOutputStream(syncFile);
+                 PrintStream print = new PrintStream(file, false, StandardCharsets.UTF_8)) {
+                run("同步String.format", producers, perProducer,
+                    i -> print.println(String.format("[%s] [%s] %s",
+                        LocalDateTime.now().toString(), "INFO", "order " + i + " processed")));
+            }
+            System.out.println("写出字节：环形缓冲区 " + Files.size(ringFile)
+                + "，同步方式 " + Files.size(syncFile));
+        } finally {
+            Files.deleteIfExists(ringFile);
+            Files.deleteIfExists(syncFile);
+        }
+    }
+
+    private interface LogCall {
+        void log(long i);
+    }
+
+    private static void run(String label, int producers, int perProducer, LogCall call)
+            throws InterruptedException {
+        long[][] latencies = new long[producers][perProducer];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int t = 0; t < producers; t++) {
+            long[] samples = latencies[t];
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    long begin = System.nanoTime();
+                    call.log(i);
+                    samples[i] = System.nanoTime() - begin;
+                }
+            });
+            threads[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%s：%.0f 条/秒，p50 %d ns，p99 %d ns，p99.9 %d ns%n", label,
+            all.length / (elapsed / 1e9), all[all.length / 2],
+            all[(int) (all.length * 0.99)], all[(int) (all.length * 0.999)]);
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) throws Exception {
+        System.out.println("========== 环形缓冲区Logger示例 ==========\n");
+
+        try (RingBufferLogger logger = new RingBufferLogger(
+                Channels.newChannel(System.out), Level.INFO, 1024)) {
+            InterfacePrivateMethodExample.Logger asInterface = logger;
+            asInterface.logInfo("这是一条信息日志");
+            asInterface.logWarning("这是一条警告日志");
+            logger.log(Level.ERROR, "用户{}登录失败{}次", "alice", 3L);
+            // DEBUG低于阈值，参数不会被格式化
+            logger.log(Level.DEBUG, "不会输出：{}", new Object());
+        }
+
+        benchmark(16, 50_000);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -0,0 +1,456 @@
+package com.ibsrapp.jdk9.optional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * 限流、带缓存的口令校验服务
+ *
+ * 示例4的authenticateUser直接比较明文口令。真实系统中口令以加盐的PBKDF2哈希保存，
+ * 一次校验要做数万次HMAC，登录高峰时CPU很容易被打满，暴力破解也会放大这一点。
+ *
+ * CredentialVerifier的处理流程：
+ * 1. 成功缓存：校验成功后，以"服务端密钥 + 用户名 + 口令"的SHA-256为键缓存一小段时间（TTL），
+ *    重复登录不再执行PBKDF2；缓存中不保存明文，用户改密码后旧缓存自动失效
+ * 2. 失败限流：每个用户一个令牌桶，每次失败消耗一个令牌，令牌耗尽时直接拒绝，不再消耗CPU
+ * 3. 有界线程池：PBKDF2只在固定数量的工作线程上执行，队列满时立即返回OVERLOADED，
+ *    而不是无限排队拖垮整个服务
+ * 4. 不存在的用户同样执行一次哈希计算，避免通过响应时间枚举用户名
+ * 5. 有界状态：成功缓存和令牌桶的条目数都不超过maxEntries。每秒最多清理一次，
+ *    删除过期的缓存项和已经回满的令牌桶（回满的桶与新建的桶没有区别）。
+ *    清理后仍然满时，新用户名的请求返回OVERLOADED，新的成功结果不再缓存，
+ *    用随机用户名撞库不会让堆无限增长，也不会挤掉正在被限流的用户的令牌桶
+ */
+public final class CredentialVerifier implements AutoCloseable {
+
+    /**
+     * 校验结果
+     */
+    public enum Outcome {
+        SUCCESS, CACHED, FAILED, THROTTLED, OVERLOADED;
+
+        public boolean authenticated() {
+            return this == SUCCESS || this == CACHED;
+        }
+    }
+
+    private record StoredCredential(byte[] salt, byte[] hash) {
+    }
+
+    // credential用于检测改密码：缓存项只在用户凭据未变化时有效
+    private record CacheEntry(StoredCredential credential, long expiresAt) {
+    }
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int KEY_BITS = 256;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int iterations;
+    private final long cacheTtlNanos;
+    private final int bucketCapacity;
+    private final long refillNanos;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final AtomicLong lastSweep;
+    private final ThreadPoolExecutor workers;
+    private final SecureRandom random = new SecureRandom();
+    private final byte[] cacheSecret = new byte[32];
+    private final StoredCredential dummy;
+
+    private final Map<String, StoredCredential> credentials = new ConcurrentHashMap<>();
+    private final Map<String, CacheEntry> successCache = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<Outcome, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private CredentialVerifier(Builder builder) {
+        this.iterations = builder.iterations;
+        this.cacheTtlNanos = builder.cacheTtlNanos;
+        this.bucketCapacity = builder.bucketCapacity;
+        this.refillNanos = builder.refillNanos;
+        this.maxEntries = builder.maxEntries;
+        this.clock = builder.clock;
+        this.lastSweep = new AtomicLong(clock.getAsLong());
+        this.workers = new ThreadPoolExecutor(builder.threads, builder.threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(builder.queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "credential-verifier");
+                thread.setDaemon(true);
+                return thread;
+            });
+        random.nextBytes(cacheSecret);
+        byte[] salt = newSalt();
+        this.dummy = new StoredCredential(salt, pbkdf2("dummy".toCharArray(), salt));
+        for (Outcome outcome : Outcome.values()) {
+            counters.put(outcome, new LongAdder());
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 注册或修改口令；修改后该用户已缓存的成功结果全部失效
+     */
+    public void register(String username, String password) {
+        byte[] salt = newSalt();
+        credentials.put(username, new StoredCredential(salt, pbkdf2(password.toCharArray(), salt)));
+    }
+
+    /**
+     * 与示例4签名相同的同步版本
+     */
+    public Optional<String> authenticateUser(String username, String password) {
+        try {
+            return authenticate(username, password).get().authenticated()
+                ? Optional.of("认证成功")
+                : Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("口令校验失败", e.getCause());
+        }
+    }
+
+    /**
+     * 异步校验：缓存命中和被限流时不进入线程池
+     */
+    public CompletableFuture<Outcome> authenticate(String username, String password) {
+        sweepIfDue();
+        String cacheKey = cacheKey(username, password);
+        CacheEntry cached = successCache.get(cacheKey);
+        if (cached != null) {
+            if (cached.credential() == credentials.get(username) && clock.getAsLong() - cached.expiresAt() < 0) {
+                return done(Outcome.CACHED);
+            }
+            successCache.remove(cacheKey, cached);
+        }
+        TokenBucket bucket = bucketFor(username);
+        if (bucket == null) {
+            return done(Outcome.OVERLOADED);
+        }
+        // 先预占一个令牌，校验成功再退还：并发的口令猜测也不会超过桶容量
+        if (!bucket.tryAcquire()) {
+            return done(Outcome.THROTTLED);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> verify(username, password, cacheKey, bucket), workers)
+                .thenApply(this::count);
+        } catch (RejectedExecutionException e) {
+            bucket.refund();
+            return done(Outcome.OVERLOADED);
+        }
+    }
+
+    private Outcome verify(String username, String password, String cacheKey, TokenBucket bucket) {
+        StoredCredential credential = credentials.get(username);
+        StoredCredential target = credential != null ? credential : dummy;
+        byte[] actual = pbkdf2(password.toCharArray(), target.salt());
+        if (credential != null && MessageDigest.isEqual(actual, credential.hash())) {
+            if (successCache.size() < maxEntries) {
+                successCache.put(cacheKey, new CacheEntry(credential, clock.getAsLong() + cacheTtlNanos));
+            }
+            bucket.refund();
+            return Outcome.SUCCESS;
+        }
+        return Outcome.FAILED;
+    }
+
+    // 令牌桶表已满时，新用户名返回null
+    private TokenBucket bucketFor(String username) {
+        TokenBucket bucket = buckets.get(username);
+        if (bucket != null || buckets.size() >= maxEntries) {
+            return bucket;
+        }
+        return buckets.computeIfAbsent(username, name -> new TokenBucket());
+    }
+
+    // 每个间隔只有一个线程执行清理，代价是O(条目数)，且条目数有上限
+    private void sweepIfDue() {
+        long now = clock.getAsLong();
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL_NANOS || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        successCache.values().removeIf(entry -> now - entry.expiresAt() >= 0);
+        buckets.values().removeIf(TokenBucket::isFull);
+    }
+
+    // 当前跟踪的用户数和缓存项数，供测试检查内存是否有界
+    int trackedUsers() {
+        return buckets.size();
+    }
+
+    int cachedEntries() {
+        return successCache.size();
+    }
+
+    private CompletableFuture<Outcome> done(Outcome outcome) {
+        return CompletableFuture.completedFuture(count(outcome));
+    }
+
+    private Outcome count(Outcome outcome) {
+        counters.get(outcome).increment();
+        return outcome;
+    }
+
+    /**
+     * 某种结果累计出现的次数
+     */
+    public long countOf(Outcome outcome) {
+        return counters.get(outcome).sum();
+    }
+
+    private byte[] newSalt() {
+        byte[] salt = new byte[16];
+        random.nextBytes(salt);
+        return salt;
+    }
+
+    private byte[] pbkdf2(char[] password, byte[] salt) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("不支持" + ALGORITHM, e);
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    // 缓存键：服务端随机密钥保证即使缓存内容泄露，也无法离线验证口令
+    private String cacheKey(String username, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(cacheSecret);
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(password.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("不支持SHA-256", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * 失败次数令牌桶：容量bucketCapacity，每refillNanos恢复一个令牌
+     */
+    private final class TokenBucket {
+        private double tokens = bucketCapacity;
+        private long lastRefill = clock.getAsLong();
+
+        synchronized boolean tryAcquire() {
+            refill();
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        synchronized void refund() {
+            tokens = Math.min(bucketCapacity, tokens + 1);
+        }
+
+        synchronized boolean isFull() {
+            refill();
+            return tokens >= bucketCapacity;
+        }
+
+        private void refill() {
+            long now = clock.getAsLong();
+            tokens = Math.min(bucketCapacity, tokens + (double) (now - lastRefill) / refillNanos);
+            lastRefill = now;
+        }
+    }
+
+    /**
+     * 校验服务构建器
+     */
+    public static final class Builder {
+        private int iterations = 210_000;
+        private long cacheTtlNanos = TimeUnit.MINUTES.toNanos(1);
+        private int bucketCapacity = 5;
+        private long refillNanos = TimeUnit.SECONDS.toNanos(30);
+        private int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        private int queueCapacity = 256;
+        private int maxEntries = 100_000;
+        private LongSupplier clock = System::nanoTime;
+
+        private Builder() {
+        }
+
+        public Builder iterations(int iterations) {
+            if (iterations < 1) {
+                throw new IllegalArgumentException("迭代次数必须为正数：" + iterations);
+            }
+            this.iterations = iterations;
+            return this;
+        }
+
+        /**
+         * 成功缓存的有效期；0表示不缓存
+         */
+        public Builder cacheTtl(long duration, TimeUnit unit) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("缓存有效期不能为负数：" + duration);
+            }
+            this.cacheTtlNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * 失败限流：最多连续失败capacity次，之后每个refill周期恢复一次机会
+         */
+        public Builder failureBucket(int capacity, long refill, TimeUnit unit) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("令牌桶容量必须为正数：" + capacity);
+            }
+            if (refill <= 0) {
+                // 不恢复的令牌桶永远不会满，清理时也不会被移除
+                throw new IllegalArgumentException("恢复周期必须为正数：" + refill);
+            }
+            this.bucketCapacity = capacity;
+            this.refillNanos = unit.toNanos(refill);
+            return this;
+        }
+
+        public Builder workers(int threads, int queueCapacity) {
+            if (threads < 1 || queueCapacity < 1) {
+                throw new IllegalArgumentException("线程数和队列容量必须为正数：" + threads + ", " + queueCapacity);
+            }
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * 成功缓存和令牌桶各自最多保存的条目数
+         */
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("条目数上限必须为正数：" + maxEntries);
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        Builder clock(LongSupplier clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public CredentialVerifier build() {
+            return new CredentialVerifier(this);
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 登录风暴：clients个客户端并发登录，其中一部分请求是针对admin的口令猜测
+     */
+    public static void benchmark(int clients, int requestsPerClient) throws InterruptedException {
+        System.out.println("=== 登录风暴（" + clients + "个客户端 × " + requestsPerClient + "次，20%为口令猜测） ===");
+
+        for (boolean protectedMode : new boolean[] {false, true}) {
+            Builder builder = builder().iterations(10_000).workers(4, 1024);
+            if (!protectedMode) {
+                // 关闭缓存和限流，每次都执行PBKDF2
+                builder.cacheTtl(0, TimeUnit.NANOSECONDS).failureBucket(Integer.MAX_VALUE, 1, TimeUnit.NANOSECONDS);
+            }
+            try (CredentialVerifier verifier = builder.build()) {
+                for (int i = 0; i < clients; i++) {
+                    verifier.register("user" + i, "secret" + i);
+                }
+                verifier.register("admin", "password");
+
+                List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+                List<Thread> threads = new ArrayList<>();
+                long start = System.nanoTime();
+                for (int c = 0; c < clients; c++) {
+                    int client = c;
+                    threads.add(Thread.ofPlatform().start(() -> {
+                        for (int r = 0; r < requestsPerClient; r++) {
+                            boolean attack = r % 5 == 0;
+                            long begin = System.nanoTime();
+                            verifier.authenticateUser(attack ? "admin" : "user" + client,
+                                attack ? "guess" + r : "secret" + client);
+                            latencies.add(System.nanoTime() - begin);
+                        }
+                    }));
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                long elapsed = System.nanoTime() - start;
+
+                long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+                System.out.printf("%s：%.0f 次/秒，p50 %.2f ms，p99 %.2f ms%n",
+                    protectedMode ? "缓存+限流" : "每次PBKDF2",
+                    sorted.length / (elapsed / 1e9),
+                    sorted[sorted.length / 2] / 1e6,
+                    sorted[(int) (sorted.length * 0.99)] / 1e6);
+                System.out.println("  成功" + verifier.countOf(Outcome.SUCCESS)
+                    + "，缓存命中" + verifier.countOf(Outcome.CACHED)
+                    + "，失败" + verifier.countOf(Outcome.FAILED)
+                    + "，限流" + verifier.countOf(Outcome.THROTTLED)
+                    + "，过载" + verifier.countOf(Outcome.OVERLOADED));
+            }
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("========== 口令校验服务示例 ==========\n");
+
+        try (CredentialVerifier verifier = builder()
+                .failureBucket(3, 30, TimeUnit.SECONDS)
+                .workers(2, 16)
+                .build()) {
+            verifier.register("admin", "password");
+
+            verifier.authenticateUser("admin", "password").ifPresentOrElse(
+                message -> System.out.println("首次登录：" + message),
+                () -> System.out.println("首次登录：认证失败"));
+            System.out.println("再次登录：" + verifier.authenticate("admin", "password").join());
+            for (int i = 0; i < 4; i++) {
+                System.out.println("错误口令第" + (i + 1) + "次：" + verifier.authenticate("admin", "wrong").join());
+            }
+        }
+        System.out.println();
+
+        benchmark(8, 25);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
@@ -0,0 +1,358 @@
+package com.ibsrapp.jdk9.optional;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * 分层配置解析缓存
+ *
+ * 示例3每次查找都执行getConfigFromEnv().or(文件).or(数据库)，
+ * 每个来源每次都要访问一遍，数据库层的延迟直接落在每次读取上。
+ *
+ * LayeredConfigResolver按优先级保存多个配置层，并缓存每个键的解析结果：
+ * 1. 缓存结果记录来源层（provenance），便于排查"这个值是从哪来的"
+ * 2. 按层失效：某一层变化时，只有依赖它的结果失效。
+ *    来自第i层的结果只依赖第0~i层（更高优先级的层可能新增了值），更低的层变化与它无关
+ * 3. 负缓存：所有层都没有的键也会缓存，但只保留一段时间（TTL），避免反复穿透到数据库
+ * 4. 无锁读：命中路径只有一次ConcurrentHashMap.get和一次AtomicLongArray.get，
+ *    返回的Optional在解析时创建并随缓存项保存，命中时不分配对象
+ * 5. 有界：最多缓存maxKeys个键。缓存满时先清理失效和过期的项（每秒最多一次），
+ *    仍然满就只返回结果、不再缓存，查询大量不存在的键不会让缓存无限增长
+ *
+ * 失效通过版本号实现：prefixVersions[i]表示第0~i层的版本，失效第j层时递增所有i >= j的前缀版本。
+ * 缓存项记录解析开始时的前缀版本，读取时版本不一致就重新解析；
+ * invalidateLayer同时删除因此失效的项，释放它们占用的内存。
+ */
+public final class LayeredConfigResolver {
+
+    /**
+     * 解析结果：值和来源层
+     */
+    public record Resolved(String value, String layer) {
+    }
+
+    // layerIndex为-1表示所有层都没有（负缓存），此时两个Optional都为空
+    private record Entry(Optional<String> value, Optional<Resolved> resolved,
+                         int layerIndex, long version, long expiresAt) {
+    }
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final List<String> names;
+    private final List<Function<String, Optional<String>>> sources;
+    private final AtomicLongArray prefixVersions;
+    private final long negativeTtlNanos;
+    private final int maxKeys;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime() - SWEEP_INTERVAL_NANOS);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder resolutions = new LongAdder();
+
+    private LayeredConfigResolver(Builder builder) {
+        this.names = List.copyOf(builder.names);
+        this.sources = List.copyOf(builder.sources);
+        this.prefixVersions = new AtomicLongArray(names.size());
+        this.negativeTtlNanos = builder.negativeTtlNanos;
+        this.maxKeys = builder.maxKeys;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 查找配置值，行为与原来的or()链相同
+     */
+    public Optional<String> get(String key) {
+        return lookup(key).value();
+    }
+
+    /**
+     * 查找配置值并返回来源层
+     */
+    public Optional<Resolved> resolve(String key) {
+        return lookup(key).resolved();
+    }
+
+    private Entry lookup(String key) {
+        Entry entry = cache.get(key);
+        if (entry != null && isValid(entry)) {
+            if (entry.layerIndex() < 0) {
+                negativeHits.increment();
+            } else {
+                hits.increment();
+            }
+            return entry;
+        }
+        entry = load(key);
+        if (cache.size() < maxKeys || cache.containsKey(key) || sweep()) {
+            cache.put(key, entry);
+        }
+        return entry;
+    }
+
+    // 删除失效和过期的项，返回清理后是否还有空位；每个间隔最多由一个线程执行一次
+    private boolean sweep() {
+        long now = System.nanoTime();
+        long last = lastSweep.get();
+        if (now - last >= SWEEP_INTERVAL_NANOS && lastSweep.compareAndSet(last, now)) {
+            cache.values().removeIf(entry -> !isValid(entry));
+        }
+        return cache.size() < maxKeys;
+    }
+
+    private boolean isValid(Entry entry) {
+        if (entry.layerIndex() < 0) {
+            return entry.version() == prefixVersions.get(names.size() - 1)
+                && System.nanoTime() - entry.expiresAt() < 0;
+        }
+        return entry.version() == prefixVersions.get(entry.layerIndex());
+    }
+
+    // 先读版本再访问各层：解析期间发生的失效会让这次结果在下次读取时被判为过期
+    private Entry load(String key) {
+        resolutions.increment();
+        int last = names.size() - 1;
+        long[] versions = new long[names.size()];
+        for (int i = 0; i <= last; i++) {
+            versions[i] = prefixVersions.get(i);
+        }
+        for (int i = 0; i <= last; i++) {
+            Optional<String> value = sources.get(i).apply(key);
+            if (value.isPresent()) {
+                return new Entry(value, Optional.of(new Resolved(value.get(), names.get(i))), i, versions[i], 0);
+            }
+        }
+        return new Entry(Optional.empty(), Optional.empty(), -1, versions[last], System.nanoTime() + negativeTtlNanos);
+    }
+
+    /**
+     * 某一层的数据发生变化：依赖该层的缓存结果全部失效并被删除
+     */
+    public void invalidateLayer(String layer) {
+        int index = names.indexOf(layer);
+        if (index < 0) {
+            throw new IllegalArgumentException("未知的配置层：" + layer);
+        }
+        for (int i = index; i < names.size(); i++) {
+            prefixVersions.incrementAndGet(i);
+        }
+        // 版本号已经保证正确性，这里只是回收内存；与之并发写入的旧结果会在下次读取时被判为失效
+        cache.values().removeIf(entry -> (entry.layerIndex() < 0 || entry.layerIndex() >= index) && !isValid(entry));
+    }
+
+    /**
+     * 使单个键失效
+     */
+    public void invalidateKey(String key) {
+        cache.remove(key);
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), negativeHits.sum(), resolutions.sum(), cache.size());
+    }
+
+    /**
+     * 缓存统计
+     */
+    public record Stats(long hits, long negativeHits, long resolutions, int cachedKeys) {
+    }
+
+    /**
+     * 配置层构建器，先添加的层优先级更高
+     */
+    public static final class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<Function<String, Optional<String>>> sources = new ArrayList<>();
+        private long negativeTtlNanos = TimeUnit.SECONDS.toNanos(30);
+        private int maxKeys = 10_000;
+
+        private Builder() {
+        }
+
+        public Builder layer(String name, Function<String, Optional<String>> source) {
+            if (names.contains(name)) {
+                throw new IllegalArgumentException("配置层重复：" + name);
+            }
+            names.add(name);
+            sources.add(source);
+            return this;
+        }
+
+        public Builder negativeTtl(long duration, TimeUnit unit) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("负缓存TTL不能为负数：" + duration);
+            }
+            this.negativeTtlNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * 最多缓存的键数（包括负缓存）
+         */
+        public Builder maxKeys(int maxKeys) {
+            if (maxKeys < 1) {
+                throw new IllegalArgumentException("缓存键数上限必须为正数：" + maxKeys);
+            }
+            this.maxKeys = maxKeys;
+            return this;
+        }
+
+        public LayeredConfigResolver build() {
+            if (names.isEmpty()) {
+                throw new IllegalStateException("至少需要一个配置层");
+            }
+            return new LayeredConfigResolver(this);
+        }
+    }
+
+    // ---------- 本地桩数据源 ----------
+
+    /**
+     * 模拟数据库：每次查询固定延迟，并统计查询次数
+     */
+    public static final class StubDatabase implements Function<String, Optional<String>> {
+        private final Map<String, String> rows = new ConcurrentHashMap<>();
+        private final long latencyNanos;
+        private final LongAdder queries = new LongAdder();
+
+        public StubDatabase(long latency, TimeUnit unit) {
+            this.latencyNanos = unit.toNanos(latency);
+        }
+
+        public StubDatabase put(String key, String value) {
+            rows.put(key, value);
+            return this;
+        }
+
+        public StubDatabase remove(String key) {
+            rows.remove(key);
+            return this;
+        }
+
+        @Override
+        public Optional<String> apply(String key) {
+            queries.increment();
+            long deadline = System.nanoTime() + latencyNanos;
+            while (System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(deadline - System.nanoTime());
+            }
+            return Optional.ofNullable(rows.get(key));
+        }
+
+        public long queries() {
+            return queries.sum();
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * 每次走or()链 vs 分层缓存
+     */
+    public static void benchmark(int lookups, int keys) {
+        System.out.println("=== 配置查找性能对比（" + lookups + "次查找，" + keys + "个键，数据库延迟50µs） ===");
+
+        Map<String, String> file = new ConcurrentHashMap<>();
+        StubDatabase database = new StubDatabase(50, TimeUnit.MICROSECONDS);
+        for (int i = 0; i < keys; i++) {
+            // 一半在文件中，一半只在数据库中
+            if (i % 2 == 0) {
+                file.put("key" + i, "file" + i);
+            } else {
+                database.put("key" + i, "db" + i);
+            }
+        }
+        Function<String, Optional<String>> env = key -> Optional.empty();
+        Function<String, Optional<String>> fileLayer = key -> Optional.ofNullable(file.get(key));
+        LayeredConfigResolver resolver = builder()
+            .layer("env", env)
+            .layer("file", fileLayer)
+            .layer("database", database)
+            .build();
+
+        String[] keyNames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            keyNames[i] = "key" + i;
+        }
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            int found = 0;
+
+            long queries = database.queries();
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                String key = keyNames[i % keys];
+                if (env.apply(key).or(() -> fileLayer.apply(key)).or(() -> database.apply(key)).isPresent()) {
+                    found++;
+                }
+            }
+            print(report, "or()链", start, database.queries() - queries, lookups);
+
+            queries = database.queries();
+            start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                if (resolver.get(keyNames[i % keys]).isPresent()) {
+                    found++;
+                }
+            }
+            print(report, "LayeredConfigResolver", start, database.queries() - queries, lookups);
+
+            if (report) {
+                System.out.println("缓存统计：" + resolver.stats() + "，找到：" + found);
+            }
+        });
+    }
+
+    private static void print(boolean report, String label, long start, long queries, int lookups) {
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%s：%.0f ns/次，数据库查询%d次%n", label, (double) nanos / lookups, queries);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 分层配置解析缓存示例 ==========\n");
+
+        StubDatabase database = new StubDatabase(1, TimeUnit.MILLISECONDS)
+            .put("app.name", "数据库中的值")
+            .put("app.timeout", "30s");
+        Map<String, String> file = new ConcurrentHashMap<>(Map.of("app.name", "配置文件中的值"));
+        LayeredConfigResolver resolver = builder()
+            .layer("env", key -> OptionalEnhancementExample.getConfigFromEnv())
+            .layer("file", key -> Optional.ofNullable(file.get(key)))
+            .layer("database", database)
+            .build();
+
+        System.out.println("app.name：" + resolver.resolve("app.name").orElse(null));
+        System.out.println("app.timeout：" + resolver.resolve("app.timeout").orElse(null));
+        System.out.println("app.missing：" + resolver.resolve("app.missing").orElse(null));
+        resolver.resolve("app.timeout");
+        System.out.println("数据库查询次数：" + database.queries());
+
+        file.put("app.timeout", "10s");
+        resolver.invalidateLayer("file");
+        System.out.println("文件层变更后app.timeout：" + resolver.resolve("app.timeout").orElse(null));
+        System.out.println("统计：" + resolver.stats() + "\n");
+
+        benchmark(20_000, 100);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
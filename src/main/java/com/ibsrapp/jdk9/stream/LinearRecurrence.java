@@ -0,0 +1,528 @@
+package com.ibsrapp.jdk9.stream;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 线性递推数列
+ *
+ * 示例5用Stream.iterate(new int[]{0, 1}, ..., arr -&gt; new int[]{arr[1], arr[0] + arr[1]})生成斐波那契数列，
+ * 每一步都分配一个新数组，而且想要第n项只能从头迭代。
+ * 序列号、退避时间表等场景里常见的也是这类递推：a(n) = c1·a(n-1) + c2·a(n-2) + ... + ck·a(n-k)。
+ *
+ * LinearRecurrence提供：
+ * 1. 随机访问：get(n)用伴随矩阵的快速幂计算，O(k³·log n)；M^(2^i)按需计算后缓存（记忆化），
+ *    反复随机访问时只剩矩阵-向量乘法
+ * 2. 精确计算：long版本只在结果超出long范围时抛出ArithmeticException——结果能用long表示、
+ *    但中间的矩阵幂溢出时（例如系数为2、初始值为0），改用BigInteger重新计算
+ *    （矩阵幂超过FALLBACK_MAX_BITS位时放弃，仍抛出ArithmeticException）；
+ *    getBig(n)用BigInteger计算任意大的项
+ * 3. 取模：modulo(m)得到模m意义下的数列，适合哈希、序列号等不需要真实值的场景
+ * 4. 无分配迭代：iterator()只维护一个长度为k的环形缓冲区
+ * 5. 并行生成：stream(from, to)的Spliterator按区间对半切分，右半段的起始状态由矩阵快速幂直接算出
+ */
+public final class LinearRecurrence {
+
+    // 状态向量 s(n) = (a(n), a(n+1), ..., a(n+k-1))，s(n+1) = M·s(n)
+    private final long[] coefficients;
+    private final long[] initial;
+    private final long modulus;
+    private final AtomicReferenceArray<long[][]> powers = new AtomicReferenceArray<>(64);
+    private final AtomicReferenceArray<BigInteger[][]> bigPowers = new AtomicReferenceArray<>(64);
+
+    // long版本改用BigInteger重新计算时，矩阵幂元素的位数上限：避免get(10^12)这类必然溢出的调用做天文数字的乘法
+    static final int FALLBACK_MAX_BITS = 1 << 16;
+
+    private LinearRecurrence(long[] coefficients, long[] initial, long modulus) {
+        this.coefficients = coefficients;
+        this.initial = initial;
+        this.modulus = modulus;
+    }
+
+    /**
+     * 创建递推：a(n) = coefficients[0]·a(n-1) + ... + coefficients[k-1]·a(n-k)，初始值为a(0)~a(k-1)
+     */
+    public static LinearRecurrence of(long[] coefficients, long[] initial) {
+        if (coefficients.length == 0) {
+            throw new IllegalArgumentException("至少需要一个系数");
+        }
+        if (coefficients.length != initial.length) {
+            throw new IllegalArgumentException("参数个数不匹配：需要" + coefficients.length
+                + "个初始值，实际" + initial.length + "个");
+        }
+        return new LinearRecurrence(coefficients.clone(), initial.clone(), 0);
+    }
+
+    /**
+     * 斐波那契数列：0, 1, 1, 2, 3, 5, ...
+     */
+    public static LinearRecurrence fibonacci() {
+        return of(new long[] {1, 1}, new long[] {0, 1});
+    }
+
+    /**
+     * 模m意义下的同一数列，m的范围是[2, 2^31]
+     */
+    public LinearRecurrence modulo(long m) {
+        if (m < 2 || m > (1L << 31)) {
+            throw new IllegalArgumentException("模数超出范围[2, 2^31]：" + m);
+        }
+        long[] c = new long[coefficients.length];
+        long[] a = new long[initial.length];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = Math.floorMod(coefficients[i], m);
+            a[i] = Math.floorMod(initial[i], m);
+        }
+        return new LinearRecurrence(c, a, m);
+    }
+
+    public int order() {
+        return coefficients.length;
+    }
+
+    // ---------- 算术 ----------
+
+    private long add(long a, long b) {
+        if (modulus == 0) {
+            return Math.addExact(a, b);
+        }
+        long sum = a + b;
+        return sum >= modulus ? sum - modulus : sum;
+    }
+
+    // 取模时两个操作数都小于2^31，乘积不会溢出
+    private long multiply(long a, long b) {
+        return modulus == 0 ? Math.multiplyExact(a, b) : a * b % modulus;
+    }
+
+    // ---------- 随机访问 ----------
+
+    /**
+     * 第n项（从0开始）
+     */
+    public long get(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("下标不能为负数：" + n);
+        }
+        int k = order();
+        if (n < k) {
+            return initial[(int) n];
+        }
+        // 计算s(n-k+1)而不是s(n)：状态向量的最后一个分量正好是a(n)，不会多算更靠后的项而提前溢出
+        return exactState(n - k + 1)[k - 1];
+    }
+
+    // long快速幂中间结果溢出时改用BigInteger，只对最终结果做范围检查
+    private long[] exactState(long n) {
+        try {
+            return state(n);
+        } catch (ArithmeticException e) {
+            BigInteger[] big = bigState(n, FALLBACK_MAX_BITS);
+            long[] vector = new long[big.length];
+            for (int i = 0; i < big.length; i++) {
+                vector[i] = big[i].longValueExact();
+            }
+            return vector;
+        }
+    }
+
+    // s(n) = M^n · s(0)，按n的二进制位依次乘以缓存的M^(2^i)
+    long[] state(long n) {
+        long[] vector = initial.clone();
+        for (int bit = 0; n != 0; bit++, n >>>= 1) {
+            if ((n & 1) != 0) {
+                vector = multiply(power(bit), vector);
+            }
+        }
+        return vector;
+    }
+
+    private long[][] power(int bit) {
+        long[][] cached = powers.get(bit);
+        if (cached == null) {
+            if (bit == 0) {
+                cached = companion();
+            } else {
+                long[][] half = power(bit - 1);
+                cached = multiply(half, half);
+            }
+            powers.set(bit, cached);
+        }
+        return cached;
+    }
+
+    private long[][] companion() {
+        int k = order();
+        long[][] matrix = new long[k][k];
+        for (int i = 0; i < k - 1; i++) {
+            matrix[i][i + 1] = 1;
+        }
+        for (int j = 0; j < k; j++) {
+            matrix[k - 1][j] = coefficients[k - 1 - j];
+        }
+        return matrix;
+    }
+
+    private long[][] multiply(long[][] a, long[][] b) {
+        int k = a.length;
+        long[][] result = new long[k][k];
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < k; j++) {
+                long sum = 0;
+                for (int m = 0; m < k; m++) {
+                    sum = add(sum, multiply(a[i][m], b[m][j]));
+                }
+                result[i][j] = sum;
+            }
+        }
+        return result;
+    }
+
+    private long[] multiply(long[][] matrix, long[] vector) {
+        int k = vector.length;
+        long[] result = new long[k];
+        for (int i = 0; i < k; i++) {
+            long sum = 0;
+            for (int m = 0; m < k; m++) {
+                sum = add(sum, multiply(matrix[i][m], vector[m]));
+            }
+            result[i] = sum;
+        }
+        return result;
+    }
+
+    /**
+     * 第n项的精确值；取模数列返回取模后的结果
+     */
+    public BigInteger getBig(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("下标不能为负数：" + n);
+        }
+        return bigState(n, Integer.MAX_VALUE)[0];
+    }
+
+    // 矩阵幂中任一元素超过maxBits位时抛出ArithmeticException
+    private BigInteger[] bigState(long n, int maxBits) {
+        int k = order();
+        BigInteger[] vector = new BigInteger[k];
+        for (int i = 0; i < k; i++) {
+            vector[i] = BigInteger.valueOf(initial[i]);
+        }
+        for (int bit = 0; n != 0; bit++, n >>>= 1) {
+            BigInteger[][] power = bigPower(bit);
+            if (maxBits < Integer.MAX_VALUE && bitLength(power) > maxBits) {
+                throw new ArithmeticException("结果超出long范围");
+            }
+            if ((n & 1) != 0) {
+                vector = multiply(power, vector);
+            }
+        }
+        return vector;
+    }
+
+    private static int bitLength(BigInteger[][] matrix) {
+        int bits = 0;
+        for (BigInteger[] row : matrix) {
+            for (BigInteger value : row) {
+                bits = Math.max(bits, value.bitLength());
+            }
+        }
+        return bits;
+    }
+
+    private BigInteger[][] bigPower(int bit) {
+        BigInteger[][] cached = bigPowers.get(bit);
+        if (cached == null) {
+            if (bit == 0) {
+                long[][] companion = companion();
+                int k = order();
+                cached = new BigInteger[k][k];
+                for (int i = 0; i < k; i++) {
+                    for (int j = 0; j < k; j++) {
+                        cached[i][j] = BigInteger.valueOf(companion[i][j]);
+                    }
+                }
+            } else {
+                BigInteger[][] half = bigPower(bit - 1);
+                cached = multiply(half, half);
+            }
+            bigPowers.set(bit, cached);
+        }
+        return cached;
+    }
+
+    private BigInteger[][] multiply(BigInteger[][] a, BigInteger[][] b) {
+        int k = a.length;
+        BigInteger[][] result = new BigInteger[k][k];
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < k; j++) {
+                BigInteger sum = BigInteger.ZERO;
+                for (int m = 0; m < k; m++) {
+                    sum = sum.add(a[i][m].multiply(b[m][j]));
+                }
+                result[i][j] = reduce(sum);
+            }
+        }
+        return result;
+    }
+
+    private BigInteger[] multiply(BigInteger[][] matrix, BigInteger[] vector) {
+        int k = vector.length;
+        BigInteger[] result = new BigInteger[k];
+        for (int i = 0; i < k; i++) {
+            BigInteger sum = BigInteger.ZERO;
+            for (int m = 0; m < k; m++) {
+                sum = sum.add(matrix[i][m].multiply(vector[m]));
+            }
+            result[i] = reduce(sum);
+        }
+        return result;
+    }
+
+    private BigInteger reduce(BigInteger value) {
+        return modulus == 0 ? value : value.mod(BigInteger.valueOf(modulus));
+    }
+
+    // ---------- 顺序生成 ----------
+
+    /**
+     * 从第0项开始的无限迭代器；long溢出时抛出ArithmeticException
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new Cursor(0);
+    }
+
+    /**
+     * 第from项（含）到第to项（不含）组成的流，可并行
+     */
+    public LongStream stream(long from, long to) {
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("区间无效：[" + from + ", " + to + ")");
+        }
+        return StreamSupport.longStream(new RangeSpliterator(from, to), false);
+    }
+
+    /**
+     * 生成游标：ring保存最近k项，ring[m % k] = a(m)，slot = index % k
+     */
+    private final class Cursor implements PrimitiveIterator.OfLong {
+        private final long[] ring;
+        private long index;
+        private int slot;
+
+        Cursor(long start) {
+            int k = order();
+            ring = new long[k];
+            if (start <= k) {
+                // 前k项就是初始值，直接放入环形缓冲区
+                for (int m = 0; m < start; m++) {
+                    ring[m % k] = initial[m];
+                }
+            } else {
+                long[] window = exactState(start - k);
+                for (int i = 0; i < k; i++) {
+                    ring[(int) ((start - k + i) % k)] = window[i];
+                }
+            }
+            index = start;
+            slot = (int) (start % k);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public long nextLong() {
+            int k = ring.length;
+            long value;
+            if (index < k) {
+                value = initial[(int) index];
+            } else {
+                value = 0;
+                int previous = slot;
+                for (int j = 0; j < k; j++) {
+                    // 依次取a(index-1), a(index-2), ...
+                    previous = previous == 0 ? k - 1 : previous - 1;
+                    if (modulus == 0) {
+                        value = Math.addExact(value, Math.multiplyExact(coefficients[j], ring[previous]));
+                    } else {
+                        value = (value + coefficients[j] * ring[previous]) % modulus;
+                    }
+                }
+            }
+            ring[slot] = value;
+            slot = slot + 1 == k ? 0 : slot + 1;
+            index++;
+            return value;
+        }
+    }
+
+    /**
+     * 区间Spliterator：游标在第一次取值时才创建，切分只需要记录区间
+     */
+    private final class RangeSpliterator implements Spliterator.OfLong {
+        private long from;
+        private final long to;
+        private Cursor cursor;
+
+        RangeSpliterator(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (from >= to) {
+                return false;
+            }
+            if (cursor == null) {
+                cursor = new Cursor(from);
+            }
+            from++;
+            action.accept(cursor.nextLong());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            if (from >= to) {
+                return;
+            }
+            if (cursor == null) {
+                cursor = new Cursor(from);
+            }
+            Cursor local = cursor;
+            for (long i = from; i < to; i++) {
+                action.accept(local.nextLong());
+            }
+            from = to;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            // 已经开始迭代的不再切分；区间太小时切分不划算
+            if (cursor != null || to - from < 1024) {
+                return null;
+            }
+            long mid = from + (to - from) / 2;
+            RangeSpliterator prefix = new RangeSpliterator(from, mid);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * Stream.iterate(数组) vs 迭代器 vs 随机访问 vs 并行生成
+     */
+    public static void benchmark(int rounds) {
+        System.out.println("=== 斐波那契生成性能对比 ===");
+
+        LinearRecurrence fib = fibonacci();
+        LinearRecurrence modFib = fib.modulo(1_000_000_007);
+        long[] sink = {0};
+
+        BenchmarkSupport.warmupThenReport(1, report -> {
+            // 前92项是long能表示的全部斐波那契数
+            long bytes = BenchmarkSupport.allocatedBytes();
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                sink[0] += Stream.iterate(new long[] {0, 1}, arr -> new long[] {arr[1], arr[0] + arr[1]})
+                    .limit(92)
+                    .mapToLong(arr -> arr[0])
+                    .sum();
+            }
+            print(report, "Stream.iterate(long[]) 92项", start, bytes, rounds);
+
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                PrimitiveIterator.OfLong iterator = fib.iterator();
+                for (int i = 0; i < 92; i++) {
+                    sink[0] += iterator.nextLong();
+                }
+            }
+            print(report, "iterator() 92项", start, bytes, rounds);
+
+            bytes = BenchmarkSupport.allocatedBytes();
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                sink[0] += fib.get(r % 92);
+            }
+            print(report, "get(n)随机访问", start, bytes, rounds);
+
+            start = System.nanoTime();
+            BigInteger big = fib.getBig(1_000_000);
+            if (report) {
+                System.out.printf("getBig(1000000)：%.1f ms，%d位%n", (System.nanoTime() - start) / 1e6,
+                    big.bitLength());
+            }
+
+            start = System.nanoTime();
+            long sequential = modFib.stream(0, 100_000_000).sum();
+            if (report) {
+                System.out.printf("模1e9+7前1亿项求和（串行）：%.1f ms%n", (System.nanoTime() - start) / 1e6);
+            }
+            start = System.nanoTime();
+            long parallel = modFib.stream(0, 100_000_000).parallel().sum();
+            if (report) {
+                System.out.printf("模1e9+7前1亿项求和（并行）：%.1f ms，结果一致：%s%n",
+                    (System.nanoTime() - start) / 1e6, sequential == parallel);
+                System.out.println("校验值：" + sink[0]);
+            }
+        });
+    }
+
+    private static void print(boolean report, String label, long start, long startBytes, int rounds) {
+        long nanos = System.nanoTime() - start;
+        long bytes = BenchmarkSupport.allocatedBytes() - startBytes;
+        if (report) {
+            System.out.printf("%s：%.1f ns/次，%.1f B/次%n", label, (double) nanos / rounds,
+                startBytes < 0 ? -1 : (double) bytes / rounds);
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) {
+        System.out.println("========== 线性递推数列示例 ==========\n");
+
+        LinearRecurrence fib = fibonacci();
+        System.out.println("斐波那契数列（小于100）：" + Arrays.toString(
+            fib.stream(0, 20).takeWhile(n -> n < 100).toArray()));
+        System.out.println("第92项：" + fib.get(92));
+        System.out.println("第200项（BigInteger）：" + fib.getBig(200));
+
+        // 指数退避：100ms起步，每次翻倍
+        LinearRecurrence backoff = of(new long[] {2}, new long[] {100});
+        System.out.println("退避时间表（ms）：" + Arrays.toString(backoff.stream(0, 6).toArray()));
+        System.out.println();
+
+        benchmark(1_000_000);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
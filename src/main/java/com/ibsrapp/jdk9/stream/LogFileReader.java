@@ -0,0 +1,407 @@
+package com.ibsrapp.jdk9.stream;
+
+import com.ibsrapp.benchmark.BenchmarkSupport;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 流式日志文件读取
+ *
+ * 示例6用List&lt;String&gt;.stream().dropWhile(...)跳过"#"开头的头部注释行。
+ * 真实的日志文件有几十GB，Files.lines会把每一行都解码成String，大部分时间花在解码和分配上。
+ *
+ * LogFileReader直接在字节上工作：
+ * 1. 文件按窗口内存映射（FileChannel.map），按'\n'字节切分行，行尾的'\r'一并去掉
+ * 2. 跳过头部：与dropWhile语义相同，只跳过文件开头连续的注释行
+ * 3. 级别过滤：直接比较行首字节（如"ERROR:"），不匹配的行不会被解码
+ * 4. 并行：把文件按字节数切成若干段，每个切分点向后移动到下一个换行符之后，
+ *    保证每一行完整地属于某一段，各段可以在不同的核上独立扫描
+ *
+ * 回调拿到的LogLine是可复用的视图，只在回调期间有效；需要保存时调用toString()解码。
+ */
+public final class LogFileReader {
+
+    // 单个映射窗口的大小；一行不能超过这个长度
+    private static final long DEFAULT_WINDOW = 256L << 20;
+
+    private final Path path;
+    private final byte[] headerPrefix;
+    private final byte[][] levelPrefixes;
+    private final long window;
+
+    private LogFileReader(Builder builder) {
+        this.path = builder.path;
+        this.headerPrefix = builder.headerPrefix;
+        this.levelPrefixes = builder.levelPrefixes;
+        this.window = builder.window;
+    }
+
+    public static Builder builder(Path path) {
+        return new Builder(path);
+    }
+
+    /**
+     * 日志行视图：指向映射缓冲区中的一段字节，只在回调期间有效
+     */
+    public static final class LogLine {
+        private ByteBuffer buffer;
+        private int start;
+        private int end;
+
+        private void set(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        public int length() {
+            return end - start;
+        }
+
+        public byte byteAt(int index) {
+            return buffer.get(start + index);
+        }
+
+        public boolean startsWith(byte[] prefix) {
+            if (prefix.length > end - start) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (buffer.get(start + i) != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 按UTF-8解码为字符串
+         */
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 顺序扫描，对每个通过过滤的行调用action，返回匹配的行数
+     */
+    public long forEach(Consumer<? super LogLine> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return scan(channel, headerEnd(channel), channel.size(), action);
+        }
+    }
+
+    public long count() throws IOException {
+        return forEach(line -> { });
+    }
+
+    /**
+     * 并行扫描：文件切成parts段，action必须是线程安全的
+     */
+    public long forEachParallel(int parts, Consumer<? super LogLine> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = splits(channel, headerEnd(channel), channel.size(), parts);
+            return IntStream.range(0, parts).parallel().mapToLong(i -> {
+                try {
+                    return scan(channel, bounds[i], bounds[i + 1], action);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        }
+    }
+
+    public long countParallel(int parts) throws IOException {
+        return forEachParallel(parts, line -> { });
+    }
+
+    /**
+     * 计算并行切分点：返回parts + 1个偏移量，除首尾外每个切分点都紧跟在换行符之后
+     */
+    long[] splits(FileChannel channel, long from, long to, int parts) throws IOException {
+        if (parts < 1) {
+            throw new IllegalArgumentException("分段数必须为正数：" + parts);
+        }
+        long[] bounds = new long[parts + 1];
+        bounds[0] = from;
+        bounds[parts] = to;
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        for (int i = 1; i < parts; i++) {
+            long position = Math.max(bounds[i - 1], from + (to - from) * i / parts);
+            bounds[i] = nextLineStart(channel, probe, position, to);
+        }
+        return bounds;
+    }
+
+    // position处于行首时不移动，否则移动到下一个换行符之后
+    private static long nextLineStart(FileChannel channel, ByteBuffer probe, long position, long to)
+            throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+        // 从前一个字节开始找：如果它就是换行符，position本身就是行首
+        long cursor = position - 1;
+        while (cursor < to) {
+            probe.clear();
+            int read = channel.read(probe, cursor);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return Math.min(to, cursor + i + 1);
+                }
+            }
+            cursor += read;
+        }
+        return to;
+    }
+
+    // 头部注释行结束的位置
+    private long headerEnd(FileChannel channel) throws IOException {
+        if (headerPrefix == null) {
+            return 0;
+        }
+        long[] end = {-1};
+        LogLine line = new LogLine();
+        walk(channel, 0, channel.size(), (buffer, base, start, stop) -> {
+            line.set(buffer, start, stop);
+            if (line.startsWith(headerPrefix)) {
+                return true;
+            }
+            end[0] = base + start;
+            return false;
+        });
+        return end[0] < 0 ? channel.size() : end[0];
+    }
+
+    private long scan(FileChannel channel, long from, long to, Consumer<? super LogLine> action)
+            throws IOException {
+        LogLine line = new LogLine();
+        long[] count = {0};
+        walk(channel, from, to, (buffer, base, start, stop) -> {
+            line.set(buffer, start, stop);
+            if (matchesLevel(line)) {
+                count[0]++;
+                action.accept(line);
+            }
+            return true;
+        });
+        return count[0];
+    }
+
+    private boolean matchesLevel(LogLine line) {
+        if (levelPrefixes == null) {
+            return true;
+        }
+        for (byte[] prefix : levelPrefixes) {
+            if (line.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @FunctionalInterface
+    private interface LineSink {
+        /**
+         * 处理[start, stop)这一行，base是缓冲区在文件中的起始偏移；返回false时停止扫描
+         */
+        boolean accept(ByteBuffer buffer, long base, int start, int stop);
+    }
+
+    // 按窗口映射[from, to)并逐行回调；跨窗口的行留到下一个窗口处理
+    private void walk(FileChannel channel, long from, long to, LineSink sink) throws IOException {
+        long position = from;
+        while (position < to) {
+            long length = Math.min(window, to - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int limit = (int) length;
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    if (!sink.accept(buffer, position, lineStart, trimCarriageReturn(buffer, lineStart, i))) {
+                        return;
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            if (position + length == to) {
+                // 最后一行没有换行符
+                if (lineStart < limit) {
+                    sink.accept(buffer, position, lineStart, trimCarriageReturn(buffer, lineStart, limit));
+                }
+                return;
+            }
+            if (lineStart == 0) {
+                throw new IllegalStateException("单行长度超过映射窗口：" + window + "字节");
+            }
+            position += lineStart;
+        }
+    }
+
+    private static int trimCarriageReturn(ByteBuffer buffer, int start, int stop) {
+        return stop > start && buffer.get(stop - 1) == '\r' ? stop - 1 : stop;
+    }
+
+    /**
+     * 日志读取器构建器
+     */
+    public static final class Builder {
+        private final Path path;
+        private byte[] headerPrefix;
+        private byte[][] levelPrefixes;
+        private long window = DEFAULT_WINDOW;
+
+        private Builder(Path path) {
+            this.path = path;
+        }
+
+        /**
+         * 跳过文件开头以prefix开头的连续行，相当于dropWhile(line -&gt; line.startsWith(prefix))
+         */
+        public Builder skipHeader(String prefix) {
+            this.headerPrefix = prefix.getBytes(StandardCharsets.UTF_8);
+            return this;
+        }
+
+        /**
+         * 只保留"级别:"开头的行，例如levels("INFO", "ERROR")
+         */
+        public Builder levels(String... levels) {
+            if (levels.length == 0) {
+                throw new IllegalArgumentException("至少需要一个日志级别");
+            }
+            this.levelPrefixes = new byte[levels.length][];
+            for (int i = 0; i < levels.length; i++) {
+                levelPrefixes[i] = (levels[i] + ":").getBytes(StandardCharsets.UTF_8);
+            }
+            return this;
+        }
+
+        Builder window(long window) {
+            this.window = window;
+            return this;
+        }
+
+        public LogFileReader build() {
+            return new LogFileReader(this);
+        }
+    }
+
+    // ---------- 基准测试 ----------
+
+    /**
+     * Files.lines vs 字节级顺序扫描 vs 并行扫描，统计ERROR行数
+     */
+    public static void benchmark(int megabytes) throws IOException {
+        Path file = Files.createTempFile("log-reader", ".log");
+        try {
+            writeSampleLog(file, (long) megabytes << 20);
+            double gigabytes = Files.size(file) / 1e9;
+            int cores = Runtime.getRuntime().availableProcessors();
+            System.out.printf("=== 日志扫描对比（%.2f GB，%d核） ===%n", gigabytes, cores);
+
+            LogFileReader reader = builder(file).skipHeader("#").levels("ERROR").build();
+            BenchmarkSupport.warmupThenReport(1, report -> {
+                try {
+                    scanRound(report, file, reader, gigabytes, cores);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void scanRound(boolean report, Path file, LogFileReader reader, double gigabytes, int cores)
+            throws IOException {
+        long start = System.nanoTime();
+        long count;
+        try (Stream<String> lines = Files.lines(file)) {
+            count = lines.dropWhile(line -> line.startsWith("#"))
+                .filter(line -> line.startsWith("ERROR:"))
+                .count();
+        }
+        print(report, "Files.lines", start, gigabytes, count);
+
+        start = System.nanoTime();
+        print(report, "LogFileReader", start, gigabytes, reader.count());
+
+        start = System.nanoTime();
+        print(report, "LogFileReader并行", start, gigabytes, reader.countParallel(cores));
+    }
+
+    private static void print(boolean report, String label, long start, double gigabytes, long count) {
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%s：%.2f GB/s（ERROR %d行）%n", label, gigabytes / (nanos / 1e9), count);
+        }
+    }
+
+    static void writeSampleLog(Path file, long bytes) throws IOException {
+        Random random = new Random(42);
+        String[] messages = {"INFO: 处理请求 /api/orders 耗时%dms", "INFO: 用户%d登录",
+            "ERROR: 数据库连接超时，重试%d次", "WARN: 缓存命中率下降到%d%%", "DEBUG: 线程池活跃线程%d"};
+        // 按编码后的UTF-8字节计数，中文字符占3个字节
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            byte[] header = "# 日志开始\n# 时间戳：2024-01-01\n".getBytes(StandardCharsets.UTF_8);
+            out.write(header);
+            long written = header.length;
+            while (written < bytes) {
+                String line = String.format(messages[random.nextInt(messages.length)], random.nextInt(1000)) + "\n";
+                byte[] encoded = line.getBytes(StandardCharsets.UTF_8);
+                out.write(encoded);
+                written += encoded.length;
+            }
+        }
+    }
+
+    /**
+     * 主方法：演示与基准测试
+     */
+    public static void main(String[] args) throws IOException {
+        System.out.println("========== 流式日志读取示例 ==========\n");
+
+        Path file = Files.createTempFile("log-reader", ".log");
+        try {
+            Files.writeString(file, "# 日志开始\n# 时间戳：2024-01-01\nINFO: 应用启动\nINFO: 加载配置\r\n"
+                + "ERROR: 配置错误\n# 这不是头部\nINFO: 应用关闭");
+            LogFileReader reader = builder(file).skipHeader("#").build();
+            reader.forEach(line -> System.out.println("日志：" + line));
+
+            LogFileReader errors = builder(file).skipHeader("#").levels("ERROR").build();
+            System.out.println("ERROR行数：" + errors.count());
+
+            LongAdder infos = new LongAdder();
+            builder(file).levels("INFO").build().forEachParallel(3, line -> infos.increment());
+            System.out.println("INFO行数（并行）：" + infos.sum());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println();
+
+        benchmark(256);
+
+        System.out.println("\n========== 示例运行完成 ==========");
+    }
+}
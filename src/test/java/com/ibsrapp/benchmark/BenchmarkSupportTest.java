@@ -0,0 +1,38 @@
+package com.ibsrapp.benchmark;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试工具单元测试
+ */
+public class BenchmarkSupportTest {
+
+    @Test
+    public void testWarmupThenReport() {
+        List<Boolean> rounds = new ArrayList<>();
+        BenchmarkSupport.warmupThenReport(2, rounds::add);
+        assertEquals(List.of(false, false, true), rounds);
+
+        rounds.clear();
+        BenchmarkSupport.warmupThenReport(0, rounds::add);
+        assertEquals(List.of(true), rounds);
+        assertThrows(IllegalArgumentException.class, () -> BenchmarkSupport.warmupThenReport(-1, report -> { }));
+    }
+
+    @Test
+    public void testAllocatedBytes() {
+        long before = BenchmarkSupport.allocatedBytes();
+        byte[] block = new byte[1 << 20];
+        long after = BenchmarkSupport.allocatedBytes();
+        if (before >= 0) {
+            assertTrue(after - before >= block.length, () -> (after - before) + " < " + block.length);
+        } else {
+            assertEquals(-1, after);
+        }
+        assertTrue(BenchmarkSupport.usedHeap() > 0);
+    }
+}
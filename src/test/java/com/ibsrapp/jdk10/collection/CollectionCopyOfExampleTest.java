@@ -75,5 +75,27 @@ public class CollectionCopyOfExampleTest {
             Map.copyOf(mapWithNull);
         });
     }
-}
 
+    @Test
+    public void testConfigurationSnapshots() {
+        Map<String, String> original = new HashMap<>();
+        original.put("host", "localhost");
+        original.put("port", "8080");
+        
+        CollectionCopyOfExample.Configuration config = new CollectionCopyOfExample.Configuration(original);
+        original.put("host", "changed");
+        
+        Map<String, String> snapshot = config.getConfig();
+        assertSame(snapshot, config.getConfig());
+        assertEquals("localhost", snapshot.get("host"));
+        assertThrows(UnsupportedOperationException.class, () -> {
+            snapshot.put("host", "hacked");
+        });
+        
+        // 更新产生新快照，旧快照不变
+        config.set("port", "9090");
+        config.remove("host");
+        assertEquals(Map.of("port", "9090"), config.getConfig());
+        assertEquals(Map.of("host", "localhost", "port", "8080"), snapshot);
+    }
+}
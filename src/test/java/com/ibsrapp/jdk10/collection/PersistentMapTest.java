@@ -0,0 +1,96 @@
+package com.ibsrapp.jdk10.collection;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 持久化不可变映射单元测试
+ */
+public class PersistentMapTest {
+
+    /**
+     * 哈希值可控的键，用于制造冲突
+     */
+    private record Key(int hash, String name) {
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Test
+    public void testWithAndWithout() {
+        PersistentMap<String, Integer> empty = PersistentMap.empty();
+        PersistentMap<String, Integer> one = empty.with("apple", 1);
+        PersistentMap<String, Integer> two = one.with("banana", 2);
+
+        assertTrue(empty.isEmpty());
+        assertEquals(Map.of("apple", 1), one);
+        assertEquals(Map.of("apple", 1, "banana", 2), two);
+        assertEquals(Map.of("banana", 2), two.without("apple"));
+        assertSame(two, two.with("apple", 1));
+        assertSame(two, two.without("cherry"));
+        assertSame(two, two.without(null));
+        assertNull(two.get("cherry"));
+        assertFalse(two.containsKey(null));
+        assertThrows(NullPointerException.class, () -> one.with("cherry", null));
+        assertThrows(UnsupportedOperationException.class, () -> two.put("cherry", 3));
+    }
+
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        Random random = new Random(11);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 200_000; i++) {
+            // 键的范围较小，保证删除和覆盖都经常发生
+            int key = random.nextInt(20_000) * (random.nextBoolean() ? 1 : -65_537);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.without(key);
+            } else {
+                expected.put(key, i);
+                map = map.with(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(map.size(), map.entrySet().stream().count());
+    }
+
+    @Test
+    public void testHashCollisions() {
+        Key a = new Key(42, "a");
+        Key b = new Key(42, "b");
+        Key c = new Key(42, "c");
+        PersistentMap<Key, String> map = PersistentMap.<Key, String>empty().with(a, "A").with(b, "B").with(c, "C");
+
+        assertEquals(3, map.size());
+        assertEquals("B", map.get(b));
+        assertNull(map.get(new Key(42, "d")));
+        assertEquals(Map.of(a, "A", c, "C"), map.without(b));
+        assertEquals(Map.of(c, "C2"), map.without(a).without(b).with(c, "C2"));
+        assertTrue(map.without(a).without(b).without(c).isEmpty());
+    }
+
+    @Test
+    public void testStructuralSharingKeepsOldVersions() {
+        Map<String, String> source = new HashMap<>();
+        for (int i = 0; i < 1_000; i++) {
+            source.put("key-" + i, "value-" + i);
+        }
+        PersistentMap<String, String> before = PersistentMap.copyOf(source);
+        PersistentMap<String, String> after = before.with("key-7", "changed").without("key-8");
+
+        assertSame(before, PersistentMap.copyOf(before));
+        assertEquals(source, before);
+        assertEquals("changed", after.get("key-7"));
+        assertEquals(999, after.size());
+        assertEquals("value-7", before.get("key-7"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.ibsrapp.jdk11.string;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 行切分器单元测试
+ */
+public class LineTokenizerTest {
+
+    private static List<String> expected(String text) {
+        return text.lines().map(String::strip).filter(line -> !line.isBlank()).toList();
+    }
+
+    private static List<String> collect(LineTokenizer lines) {
+        List<String> result = new ArrayList<>();
+        while (lines.next()) {
+            result.add(lines.toString());
+        }
+        return result;
+    }
+
+    @Test
+    public void testMatchesLinesStripFilter() {
+        String[] samples = {
+            "  第一行  \n  第二行  \n  第三行  ",
+            "",
+            "\n\n\r\n",
+            "a\rb\r\nc\n",
+            "\r\n  x  \r",
+            "  全角空白　 \n 不间断空格 \n",
+            "single"
+        };
+        for (String sample : samples) {
+            assertEquals(expected(sample), collect(LineTokenizer.of(sample)), sample);
+            assertEquals(String.join("|", expected(sample)), LineTokenizer.joinNonBlank(sample, "|"), sample);
+        }
+    }
+
+    @Test
+    public void testOffsetsAndView() {
+        String text = "  hello  \n\t\n world";
+        LineTokenizer lines = LineTokenizer.of(new StringBuilder(text));
+
+        assertTrue(lines.next());
+        assertEquals(2, lines.start());
+        assertEquals(7, lines.end());
+        assertEquals(5, lines.length());
+        assertEquals('e', lines.charAt(1));
+        assertEquals("ell", lines.subSequence(1, 4).toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.charAt(5));
+
+        assertTrue(lines.next());
+        assertEquals("world", text.substring(lines.start(), lines.end()));
+        assertTrue("world".contentEquals(lines));
+        assertFalse(lines.next());
+        assertFalse(lines.next());
+    }
+
+    @Test
+    public void testLatin1MatchesCharSequence() {
+        byte[] bytes = LineTokenizer.sampleText(100_000);
+        String text = new String(bytes, StandardCharsets.ISO_8859_1);
+
+        assertEquals(expected(text), collect(LineTokenizer.latin1(bytes)));
+        assertEquals(expected(text).size(), LineTokenizer.of(text).count());
+
+        // 子区间
+        byte[] framed = "xx\n  ab  \n\r\ncd\nyy".getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(List.of("ab", "cd"), collect(LineTokenizer.latin1(framed, 3, 15)));
+        StringBuilder builder = new StringBuilder();
+        LineTokenizer lines = LineTokenizer.latin1("é  \n".getBytes(StandardCharsets.ISO_8859_1));
+        assertTrue(lines.next());
+        lines.appendTo(builder);
+        assertEquals("é", builder.toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> LineTokenizer.latin1(framed, 5, 100));
+    }
+
+    @Test
+    public void testJoinMatchesExample5() {
+        String multiLineText = "  第一行  \n  第二行  \n  第三行  ";
+        String processed = multiLineText.lines()
+            .map(String::strip)
+            .filter(line -> !line.isBlank())
+            .collect(Collectors.joining("\n"));
+        assertEquals(processed, LineTokenizer.joinNonBlank(multiLineText, "\n"));
+    }
+}
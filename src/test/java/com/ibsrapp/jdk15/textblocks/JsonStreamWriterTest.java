@@ -0,0 +1,161 @@
+package com.ibsrapp.jdk15.textblocks;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 流式JSON生成器单元测试
+ */
+public class JsonStreamWriterTest {
+
+    record Address(String city, String zipCode) {}
+
+    record Employee(String name, int age, Address address, List<String> skills) {}
+
+    record Measurement(byte b, short s, long l, float f, double d, boolean ok, Integer boxed) {}
+
+    enum Status { ACTIVE, DISABLED }
+
+    record Tagged(char grade, Character initial, Status status, float ratio, Float boxedRatio) {}
+
+    record Series(long[] ids, double[] values, boolean[] flags, float[] weights) {}
+
+    @Test
+    public void testWriteNestedRecord() {
+        JsonStreamWriter writer = new JsonStreamWriter();
+        writer.writeRecord(new Employee("Bob", 30, new Address("Beijing", null), List.of("java", "sql")));
+
+        assertEquals("{\"name\":\"Bob\",\"age\":30,\"address\":{\"city\":\"Beijing\",\"zipCode\":null},"
+            + "\"skills\":[\"java\",\"sql\"]}", writer.toString());
+    }
+
+    @Test
+    public void testEscapingAndUtf8() {
+        JsonStreamWriter writer = new JsonStreamWriter(16);
+        writer.beginArray()
+            .value("a\"b\\c\n\t\u0001")
+            .value("手机😀")
+            .endArray();
+
+        String expected = "[\"a\\\"b\\\\c\\n\\t\\u0001\",\"手机😀\"]";
+        assertEquals(expected, writer.toString());
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), writer.toByteArray());
+    }
+
+    @Test
+    public void testNumbersAndBooleans() {
+        JsonStreamWriter writer = new JsonStreamWriter();
+        writer.beginObject()
+            .name("min").value(Long.MIN_VALUE)
+            .name("neg").value(-42)
+            .name("price").value(999.99)
+            .name("whole").value(2.0)
+            .name("ok").value(true)
+            .endObject();
+
+        assertEquals("{\"min\":-9223372036854775808,\"neg\":-42,\"price\":999.99,\"whole\":2.0,\"ok\":true}",
+            writer.toString());
+        assertThrows(IllegalArgumentException.class, () -> writer.value(Double.NaN));
+    }
+
+    @Test
+    public void testDoubleMatchesDoubleToString() {
+        double[] values = {0.0, -0.0, 1.0, -3.0, 9_999_999.0, 1e7, -1e7, 12_345_678.0, 1e15, 0.001, 1e-4, 999.99};
+        for (double value : values) {
+            JsonStreamWriter writer = new JsonStreamWriter();
+            writer.value(value);
+            assertEquals(Double.toString(value), writer.toString());
+        }
+    }
+
+    @Test
+    public void testPrimitiveRecordComponents() {
+        JsonStreamWriter writer = new JsonStreamWriter();
+        writer.writeRecord(new Measurement((byte) -1, (short) 300, 1L << 40, 1.5f, -0.0, true, null));
+
+        assertEquals("{\"b\":-1,\"s\":300,\"l\":1099511627776,\"f\":1.5,\"d\":-0.0,\"ok\":true,\"boxed\":null}",
+            writer.toString());
+    }
+
+    @Test
+    public void testFloatIsNotWidenedToDouble() {
+        JsonStreamWriter writer = new JsonStreamWriter();
+        writer.writeRecord(new Measurement((byte) 0, (short) 0, 0L, 0.1f, 0.1, false, null));
+        assertEquals("{\"b\":0,\"s\":0,\"l\":0,\"f\":0.1,\"d\":0.1,\"ok\":false,\"boxed\":null}",
+            writer.toString());
+
+        writer.reset().beginArray().value(0.1f).value((Object) 0.1f).value(3.0f).endArray();
+        assertEquals("[0.1,0.1,3.0]", writer.toString());
+        assertThrows(IllegalArgumentException.class, () -> new JsonStreamWriter().value(Float.NaN));
+    }
+
+    @Test
+    public void testCharAndEnumValues() {
+        JsonStreamWriter writer = new JsonStreamWriter();
+        writer.writeRecord(new Tagged('"', '张', Status.DISABLED, 0.3f, 0.7f));
+        assertEquals("{\"grade\":\"\\\"\",\"initial\":\"张\",\"status\":\"DISABLED\","
+            + "\"ratio\":0.3,\"boxedRatio\":0.7}", writer.toString());
+
+        writer.reset().value(List.of(Status.ACTIVE, 'x'));
+        assertEquals("[\"ACTIVE\",\"x\"]", writer.toString());
+    }
+
+    @Test
+    public void testPrimitiveArrays() {
+        JsonStreamWriter writer = new JsonStreamWriter();
+        writer.writeRecord(new Series(new long[] {1L << 40, -1}, new double[] {0.5, 2.0},
+            new boolean[] {true, false}, new float[] {0.1f}));
+        assertEquals("{\"ids\":[1099511627776,-1],\"values\":[0.5,2.0],\"flags\":[true,false],"
+            + "\"weights\":[0.1]}", writer.toString());
+
+        writer.reset().value((Object) new long[0]);
+        assertEquals("[]", writer.toString());
+    }
+
+    @Test
+    public void testResetReusesBuffer() {
+        JsonStreamWriter writer = new JsonStreamWriter();
+        writer.writeRecord(new Address("Shanghai", "200000"));
+        writer.reset().writeRecord(new Address("Beijing", "100000"));
+
+        ByteBuffer view = writer.toByteBuffer();
+        assertEquals(writer.size(), view.remaining());
+        assertEquals("{\"city\":\"Beijing\",\"zipCode\":\"100000\"}", writer.toString());
+    }
+
+    @Test
+    public void testPrecomputedName() {
+        byte[] name = JsonStreamWriter.encodeName("city");
+        JsonStreamWriter writer = new JsonStreamWriter();
+        writer.beginObject().name(name).value("Beijing").endObject();
+
+        assertEquals("{\"city\":\"Beijing\"}", writer.toString());
+    }
+
+    @Test
+    public void testInvalidStructure() {
+        assertThrows(IllegalStateException.class, () -> new JsonStreamWriter().name("x"));
+        assertThrows(IllegalStateException.class, () -> new JsonStreamWriter().endObject());
+        assertThrows(IllegalArgumentException.class, () -> new JsonStreamWriter().value(new Object()));
+    }
+
+    @Test
+    public void testMismatchedContainers() {
+        assertThrows(IllegalStateException.class, () -> new JsonStreamWriter().beginArray().name("x"));
+        assertThrows(IllegalStateException.class, () -> new JsonStreamWriter().beginArray().endObject());
+        assertThrows(IllegalStateException.class, () -> new JsonStreamWriter().beginObject().endArray());
+        assertThrows(IllegalStateException.class, () -> new JsonStreamWriter().beginObject().value("x"));
+        assertThrows(IllegalStateException.class,
+            () -> new JsonStreamWriter().beginObject().name("a").beginArray().name("b"));
+        assertThrows(IllegalStateException.class,
+            () -> new JsonStreamWriter().beginArray().beginObject().endArray());
+
+        JsonStreamWriter writer = new JsonStreamWriter();
+        writer.beginArray().beginObject().name("a").beginArray().value(1).endArray().endObject().endArray();
+        assertEquals("[{\"a\":[1]}]", writer.toString());
+    }
+}
@@ -0,0 +1,123 @@
+package com.ibsrapp.jdk15.textblocks;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQL模板参数绑定单元测试
+ */
+public class SqlTemplateTest {
+
+    private static final String USERS_SQL = """
+        SELECT id, name FROM {table}
+        WHERE status = :status AND note <> ':not_a_param' AND created::date > :since
+        """;
+
+    @Test
+    public void testSeparatesIdentifiersAndParameters() {
+        SqlTemplate template = SqlTemplate.compile(USERS_SQL);
+
+        assertEquals(List.of("table"), template.identifierNames());
+        assertEquals(List.of("status", "since"), template.parameterNames());
+        assertEquals("""
+            SELECT id, name FROM users
+            WHERE status = ? AND note <> ':not_a_param' AND created::date > ?
+            """, template.statement("users").sql());
+    }
+
+    @Test
+    public void testBindByPositionAndName() {
+        SqlTemplate.CompiledStatement statement = SqlTemplate.compile(USERS_SQL).statement("users");
+
+        SqlTemplate.BoundStatement byPosition = statement.bind("ACTIVE", "2024-01-01");
+        SqlTemplate.BoundStatement byName = statement.bind(Map.of("status", "ACTIVE", "since", "2024-01-01"));
+
+        assertEquals(byPosition, byName);
+        assertEquals("ACTIVE", byPosition.parameter(1));
+        assertThrows(IllegalArgumentException.class, () -> statement.bind("ACTIVE"));
+        assertThrows(IllegalArgumentException.class, () -> statement.bind(Map.of("status", "ACTIVE")));
+    }
+
+    @Test
+    public void testRejectsInjectedIdentifiers() {
+        SqlTemplate template = SqlTemplate.compile(USERS_SQL);
+
+        assertThrows(IllegalArgumentException.class, () -> template.statement("users; DROP TABLE users"));
+        assertThrows(IllegalArgumentException.class, () -> template.statement("users", "extra"));
+        assertEquals("SELECT id, name FROM app.users",
+            SqlTemplate.compile("SELECT id, name FROM {t}").statement("app.users").sql());
+    }
+
+    @Test
+    public void testRepeatedCallsReuseStatementText() {
+        SqlTemplate.StubConnection connection = new SqlTemplate.StubConnection();
+        for (int i = 0; i < 1_000; i++) {
+            connection.execute(SqlTemplate.compile(USERS_SQL).statement("users").bind("ACTIVE", i));
+        }
+        connection.execute(SqlTemplate.compile(USERS_SQL).statement("orders").bind("ACTIVE", 0));
+
+        assertSame(SqlTemplate.compile(USERS_SQL), SqlTemplate.compile(USERS_SQL));
+        assertEquals(1_001, connection.executeCount());
+        assertEquals(2, connection.textInstanceCount());
+        assertEquals(2, connection.prepareCount());
+    }
+
+    @Test
+    public void testCommentsAndQuotedIdentifiersAreLiteral() {
+        SqlTemplate template = SqlTemplate.compile("""
+            SELECT "user's name", "a""b" -- don't bind :skipped or {skipped}
+            FROM {table} /* it's a comment: {x} :y */
+            WHERE id = :id AND ratio = 10/2 - 1
+            """);
+
+        assertEquals(List.of("table"), template.identifierNames());
+        assertEquals(List.of("id"), template.parameterNames());
+        assertEquals("""
+            SELECT "user's name", "a""b" -- don't bind :skipped or {skipped}
+            FROM users /* it's a comment: {x} :y */
+            WHERE id = ? AND ratio = 10/2 - 1
+            """, template.statement("users").sql());
+
+        assertEquals("SELECT 1 -- trailing", SqlTemplate.compile("SELECT 1 -- trailing").statement().sql());
+        assertThrows(IllegalArgumentException.class, () -> SqlTemplate.compile("SELECT /* open"));
+        assertThrows(IllegalArgumentException.class, () -> SqlTemplate.compile("SELECT \"open"));
+    }
+
+    @Test
+    public void testBoundParametersAreCopied() {
+        Object[] values = {"ACTIVE", "2024-01-01"};
+        SqlTemplate.BoundStatement bound = SqlTemplate.compile(USERS_SQL).statement("users").bind(values);
+        values[0] = "CHANGED";
+        bound.parameters()[1] = "CHANGED";
+
+        assertEquals("ACTIVE", bound.parameter(1));
+        assertEquals("2024-01-01", bound.parameter(2));
+        assertArrayEquals(new Object[] {"ACTIVE", "2024-01-01"}, bound.parameters());
+    }
+
+    @Test
+    public void testCachesAreBounded() {
+        SqlTemplate template = SqlTemplate.compile("SELECT * FROM {table}");
+        for (int i = 0; i < SqlTemplate.MAX_STATEMENTS + 10; i++) {
+            assertEquals("SELECT * FROM t" + i, template.statement("t" + i).sql());
+        }
+        assertEquals(SqlTemplate.MAX_STATEMENTS, template.cachedStatements());
+        // 已缓存的组合仍返回同一个实例，未缓存的组合照常生成
+        assertSame(template.statement("t0"), template.statement("t0"));
+        assertEquals("SELECT * FROM extra", template.statement("extra").sql());
+
+        try {
+            for (int i = 0; i < SqlTemplate.MAX_CACHED_TEMPLATES + 10; i++) {
+                SqlTemplate.compile("SELECT " + i);
+            }
+            assertTrue(SqlTemplate.cachedTemplates() <= SqlTemplate.MAX_CACHED_TEMPLATES);
+            assertEquals("SELECT ?", SqlTemplate.compile("SELECT :uncached").statement().sql());
+        } finally {
+            // 缓存是全局的，不影响其他测试
+            SqlTemplate.clearCache();
+        }
+    }
+}
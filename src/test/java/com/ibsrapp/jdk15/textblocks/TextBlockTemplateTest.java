@@ -0,0 +1,93 @@
+package com.ibsrapp.jdk15.textblocks;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Text Blocks预编译模板单元测试
+ */
+public class TextBlockTemplateTest {
+
+    @Test
+    public void testRenderMatchesFormatted() {
+        TextBlockTemplate template = TextBlockTemplate.compile("""
+            Hello, {name}!
+            You are {age} years old.
+            """);
+        String expected = """
+            Hello, %s!
+            You are %d years old.
+            """.formatted("Alice", 25);
+
+        assertEquals(List.of("name", "age"), template.parameterNames());
+        assertEquals(expected, template.render("Alice", 25));
+        assertEquals(expected, template.render(Map.of("name", "Alice", "age", 25)));
+    }
+
+    @Test
+    public void testCompileIsCached() {
+        String text = "<p>{content}</p>";
+        assertSame(TextBlockTemplate.compile(text), TextBlockTemplate.compile(text));
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        try {
+            for (int i = 0; i < TextBlockTemplate.MAX_CACHED_TEMPLATES + 100; i++) {
+                assertEquals("row " + i + ": x", TextBlockTemplate.compile("row " + i + ": {v}").render("x"));
+            }
+            assertTrue(TextBlockTemplate.cachedTemplates() <= TextBlockTemplate.MAX_CACHED_TEMPLATES);
+
+            // 缓存满了之后，新模板照常编译，只是每次得到新的实例
+            String text = "uncached {v}";
+            assertEquals("uncached 1", TextBlockTemplate.compile(text).render(1));
+            assertNotSame(TextBlockTemplate.compile(text), TextBlockTemplate.compile(text));
+        } finally {
+            // 缓存是全局的，不影响其他测试
+            TextBlockTemplate.clearCache();
+        }
+    }
+
+    @Test
+    public void testRepeatedPlaceholderAndEscapedBraces() {
+        TextBlockTemplate template = TextBlockTemplate.compile("{{\"title\": \"{t}\", \"again\": \"{t}\"}}");
+
+        assertEquals(List.of("t"), template.parameterNames());
+        assertEquals("{\"title\": \"x\", \"again\": \"x\"}", template.render("x"));
+    }
+
+    @Test
+    public void testRenderToWriter() throws Exception {
+        StringWriter writer = new StringWriter();
+        TextBlockTemplate.compile("<h1>{title}</h1>").renderTo(writer, "欢迎");
+
+        assertEquals("<h1>欢迎</h1>", writer.toString());
+    }
+
+    @Test
+    public void testRenderToByteBufferUtf8() {
+        TextBlockTemplate template = TextBlockTemplate.compile("{a}|{b}|{c}|{d}");
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        template.renderTo(buffer, "欢迎😀", -1234L, 0, Boolean.TRUE);
+
+        String rendered = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        assertEquals("欢迎😀|-1234|0|true", rendered);
+    }
+
+    @Test
+    public void testInvalidTemplatesAndArity() {
+        assertThrows(IllegalArgumentException.class, () -> TextBlockTemplate.compile("{name"));
+        assertThrows(IllegalArgumentException.class, () -> TextBlockTemplate.compile("a } b"));
+        assertThrows(IllegalArgumentException.class, () -> TextBlockTemplate.compile("{}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> TextBlockTemplate.compile("{a}{b}").render("only one"));
+        assertThrows(IllegalArgumentException.class,
+            () -> TextBlockTemplate.compile("{a}").render(Map.of("b", 1)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.ibsrapp.jdk22.stringtemplates;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译字符串插值单元测试
+ */
+public class InterpolationTemplateTest {
+
+    @Test
+    public void testRenderMatchesConcatenation() {
+        String name = "Alice";
+        int age = 25;
+        InterpolationTemplate template = InterpolationTemplate.compile("Hello, {name}! You are {age} years old.");
+
+        assertEquals(List.of("name", "age"), template.parameterNames());
+        assertEquals("Hello, " + name + "! You are " + age + " years old.", template.render(name, age));
+        assertEquals("Hello, Bob! You are 30 years old.", template.render(Map.of("name", "Bob", "age", 30)));
+    }
+
+    @Test
+    public void testRepeatedPlaceholdersAndNull() {
+        InterpolationTemplate template = InterpolationTemplate.compile("{a}-{b}-{a}");
+
+        assertEquals(List.of("a", "b"), template.parameterNames());
+        assertEquals("x-null-x", template.render("x", null));
+    }
+
+    @Test
+    public void testEscapedBracesAndTagCharacters() {
+        InterpolationTemplate template = InterpolationTemplate.compile("{{\u0001{v}\u0002}}");
+
+        assertEquals("{\u00017\u0002}", template.render(7));
+    }
+
+    @Test
+    public void testTemplateWithoutPlaceholders() {
+        assertEquals("plain", InterpolationTemplate.compile("plain").render());
+        assertEquals("", InterpolationTemplate.compile("").render());
+    }
+
+    @Test
+    public void testTypedHandle() throws Throwable {
+        InterpolationTemplate template = InterpolationTemplate.compile("{a}+{n}={a}{d}");
+        MethodHandle handle = template.handle(String.class, int.class, double.class);
+
+        assertEquals("x+" + 5 + "=x" + 1.5, (String) handle.invokeExact("x", 5, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> template.handle(String.class));
+    }
+
+    @Test
+    public void testSlotLimitCountsOnlyArguments() {
+        // 常量不占参数槽：200个占位符加上大量字面量仍然可以编译
+        StringBuilder fits = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            fits.append("text").append(i).append("{p}");
+        }
+        assertEquals(1, InterpolationTemplate.compile(fits.toString()).parameterNames().size());
+        assertThrows(IllegalArgumentException.class,
+            () -> InterpolationTemplate.compile(fits.toString()).handle(long.class));
+        assertThrows(IllegalArgumentException.class,
+            () -> InterpolationTemplate.compile(fits + "{p}"));
+    }
+
+    @Test
+    public void testCompileIsCached() {
+        assertSame(InterpolationTemplate.compile("Hi {n}"), InterpolationTemplate.compile("Hi {n}"));
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        try {
+            for (int i = 0; i < InterpolationTemplate.MAX_CACHED_TEMPLATES + 100; i++) {
+                assertEquals("row " + i + ": x", InterpolationTemplate.compile("row " + i + ": {v}").render("x"));
+            }
+            assertTrue(InterpolationTemplate.cachedTemplates() <= InterpolationTemplate.MAX_CACHED_TEMPLATES);
+
+            // 缓存满了之后，新模板照常编译，只是每次得到新的实例
+            String text = "uncached {v}";
+            assertEquals("uncached 1", InterpolationTemplate.compile(text).render(1));
+            assertNotSame(InterpolationTemplate.compile(text), InterpolationTemplate.compile(text));
+        } finally {
+            // 缓存是全局的，不影响其他测试
+            InterpolationTemplate.clearCache();
+        }
+    }
+
+    @Test
+    public void testInvalidTemplatesAndArity() {
+        assertThrows(IllegalArgumentException.class, () -> InterpolationTemplate.compile("{open"));
+        assertThrows(IllegalArgumentException.class, () -> InterpolationTemplate.compile("close}"));
+        assertThrows(IllegalArgumentException.class, () -> InterpolationTemplate.compile("{ }"));
+        assertThrows(IllegalArgumentException.class, () -> InterpolationTemplate.compile("{a}").render());
+        assertThrows(IllegalArgumentException.class,
+            () -> InterpolationTemplate.compile("{a}").render(Map.of("b", 1)));
+    }
+}
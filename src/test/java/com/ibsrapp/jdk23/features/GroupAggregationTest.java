@@ -0,0 +1,67 @@
+package com.ibsrapp.jdk23.features;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 分组聚合收集器单元测试
+ */
+public class GroupAggregationTest {
+
+    private static final List<Integer> NUMBERS = List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+
+    @Test
+    public void testIndexedParity() {
+        Map<String, GroupAggregation.Stats> stats = NUMBERS.stream()
+            .collect(GroupAggregation.indexed(List.of("偶数", "奇数"), n -> n & 1, Integer::longValue));
+
+        assertEquals(List.of("偶数", "奇数"), List.copyOf(stats.keySet()));
+        assertEquals(new GroupAggregation.Stats(5, 30, 2, 10), stats.get("偶数"));
+        assertEquals(new GroupAggregation.Stats(5, 25, 1, 9), stats.get("奇数"));
+        assertEquals(6.0, stats.get("偶数").average());
+    }
+
+    @Test
+    public void testIndexedSkipsEmptyGroupsAndChecksIndex() {
+        Map<String, GroupAggregation.Stats> stats = List.of(2, 4).stream()
+            .collect(GroupAggregation.indexed(List.of("偶数", "奇数"), n -> n & 1, Integer::longValue));
+        assertEquals(Map.of("偶数", new GroupAggregation.Stats(2, 6, 2, 4)), stats);
+
+        assertThrows(IllegalArgumentException.class, () -> NUMBERS.stream()
+            .collect(GroupAggregation.indexed(List.of("a"), n -> n % 2, Integer::longValue)));
+        assertThrows(IllegalArgumentException.class,
+            () -> GroupAggregation.indexed(List.<String>of(), (Integer n) -> 0, Integer::longValue));
+    }
+
+    @Test
+    public void testParallelMatchesGroupingBy() {
+        List<Integer> data = IntStream.range(0, 200_000).map(i -> (i * 7919) % 100_003 - 50_000).boxed().toList();
+
+        Map<Integer, LongSummaryStatistics> expected = data.stream()
+            .collect(Collectors.groupingBy(n -> Math.floorMod(n, 1_000), Collectors.summarizingLong(Integer::longValue)));
+        Map<Integer, GroupAggregation.Stats> concurrent = data.parallelStream()
+            .collect(GroupAggregation.concurrent(n -> Math.floorMod(n, 1_000), Integer::longValue));
+        Map<Integer, GroupAggregation.Stats> sequential = data.stream()
+            .collect(GroupAggregation.concurrent(n -> Math.floorMod(n, 1_000), Integer::longValue));
+
+        assertEquals(expected.size(), concurrent.size());
+        expected.forEach((key, summary) -> {
+            GroupAggregation.Stats stats = new GroupAggregation.Stats(
+                summary.getCount(), summary.getSum(), summary.getMin(), summary.getMax());
+            assertEquals(stats, concurrent.get(key));
+            assertEquals(stats, sequential.get(key));
+        });
+
+        Map<String, GroupAggregation.Stats> parity = data.parallelStream()
+            .collect(GroupAggregation.indexed(List.of("偶数", "奇数"), n -> n & 1, Integer::longValue));
+        assertEquals(data.stream().filter(n -> n % 2 == 0).mapToLong(Integer::longValue).sum(),
+            parity.get("偶数").sum());
+        assertEquals(data.size(), parity.get("偶数").count() + parity.get("奇数").count());
+    }
+}
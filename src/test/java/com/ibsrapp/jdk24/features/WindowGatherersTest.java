@@ -0,0 +1,102 @@
+package com.ibsrapp.jdk24.features;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * 相邻元素窗口操作单元测试
+ */
+public class WindowGatherersTest {
+
+    private static final List<Integer> TEMPERATURES = List.of(20, 22, 24, 26, 28, 25, 23, 21);
+
+    @Test
+    public void testPairwise() {
+        List<WindowGatherers.Pair<Integer>> pairs = List.of(1, 2, 3).stream()
+            .gather(WindowGatherers.pairwise())
+            .toList();
+
+        assertEquals(List.of(new WindowGatherers.Pair<>(1, 2), new WindowGatherers.Pair<>(2, 3)), pairs);
+        assertEquals(0, List.of(1).stream().gather(WindowGatherers.pairwise()).count());
+    }
+
+    @Test
+    public void testSliding() {
+        List<long[]> windows = TEMPERATURES.stream()
+            .gather(WindowGatherers.sliding(3, Integer::longValue))
+            .toList();
+
+        assertEquals(6, windows.size());
+        assertArrayEquals(new long[] {20, 22, 24}, windows.get(0));
+        assertArrayEquals(new long[] {25, 23, 21}, windows.get(5));
+        assertEquals(0, List.of(1, 2).stream().gather(WindowGatherers.sliding(3, Integer::longValue)).count());
+        assertThrows(IllegalArgumentException.class, () -> WindowGatherers.sliding(0, Integer::longValue));
+    }
+
+    @Test
+    public void testIncreasingRuns() {
+        List<WindowGatherers.Run> runs = TEMPERATURES.stream()
+            .gather(WindowGatherers.increasingRuns(Integer::longValue))
+            .toList();
+
+        assertEquals(List.of(
+            new WindowGatherers.Run(0, 5, 20, 28),
+            new WindowGatherers.Run(5, 1, 25, 25),
+            new WindowGatherers.Run(6, 1, 23, 23),
+            new WindowGatherers.Run(7, 1, 21, 21)), runs);
+    }
+
+    @Test
+    public void testRunLengthWithShortCircuit() {
+        List<WindowGatherers.Run> runs = List.of(1, 1, 2, 2, 2, 1).stream()
+            .gather(WindowGatherers.runLength(Integer::longValue))
+            .toList();
+        assertEquals(List.of(
+            new WindowGatherers.Run(0, 2, 1, 1),
+            new WindowGatherers.Run(2, 3, 2, 2),
+            new WindowGatherers.Run(5, 1, 1, 1)), runs);
+
+        // 下游短路后不再输出
+        assertEquals(List.of(new WindowGatherers.Run(0, 2, 1, 1)), List.of(1, 1, 2, 2, 2, 1).stream()
+            .gather(WindowGatherers.runLength(Integer::longValue)).limit(1).toList());
+    }
+
+    @Test
+    public void testParallelStreamMatchesSequential() {
+        List<WindowGatherers.Run> sequential = IntStream.range(0, 10_000).map(i -> i % 7).boxed()
+            .gather(WindowGatherers.increasingRuns(Integer::longValue))
+            .toList();
+        List<WindowGatherers.Run> parallel = IntStream.range(0, 10_000).map(i -> i % 7).boxed().parallel()
+            .gather(WindowGatherers.increasingRuns(Integer::longValue))
+            .toList();
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testArrayVersionsMatchGatherers() {
+        Random random = new Random(7);
+        int[] data = new int[200_000];
+        for (int i = 1; i < data.length; i++) {
+            data[i] = data[i - 1] + random.nextInt(3) - 1;
+        }
+
+        long[] expected = IntStream.of(data).boxed()
+            .gather(WindowGatherers.increasingRuns(Integer::longValue))
+            .mapToLong(WindowGatherers.Run::start)
+            .toArray();
+        assertArrayEquals(expected, Arrays.stream(WindowGatherers.increasingRunStarts(data, false)).asLongStream().toArray());
+        assertArrayEquals(WindowGatherers.increasingRunStarts(data, false), WindowGatherers.increasingRunStarts(data, true));
+
+        long[] runLength = IntStream.of(data).boxed()
+            .gather(WindowGatherers.runLength(Integer::longValue))
+            .mapToLong(WindowGatherers.Run::start)
+            .toArray();
+        assertArrayEquals(runLength, Arrays.stream(WindowGatherers.runStarts(data, true)).asLongStream().toArray());
+        assertEquals(0, WindowGatherers.runStarts(new int[0], true).length);
+    }
+}
@@ -0,0 +1,93 @@
+package com.ibsrapp.jdk25.features;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 列式商品表单元测试
+ */
+public class ProductTableTest {
+
+    private record Product(String name, double price, String category) {
+    }
+
+    private static final List<Product> PRODUCTS = List.of(
+        new Product("Laptop", 999.99, "Electronics"),
+        new Product("Book", 19.99, "Books"),
+        new Product("Phone", 699.99, "Electronics"));
+
+    @Test
+    public void testQueriesMatchStream() {
+        ProductTable table = ProductTable.from(PRODUCTS, Product::name, Product::price, Product::category);
+
+        double expected = PRODUCTS.stream()
+            .filter(p -> "Electronics".equals(p.category()))
+            .mapToDouble(Product::price)
+            .sum();
+        assertEquals(expected, table.sumPrice("Electronics"), 1e-9);
+        assertEquals(expected, table.sumPriceParallel("Electronics"), 1e-9);
+        assertEquals(2, table.count("Electronics"));
+        assertEquals(0, table.sumPrice("Toys"));
+        assertEquals(0, table.count("Toys"));
+        assertEquals(List.of("Electronics", "Books"), table.categories());
+        assertEquals(Map.of("Electronics", expected, "Books", 19.99), table.sumPriceByCategory());
+    }
+
+    @Test
+    public void testRowAccess() {
+        ProductTable table = ProductTable.from(PRODUCTS, Product::name, Product::price, Product::category);
+        assertEquals(3, table.size());
+        assertEquals("Phone", table.name(2));
+        assertEquals(19.99, table.price(1));
+        assertEquals("Books", table.category(1));
+    }
+
+    @Test
+    public void testLargeTableWithUnrolledAndParallelScan() {
+        Random random = new Random(5);
+        String[] categories = {"A", "B", "C"};
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 300_003; i++) {
+            products.add(new Product("p" + i, random.nextInt(10_000) / 100.0, categories[random.nextInt(3)]));
+        }
+        ProductTable table = ProductTable.from(products, Product::name, Product::price, Product::category);
+
+        for (String category : categories) {
+            double expected = products.stream()
+                .filter(p -> category.equals(p.category()))
+                .mapToDouble(Product::price)
+                .sum();
+            assertEquals(expected, table.sumPrice(category), 1e-6);
+            assertEquals(expected, table.sumPriceParallel(category), 1e-6);
+            assertEquals(expected, table.sumPriceByCategory().get(category), 1e-6);
+            assertEquals(products.stream().filter(p -> category.equals(p.category())).count(), table.count(category));
+        }
+    }
+
+    @Test
+    public void testNullCategoryQueries() {
+        ProductTable table = ProductTable.from(PRODUCTS, Product::name, Product::price, Product::category);
+        assertEquals(0, table.count(null));
+        assertEquals(0, table.sumPrice(null));
+        assertEquals(0, table.sumPriceParallel(null));
+    }
+
+    @Test
+    public void testSumByCategoryIsUnmodifiable() {
+        ProductTable table = ProductTable.from(PRODUCTS, Product::name, Product::price, Product::category);
+        Map<String, Double> totals = table.sumPriceByCategory();
+        assertEquals(List.of("Electronics", "Books"), List.copyOf(totals.keySet()));
+        assertThrows(UnsupportedOperationException.class, () -> totals.put("Toys", 1.0));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> ProductTable.builder(-1));
+        assertThrows(IllegalArgumentException.class, () -> ProductTable.builder(1).add("x", 1, null));
+    }
+}
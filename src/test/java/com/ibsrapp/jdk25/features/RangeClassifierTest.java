@@ -0,0 +1,99 @@
+package com.ibsrapp.jdk25.features;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 整数区间分类器单元测试
+ */
+public class RangeClassifierTest {
+
+    // 原示例中的switch写法
+    private static String ageSwitch(int age) {
+        return switch (age) {
+            case 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24 -> "年轻";
+            case 25, 26, 27, 28, 29 -> "青年";
+            default -> "成年";
+        };
+    }
+
+    @Test
+    public void testMatchesAgeSwitch() {
+        RangeClassifier.Builder<String> builder = RangeClassifier.builder("成年")
+            .range(0, 25, "年轻")
+            .range(25, 30, "青年");
+        RangeClassifier<String> lookupTable = builder.build();
+        RangeClassifier<String> search = builder.lookupTableLimit(0).build();
+
+        assertTrue(lookupTable.usesLookupTable());
+        assertFalse(search.usesLookupTable());
+        assertEquals(List.of("成年", "年轻", "青年"), lookupTable.labels());
+        for (int age = -5; age < 100; age++) {
+            assertEquals(ageSwitch(age), lookupTable.label(age), "age=" + age);
+            assertEquals(ageSwitch(age), search.label(age), "age=" + age);
+        }
+        for (int extreme : new int[] {Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            assertEquals("成年", lookupTable.label(extreme));
+            assertEquals("成年", search.label(extreme));
+        }
+    }
+
+    @Test
+    public void testBulkClassifyAndHistogram() {
+        RangeClassifier.Builder<String> builder = RangeClassifier.builder("其他");
+        Random random = new Random(9);
+        int start = -1_000;
+        for (int r = 0; r < 300; r++) {
+            int from = start + random.nextInt(5);
+            int to = from + 1 + random.nextInt(20);
+            builder.range(from, to, "区间" + (r % 17));
+            start = to;
+        }
+        RangeClassifier<String> lookupTable = builder.build();
+        RangeClassifier<String> search = builder.lookupTableLimit(0).build();
+
+        int[] values = random.ints(100_000, -1_200, start + 200).toArray();
+        values[0] = Integer.MIN_VALUE;
+        values[1] = Integer.MAX_VALUE;
+        int[] fromTable = new int[values.length];
+        int[] fromSearch = new int[values.length];
+        lookupTable.classify(values, fromTable);
+        search.classify(values, fromSearch);
+
+        assertArrayEquals(fromSearch, fromTable);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(search.classify(values[i]), fromTable[i]);
+        }
+        assertArrayEquals(search.histogram(values), lookupTable.histogram(values));
+        assertEquals(values.length, Arrays.stream(lookupTable.histogram(values)).sum());
+    }
+
+    @Test
+    public void testAdjacentRangesAndExtremes() {
+        RangeClassifier<String> classifier = RangeClassifier.builder("正数")
+            .range(Integer.MIN_VALUE, 0, "负数")
+            .range(0, 1, "零")
+            .build();
+        assertEquals("负数", classifier.label(Integer.MIN_VALUE));
+        assertEquals("负数", classifier.label(-1));
+        assertEquals("零", classifier.label(0));
+        assertEquals("正数", classifier.label(1));
+        assertEquals("正数", classifier.label(Integer.MAX_VALUE));
+        assertEquals("正数", RangeClassifier.builder("正数").build().label(5));
+    }
+
+    @Test
+    public void testInvalidRanges() {
+        RangeClassifier.Builder<String> builder = RangeClassifier.builder("成年").range(0, 25, "年轻");
+        assertThrows(IllegalArgumentException.class, () -> builder.range(24, 30, "青年"));
+        assertThrows(IllegalArgumentException.class, () -> builder.range(-5, 1, "儿童"));
+        assertThrows(IllegalArgumentException.class, () -> builder.range(0, 10, "儿童"));
+        assertThrows(IllegalArgumentException.class, () -> builder.range(30, 30, "青年"));
+        assertThrows(IllegalArgumentException.class, () -> builder.lookupTableLimit(-1));
+        assertThrows(IllegalArgumentException.class, () -> builder.build().classify(new int[2], new int[1]));
+    }
+}
@@ -0,0 +1,96 @@
+package com.ibsrapp.jdk8.interfacefeature;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * ListProcessor流水线单元测试
+ */
+public class ListPipelineTest {
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().toList();
+    }
+
+    @Test
+    public void testStagesPreserveOrderWithMultipleWorkers() {
+        ListPipeline<Integer> pipeline = ListPipeline.<Integer>builder()
+            .chunkSize(7)
+            .queueCapacity(2)
+            .stage("平方", 4, chunk -> chunk.stream().map(n -> n * n).toList())
+            .stage("偶数", 3, chunk -> chunk.stream().filter(n -> n % 2 == 0).toList())
+            .build();
+
+        ListPipeline.Result<Integer> result = pipeline.run(range(1_000));
+
+        List<Integer> expected = range(1_000).stream().map(n -> n * n).filter(n -> n % 2 == 0).toList();
+        assertEquals(expected, result.output());
+    }
+
+    @Test
+    public void testStageStatistics() {
+        ListPipeline<Integer> pipeline = ListPipeline.<Integer>builder()
+            .chunkSize(10)
+            .stage("过滤", chunk -> chunk.stream().filter(n -> n < 50).toList())
+            .build();
+
+        ListPipeline.StageStats stats = pipeline.run(range(95)).stages().get(0);
+
+        assertEquals("过滤", stats.name());
+        assertEquals(10, stats.chunks());
+        assertEquals(95, stats.itemsIn());
+        assertEquals(50, stats.itemsOut());
+        assertTrue(stats.maxQueueOccupancy() <= 4);
+    }
+
+    @Test
+    public void testListProcessorAsStage() {
+        AtomicInteger calls = new AtomicInteger();
+        InterfaceDefaultMethodExample.ListProcessor counting = calls::incrementAndGet;
+        ListPipeline<Integer> pipeline = ListPipeline.<Integer>builder()
+            .chunkSize(5)
+            .stage(counting)
+            .stage(new InterfaceDefaultMethodExample.OldProcessor())
+            .build();
+
+        assertEquals(range(12), pipeline.run(range(12)).output());
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testEmptyInput() {
+        ListPipeline<Integer> pipeline = ListPipeline.<Integer>builder()
+            .stage("原样", chunk -> chunk)
+            .build();
+
+        assertTrue(pipeline.run(new ArrayList<>()).output().isEmpty());
+    }
+
+    @Test
+    public void testFailingStageDoesNotHang() {
+        ListPipeline<Integer> pipeline = ListPipeline.<Integer>builder()
+            .chunkSize(1)
+            .queueCapacity(1)
+            .stage("上游", chunk -> chunk)
+            .stage("失败", chunk -> {
+                throw new IllegalArgumentException("坏数据");
+            })
+            .build();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> pipeline.run(range(100)));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    public void testBuilderValidation() {
+        assertThrows(IllegalStateException.class, () -> ListPipeline.<Integer>builder().build());
+        assertThrows(IllegalArgumentException.class, () -> ListPipeline.<Integer>builder().chunkSize(0));
+        assertThrows(IllegalArgumentException.class,
+            () -> ListPipeline.<Integer>builder().stage("x", 0, chunk -> chunk));
+    }
+}
@@ -0,0 +1,73 @@
+package com.ibsrapp.jdk8.lambda;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 公式编译器单元测试
+ */
+public class FormulaCompilerTest {
+
+    private static final String[] VARS = {"x", "y"};
+
+    private static void assertAllModes(double expected, String expression, double x, double y) {
+        double[] vars = {x, y};
+        assertEquals(expected, FormulaCompiler.compile(expression, VARS).evaluate(vars), 1e-9, expression);
+        assertEquals(expected, FormulaCompiler.interpret(expression, VARS).evaluate(vars), 1e-9, expression);
+        assertEquals(expected, FormulaCompiler.compose(expression, VARS).evaluate(vars), 1e-9, expression);
+    }
+
+    @Test
+    public void testArithmeticAndPrecedence() {
+        assertAllModes(7, "1 + 2 * 3", 0, 0);
+        assertAllModes(9, "(1 + 2) * 3", 0, 0);
+        assertAllModes(-1.5, "-x / 2", 3, 0);
+        assertAllModes(1, "x % y", 7, 3);
+        assertAllModes(23.5, "x * y + 0.5 - -2", 3, 7);
+    }
+
+    @Test
+    public void testFunctions() {
+        assertAllModes(7, "max(x, y)", 3, 7);
+        assertAllModes(3, "min(x, y)", 3, 7);
+        assertAllModes(4, "abs(x - y)", 3, 7);
+        assertAllModes(5, "sqrt(pow(x, 2) + pow(y, 2))", 3, 4);
+    }
+
+    @Test
+    public void testConstantFolding() {
+        FormulaCompiler.Node folded = FormulaCompiler.fold(FormulaCompiler.parse("2 * 3 + max(1, 4) + x", VARS), false);
+
+        FormulaCompiler.Binary root = assertInstanceOf(FormulaCompiler.Binary.class, folded);
+        assertEquals(new FormulaCompiler.Num(10), root.left());
+        assertEquals(new FormulaCompiler.Var("x", 0), root.right());
+    }
+
+    @Test
+    public void testCompiledCalculator() {
+        LambdaExample.Calculator add = FormulaCompiler.compileCalculator("a + b");
+        LambdaExample.Calculator expr = FormulaCompiler.compileCalculator("(a + b) * (2 + 3) - a % 4 + max(a, -b) + 100000");
+
+        assertEquals(15, add.calculate(10, 5));
+        assertEquals((10 + 5) * 5 - 10 % 4 + Math.max(10, -5) + 100000, expr.calculate(10, 5));
+        assertEquals(7 / 2, FormulaCompiler.compileCalculator("a / b").calculate(7, 2));
+        assertThrows(ArithmeticException.class, () -> FormulaCompiler.compileCalculator("a / 0").calculate(1, 2));
+    }
+
+    @Test
+    public void testInvalidFormulas() {
+        assertThrows(IllegalArgumentException.class, () -> FormulaCompiler.compile("x +", VARS));
+        assertThrows(IllegalArgumentException.class, () -> FormulaCompiler.compile("z * 2", VARS));
+        assertThrows(IllegalArgumentException.class, () -> FormulaCompiler.compile("foo(x)", VARS));
+        assertThrows(IllegalArgumentException.class, () -> FormulaCompiler.compile("max(x)", VARS));
+        assertThrows(IllegalArgumentException.class, () -> FormulaCompiler.compile("(x + y", VARS));
+        assertThrows(IllegalArgumentException.class, () -> FormulaCompiler.compileCalculator("a * 1.5"));
+        // 常量折叠之前就要拒绝：2.5 * 2不能被截断成4，超出int范围的字面量不能饱和
+        assertThrows(IllegalArgumentException.class, () -> FormulaCompiler.compileCalculator("2.5 * 2 + a"));
+        assertThrows(IllegalArgumentException.class, () -> FormulaCompiler.compileCalculator("3000000000 + a"));
+        assertThrows(IllegalArgumentException.class, () -> FormulaCompiler.compileCalculator("-3000000000"));
+        assertEquals(Integer.MAX_VALUE, FormulaCompiler.compileCalculator("2147483647 + a").calculate(0, 0));
+        assertEquals(5.0, FormulaCompiler.compile("2.5 * 2").evaluate(new double[0]));
+        assertThrows(IllegalArgumentException.class, () -> FormulaCompiler.compileCalculator("sqrt(a)"));
+    }
+}
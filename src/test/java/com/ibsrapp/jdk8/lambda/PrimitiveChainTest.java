@@ -0,0 +1,104 @@
+package com.ibsrapp.jdk8.lambda;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.stream.IntStream;
+
+/**
+ * 基本类型处理链单元测试
+ */
+public class PrimitiveChainTest {
+
+    @Test
+    public void testIntChainMatchesIntStream() {
+        int[] data = IntStream.rangeClosed(-50, 50).toArray();
+        PrimitiveChain.OfInt chain = PrimitiveChain.ofInt()
+            .filter(n -> n % 2 == 0)
+            .map(n -> n * n)
+            .map(n -> n + 1)
+            .filter(n -> n % 3 != 0);
+
+        int[] expected = IntStream.of(data).filter(n -> n % 2 == 0).map(n -> n * n).map(n -> n + 1)
+            .filter(n -> n % 3 != 0).toArray();
+        assertArrayEquals(expected, chain.apply(data));
+        assertEquals(IntStream.of(expected).asLongStream().sum(), chain.sum(data));
+        assertEquals(expected.length, chain.count(data));
+    }
+
+    @Test
+    public void testAdjacentStagesAreFused() {
+        PrimitiveChain.OfInt chain = PrimitiveChain.ofInt()
+            .filter(n -> n > 0)
+            .filter(n -> n < 10)
+            .map(n -> n * 2)
+            .map(n -> n + 1)
+            .filter(n -> n != 5);
+
+        assertEquals(3, chain.stageCount());
+        assertArrayEquals(new int[] {3, 7, 9}, chain.apply(new int[] {-1, 1, 2, 3, 4, 10}));
+    }
+
+    @Test
+    public void testChainIsImmutableAndReusable() {
+        PrimitiveChain.OfInt base = PrimitiveChain.ofInt().map(n -> n + 1);
+        PrimitiveChain.OfInt doubled = base.map(n -> n * 2);
+
+        assertArrayEquals(new int[] {2, 3}, base.apply(new int[] {1, 2}));
+        assertArrayEquals(new int[] {4, 6}, doubled.apply(new int[] {1, 2}));
+        assertArrayEquals(new int[] {11}, base.apply(new int[] {10}));
+    }
+
+    @Test
+    public void testApplyIntoReusesBuffer() {
+        PrimitiveChain.OfInt odd = PrimitiveChain.ofInt().filter(n -> n % 2 != 0);
+        int[] out = new int[8];
+
+        assertEquals(2, odd.applyInto(new int[] {1, 2, 3, 4}, out));
+        assertEquals(1, out[0]);
+        assertEquals(3, out[1]);
+        assertThrows(IllegalArgumentException.class, () -> odd.applyInto(new int[10], out));
+    }
+
+    @Test
+    public void testLongAndDoubleChains() {
+        PrimitiveChain.OfLong longs = PrimitiveChain.ofLong().map(n -> n * 1_000_000_000L).filter(n -> n > 0);
+        assertArrayEquals(new long[] {3_000_000_000L}, longs.apply(new long[] {-1, 0, 3}));
+        assertEquals(3_000_000_000L, longs.sum(new long[] {-1, 0, 3}));
+
+        PrimitiveChain.OfDouble doubles = PrimitiveChain.ofDouble().filter(p -> p > 10).map(p -> p / 2);
+        assertArrayEquals(new double[] {10.0, 50.0}, doubles.apply(new double[] {5, 20, 100}));
+        assertEquals(60.0, doubles.sum(new double[] {5, 20, 100}), 1e-9);
+    }
+
+    @Test
+    public void testLongAndDoubleTerminalsMatchInt() {
+        PrimitiveChain.OfLong longs = PrimitiveChain.ofLong()
+            .filter(n -> n % 2 == 0)
+            .filter(n -> n > 0)
+            .map(n -> n * 3);
+        long[] longOut = new long[4];
+        assertEquals(2, longs.stageCount());
+        assertEquals(2, longs.applyInto(new long[] {1, 2, -4, 6}, longOut));
+        assertArrayEquals(new long[] {6, 18, 0, 0}, longOut);
+        assertEquals(2, longs.count(new long[] {1, 2, -4, 6}));
+        assertThrows(IllegalArgumentException.class, () -> longs.applyInto(new long[5], longOut));
+
+        PrimitiveChain.OfDouble doubles = PrimitiveChain.ofDouble()
+            .map(p -> p * 2)
+            .map(p -> p + 0.5)
+            .filter(p -> !Double.isNaN(p));
+        double[] doubleOut = new double[3];
+        assertEquals(2, doubles.stageCount());
+        assertEquals(2, doubles.applyInto(new double[] {1, Double.NaN, 3}, doubleOut));
+        assertArrayEquals(new double[] {2.5, 6.5, 0}, doubleOut);
+        assertEquals(2, doubles.count(new double[] {1, Double.NaN, 3}));
+        assertThrows(IllegalArgumentException.class, () -> doubles.applyInto(new double[4], doubleOut));
+    }
+
+    @Test
+    public void testEmptyChainIsIdentity() {
+        assertArrayEquals(new int[] {3, 1, 2}, PrimitiveChain.ofInt().apply(new int[] {3, 1, 2}));
+        assertEquals(0, PrimitiveChain.ofInt().stageCount());
+    }
+}
@@ -0,0 +1,100 @@
+package com.ibsrapp.jdk8.methodreference;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 多键排序单元测试
+ */
+public class KeySorterTest {
+
+    private static List<MethodReferenceExample.Person> randomPersons(int size, long seed) {
+        Random random = new Random(seed);
+        List<MethodReferenceExample.Person> persons = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            persons.add(new MethodReferenceExample.Person("n" + random.nextInt(50), random.nextInt(200) - 100));
+        }
+        return persons;
+    }
+
+    @Test
+    public void testRadixSortMatchesStableComparator() {
+        List<MethodReferenceExample.Person> persons = randomPersons(5000, 1);
+        KeySorter<MethodReferenceExample.Person> sorter = KeySorter.<MethodReferenceExample.Person>builder()
+            .intKey(MethodReferenceExample.Person::getAge, KeySorter.Order.DESC)
+            .build();
+
+        // List.sort是稳定的，可以直接比较元素身份
+        List<MethodReferenceExample.Person> expected = new ArrayList<>(persons);
+        expected.sort(Comparator.comparingInt(MethodReferenceExample.Person::getAge).reversed());
+        assertIterableEquals(expected, sorter.sortedCopy(persons));
+    }
+
+    @Test
+    public void testMixedKeysUseMergeSort() {
+        // 超过并行阈值，走ForkJoin归并
+        List<MethodReferenceExample.Person> persons = randomPersons(20000, 2);
+        KeySorter<MethodReferenceExample.Person> sorter = KeySorter.<MethodReferenceExample.Person>builder()
+            .key(MethodReferenceExample.Person::getName, KeySorter.Order.DESC)
+            .intKey(MethodReferenceExample.Person::getAge, KeySorter.Order.ASC)
+            .build();
+
+        List<MethodReferenceExample.Person> expected = new ArrayList<>(persons);
+        expected.sort(Comparator.comparing(MethodReferenceExample.Person::getName, Comparator.reverseOrder())
+            .thenComparingInt(MethodReferenceExample.Person::getAge));
+        assertIterableEquals(expected, sorter.sortedCopy(persons));
+    }
+
+    @Test
+    public void testLongAndDoubleKeys() {
+        List<double[]> rows = List.of(
+            new double[] {1, -0.5}, new double[] {0, 2.5}, new double[] {1, Double.NaN},
+            new double[] {0, -0.0}, new double[] {1, 0.0}, new double[] {0, Double.NEGATIVE_INFINITY});
+        KeySorter<double[]> sorter = KeySorter.<double[]>builder()
+            .longKey(row -> (long) row[0], KeySorter.Order.ASC)
+            .doubleKey(row -> row[1], KeySorter.Order.ASC)
+            .build();
+
+        assertArrayEquals(new int[] {5, 3, 1, 0, 4, 2}, sorter.sort(rows));
+    }
+
+    @Test
+    public void testPermutationAndStability() {
+        List<MethodReferenceExample.Person> persons = List.of(
+            new MethodReferenceExample.Person("A", 30),
+            new MethodReferenceExample.Person("B", 20),
+            new MethodReferenceExample.Person("C", 30),
+            new MethodReferenceExample.Person("D", 20));
+        KeySorter<MethodReferenceExample.Person> sorter = KeySorter.<MethodReferenceExample.Person>builder()
+            .intKey(MethodReferenceExample.Person::getAge, KeySorter.Order.ASC)
+            .build();
+
+        assertArrayEquals(new int[] {1, 3, 0, 2}, sorter.sort(persons));
+        assertEquals(0, sorter.sort(List.of()).length);
+    }
+
+    @Test
+    public void testNullKeyOrdering() {
+        List<String> names = Arrays.asList("b", null, "a");
+        KeySorter<String> ascending = KeySorter.<String>builder()
+            .key(name -> name, KeySorter.Order.ASC)
+            .build();
+        KeySorter<String> descending = KeySorter.<String>builder()
+            .key(name -> name, KeySorter.Order.DESC)
+            .build();
+
+        assertArrayEquals(new int[] {1, 2, 0}, ascending.sort(names));
+        assertArrayEquals(new int[] {0, 2, 1}, descending.sort(names));
+    }
+
+    @Test
+    public void testBuilderRequiresKey() {
+        assertThrows(IllegalStateException.class, () -> KeySorter.builder().build());
+    }
+}
@@ -0,0 +1,96 @@
+package com.ibsrapp.jdk8.methodreference;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 对象池单元测试
+ */
+public class ObjectPoolTest {
+
+    private static ObjectPool.Builder<MethodReferenceExample.Person> personPool() {
+        return ObjectPool.builder(MethodReferenceExample.Person::new, p -> p.assign("Default", 0));
+    }
+
+    @Test
+    public void testReleasedObjectIsResetAndReused() {
+        ObjectPool<MethodReferenceExample.Person> pool = personPool().build();
+
+        MethodReferenceExample.Person first = pool.borrow().assign("Alice", 25);
+        pool.release(first);
+        MethodReferenceExample.Person second = pool.borrow();
+
+        assertSame(first, second);
+        assertEquals("Default", second.getName());
+        assertEquals(0, second.getAge());
+        assertEquals(1, pool.stats().created());
+    }
+
+    @Test
+    public void testOverflowGoesToSharedStackThenDropped() {
+        ObjectPool<MethodReferenceExample.Person> pool = personPool()
+            .localCapacity(2)
+            .sharedCapacity(3)
+            .build();
+
+        List<MethodReferenceExample.Person> items = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            items.add(pool.borrow());
+        }
+        items.forEach(pool::release);
+
+        // 2个进本地栈，3个进共享栈，1个被丢弃
+        ObjectPool.Stats stats = pool.stats();
+        assertEquals(6, stats.borrowed());
+        assertEquals(6, stats.returned());
+        assertEquals(1, stats.dropped());
+        assertEquals(0, stats.leaked());
+
+        for (int i = 0; i < 5; i++) {
+            pool.borrow();
+        }
+        assertEquals(6, pool.stats().created());
+        pool.borrow();
+        assertEquals(7, pool.stats().created());
+    }
+
+    @Test
+    public void testSharedStackServesOtherThreads() throws InterruptedException {
+        ObjectPool<MethodReferenceExample.Person> pool = personPool().localCapacity(0).build();
+        MethodReferenceExample.Person item = pool.borrow();
+        pool.release(item);
+
+        MethodReferenceExample.Person[] fromOther = new MethodReferenceExample.Person[1];
+        Thread thread = new Thread(() -> fromOther[0] = pool.borrow());
+        thread.start();
+        thread.join();
+
+        assertSame(item, fromOther[0]);
+    }
+
+    @Test
+    public void testLeakTracking() {
+        ObjectPool<MethodReferenceExample.Person> pool = personPool().trackLeaks(true).build();
+
+        MethodReferenceExample.Person kept = pool.borrow();
+        MethodReferenceExample.Person returned = pool.borrow();
+        pool.release(returned);
+
+        assertEquals(1, pool.leaked());
+        assertThrows(IllegalStateException.class, () -> pool.release(returned));
+        assertThrows(IllegalStateException.class, () -> pool.release(new MethodReferenceExample.Person()));
+        pool.release(kept);
+        assertEquals(0, pool.leaked());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+            () -> ObjectPool.builder(MethodReferenceExample.Person::new, null));
+        assertThrows(IllegalArgumentException.class, () -> personPool().localCapacity(-1));
+        assertThrows(IllegalArgumentException.class, () -> personPool().build().release(null));
+    }
+}
@@ -0,0 +1,141 @@
+package com.ibsrapp.jdk8.optional;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量加载单元测试
+ */
+public class BatchLoaderTest {
+
+    @Test
+    public void testCallsInWindowAreCoalescedAndDeduplicated() {
+        List<Set<Integer>> calls = new ArrayList<>();
+        BatchLoader.StubUserStore store = new BatchLoader.StubUserStore(10, 0, TimeUnit.NANOSECONDS);
+        try (BatchLoader<Integer, String> loader = new BatchLoader<>(ids -> {
+            calls.add(Set.copyOf(ids));
+            return store.findUsersByIds(ids);
+        }, 50, TimeUnit.MILLISECONDS, 100)) {
+            CompletableFuture<Optional<String>> first = loader.load(5);
+            CompletableFuture<Optional<String>> duplicate = loader.load(5);
+            CompletableFuture<Optional<String>> missing = loader.load(99);
+
+            assertSame(first, duplicate);
+            assertEquals(Optional.of("用户5"), first.join());
+            assertEquals(Optional.empty(), missing.join());
+            assertEquals(List.of(Set.of(5, 99)), calls);
+            assertEquals(new BatchLoader.Stats(3, 1, 2), loader.stats());
+        }
+    }
+
+    @Test
+    public void testResultsMatchFindUserById() {
+        BatchLoader.StubUserStore store = new BatchLoader.StubUserStore(10, 0, TimeUnit.NANOSECONDS);
+        try (BatchLoader<Integer, String> loader =
+                 new BatchLoader<>(store::findUsersByIds, 1, TimeUnit.MILLISECONDS, 100)) {
+            List<Integer> ids = List.of(0, 1, 5, 10, 11, -3);
+            List<Optional<String>> expected = new ArrayList<>();
+            ids.forEach(id -> expected.add(OptionalExample.findUserById(id)));
+
+            assertEquals(expected, loader.loadAll(ids).join());
+        }
+    }
+
+    @Test
+    public void testFullBatchIsDispatchedBeforeWindowEnds() {
+        BatchLoader.StubUserStore store = new BatchLoader.StubUserStore(100, 0, TimeUnit.NANOSECONDS);
+        try (BatchLoader<Integer, String> loader =
+                 new BatchLoader<>(store::findUsersByIds, 1, TimeUnit.HOURS, 4)) {
+            List<Integer> ids = List.of(1, 2, 3, 4, 5, 6, 7, 8);
+            assertEquals(8, loader.loadAll(ids).join().size());
+            assertEquals(2, store.queries());
+        }
+    }
+
+    @Test
+    public void testBulkFailureCompletesAllFutures() {
+        try (BatchLoader<Integer, String> loader = new BatchLoader<>(ids -> {
+            throw new IllegalStateException("数据库不可用");
+        }, 1, TimeUnit.MILLISECONDS, 100)) {
+            CompletableFuture<Optional<String>> a = loader.load(1);
+            CompletableFuture<Optional<String>> b = loader.load(2);
+
+            CompletionException error = assertThrows(CompletionException.class, a::join);
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+            assertThrows(CompletionException.class, b::join);
+        }
+    }
+
+    @Test
+    public void testCloseFlushesPendingRequests() {
+        BatchLoader<Integer, String> loader =
+            new BatchLoader<>(ids -> Map.of(1, "a"), 1, TimeUnit.HOURS, 100);
+        CompletableFuture<Optional<String>> future = loader.load(1);
+        loader.close();
+        assertEquals(Optional.of("a"), future.join());
+    }
+
+    @Test
+    public void testNullResultAndErrorCompleteAllFutures() {
+        try (BatchLoader<Integer, String> loader =
+                 new BatchLoader<>(ids -> null, 1, TimeUnit.MILLISECONDS, 100)) {
+            CompletionException error = assertThrows(CompletionException.class, () -> loader.load(1).join());
+            assertInstanceOf(NullPointerException.class, error.getCause());
+        }
+        try (BatchLoader<Integer, String> loader = new BatchLoader<>(ids -> {
+            throw new AssertionError("模拟Error");
+        }, 1, TimeUnit.MILLISECONDS, 100, Runnable::run)) {
+            CompletionException error = assertThrows(CompletionException.class, () -> loader.load(1).join());
+            assertInstanceOf(AssertionError.class, error.getCause());
+        }
+    }
+
+    @Test
+    public void testLoadAfterCloseFails() {
+        BatchLoader<Integer, String> loader =
+            new BatchLoader<>(ids -> Map.of(1, "a"), 1, TimeUnit.MILLISECONDS, 100);
+        loader.close();
+        for (int i = 0; i < 2; i++) {
+            CompletionException error = assertThrows(CompletionException.class, () -> loader.load(1).join());
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+        }
+        loader.close();
+    }
+
+    @Test
+    public void testSlowBatchDoesNotDelayLaterWindows() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        try (BatchLoader<Integer, String> loader = new BatchLoader<>(ids -> {
+            if (ids.contains(1)) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Map.of(1, "a", 2, "b");
+        }, 1, TimeUnit.MILLISECONDS, 1)) {
+            CompletableFuture<Optional<String>> slow = loader.load(1);
+            assertEquals(Optional.of("b"), loader.load(2).orTimeout(5, TimeUnit.SECONDS).join());
+            assertFalse(slow.isDone());
+            release.countDown();
+            assertEquals(Optional.of("a"), slow.join());
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new BatchLoader<Integer, String>(ids -> Map.of(), 1, TimeUnit.MILLISECONDS, 0));
+    }
+}
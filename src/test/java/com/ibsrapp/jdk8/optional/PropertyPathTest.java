@@ -0,0 +1,73 @@
+package com.ibsrapp.jdk8.optional;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 空安全属性路径单元测试
+ */
+public class PropertyPathTest {
+
+    @Test
+    public void testMatchesGetCityWithOptional() {
+        List<OptionalExample.User> users = Arrays.asList(
+            new OptionalExample.User(new OptionalExample.Address("北京")),
+            new OptionalExample.User(new OptionalExample.Address(null)),
+            new OptionalExample.User(null),
+            null);
+
+        for (OptionalExample.User user : users) {
+            assertEquals(OptionalExample.getCityWithOptional(user), PropertyPath.getCityWithPath(user));
+        }
+    }
+
+    @Test
+    public void testBuildWithoutDefaultReturnsNull() {
+        PropertyPath<OptionalExample.User, Integer> length = PropertyPath.from(OptionalExample.User::getAddress)
+            .then(OptionalExample.Address::getCity)
+            .then(String::length)
+            .build();
+
+        assertEquals(3, length.depth());
+        assertEquals(Integer.valueOf(2), length.apply(new OptionalExample.User(new OptionalExample.Address("上海"))));
+        assertNull(length.apply(new OptionalExample.User(new OptionalExample.Address(null))));
+        assertNull(length.apply(null));
+    }
+
+    @Test
+    public void testMethodHandleMatchesApply() throws Throwable {
+        PropertyPath<OptionalExample.User, String> city = PropertyPath.from(OptionalExample.User::getAddress)
+            .then(OptionalExample.Address::getCity)
+            .orElse("无");
+        MethodHandle handle = city.toMethodHandle();
+
+        OptionalExample.User user = new OptionalExample.User(new OptionalExample.Address("广州"));
+        assertEquals("广州", (Object) handle.invokeExact((Object) user));
+        assertEquals("无", (Object) handle.invokeExact((Object) null));
+    }
+
+    @Test
+    public void testGetterIsNotCalledAfterNull() {
+        int[] calls = {0};
+        PropertyPath<String, Integer> path = PropertyPath.<String, String>from(s -> null)
+            .then(s -> {
+                calls[0]++;
+                return s.length();
+            })
+            .orElse(-1);
+
+        assertEquals(Integer.valueOf(-1), path.apply("x"));
+        assertEquals(0, calls[0]);
+    }
+
+    @Test
+    public void testGetterExceptionsPropagate() {
+        PropertyPath<String, Integer> path = PropertyPath.<String, Integer>from(Integer::valueOf).build();
+        assertEquals(Integer.valueOf(42), path.apply("42"));
+        assertThrows(NumberFormatException.class, () -> path.apply("abc"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.ibsrapp.jdk9.collection;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * 紧凑不可变映射单元测试
+ */
+public class CompactMapsTest {
+
+    private static final Map<String, Integer> FRUITS = Map.of(
+        "apple", 1, "banana", 2, "cherry", 3, "date", 4, "fig", 6);
+
+    @Test
+    public void testSortedArrayMap() {
+        CompactMaps.SortedArrayMap<String, Integer> map = CompactMaps.SortedArrayMap.copyOf(FRUITS);
+
+        assertEquals(FRUITS, map);
+        assertEquals(FRUITS.hashCode(), map.hashCode());
+        assertEquals(List.of("apple", "banana", "cherry", "date", "fig"), List.copyOf(map.keySet()));
+        assertEquals(3, map.get("cherry"));
+        assertNull(map.get("grape"));
+        assertNull(map.get(42));
+        assertNull(map.get(null));
+        assertEquals("apple", map.firstKey());
+        assertEquals("fig", map.lastKey());
+
+        SortedMap<String, Integer> middle = map.subMap("b", "d");
+        assertEquals(Map.of("banana", 2, "cherry", 3), middle);
+        assertEquals(Map.of("date", 4, "fig", 6), map.tailMap("d"));
+        assertEquals(Map.of("apple", 1), map.headMap("b"));
+        assertEquals(Map.of("cherry", 3), middle.tailMap("c"));
+        assertTrue(map.headMap("a").isEmpty());
+    }
+
+    @Test
+    public void testSortedArrayMapWithComparator() {
+        CompactMaps.SortedArrayMap<String, Integer> map =
+            CompactMaps.SortedArrayMap.copyOf(FRUITS, Comparator.reverseOrder());
+        assertEquals("fig", map.firstKey());
+        assertEquals(Comparator.reverseOrder(), map.comparator());
+        assertEquals(4, map.get("date"));
+    }
+
+    @Test
+    public void testPerfectHashMap() {
+        Map<String, Integer> source = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            source.put("key-" + i, i);
+        }
+        CompactMaps.PerfectHashMap<Integer> map = CompactMaps.PerfectHashMap.copyOf(source);
+
+        assertEquals(source.size(), map.size());
+        for (int i = 0; i < 50_000; i++) {
+            assertEquals(i, map.get("key-" + i));
+        }
+        assertNull(map.get("key-50000"));
+        assertNull(map.get(7));
+        assertFalse(map.containsKey("missing"));
+        assertEquals(source, map);
+        assertEquals(Map.of(), CompactMaps.PerfectHashMap.copyOf(Map.of()));
+        assertEquals(Map.of("x", 1), CompactMaps.PerfectHashMap.copyOf(Map.of("x", 1)));
+    }
+
+    @Test
+    public void testIntKeyMap() {
+        CompactMaps.IntKeyMap<String> map = CompactMaps.IntKeyMap.<String>builder(2)
+            .put(500, "c").put(-3, "a").put(200, "b").build();
+
+        assertEquals("a", map.get(-3));
+        assertEquals("b", map.get(Integer.valueOf(200)));
+        assertNull(map.get(404));
+        assertNull(map.get("200"));
+        assertTrue(map.containsKey(500));
+        assertEquals(List.of(-3, 200, 500), List.copyOf(map.keySet()));
+        assertEquals(Map.of(-3, "a", 200, "b", 500, "c"), map);
+        assertEquals(map, CompactMaps.IntKeyMap.copyOf(Map.of(-3, "a", 200, "b", 500, "c")));
+    }
+
+    @Test
+    public void testImmutableAndNullHostile() {
+        Map<String, Integer> map = CompactMaps.PerfectHashMap.copyOf(FRUITS);
+        assertThrows(UnsupportedOperationException.class, () -> map.put("grape", 7));
+        assertThrows(UnsupportedOperationException.class, () -> map.entrySet().iterator().next().setValue(0));
+        assertThrows(UnsupportedOperationException.class,
+            () -> CompactMaps.SortedArrayMap.copyOf(FRUITS).remove("apple"));
+
+        Map<String, Integer> withNull = new HashMap<>();
+        withNull.put("a", null);
+        assertThrows(NullPointerException.class, () -> CompactMaps.SortedArrayMap.copyOf(withNull));
+        assertThrows(NullPointerException.class, () -> CompactMaps.PerfectHashMap.copyOf(withNull));
+        assertThrows(IllegalArgumentException.class,
+            () -> CompactMaps.IntKeyMap.<String>builder(2).put(1, "a").put(1, "b").build());
+    }
+}
@@ -0,0 +1,160 @@
+package com.ibsrapp.jdk9.collection;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基本类型映射单元测试
+ */
+public class PrimitiveMapsTest {
+
+    @Test
+    public void testObject2IntMap() {
+        PrimitiveMaps.Object2IntMap<String> map = new PrimitiveMaps.Object2IntMap<>(2, 0.5f);
+        map.put("apple", 1);
+        map.put("banana", 2);
+        map.put("cherry", 3);
+        map.put("apple", 10);
+
+        assertEquals(3, map.size());
+        assertEquals(10, map.getInt("apple", -1));
+        assertEquals(-1, map.getInt("grape", -1));
+        assertEquals(-1, map.getInt(null, -1));
+        assertEquals(5, map.addTo("banana", 3));
+        assertEquals(7, map.addTo("grape", 7));
+        assertTrue(map.remove("cherry"));
+        assertFalse(map.remove("cherry"));
+        assertFalse(map.containsKey("cherry"));
+
+        Map<String, Integer> copy = new HashMap<>();
+        map.forEach(copy::put);
+        assertEquals(Map.of("apple", 10, "banana", 5, "grape", 7), copy);
+        assertThrows(NullPointerException.class, () -> map.put(null, 1));
+    }
+
+    @Test
+    public void testInt2ObjectMapWithZeroKey() {
+        PrimitiveMaps.Int2ObjectMap<String> map = new PrimitiveMaps.Int2ObjectMap<>();
+        assertNull(map.put(0, "zero"));
+        assertNull(map.put(-1, "minus one"));
+        assertEquals("zero", map.put(0, "零"));
+
+        assertEquals(2, map.size());
+        assertEquals("零", map.get(0));
+        assertTrue(map.containsKey(-1));
+        assertNull(map.get(1));
+        assertEquals("零", map.remove(0));
+        assertNull(map.remove(0));
+        assertEquals(1, map.size());
+        assertThrows(NullPointerException.class, () -> map.put(1, null));
+    }
+
+    @Test
+    public void testLong2LongMapOnAndOffHeap() {
+        for (boolean offHeap : new boolean[] {false, true}) {
+            PrimitiveMaps.Long2LongMap map = new PrimitiveMaps.Long2LongMap(4, 0.75f, offHeap);
+            assertEquals(offHeap, map.isOffHeap());
+            map.put(0, 5);
+            map.put(Long.MIN_VALUE, 1);
+            assertEquals(8, map.addTo(0, 3));
+            assertEquals(4, map.addTo(42, 4));
+
+            assertEquals(3, map.size());
+            assertEquals(8, map.get(0, -1));
+            assertEquals(1, map.get(Long.MIN_VALUE, -1));
+            assertEquals(-1, map.get(7, -1));
+            long[] sum = new long[1];
+            map.forEach((key, value) -> sum[0] += value);
+            assertEquals(13, sum[0]);
+        }
+    }
+
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        // 小范围的键 + 高装载因子：频繁冲突、删除后移和扩容
+        Random random = new Random(3);
+        Map<Long, Long> expected = new HashMap<>();
+        PrimitiveMaps.Long2LongMap heap = new PrimitiveMaps.Long2LongMap(16, 0.9f, false);
+        PrimitiveMaps.Long2LongMap direct = new PrimitiveMaps.Long2LongMap(16, 0.9f, true);
+        PrimitiveMaps.Object2IntMap<Long> objects = new PrimitiveMaps.Object2IntMap<>(16, 0.9f);
+        PrimitiveMaps.Int2ObjectMap<Long> ints = new PrimitiveMaps.Int2ObjectMap<>(16, 0.9f);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                boolean present = expected.remove(key) != null;
+                assertEquals(present, heap.remove(key));
+                assertEquals(present, direct.remove(key));
+                assertEquals(present, objects.remove(key));
+                assertEquals(present, ints.remove((int) key) != null);
+            } else {
+                expected.put(key, (long) i);
+                heap.put(key, i);
+                direct.put(key, i);
+                objects.put(key, i);
+                ints.put((int) key, (long) i);
+            }
+        }
+        assertEquals(expected.size(), heap.size());
+        assertEquals(expected.size(), direct.size());
+        assertEquals(expected.size(), objects.size());
+        assertEquals(expected.size(), ints.size());
+        for (long key = -100; key < 4_900; key++) {
+            long value = expected.getOrDefault(key, -1L);
+            assertEquals(value, heap.get(key, -1));
+            assertEquals(value, direct.get(key, -1));
+            assertEquals(value, objects.getInt(key, -1));
+            assertEquals(expected.get(key), ints.get((int) key));
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new PrimitiveMaps.Object2IntMap<String>(10, 1f));
+        assertThrows(IllegalArgumentException.class, () -> new PrimitiveMaps.Int2ObjectMap<String>(10, 0f));
+        assertThrows(IllegalArgumentException.class, () -> new PrimitiveMaps.Long2LongMap(-1, 0.5f, false));
+        assertThrows(IllegalArgumentException.class, () -> new PrimitiveMaps.Long2LongMap(Integer.MAX_VALUE, 0.5f, true));
+    }
+
+    @Test
+    public void testLong2LongMapCapacityLimit() {
+        // 最大容量下的表大小必须能用int表示
+        assertTrue((long) PrimitiveMaps.Long2LongMap.MAX_OFF_HEAP_CAPACITY * 16 <= Integer.MAX_VALUE);
+        assertTrue((long) PrimitiveMaps.Long2LongMap.MAX_ON_HEAP_CAPACITY * 2 <= Integer.MAX_VALUE - 8);
+        for (boolean offHeap : new boolean[] {false, true}) {
+            int limit = offHeap ? PrimitiveMaps.Long2LongMap.MAX_OFF_HEAP_CAPACITY
+                : PrimitiveMaps.Long2LongMap.MAX_ON_HEAP_CAPACITY;
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new PrimitiveMaps.Long2LongMap(limit / 2 + 1, 0.5f, offHeap));
+            assertTrue(e.getMessage().startsWith("预期大小过大"), e.getMessage());
+        }
+
+        // 达到容量上限时插入失败，映射保持原状
+        for (boolean offHeap : new boolean[] {false, true}) {
+            PrimitiveMaps.Long2LongMap map = new PrimitiveMaps.Long2LongMap(4, 0.5f, offHeap, 16);
+            map.put(0, 100);
+            long key = 1;
+            while (true) {
+                try {
+                    map.put(key, key * 10);
+                } catch (IllegalStateException e) {
+                    break;
+                }
+                key++;
+            }
+            assertEquals(key, map.size());
+            assertFalse(map.containsKey(key));
+            for (long k = 1; k < key; k++) {
+                assertEquals(k * 10, map.get(k, -1));
+            }
+            assertEquals(100, map.get(0, -1));
+            assertThrows(IllegalStateException.class, () -> map.addTo(-7, 1));
+            map.remove(1);
+            map.put(-7, 70);
+            assertEquals(70, map.get(-7, -1));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ibsrapp.jdk9.interfacefeature;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单遍多规则校验器单元测试
+ */
+public class CompiledValidatorTest {
+
+    @Test
+    public void testMatchesDataValidatorSemantics() {
+        InterfacePrivateMethodExample.DataValidator classic = new InterfacePrivateMethodExample.FormValidator();
+        InterfacePrivateMethodExample.DataValidator fused = CompiledValidator.asDataValidator();
+
+        for (String input : Arrays.asList("test@example.com", "invalid", "   ", "", null,
+                "123-456-7890", "abc", " @ ", "电话１２３", "电话123")) {
+            assertEquals(classic.validateEmail(input), fused.validateEmail(input), "email: " + input);
+            assertEquals(classic.validatePhone(input), fused.validatePhone(input), "phone: " + input);
+        }
+    }
+
+    @Test
+    public void testFailureBitmask() {
+        CompiledValidator validator = CompiledValidator.builder()
+            .notBlank("非空")
+            .length("长度3-8", 3, 8)
+            .onlyChars("字母数字", c -> c < 128 && Character.isLetterOrDigit(c))
+            .requireAny("包含数字", c -> c >= '0' && c <= '9')
+            .build();
+
+        assertEquals(0, validator.validate("abc1"));
+        assertEquals(0b1000, validator.validate("abcd"));
+        assertEquals(0b0100, validator.validate("a-1"));
+        assertEquals(0b1110, validator.validate("a-"));
+        assertEquals(List.of("长度3-8", "字母数字"), validator.describe(0b0110));
+        assertEquals(0b1011, validator.validate(""));
+    }
+
+    @Test
+    public void testNonAsciiCharacters() {
+        CompiledValidator validator = CompiledValidator.builder()
+            .requireAny("包含汉字", c -> Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN)
+            .build();
+
+        assertEquals(0, validator.validate("hello世界"));
+        assertEquals(1, validator.validate("hello"));
+    }
+
+    @Test
+    public void testBulkValidation() {
+        CompiledValidator email = CompiledValidator.emailRules();
+        char[] buffer = "a@b.com\nbad\n\nc@d.org\n".toCharArray();
+
+        int[] results = email.validateAll(buffer, 0, buffer.length, '\n');
+        assertArrayEquals(new int[] {0, 0b10, 0b11, 0}, results);
+        assertArrayEquals(results, email.validateAll(List.of("a@b.com", "bad", "", "c@d.org")));
+        assertArrayEquals(new int[] {1, 2}, email.countFailures(results));
+    }
+
+    @Test
+    public void testBuilderLimits() {
+        assertThrows(IllegalStateException.class, () -> CompiledValidator.builder().build());
+        assertThrows(IllegalArgumentException.class, () -> CompiledValidator.builder().length("x", 5, 2));
+        CompiledValidator.Builder builder = CompiledValidator.builder();
+        for (int i = 0; i < 32; i++) {
+            builder.notBlank("rule" + i);
+        }
+        assertThrows(IllegalArgumentException.class, () -> builder.notBlank("overflow"));
+    }
+}
@@ -0,0 +1,200 @@
+package com.ibsrapp.jdk9.interfacefeature;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 环形缓冲区Logger单元测试
+ */
+public class RingBufferLoggerTest {
+
+    @Test
+    public void testImplementsLoggerInterface() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (RingBufferLogger logger = new RingBufferLogger(
+                Channels.newChannel(bytes), RingBufferLogger.Level.INFO, 8)) {
+            InterfacePrivateMethodExample.Logger asInterface = logger;
+            asInterface.logInfo("信息");
+            asInterface.logWarning("警告");
+            asInterface.logError("错误");
+        }
+
+        List<String> lines = bytes.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).matches("\\[\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}] \\[INFO] 信息"),
+            lines.get(0));
+        assertTrue(lines.get(1).endsWith("[WARNING] 警告"));
+        assertTrue(lines.get(2).endsWith("[ERROR] 错误"));
+    }
+
+    @Test
+    public void testPlaceholdersAndLongArgument() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (RingBufferLogger logger = new RingBufferLogger(
+                Channels.newChannel(bytes), RingBufferLogger.Level.INFO, 8)) {
+            logger.log(RingBufferLogger.Level.INFO, "user {} failed {} times", "alice", null);
+            logger.log(RingBufferLogger.Level.INFO, "id={} extra={}", -42L);
+            logger.log(RingBufferLogger.Level.INFO, "emoji {}", "😀");
+        }
+
+        List<String> lines = bytes.toString(StandardCharsets.UTF_8).lines().toList();
+        assertTrue(lines.get(0).endsWith("user alice failed null times"));
+        assertTrue(lines.get(1).endsWith("id=-42 extra={}"));
+        assertTrue(lines.get(2).endsWith("emoji 😀"));
+    }
+
+    @Test
+    public void testDisabledLevelSkipsFormatting() throws Exception {
+        AtomicInteger toStringCalls = new AtomicInteger();
+        Object expensive = new Object() {
+            @Override
+            public String toString() {
+                toStringCalls.incrementAndGet();
+                return "expensive";
+            }
+        };
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (RingBufferLogger logger = new RingBufferLogger(
+                Channels.newChannel(bytes), RingBufferLogger.Level.WARNING, 8)) {
+            assertFalse(logger.isEnabled(RingBufferLogger.Level.INFO));
+            logger.log(RingBufferLogger.Level.INFO, "value {}", expensive);
+            logger.logInfo("skipped");
+            logger.log(RingBufferLogger.Level.ERROR, "value {}", expensive);
+            assertEquals(1, logger.publishedCount());
+        }
+
+        assertEquals(1, toStringCalls.get());
+        assertEquals(1, bytes.toString(StandardCharsets.UTF_8).lines().count());
+    }
+
+    @Test
+    public void testConcurrentProducersWithSmallRing() throws Exception {
+        Path file = Files.createTempFile("ring-logger-test", ".log");
+        int producers = 16;
+        int perProducer = 2_000;
+        try {
+            try (RingBufferLogger logger = RingBufferLogger.open(file, RingBufferLogger.Level.INFO, 64)) {
+                Thread[] threads = new Thread[producers];
+                for (int t = 0; t < producers; t++) {
+                    int id = t;
+                    threads[t] = new Thread(() -> {
+                        for (int i = 0; i < perProducer; i++) {
+                            logger.log(RingBufferLogger.Level.INFO, "p{} #{}", id, i);
+                        }
+                    });
+                    threads[t].start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            }
+
+            List<String> lines = Files.readAllLines(file);
+            assertEquals(producers * perProducer, lines.size());
+            // 同一生产者的日志保持提交顺序
+            List<String> first = lines.stream().filter(l -> l.contains("] p0 #")).toList();
+            for (int i = 0; i < perProducer; i++) {
+                assertTrue(first.get(i).endsWith("p0 #" + i));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testIdleConsumerIsWokenByProducer() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (RingBufferLogger logger = new RingBufferLogger(
+                Channels.newChannel(bytes), RingBufferLogger.Level.INFO, 8)) {
+            for (int i = 1; i <= 3; i++) {
+                // 消费者此时已空闲park，没有超时唤醒，只能靠生产者unpark
+                Thread.sleep(50);
+                logger.log(RingBufferLogger.Level.INFO, "tick {}", i);
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (logger.writtenCount() < i && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+                assertEquals(i, logger.writtenCount());
+            }
+
+            // 空闲的消费者处于无超时的park（WAITING），而不是定时轮询（TIMED_WAITING）
+            Thread consumer = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("ring-buffer-logger"))
+                .findFirst()
+                .orElseThrow();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (consumer.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(Thread.State.WAITING, consumer.getState());
+        }
+    }
+
+    @Test
+    public void testCloseDrainsEveryClaimedEvent() throws Exception {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            RingBufferLogger logger = new RingBufferLogger(
+                Channels.newChannel(bytes), RingBufferLogger.Level.INFO, 16);
+            CountDownLatch started = new CountDownLatch(4);
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 20_000; i++) {
+                        logger.log(RingBufferLogger.Level.INFO, "n{}", i);
+                    }
+                });
+                threads[t].start();
+            }
+            started.await();
+            // 生产者仍在写入时关闭
+            logger.close();
+            long published = logger.publishedCount();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(published, logger.publishedCount());
+            assertEquals(published, logger.writtenCount());
+            assertEquals(published, bytes.toString(StandardCharsets.UTF_8).lines().count());
+        }
+    }
+
+    @Test
+    public void testCloseIsIdempotent() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RingBufferLogger logger = new RingBufferLogger(
+            Channels.newChannel(bytes), RingBufferLogger.Level.INFO, 8);
+        try (logger) {
+            logger.logInfo("before");
+            logger.close();
+        }
+        logger.close();
+
+        logger.logInfo("after");
+        logger.log(RingBufferLogger.Level.ERROR, "after {}", 1L);
+        logger.close();
+
+        assertEquals(1, logger.publishedCount());
+        assertEquals(1, logger.writtenCount());
+        assertEquals(List.of("before"), bytes.toString(StandardCharsets.UTF_8).lines()
+            .map(line -> line.substring(line.lastIndexOf("] ") + 2)).toList());
+    }
+
+    @Test
+    public void testCapacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBufferLogger(
+            Channels.newChannel(new ByteArrayOutputStream()), RingBufferLogger.Level.INFO, 100));
+    }
+}
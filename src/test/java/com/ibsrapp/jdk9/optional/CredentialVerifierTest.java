@@ -0,0 +1,118 @@
+package com.ibsrapp.jdk9.optional;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 口令校验服务单元测试
+ */
+public class CredentialVerifierTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CredentialVerifier.Builder verifier() {
+        return CredentialVerifier.builder()
+            .iterations(1_000)
+            .cacheTtl(10, TimeUnit.SECONDS)
+            .failureBucket(3, 30, TimeUnit.SECONDS)
+            .workers(2, 16)
+            .clock(now::get);
+    }
+
+    @Test
+    public void testSuccessIsCachedUntilTtl() {
+        try (CredentialVerifier verifier = verifier().build()) {
+            verifier.register("admin", "password");
+
+            assertEquals(CredentialVerifier.Outcome.SUCCESS, verifier.authenticate("admin", "password").join());
+            assertEquals(CredentialVerifier.Outcome.CACHED, verifier.authenticate("admin", "password").join());
+
+            now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+            assertEquals(CredentialVerifier.Outcome.SUCCESS, verifier.authenticate("admin", "password").join());
+        }
+    }
+
+    @Test
+    public void testPasswordChangeInvalidatesCache() {
+        try (CredentialVerifier verifier = verifier().build()) {
+            verifier.register("admin", "password");
+            verifier.authenticate("admin", "password").join();
+
+            verifier.register("admin", "newPassword");
+            assertEquals(CredentialVerifier.Outcome.FAILED, verifier.authenticate("admin", "password").join());
+            assertEquals(Optional.of("认证成功"), verifier.authenticateUser("admin", "newPassword"));
+        }
+    }
+
+    @Test
+    public void testFailuresAreThrottledPerUser() {
+        try (CredentialVerifier verifier = verifier().build()) {
+            verifier.register("admin", "password");
+            verifier.register("alice", "secret");
+
+            for (int i = 0; i < 3; i++) {
+                assertEquals(CredentialVerifier.Outcome.FAILED, verifier.authenticate("admin", "wrong").join());
+            }
+            assertEquals(CredentialVerifier.Outcome.THROTTLED, verifier.authenticate("admin", "password").join());
+            // 其他用户不受影响
+            assertEquals(CredentialVerifier.Outcome.SUCCESS, verifier.authenticate("alice", "secret").join());
+
+            now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+            assertEquals(CredentialVerifier.Outcome.SUCCESS, verifier.authenticate("admin", "password").join());
+            assertEquals(1, verifier.countOf(CredentialVerifier.Outcome.THROTTLED));
+        }
+    }
+
+    @Test
+    public void testUnknownUserFails() {
+        try (CredentialVerifier verifier = verifier().build()) {
+            assertEquals(Optional.empty(), verifier.authenticateUser("nobody", "password"));
+            assertEquals(CredentialVerifier.Outcome.FAILED, verifier.authenticate("nobody", "x").join());
+        }
+    }
+
+    @Test
+    public void testStateIsBoundedUnderRandomUsernames() {
+        try (CredentialVerifier verifier = verifier().maxEntries(4).build()) {
+            verifier.register("admin", "password");
+            for (int i = 0; i < 4; i++) {
+                assertEquals(CredentialVerifier.Outcome.FAILED, verifier.authenticate("random" + i, "x").join());
+            }
+            // 表已满：新用户名被拒绝，已有的令牌桶不受影响
+            assertEquals(CredentialVerifier.Outcome.OVERLOADED, verifier.authenticate("admin", "password").join());
+            assertEquals(CredentialVerifier.Outcome.FAILED, verifier.authenticate("random0", "x").join());
+            assertEquals(4, verifier.trackedUsers());
+
+            // 令牌桶回满后在下一次清理时被删除
+            now.addAndGet(TimeUnit.SECONDS.toNanos(90));
+            assertEquals(CredentialVerifier.Outcome.SUCCESS, verifier.authenticate("admin", "password").join());
+            assertEquals(1, verifier.trackedUsers());
+            assertEquals(1, verifier.cachedEntries());
+
+            // 过期的缓存项和成功后回满的令牌桶同样被清理
+            now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+            assertEquals(CredentialVerifier.Outcome.FAILED, verifier.authenticate("nobody", "x").join());
+            assertEquals(0, verifier.cachedEntries());
+            assertEquals(1, verifier.trackedUsers());
+        }
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> CredentialVerifier.builder().iterations(0));
+        assertThrows(IllegalArgumentException.class,
+            () -> CredentialVerifier.builder().failureBucket(0, 1, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class,
+            () -> CredentialVerifier.builder().failureBucket(3, 0, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class,
+            () -> CredentialVerifier.builder().failureBucket(3, -1, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class,
+            () -> CredentialVerifier.builder().cacheTtl(-1, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> CredentialVerifier.builder().workers(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> CredentialVerifier.builder().maxEntries(0));
+    }
+}
@@ -0,0 +1,146 @@
+package com.ibsrapp.jdk9.optional;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分层配置解析缓存单元测试
+ */
+public class LayeredConfigResolverTest {
+
+    private final Map<String, String> env = new ConcurrentHashMap<>();
+    private final Map<String, String> file = new ConcurrentHashMap<>();
+    private final LayeredConfigResolver.StubDatabase database =
+        new LayeredConfigResolver.StubDatabase(0, TimeUnit.NANOSECONDS);
+
+    private LayeredConfigResolver.Builder layers() {
+        return LayeredConfigResolver.builder()
+            .layer("env", key -> Optional.ofNullable(env.get(key)))
+            .layer("file", key -> Optional.ofNullable(file.get(key)))
+            .layer("database", database);
+    }
+
+    @Test
+    public void testResolvesByPriorityWithProvenance() {
+        file.put("a", "file-a");
+        database.put("a", "db-a").put("b", "db-b");
+        LayeredConfigResolver resolver = layers().build();
+
+        assertEquals(Optional.of(new LayeredConfigResolver.Resolved("file-a", "file")), resolver.resolve("a"));
+        assertEquals(Optional.of(new LayeredConfigResolver.Resolved("db-b", "database")), resolver.resolve("b"));
+        assertEquals(Optional.empty(), resolver.get("c"));
+    }
+
+    @Test
+    public void testHitsDoNotTouchSources() {
+        database.put("b", "db-b");
+        LayeredConfigResolver resolver = layers().build();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Optional.of("db-b"), resolver.get("b"));
+        }
+        assertEquals(1, database.queries());
+        assertEquals(9, resolver.stats().hits());
+    }
+
+    @Test
+    public void testLayerInvalidationOnlyAffectsDependentEntries() {
+        file.put("a", "file-a");
+        database.put("b", "db-b");
+        LayeredConfigResolver resolver = layers().build();
+        resolver.get("a");
+        resolver.get("b");
+
+        // 数据库层变化不影响来自文件层的结果
+        database.put("a", "db-a").put("b", "db-b2");
+        resolver.invalidateLayer("database");
+        assertEquals(Optional.of("file-a"), resolver.get("a"));
+        assertEquals(Optional.of("db-b2"), resolver.get("b"));
+        assertEquals(1, resolver.stats().hits());
+
+        // 更高优先级的层新增了值，来自更低层的结果失效
+        env.put("b", "env-b");
+        resolver.invalidateLayer("env");
+        assertEquals(Optional.of(new LayeredConfigResolver.Resolved("env-b", "env")), resolver.resolve("b"));
+    }
+
+    @Test
+    public void testNegativeCachingAndExpiry() throws InterruptedException {
+        LayeredConfigResolver resolver = layers().negativeTtl(20, TimeUnit.MILLISECONDS).build();
+
+        assertTrue(resolver.get("missing").isEmpty());
+        assertTrue(resolver.get("missing").isEmpty());
+        assertEquals(1, database.queries());
+        assertEquals(1, resolver.stats().negativeHits());
+
+        Thread.sleep(40);
+        database.put("missing", "now-present");
+        assertEquals(Optional.of("now-present"), resolver.get("missing"));
+    }
+
+    @Test
+    public void testNegativeEntryInvalidatedByAnyLayer() {
+        LayeredConfigResolver resolver = layers().build();
+        assertTrue(resolver.get("k").isEmpty());
+
+        database.put("k", "v");
+        resolver.invalidateLayer("database");
+        assertEquals(Optional.of("v"), resolver.get("k"));
+    }
+
+    @Test
+    public void testInvalidateKey() {
+        database.put("k", "v1");
+        LayeredConfigResolver resolver = layers().build();
+        resolver.get("k");
+        database.put("k", "v2");
+        assertEquals(Optional.of("v1"), resolver.get("k"));
+        resolver.invalidateKey("k");
+        assertEquals(Optional.of("v2"), resolver.get("k"));
+    }
+
+    @Test
+    public void testHitReturnsCachedOptional() {
+        database.put("b", "db-b");
+        LayeredConfigResolver resolver = layers().build();
+
+        assertSame(resolver.get("b"), resolver.get("b"));
+        assertSame(resolver.resolve("b"), resolver.resolve("b"));
+    }
+
+    @Test
+    public void testCacheIsBoundedAndInvalidationDropsEntries() {
+        file.put("a", "file-a");
+        database.put("b", "db-b");
+        LayeredConfigResolver resolver = layers().maxKeys(3).build();
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(resolver.get("missing" + i).isEmpty());
+        }
+        assertEquals(3, resolver.stats().cachedKeys());
+
+        // 负缓存依赖所有层，任何一层失效都会删除它们
+        resolver.invalidateLayer("database");
+        assertEquals(0, resolver.stats().cachedKeys());
+
+        assertEquals(Optional.of("file-a"), resolver.get("a"));
+        assertEquals(Optional.of("db-b"), resolver.get("b"));
+        resolver.invalidateLayer("database");
+        assertEquals(1, resolver.stats().cachedKeys());
+        assertEquals(Optional.of("file-a"), resolver.get("a"));
+        assertEquals(2, resolver.stats().resolutions() - 100);
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalStateException.class, () -> LayeredConfigResolver.builder().build());
+        assertThrows(IllegalArgumentException.class, () -> layers().layer("env", key -> Optional.empty()));
+        assertThrows(IllegalArgumentException.class, () -> layers().build().invalidateLayer("cache"));
+        assertThrows(IllegalArgumentException.class, () -> layers().maxKeys(0));
+    }
+}
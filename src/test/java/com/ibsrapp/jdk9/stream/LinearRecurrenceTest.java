@@ -0,0 +1,100 @@
+package com.ibsrapp.jdk9.stream;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import java.util.PrimitiveIterator;
+import java.util.stream.Stream;
+
+/**
+ * 线性递推数列单元测试
+ */
+public class LinearRecurrenceTest {
+
+    @Test
+    public void testMatchesStreamIterate() {
+        long[] expected = Stream.iterate(new long[] {0, 1}, arr -> new long[] {arr[1], arr[0] + arr[1]})
+            .limit(93)
+            .mapToLong(arr -> arr[0])
+            .toArray();
+        LinearRecurrence fib = LinearRecurrence.fibonacci();
+
+        assertArrayEquals(expected, fib.stream(0, 93).toArray());
+        for (int n = 0; n < expected.length; n++) {
+            assertEquals(expected[n], fib.get(n), "n=" + n);
+        }
+    }
+
+    @Test
+    public void testOverflowIsDetected() {
+        LinearRecurrence fib = LinearRecurrence.fibonacci();
+        assertEquals(7540113804746346429L, fib.get(92));
+        assertThrows(ArithmeticException.class, () -> fib.get(93));
+
+        PrimitiveIterator.OfLong iterator = fib.iterator();
+        for (int i = 0; i < 93; i++) {
+            iterator.nextLong();
+        }
+        assertThrows(ArithmeticException.class, iterator::nextLong);
+    }
+
+    @Test
+    public void testIntermediateOverflowFallsBackToBigInteger() {
+        // a(n) = 2·a(n-1)，a(0) = 0：每一项都是0，但M^64 = 2^64已经超出long
+        LinearRecurrence zeros = LinearRecurrence.of(new long[] {2}, new long[] {0});
+        assertEquals(0, zeros.get(70));
+        assertEquals(0, zeros.get(5000));
+        assertArrayEquals(new long[] {0, 0, 0}, zeros.stream(100, 103).toArray());
+
+        LinearRecurrence doubling = LinearRecurrence.of(new long[] {2}, new long[] {1});
+        assertEquals(1L << 62, doubling.get(62));
+        assertThrows(ArithmeticException.class, () -> doubling.get(63));
+
+        // 矩阵幂超过位数上限时不再尝试，直接判定溢出
+        assertThrows(ArithmeticException.class, () -> zeros.get(1L << 40));
+        assertThrows(ArithmeticException.class, () -> LinearRecurrence.fibonacci().get(1_000_000_000_000L));
+    }
+
+    @Test
+    public void testBigAndModulo() {
+        LinearRecurrence fib = LinearRecurrence.fibonacci();
+        BigInteger f300 = new BigInteger("222232244629420445529739893461909967206666939096499764990979600");
+        assertEquals(f300, fib.getBig(300));
+
+        LinearRecurrence mod = fib.modulo(1_000_000_007);
+        assertEquals(f300.mod(BigInteger.valueOf(1_000_000_007)).longValue(), mod.get(300));
+        assertEquals(mod.get(300), mod.getBig(300).longValue());
+        assertEquals(mod.get(12345), mod.stream(12345, 12346).sum());
+    }
+
+    @Test
+    public void testHigherOrderRecurrence() {
+        // Tribonacci：0, 0, 1, 1, 2, 4, 7, 13, 24, 44
+        LinearRecurrence tribonacci = LinearRecurrence.of(new long[] {1, 1, 1}, new long[] {0, 0, 1});
+        assertArrayEquals(new long[] {0, 0, 1, 1, 2, 4, 7, 13, 24, 44}, tribonacci.stream(0, 10).toArray());
+        assertArrayEquals(new long[] {13, 24, 44}, tribonacci.stream(7, 10).toArray());
+        assertEquals(44, tribonacci.get(9));
+        assertEquals(BigInteger.valueOf(44), tribonacci.getBig(9));
+    }
+
+    @Test
+    public void testParallelStreamMatchesSequential() {
+        LinearRecurrence mod = LinearRecurrence.fibonacci().modulo(998_244_353);
+        long[] sequential = mod.stream(100, 200_000).toArray();
+        long[] parallel = mod.stream(100, 200_000).parallel().toArray();
+        assertArrayEquals(sequential, parallel);
+        assertEquals(mod.get(150_000), sequential[150_000 - 100]);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> LinearRecurrence.of(new long[] {1, 1}, new long[] {0}));
+        IllegalArgumentException empty = assertThrows(IllegalArgumentException.class,
+            () -> LinearRecurrence.of(new long[0], new long[0]));
+        assertEquals("至少需要一个系数", empty.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> LinearRecurrence.fibonacci().modulo(1));
+        assertThrows(IllegalArgumentException.class, () -> LinearRecurrence.fibonacci().get(-1));
+        assertThrows(IllegalArgumentException.class, () -> LinearRecurrence.fibonacci().stream(5, 4));
+    }
+}
@@ -0,0 +1,126 @@
+package com.ibsrapp.jdk9.stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 流式日志读取单元测试
+ */
+public class LogFileReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(dir.resolve("app.log"), content);
+    }
+
+    private static List<String> lines(LogFileReader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        reader.forEach(line -> lines.add(line.toString()));
+        return lines;
+    }
+
+    @Test
+    public void testSkipHeaderMatchesDropWhile() throws IOException {
+        Path file = write("# 日志开始\n# 时间戳\nINFO: 应用启动\r\n# 不是头部\nERROR: 配置错误");
+
+        List<String> expected;
+        try (Stream<String> stream = Files.lines(file)) {
+            expected = stream.dropWhile(line -> line.startsWith("#")).toList();
+        }
+        assertEquals(expected, lines(LogFileReader.builder(file).skipHeader("#").build()));
+    }
+
+    @Test
+    public void testLevelFilter() throws IOException {
+        Path file = write("INFO: a\nERROR: b\nWARN: c\nERRORS d\nINFO: e\n");
+
+        assertEquals(List.of("ERROR: b"), lines(LogFileReader.builder(file).levels("ERROR").build()));
+        assertEquals(3, LogFileReader.builder(file).levels("INFO", "ERROR").build().count());
+    }
+
+    @Test
+    public void testHeaderOnlyAndEmptyFile() throws IOException {
+        Path file = write("# a\n# b\n");
+        assertEquals(0, LogFileReader.builder(file).skipHeader("#").build().count());
+
+        Files.writeString(file, "");
+        assertEquals(0, LogFileReader.builder(file).build().count());
+        assertEquals(0, LogFileReader.builder(file).build().countParallel(4));
+    }
+
+    @Test
+    public void testLinesAcrossWindowBoundaries() throws IOException {
+        StringBuilder content = new StringBuilder("# header\n");
+        for (int i = 0; i < 500; i++) {
+            content.append(i % 3 == 0 ? "ERROR: " : "INFO: ").append(i).append('\n');
+        }
+        Path file = write(content.toString());
+
+        List<String> expected;
+        try (Stream<String> stream = Files.lines(file)) {
+            expected = stream.skip(1).toList();
+        }
+        assertEquals(expected, lines(LogFileReader.builder(file).skipHeader("#").window(64).build()));
+    }
+
+    @Test
+    public void testLineLongerThanWindowIsRejected() throws IOException {
+        Path file = write("x".repeat(100) + "\nshort\n");
+        assertThrows(IllegalStateException.class, () -> LogFileReader.builder(file).window(16).build().count());
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws IOException {
+        Path file = dir.resolve("big.log");
+        LogFileReader.writeSampleLog(file, 1 << 20);
+        LogFileReader reader = LogFileReader.builder(file).skipHeader("#").levels("ERROR").build();
+
+        List<String> parallel = Collections.synchronizedList(new ArrayList<>());
+        long count = reader.forEachParallel(7, line -> parallel.add(line.toString()));
+        List<String> sequential = lines(reader);
+
+        assertEquals(sequential.size(), count);
+        assertEquals(sequential.stream().sorted().toList(), parallel.stream().sorted().toList());
+    }
+
+    @Test
+    public void testSampleLogSizeCountsUtf8Bytes() throws IOException {
+        Path file = dir.resolve("sized.log");
+        LogFileReader.writeSampleLog(file, 1 << 20);
+
+        // 最多超出最后一行的长度
+        long size = Files.size(file);
+        assertTrue(size >= 1 << 20, "size=" + size);
+        assertTrue(size < (1 << 20) + 100, "size=" + size);
+    }
+
+    @Test
+    public void testSplitsFallOnLineStarts() throws IOException {
+        Path file = write("aaaa\nbb\ncccccc\nd\neeeeeeee\n");
+        LogFileReader reader = LogFileReader.builder(file).build();
+        byte[] bytes = Files.readAllBytes(file);
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            long[] bounds = reader.splits(channel, 0, bytes.length, 4);
+            assertEquals(0, bounds[0]);
+            assertEquals(bytes.length, bounds[4]);
+            for (int i = 1; i < 4; i++) {
+                assertTrue(bounds[i] >= bounds[i - 1]);
+                assertTrue(bounds[i] == bytes.length || bytes[(int) bounds[i] - 1] == '\n');
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> reader.countParallel(0));
+    }
+}